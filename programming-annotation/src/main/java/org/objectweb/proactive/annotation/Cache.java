@@ -47,9 +47,18 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
 /**
- * this annotation makes the stub to cache the value of the first method call.
- * This annotation is not meant to be used when the result is a primitive type.
+ * this annotation makes the stubs cache the result of the method call, for each value of
+ * the arguments. The cache is shared by all the stubs of the JVM and bounded by the
+ * proactive.stub.cache.size property, the least recently used results are evicted first.
+ * The arguments must implement equals and hashCode.
+ * Cached results are dropped when a method annotated with {@link Invalidates} is called.
  */
 @PublicAPI
 public @interface Cache {
+
+    /**
+     *
+     * @return the time to live of a cached result in milliseconds, 0 for no expiration
+     */
+    long ttl() default 0;
 }
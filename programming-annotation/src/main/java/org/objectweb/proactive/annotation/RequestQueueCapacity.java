@@ -0,0 +1,81 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+/**
+ * this annotation bounds the number of pending requests of the active objects of the annotated class
+ */
+@PublicAPI
+public @interface RequestQueueCapacity {
+
+    /**
+     * What to do with an incoming request when the request queue is full
+     */
+    public enum OverflowPolicy {
+        /** the sender is blocked until a request is served */
+        BLOCK,
+        /**
+         * the request is rejected, the sender receives a RequestQueueFullException: through its
+         * future, or thrown by the call itself for a one-way request
+         */
+        FAIL,
+        /** one-way requests are dropped, the others block the sender */
+        SHED_ONE_WAY;
+    }
+
+    /**
+     *
+     * @return the maximum number of pending requests
+     */
+    int value();
+
+    /**
+     *
+     * @return the policy applied when the request queue is full
+     */
+    OverflowPolicy policy() default OverflowPolicy.BLOCK;
+}
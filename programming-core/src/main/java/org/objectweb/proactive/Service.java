@@ -36,9 +36,13 @@
  */
 package org.objectweb.proactive;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import org.apache.log4j.Logger;
 import org.objectweb.proactive.annotation.PublicAPI;
 import org.objectweb.proactive.core.body.request.BlockingRequestQueue;
+import org.objectweb.proactive.core.body.request.MethodNameRequestFilter;
 import org.objectweb.proactive.core.body.request.Request;
 import org.objectweb.proactive.core.body.request.RequestFilter;
 import org.objectweb.proactive.core.body.request.RequestProcessor;
@@ -1293,7 +1297,7 @@ public class Service {
      * @see RequestFilter
      *
      */
-    protected class RequestFilterOnMethodName implements RequestFilter, java.io.Serializable {
+    protected class RequestFilterOnMethodName implements MethodNameRequestFilter, java.io.Serializable {
         private String methodName;
 
         public RequestFilterOnMethodName(String methodName) {
@@ -1303,6 +1307,10 @@ public class Service {
         public boolean acceptRequest(Request request) {
             return methodName.equals(request.getMethodName());
         }
+
+        public Collection<String> getMethodNames() {
+            return Collections.singleton(methodName);
+        }
     }
 
     /**
@@ -40,10 +40,8 @@ import java.io.IOException;
 import java.lang.reflect.Array;
 import java.lang.reflect.Modifier;
 import java.net.URI;
-import java.util.Vector;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.objectweb.proactive.Active;
 import org.objectweb.proactive.ActiveObjectCreationException;
@@ -77,10 +75,9 @@ import org.objectweb.proactive.core.remoteobject.RemoteObjectSet.NotYetExposedEx
 import org.objectweb.proactive.core.remoteobject.SynchronousProxy;
 import org.objectweb.proactive.core.remoteobject.exception.UnknownProtocolException;
 import org.objectweb.proactive.core.util.NonFunctionalServices;
-import org.objectweb.proactive.core.util.ProcessForAoCreation;
+import org.objectweb.proactive.core.util.BulkAoCreation;
 import org.objectweb.proactive.core.util.log.Loggers;
 import org.objectweb.proactive.core.util.log.ProActiveLogger;
-import org.objectweb.proactive.utils.NamedThreadFactory;
 import org.apache.log4j.Logger;
 
 
@@ -532,12 +529,14 @@ public class PAActiveObject {
 
     /**
      * <p>
-     * Create a set of active objects with given constructor parameters. The object activation is
-     * optimized by a thread pool.
+     * Create a set of active objects with given constructor parameters. The active objects to
+     * create on a same runtime are sent in a single request, and the runtime builds them in
+     * parallel.
      * </p>
      * <p>
      * The total of active objects created is equal to the number of nodes and to the total of
-     * constructor parameters also.
+     * constructor parameters also. The returned stubs follow the order of the constructor
+     * parameters, active objects that cannot be created are left out.
      * </p>
      * <p>
      * The condition to use this method is that: <b>constructorParameters.length == nodes.length</b>
@@ -564,20 +563,16 @@ public class PAActiveObject {
                 + " be equal to the total of nodes");
         }
 
-        ThreadFactory tf = new NamedThreadFactory("ProActive newActive in //");
-        ExecutorService threadPool = Executors.newCachedThreadPool(tf);
+        // The creations are batched per runtime, the stubs come back in the order of the parameters
+        Object[] stubs = BulkAoCreation.newActives(className, genericParameters, constructorParameters, nodes);
 
-        Vector<Object> result = new Vector<Object>();
-
-        // TODO execute tasks
-        // The Virtual Node is already activate
-        for (int i = 0; i < constructorParameters.length; i++) {
-            threadPool.execute(new ProcessForAoCreation(result, className, genericParameters,
-                constructorParameters[i], nodes[i % nodes.length]));
+        List<Object> result = new ArrayList<Object>(stubs.length);
+        for (Object stub : stubs) {
+            if (stub != null) {
+                result.add(stub);
+            }
         }
 
-        threadPool.shutdown();
-
         Class<?> classForResult = Class.forName(className);
         return result.toArray((Object[]) Array.newInstance(classForResult, result.size()));
     }
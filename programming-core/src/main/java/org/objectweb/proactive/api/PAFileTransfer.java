@@ -43,6 +43,7 @@ import java.util.List;
 
 import org.apache.log4j.Logger;
 import org.objectweb.proactive.annotation.PublicAPI;
+import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
 import org.objectweb.proactive.core.filetransfer.FileBlock;
 import org.objectweb.proactive.core.filetransfer.FileTransferEngine;
 import org.objectweb.proactive.core.filetransfer.FileTransferService;
@@ -235,11 +236,15 @@ public class PAFileTransfer {
     protected static List<RemoteFile> internalTransfer(Node srcNode, File[] srcFile, Node dstNode,
             File[] dstFile, int bsize, int numFlyingBlocks) throws IOException {
         FileTransferServiceSend ftsSrc;
-        FileTransferServiceReceive ftsDst;
+        FileTransferServiceReceive[] ftsDst = new FileTransferServiceReceive[Math.max(1,
+                CentralPAPropertyRepository.PA_FILETRANSFER_STREAMS.getValue())];
 
         try {
             ftsSrc = FileTransferEngine.getFileTransferEngine(srcNode).getFTS();
-            ftsDst = FileTransferEngine.getFileTransferEngine(dstNode).getFTS();
+            FileTransferEngine dstEngine = FileTransferEngine.getFileTransferEngine(dstNode);
+            for (int i = 0; i < ftsDst.length; i++) {
+                ftsDst[i] = dstEngine.getFTS();
+            }
         } catch (Exception e) {
             //TODO change when moving to Java 1.6
             //throw new IOException("Unable to connect or use ProActive Node: " + srcNode + " -> " + dstNode, e);
@@ -255,7 +260,10 @@ public class PAFileTransfer {
             rfile.add(new RemoteFileImpl(dstNode, dstFile[i], status));
         }
 
-        ftsSrc.putBackInPool(ftsDst);
+        ftsSrc.putBackInPool(ftsDst[0]);
+        for (int i = 1; i < ftsDst.length; i++) {
+            ftsDst[i].putBackInLocalPool();
+        }
 
         return rfile;
     }
@@ -46,6 +46,7 @@ import org.objectweb.proactive.annotation.PublicAPI;
 import org.objectweb.proactive.core.ProActiveException;
 import org.objectweb.proactive.core.ProActiveTimeoutException;
 import org.objectweb.proactive.core.body.future.Future;
+import org.objectweb.proactive.core.body.future.FutureCompletionQueue;
 import org.objectweb.proactive.core.body.future.FutureMonitoring;
 import org.objectweb.proactive.core.body.future.FuturePool;
 import org.objectweb.proactive.core.body.future.FutureProxy;
@@ -287,11 +288,16 @@ public class PAFuture {
      */
     public static void waitForAll(Collection<?> futures, long timeout) throws ProActiveTimeoutException {
         TimeoutAccounter time = TimeoutAccounter.getAccounter(timeout);
-        for (Object future : futures) {
-            if (time.isTimeoutElapsed()) {
-                throw new ProActiveTimeoutException("Timeout expired while waiting for future update");
+        FutureCompletionQueue<Object> queue = new FutureCompletionQueue<Object>(futures);
+        try {
+            while (!queue.isEmpty()) {
+                if (time.isTimeoutElapsed()) {
+                    throw new ProActiveTimeoutException("Timeout expired while waiting for future update");
+                }
+                queue.takeIndex(time.getRemainingTimeout());
             }
-            PAFuture.waitFor(future, time.getRemainingTimeout());
+        } finally {
+            queue.close();
         }
     }
 
@@ -366,35 +372,30 @@ public class PAFuture {
              */
             return PAFuture.INVALID_EMPTY_COLLECTION;
         }
-        FuturePool fp = PAActiveObject.getBodyOnThis().getFuturePool();
-        TimeoutAccounter time = TimeoutAccounter.getAccounter(timeout);
 
-        for (Object future : futures) {
-            if (PAFuture.isAwaited(future)) {
-                monitorFuture(future);
-            }
+        // Futures already available are queued in the collection order
+        FutureCompletionQueue<E> queue = new FutureCompletionQueue<E>(futures);
+        try {
+            return queue.takeIndex(timeout);
+        } catch (ProActiveTimeoutException e) {
+            throw new ProActiveException(e.getMessage());
+        } finally {
+            queue.close();
         }
+    }
 
-        synchronized (fp) {
-            while (true) {
-                Iterator<E> it = futures.iterator();
-                int index = 0;
-
-                while (it.hasNext()) {
-                    Object current = it.next();
-
-                    if (!PAFuture.isAwaited(current)) {
-                        return index;
-                    }
-
-                    index++;
-                }
-                if (time.isTimeoutElapsed()) {
-                    throw new ProActiveException("Timeout expired while waiting for future update");
-                }
-                fp.waitForReply(time.getRemainingTimeout());
-            }
-        }
+    /**
+     * Create a queue returning the given futures in the order they are updated.
+     *
+     * It should be preferred to successive calls to {@link #waitForAny(List, long)} to process a
+     * large number of futures as they arrive.
+     *
+     * @param futures
+     *            the futures to register, other futures can be added later
+     * @return a completion queue
+     */
+    public static <E> FutureCompletionQueue<E> newCompletionQueue(Collection<? extends E> futures) {
+        return new FutureCompletionQueue<E>(futures);
     }
 
     /**
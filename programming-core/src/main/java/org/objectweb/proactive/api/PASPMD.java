@@ -44,6 +44,7 @@ import org.objectweb.proactive.annotation.PublicAPI;
 import org.objectweb.proactive.core.body.AbstractBody;
 import org.objectweb.proactive.core.group.Group;
 import org.objectweb.proactive.core.group.ProxyForGroup;
+import org.objectweb.proactive.core.group.spmd.BarrierAlgorithm;
 import org.objectweb.proactive.core.group.spmd.MethodCallBarrier;
 import org.objectweb.proactive.core.group.spmd.MethodCallBarrierWithMethodName;
 import org.objectweb.proactive.core.mop.ClassNotReifiableException;
@@ -406,6 +407,47 @@ public class PASPMD {
         PASPMD.neighbourBarrier(barrierName, PASPMD.getSPMDGroup());
     }
 
+    /**
+     * Strongly synchronizes all the members of the spmd group with the specified algorithm.
+     * {@link BarrierAlgorithm#DISSEMINATION} and {@link BarrierAlgorithm#TREE} need O(N log N)
+     * and O(N) messages where the default algorithm needs O(N<sup>2</sup>).
+     * 
+     * @param barrierName
+     *            the name of the barrier (used as unique identifier)
+     * @param algorithm
+     *            the barrier algorithm, the same for all the members
+     */
+    public static void totalBarrier(String barrierName, BarrierAlgorithm algorithm) {
+        PASPMD.neighbourBarrier(barrierName, PASPMD.getSPMDGroup(), algorithm);
+    }
+
+    /**
+     * Strongly synchronizes all the members of the group with the specified algorithm.
+     * Beware ! The caller object HAS TO BE IN THE GROUP <code>group</code>
+     * 
+     * @param barrierName -
+     *            the name of the barrier (used as unique identifier)
+     * @param group -
+     *            the typed group the barrier is invoked on
+     * @param algorithm -
+     *            the barrier algorithm, the same for all the members
+     */
+    public static void neighbourBarrier(String barrierName, Object group, BarrierAlgorithm algorithm) {
+        if (algorithm == BarrierAlgorithm.ALL_TO_ALL) {
+            PASPMD.neighbourBarrier(barrierName, group);
+            return;
+        }
+
+        Group<Object> g = PAGroup.getGroup(group);
+        int rank = g.indexOf(PAActiveObject.getStubOnThis());
+        if (rank < 0) {
+            throw new IllegalArgumentException("The caller is not a member of the group of barrier " +
+                barrierName);
+        }
+        AbstractBody body = (AbstractBody) PAActiveObject.getBodyOnThis();
+        body.getProActiveSPMDGroupManager().enterBarrier(barrierName, algorithm, group, rank, g.size());
+    }
+
     /**
      * Strongly synchronizes all the members of the group. Beware ! The caller object HAS TO BE IN
      * THE GROUP <code>group</code>
@@ -55,11 +55,13 @@ import org.objectweb.proactive.core.ProActiveException;
 import org.objectweb.proactive.core.UniqueID;
 import org.objectweb.proactive.core.body.exceptions.BodyTerminatedReplyException;
 import org.objectweb.proactive.core.body.exceptions.BodyTerminatedRequestException;
+import org.objectweb.proactive.core.body.exceptions.UnknownSenderContextException;
 import org.objectweb.proactive.core.body.future.Future;
 import org.objectweb.proactive.core.body.future.FuturePool;
 import org.objectweb.proactive.core.body.reply.Reply;
 import org.objectweb.proactive.core.body.request.BlockingRequestQueue;
 import org.objectweb.proactive.core.body.request.Request;
+import org.objectweb.proactive.core.body.request.RequestImpl;
 import org.objectweb.proactive.core.body.tags.LocalMemoryTag;
 import org.objectweb.proactive.core.body.tags.MessageTagsFactory;
 import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
@@ -226,6 +228,10 @@ public abstract class AbstractBody extends AbstractUniversalBody implements Body
                 throw new BodyTerminatedRequestException(shortString(), request != null ? request
                         .getMethodName() : null);
             }
+            if ((request instanceof RequestImpl) && ((RequestImpl) request).isSenderContextMissing()) {
+                // The sender will send the request again with its full header
+                throw new UnknownSenderContextException(shortString(), request.getMethodName());
+            }
             this.registerIncomingFutures();
             this.internalReceiveRequest(request);
         } finally {
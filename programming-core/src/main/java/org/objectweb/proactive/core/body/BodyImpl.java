@@ -50,6 +50,7 @@ import javax.management.ObjectName;
 import org.objectweb.proactive.ActiveObjectCreationException;
 import org.objectweb.proactive.ProActiveInternalObject;
 import org.objectweb.proactive.annotation.ImmediateService;
+import org.objectweb.proactive.annotation.RequestQueueCapacity;
 import org.objectweb.proactive.api.PAActiveObject;
 import org.objectweb.proactive.core.ProActiveRuntimeException;
 import org.objectweb.proactive.core.UniqueID;
@@ -57,13 +58,19 @@ import org.objectweb.proactive.core.body.exceptions.InactiveBodyException;
 import org.objectweb.proactive.core.body.future.Future;
 import org.objectweb.proactive.core.body.future.FuturePool;
 import org.objectweb.proactive.core.body.future.MethodCallResult;
+import org.objectweb.proactive.core.body.reply.BatchedReply;
 import org.objectweb.proactive.core.body.reply.Reply;
+import org.objectweb.proactive.core.body.reply.ReplyBatcher;
+import org.objectweb.proactive.core.body.reply.ReplySendQueue;
 import org.objectweb.proactive.core.body.reply.ReplyImpl;
 import org.objectweb.proactive.core.body.reply.ReplyReceiver;
 import org.objectweb.proactive.core.body.request.*;
 import org.objectweb.proactive.core.body.tags.MessageTags;
 import org.objectweb.proactive.core.body.tags.Tag;
 import org.objectweb.proactive.core.body.tags.tag.DsiTag;
+import org.objectweb.proactive.core.body.tags.tag.TraceTag;
+import org.objectweb.proactive.core.body.tags.tracing.Span.Phase;
+import org.objectweb.proactive.core.body.tags.tracing.Tracer;
 import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
 import org.objectweb.proactive.core.jmx.mbean.BodyWrapper;
 import org.objectweb.proactive.core.jmx.naming.FactoryName;
@@ -130,6 +137,9 @@ public abstract class BodyImpl extends AbstractBody implements java.io.Serializa
     // already checked methods
     private HashMap<String, HashSet<List<Class<?>>>> checkedMethodNames;
 
+    /** Tracks the nodes caching results of this active object, null if its class uses neither @Cache nor @Invalidates */
+    private ResultCacheInvalidator resultCacheInvalidator;
+
     //
     // -- CONSTRUCTORS -----------------------------------------------
     //
@@ -183,6 +193,12 @@ public abstract class BodyImpl extends AbstractBody implements java.io.Serializa
 
         // ImmediateService 
         initializeImmediateService(reifiedObject);
+
+        // Bounded request queue
+        initializeRequestQueueCapacity(reifiedObject);
+
+        // Invalidation of the results cached by the stubs
+        this.resultCacheInvalidator = ResultCacheInvalidator.newInstance(this.bodyID, reifiedObject.getClass());
     }
 
     //
@@ -213,6 +229,14 @@ public abstract class BodyImpl extends AbstractBody implements java.io.Serializa
         // request queue length = number of requests in queue
         // + the one to add now
 
+        Tracer tracer = Tracer.getInstance();
+        if (tracer != null) {
+            TraceTag trace = TraceTag.getSampled(request);
+            if (trace != null) {
+                trace.setReceivedAt(tracer.now());
+            }
+        }
+
         this.requestReceiver.receiveRequest(request, this);
     }
 
@@ -225,7 +249,22 @@ public abstract class BodyImpl extends AbstractBody implements java.io.Serializa
     @Override
     protected void internalReceiveReply(Reply reply) throws java.io.IOException {
         // JMX Notification
-        if (!isProActiveInternalObject && (this.mbean != null) && reply.getResult().getException() == null) {
+        if (!isProActiveInternalObject && (this.mbean != null)) {
+            if (reply instanceof BatchedReply) {
+                for (Reply batchedReply : ((BatchedReply) reply).getReplies()) {
+                    notifyReplyReceived(batchedReply);
+                }
+            } else {
+                notifyReplyReceived(reply);
+            }
+        }
+
+        // END JMX Notification
+        replyReceiver.receiveReply(reply, this, getFuturePool());
+    }
+
+    private void notifyReplyReceived(Reply reply) {
+        if (reply.getResult().getException() == null) {
             String tagNotification = createTagNotification(reply.getTags());
             RequestNotificationData requestNotificationData = new RequestNotificationData(
                 BodyImpl.this.bodyID, BodyImpl.this.getNodeURL(), reply.getSourceBodyID(), this.nodeURL,
@@ -233,9 +272,6 @@ public abstract class BodyImpl extends AbstractBody implements java.io.Serializa
                 tagNotification);
             this.mbean.sendNotification(NotificationType.replyReceived, requestNotificationData);
         }
-
-        // END JMX Notification
-        replyReceiver.receiveReply(reply, this, getFuturePool());
     }
 
     /**
@@ -248,6 +284,17 @@ public abstract class BodyImpl extends AbstractBody implements java.io.Serializa
     protected void activityStopped(boolean completeACs) {
         super.activityStopped(completeACs);
 
+        // The replies sent by the service thread must not be lost with the runtime, e.g. when
+        // the body terminates the runtime
+        ReplySendQueue sendQueue = ReplySendQueue.getInstance();
+        if (sendQueue != null) {
+            sendQueue.flushAll();
+        }
+        ReplyBatcher batcher = ReplyBatcher.getInstance();
+        if (batcher != null) {
+            batcher.flushAll();
+        }
+
         // Copies the requests to the remaining request queue of inactive body
         // because they are removed once the localBodyStrategy is changed
         RequestQueue queue = new RequestQueueImpl(getID());
@@ -313,6 +360,21 @@ public abstract class BodyImpl extends AbstractBody implements java.io.Serializa
         }
     }
 
+    /**
+     * Bound the request queue according to the {@link RequestQueueCapacity} annotation, unless the
+     * meta object factory already did it
+     */
+    protected void initializeRequestQueueCapacity(Object reifiedObject) {
+        RequestQueueCapacity rqc = reifiedObject.getClass().getAnnotation(RequestQueueCapacity.class);
+        if (rqc != null) {
+            RequestQueue queue = getRequestQueue();
+            if (queue instanceof BlockingRequestQueueImpl &&
+                ((BlockingRequestQueueImpl) queue).getCapacity() == 0) {
+                ((BlockingRequestQueueImpl) queue).setCapacity(rqc.value(), rqc.policy());
+            }
+        }
+    }
+
     private void checkImmediateServiceMode(String methodName, Class<?>[] parametersTypes, boolean uniqueThread) {
         if (parametersTypes == null) { // all args               
             if (!checkMethod(methodName)) {
@@ -510,6 +572,19 @@ public abstract class BodyImpl extends AbstractBody implements java.io.Serializa
                 return;
             }
 
+            // Tracing: the time spent in the queue
+            Tracer tracer = Tracer.getInstance();
+            TraceTag trace = (tracer != null) ? TraceTag.getSampled(request) : null;
+            long serveStart = 0;
+            if (trace != null) {
+                serveStart = tracer.now();
+                trace.setServeSpanId(Tracer.newSpanId());
+                if (trace.getReceivedAt() != 0) {
+                    tracer.record(trace, Tracer.newSpanId(), trace.getSpanId(), Phase.QUEUE, request
+                            .getMethodName(), bodyID, trace.getReceivedAt(), serveStart);
+                }
+            }
+
             // JMX Notification
             if (!isProActiveInternalObject && (mbean != null)) {
                 String tagNotification = createTagNotification(request.getTags());
@@ -550,9 +625,17 @@ public abstract class BodyImpl extends AbstractBody implements java.io.Serializa
 
                 } else {
                     reply = request.serve(BodyImpl.this);
+                    if (resultCacheInvalidator != null) {
+                        resultCacheInvalidator.served(request);
+                    }
                 }
             }
 
+            if (trace != null) {
+                tracer.record(trace, trace.getServeSpanId(), trace.getSpanId(), Phase.SERVE, request
+                        .getMethodName(), bodyID, serveStart, tracer.now());
+            }
+
             if (reply == null) {
                 if (!isActive()) {
                     return; // test if active in case of terminate() method
@@ -616,8 +699,24 @@ public abstract class BodyImpl extends AbstractBody implements java.io.Serializa
             // as result
             // Useful if the exception is due to the content of the result
             // (e.g. InvalidClassException)
+            // The requests sent while serving must be delivered before the reply
+            RequestSendPipeline pipeline = RequestSendPipeline.getInstance();
+            if (pipeline != null) {
+                pipeline.flush(bodyID);
+            }
+
+            long replyStart = (trace != null) ? tracer.now() : 0;
             try {
-                reply.send(request.getSender());
+                // A slow caller must not hold the service thread
+                ReplySendQueue sendQueue = ReplySendQueue.getInstance();
+                ReplyBatcher batcher = ReplyBatcher.getInstance();
+                if (sendQueue != null) {
+                    sendQueue.send(reply, request.getSender());
+                } else if (batcher != null) {
+                    batcher.send(reply, request.getSender());
+                } else {
+                    reply.send(request.getSender());
+                }
             } catch (Throwable e1) {
                 // see PROACTIVE-1172
                 // previously only IOException were caught but now that new communication protocols
@@ -640,6 +739,11 @@ public abstract class BodyImpl extends AbstractBody implements java.io.Serializa
                 }
             }
 
+            if (trace != null) {
+                tracer.record(trace, Tracer.newSpanId(), trace.getSpanId(), Phase.REPLY, request
+                        .getMethodName(), bodyID, replyStart, tracer.now());
+            }
+
             this.getFuturePool().removeDestinations();
 
             // Restore Result Object
@@ -712,7 +816,26 @@ public abstract class BodyImpl extends AbstractBody implements java.io.Serializa
 
             // END JMX Notification
 
+            Tracer tracer = Tracer.getInstance();
+            TraceTag trace = (tracer != null) ? TraceTag.getSampled(request) : null;
+            long sendStart = (trace != null) ? tracer.now() : 0;
+
+            // The replies already sent to this body must be delivered before the request
+            ReplySendQueue sendQueue = ReplySendQueue.getInstance();
+            if (sendQueue != null) {
+                sendQueue.flush(destinationBody.getID());
+            }
+            ReplyBatcher batcher = ReplyBatcher.getInstance();
+            if (batcher != null) {
+                batcher.flush(destinationBody.getID());
+            }
+
             request.send(destinationBody);
+
+            if (trace != null) {
+                tracer.record(trace, trace.getSpanId(), trace.getParentSpanId(), Phase.SEND, methodCall
+                        .getName(), bodyID, sendStart, tracer.now());
+            }
         }
 
         /**
@@ -771,6 +894,11 @@ public abstract class BodyImpl extends AbstractBody implements java.io.Serializa
                     nextTags.addTag(new DsiTag(bodyID, sequenceID));
                 }
             }
+            // Start a new trace if this request is not part of a traced call chain
+            Tracer tracer = Tracer.getInstance();
+            if ((tracer != null) && !nextTags.check(TraceTag.IDENTIFIER)) {
+                nextTags.addTag(tracer.newTrace());
+            }
             return nextTags;
         }
     }
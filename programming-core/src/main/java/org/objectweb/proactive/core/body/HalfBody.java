@@ -51,6 +51,9 @@ import org.objectweb.proactive.core.body.request.RequestFactory;
 import org.objectweb.proactive.core.body.request.RequestQueue;
 import org.objectweb.proactive.core.body.tags.MessageTags;
 import org.objectweb.proactive.core.body.tags.tag.DsiTag;
+import org.objectweb.proactive.core.body.tags.tag.TraceTag;
+import org.objectweb.proactive.core.body.tags.tracing.Span.Phase;
+import org.objectweb.proactive.core.body.tags.tracing.Tracer;
 import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
 import org.objectweb.proactive.core.mop.MethodCall;
 import org.objectweb.proactive.core.node.NodeException;
@@ -227,6 +230,17 @@ public class HalfBody extends AbstractBody {
                 tags.addTag(new DsiTag(bodyID, sequenceID));
             }
 
+            // Start a new trace
+            Tracer tracer = Tracer.getInstance();
+            TraceTag trace = null;
+            if (tracer != null) {
+                if (tags == null) {
+                    tags = messageTagsFactory.newMessageTags();
+                }
+                trace = tracer.newTrace();
+                tags.addTag(trace);
+            }
+
             Request request = this.internalRequestFactory.newRequest(methodCall, HalfBody.this,
                     future == null, sequenceID, tags);
 
@@ -235,7 +249,14 @@ public class HalfBody extends AbstractBody {
                 this.futures.receiveFuture(future);
             }
 
-            request.send(destinationBody);
+            if ((trace != null) && trace.isSampled()) {
+                long sendStart = tracer.now();
+                request.send(destinationBody);
+                tracer.record(trace, trace.getSpanId(), 0, Phase.SEND, methodCall.getName(), bodyID,
+                        sendStart, tracer.now());
+            } else {
+                request.send(destinationBody);
+            }
         }
 
         //
@@ -36,13 +36,17 @@
  */
 package org.objectweb.proactive.core.body;
 
-import java.util.ArrayList;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.EmptyStackException;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
 import org.objectweb.proactive.Body;
@@ -53,6 +57,7 @@ import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
 import org.objectweb.proactive.core.jmx.mbean.ProActiveRuntimeWrapperMBean;
 import org.objectweb.proactive.core.jmx.notification.BodyNotificationData;
 import org.objectweb.proactive.core.jmx.notification.NotificationType;
+import org.objectweb.proactive.core.runtime.BodyRegistry;
 import org.objectweb.proactive.core.runtime.ProActiveRuntimeImpl;
 import org.objectweb.proactive.core.util.log.Loggers;
 import org.objectweb.proactive.core.util.log.ProActiveLogger;
@@ -84,20 +89,27 @@ public class LocalBodyStore {
     //
 
     /**
-     * This table maps all known active Bodies in this JVM with their UniqueID
+     * This registry maps all known active Bodies in this JVM with their UniqueID
      * From one UniqueID it is possible to get the corresponding body if
-     * it belongs to this JVM
+     * it belongs to this JVM. The nodes index the same bodies in their own registry.
      */
-    private BodyMap localBodyMap = new BodyMap();
+    private final BodyRegistry localBodies = new BodyRegistry();
 
     /**
      * This table maps all known HalfBodies in this JVM with their UniqueID
      * From one UniqueID it is possible to get the corresponding halfbody if
      * it belongs to this JVM
      */
-    private BodyMap localHalfBodyMap = new BodyMap();
+    private final ConcurrentMap<UniqueID, Body> localHalfBodyMap = new ConcurrentHashMap<UniqueID, Body>();
 
-    private Map<Thread, HalfBody> halfbodiesThreadMap = new HashMap<Thread, HalfBody>();
+    /**
+     * The threads having a HalfBody. Each new HalfBody checks the first entries and reclaims the
+     * half bodies of the dead threads, the other entries go back at the tail.
+     */
+    private final Queue<HalfBodyThread> halfbodiesThreads = new ConcurrentLinkedQueue<HalfBodyThread>();
+
+    /** The threads having a HalfBody which were garbage collected */
+    private final ReferenceQueue<Thread> collectedThreads = new ReferenceQueue<Thread>();
 
     /**
      * This table maps all known Forwarder's in this JVM with their UniqueID
@@ -107,7 +119,7 @@ public class LocalBodyStore {
      * its BodyID, that here now points to the Forwarder instead of the original
      * Body.
      */
-    private BodyMap localForwarderMap = new BodyMap();
+    private final ConcurrentMap<UniqueID, Body> localForwarderMap = new ConcurrentHashMap<UniqueID, Body>();
 
     /**
      * Static object that manages the registration of listeners and the sending of
@@ -115,7 +127,7 @@ public class LocalBodyStore {
      */
 
     //    private BodyEventProducerImpl bodyEventProducer = new BodyEventProducerImpl();
-    private MetaObjectFactory halfBodyMetaObjectFactory = null;
+    private volatile MetaObjectFactory halfBodyMetaObjectFactory = null;
 
     /**
      * Executions context associated to the calling thread.
@@ -143,11 +155,17 @@ public class LocalBodyStore {
     //
     // -- PUBLIC METHODS -----------------------------------------------
     //
-    public synchronized MetaObjectFactory getHalfBodyMetaObjectFactory() {
-        if (this.halfBodyMetaObjectFactory == null) {
-            this.halfBodyMetaObjectFactory = ProActiveMetaObjectFactory.newInstance();
+    public MetaObjectFactory getHalfBodyMetaObjectFactory() {
+        MetaObjectFactory factory = this.halfBodyMetaObjectFactory;
+        if (factory == null) {
+            synchronized (this) {
+                if (this.halfBodyMetaObjectFactory == null) {
+                    this.halfBodyMetaObjectFactory = ProActiveMetaObjectFactory.newInstance();
+                }
+                factory = this.halfBodyMetaObjectFactory;
+            }
         }
-        return this.halfBodyMetaObjectFactory;
+        return factory;
     }
 
     public synchronized void setHalfBodyMetaObjectFactory(MetaObjectFactory factory) {
@@ -231,34 +249,27 @@ public class LocalBodyStore {
     }
 
     private void updateHalfbodiesThreadMap(HalfBody body) {
-        List<HalfBody> toRemove = null;
-
-        synchronized (halfbodiesThreadMap) {
-            for (Iterator<Map.Entry<Thread, HalfBody>> i = halfbodiesThreadMap.entrySet().iterator(); i
-                    .hasNext();) {
-                Map.Entry<Thread, HalfBody> entry = i.next();
-                if (!entry.getKey().isAlive()) {
-                    i.remove();
-                    if (toRemove == null) {
-                        toRemove = new ArrayList<HalfBody>();
-                    }
-                    toRemove.add(entry.getValue());
-                }
-            }
-
-            halfbodiesThreadMap.put(Thread.currentThread(), body);
+        // the half bodies of the collected threads
+        Reference<? extends Thread> collected;
+        while ((collected = this.collectedThreads.poll()) != null) {
+            ((HalfBodyThread) collected).reclaim();
         }
 
-        if (toRemove != null) {
-            for (HalfBody halfBody : toRemove) {
-                LocalBodyStore.getInstance().unregisterHalfBody(halfBody);
-                try {
-                    halfBody.getRemoteObjectExposer().unregisterAll();
-                } catch (ProActiveException e) {
-                    logger.error("Failed to unregister halfBody remote object", e);
-                }
+        // checking two entries for each new one keeps the queue short without scanning it
+        for (int i = 0; i < 2; i++) {
+            HalfBodyThread entry = this.halfbodiesThreads.poll();
+            if (entry == null) {
+                break;
+            }
+            Thread t = entry.get();
+            if ((t == null) || !t.isAlive()) {
+                entry.reclaim();
+            } else {
+                this.halfbodiesThreads.offer(entry);
             }
         }
+
+        this.halfbodiesThreads.offer(new HalfBodyThread(Thread.currentThread(), body, this.collectedThreads));
     }
 
     /**
@@ -276,7 +287,7 @@ public class LocalBodyStore {
      * @return the body with matching id or null
      */
     public Body getLocalBody(UniqueID bodyID) {
-        return (Body) this.localBodyMap.getBody(bodyID);
+        return (bodyID == null) ? null : this.localBodies.get(bodyID);
     }
 
     /**
@@ -286,7 +297,7 @@ public class LocalBodyStore {
      * @return the halfbody with matching id or null
      */
     public Body getLocalHalfBody(UniqueID bodyID) {
-        return (Body) this.localHalfBodyMap.getBody(bodyID);
+        return (bodyID == null) ? null : this.localHalfBodyMap.get(bodyID);
     }
 
     /**
@@ -296,7 +307,7 @@ public class LocalBodyStore {
      * @return the halfbody with matching id or null
      */
     public Body getForwarder(UniqueID bodyID) {
-        return (Body) this.localForwarderMap.getBody(bodyID);
+        return (bodyID == null) ? null : this.localForwarderMap.get(bodyID);
     }
 
     /**
@@ -304,7 +315,11 @@ public class LocalBodyStore {
      * @return all local Bodies in a new BodyMap
      */
     public BodyMap getLocalBodies() {
-        return (BodyMap) this.localBodyMap.clone();
+        BodyMap bodyMap = new BodyMap();
+        for (Body body : this.localBodies.getBodies()) {
+            bodyMap.updateBody(body.getID(), body);
+        }
+        return bodyMap;
     }
 
     /**
@@ -312,7 +327,7 @@ public class LocalBodyStore {
      * @return the number of bodies registered in this store.
      */
     public int getLocalBodiesCount() {
-        return this.localBodyMap.size();
+        return this.localBodies.size();
     }
 
     /**
@@ -320,7 +335,7 @@ public class LocalBodyStore {
      * @return all local HalfBodies in a new BodyMap
      */
     public BodyMap getLocalHalfBodies() {
-        return (BodyMap) this.localHalfBodyMap.clone();
+        return toBodyMap(this.localHalfBodyMap);
     }
 
     /**
@@ -346,10 +361,9 @@ public class LocalBodyStore {
     // -- FRIENDLY METHODS -----------------------------------------------
     //
     void registerBody(AbstractBody body) {
-        if (this.localBodyMap.getBody(body.getID()) != null) {
+        if (!this.localBodies.register(body)) {
             logger.debug("Body already registered in the body map");
         }
-        localBodyMap.putBody(body.bodyID, body);
 
         // JMX Notification
         if (!body.isProActiveInternalObject) {
@@ -364,7 +378,13 @@ public class LocalBodyStore {
     }
 
     void unregisterBody(AbstractBody body) {
-        localBodyMap.removeBody(body.bodyID);
+        if (!this.localBodies.unregister(body)) {
+            // The active object came back and its new body replaced this one, on its node too
+            return;
+        }
+
+        // the body is not on its node any more
+        ProActiveRuntimeImpl.getProActiveRuntime().unregisterBody(body);
 
         // JMX Notification
         if (!body.isProActiveInternalObject) {
@@ -376,28 +396,59 @@ public class LocalBodyStore {
         }
 
         // END ProActiveEvent
-        if ((this.localBodyMap.size() == 0) && CentralPAPropertyRepository.PA_EXIT_ON_EMPTY.isTrue()) {
+        if ((this.localBodies.size() == 0) && CentralPAPropertyRepository.PA_EXIT_ON_EMPTY.isTrue()) {
             PALifeCycle.exitSuccess();
         }
     }
 
     void registerHalfBody(AbstractBody body) {
-        this.localHalfBodyMap.putBody(body.bodyID, body);
+        this.localHalfBodyMap.put(body.bodyID, body);
     }
 
     void unregisterHalfBody(AbstractBody body) {
-        this.localHalfBodyMap.removeBody(body.bodyID);
+        this.localHalfBodyMap.remove(body.bodyID, body);
     }
 
     public void registerForwarder(AbstractBody body) {
-        if (this.localForwarderMap.getBody(body.bodyID) != null) {
+        if (this.localForwarderMap.put(body.bodyID, body) != null) {
             logger.debug("Forwarder already registered in the body map");
-            this.localForwarderMap.removeBody(body.bodyID);
         }
-        this.localForwarderMap.putBody(body.bodyID, body);
     }
 
     public void unregisterForwarder(AbstractBody body) {
-        this.localForwarderMap.removeBody(body.bodyID);
+        this.localForwarderMap.remove(body.bodyID, body);
+    }
+
+    private static BodyMap toBodyMap(Map<UniqueID, Body> bodies) {
+        BodyMap bodyMap = new BodyMap();
+        for (Map.Entry<UniqueID, Body> e : bodies.entrySet()) {
+            bodyMap.updateBody(e.getKey(), e.getValue());
+        }
+        return bodyMap;
+    }
+
+    /**
+     * A thread having a HalfBody. The thread is weakly referenced, the HalfBody is reclaimed
+     * once the thread is dead or collected.
+     */
+    private static class HalfBodyThread extends WeakReference<Thread> {
+        private final HalfBody halfBody;
+        private final AtomicBoolean reclaimed = new AtomicBoolean();
+
+        HalfBodyThread(Thread thread, HalfBody halfBody, ReferenceQueue<Thread> queue) {
+            super(thread, queue);
+            this.halfBody = halfBody;
+        }
+
+        void reclaim() {
+            if (this.reclaimed.compareAndSet(false, true)) {
+                LocalBodyStore.getInstance().unregisterHalfBody(this.halfBody);
+                try {
+                    this.halfBody.getRemoteObjectExposer().unregisterAll();
+                } catch (ProActiveException e) {
+                    logger.error("Failed to unregister halfBody remote object", e);
+                }
+            }
+        }
     }
 }
@@ -42,10 +42,12 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.objectweb.proactive.annotation.PublicAPI;
+import org.objectweb.proactive.annotation.RequestQueueCapacity.OverflowPolicy;
 import org.objectweb.proactive.core.UniqueID;
 import org.objectweb.proactive.core.body.reply.ReplyReceiver;
 import org.objectweb.proactive.core.body.reply.ReplyReceiverFactory;
 import org.objectweb.proactive.core.body.request.BlockingRequestQueue;
+import org.objectweb.proactive.core.body.request.BlockingRequestQueueImpl;
 import org.objectweb.proactive.core.body.request.Request;
 import org.objectweb.proactive.core.body.request.RequestFactory;
 import org.objectweb.proactive.core.body.request.RequestQueueFactory;
@@ -110,6 +112,12 @@ public class ProActiveMetaObjectFactory implements MetaObjectFactory, java.io.Se
     private static MetaObjectFactory instance = new ProActiveMetaObjectFactory();
     public Map<String, Object> parameters = new HashMap<String, Object>();
 
+    /** Parameter bounding the request queue (Integer, maximum number of pending requests) */
+    public static final String REQUEST_QUEUE_CAPACITY = "requestQueue.capacity";
+
+    /** Parameter selecting the policy applied when the request queue is full ({@link OverflowPolicy}) */
+    public static final String REQUEST_QUEUE_OVERFLOW_POLICY = "requestQueue.overflowPolicy";
+
     //
     // -- PROTECTED MEMBERS -----------------------------------------------
     //
@@ -257,7 +265,14 @@ public class ProActiveMetaObjectFactory implements MetaObjectFactory, java.io.Se
     // end inner class RequestReceiverFactoryImpl
     protected class RequestQueueFactoryImpl implements RequestQueueFactory, java.io.Serializable {
         public BlockingRequestQueue newRequestQueue(UniqueID ownerID) {
-            return new org.objectweb.proactive.core.body.request.BlockingRequestQueueImpl(ownerID);
+            BlockingRequestQueueImpl queue = new BlockingRequestQueueImpl(ownerID);
+            Object capacity = parameters.get(REQUEST_QUEUE_CAPACITY);
+            if (capacity != null) {
+                Object policy = parameters.get(REQUEST_QUEUE_OVERFLOW_POLICY);
+                queue.setCapacity((Integer) capacity, (policy == null) ? OverflowPolicy.BLOCK
+                        : (OverflowPolicy) policy);
+            }
+            return queue;
         }
     }
 
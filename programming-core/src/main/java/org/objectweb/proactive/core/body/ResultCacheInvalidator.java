@@ -0,0 +1,142 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.log4j.Logger;
+import org.objectweb.proactive.annotation.Cache;
+import org.objectweb.proactive.annotation.Invalidates;
+import org.objectweb.proactive.core.UniqueID;
+import org.objectweb.proactive.core.body.proxy.ResultCache;
+import org.objectweb.proactive.core.body.request.Request;
+import org.objectweb.proactive.core.runtime.RuntimeFactory;
+import org.objectweb.proactive.core.util.log.Loggers;
+import org.objectweb.proactive.core.util.log.ProActiveLogger;
+import org.objectweb.proactive.utils.NamedThreadFactory;
+
+
+/**
+ * Pushes the invalidations of the results cached by the stubs of other JVMs.
+ * <p>
+ * The nodes that called a method annotated with {@link Cache} are recorded. When a method
+ * annotated with {@link Invalidates} is served, their runtimes are asked to drop the cached
+ * results of this active object.
+ */
+class ResultCacheInvalidator implements Serializable {
+    private static final Logger logger = ProActiveLogger.getLogger(Loggers.BODY);
+
+    /** Invalidations are pushed in the background, the service of requests must not wait for them */
+    private static ExecutorService pusher;
+
+    private final UniqueID bodyID;
+
+    /** URLs of the nodes that may have cached results */
+    private final Set<String> subscribers = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private ResultCacheInvalidator(UniqueID bodyID) {
+        this.bodyID = bodyID;
+    }
+
+    /**
+     * @return an invalidator for the active object, or null if its class has no method
+     * annotated with {@link Cache} or {@link Invalidates}
+     */
+    static ResultCacheInvalidator newInstance(UniqueID bodyID, Class<?> reifiedClass) {
+        for (Method m : reifiedClass.getMethods()) {
+            if (m.isAnnotationPresent(Cache.class) || m.isAnnotationPresent(Invalidates.class)) {
+                return new ResultCacheInvalidator(bodyID);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Records the caller of a cached method, or pushes the invalidations of a mutating one
+     */
+    void served(Request request) {
+        if (request.getMethodCall() == null) {
+            return;
+        }
+
+        Method m = request.getMethodCall().getReifiedMethod();
+        if (m == null) {
+            return;
+        }
+
+        if (m.isAnnotationPresent(Cache.class)) {
+            String url = request.getSenderNodeURL();
+            if ((url != null) && (url.length() > 0)) {
+                this.subscribers.add(url);
+            }
+            return;
+        }
+
+        Invalidates invalidates = m.getAnnotation(Invalidates.class);
+        if (invalidates != null) {
+            final String[] methodNames = invalidates.value();
+            ResultCache.invalidate(this.bodyID, methodNames);
+            for (final String url : this.subscribers) {
+                getPusher().execute(new Runnable() {
+                    public void run() {
+                        try {
+                            RuntimeFactory.getRuntime(url).invalidateCachedResults(bodyID, methodNames);
+                        } catch (Exception e) {
+                            // the node is gone, and so are its cached results
+                            subscribers.remove(url);
+                            logger.debug("Cannot push a cache invalidation to " + url, e);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    private static synchronized ExecutorService getPusher() {
+        if (pusher == null) {
+            pusher = Executors.newSingleThreadExecutor(new NamedThreadFactory(
+                "ProActive result cache invalidations", true));
+        }
+        return pusher;
+    }
+}
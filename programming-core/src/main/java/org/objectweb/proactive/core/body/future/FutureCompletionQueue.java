@@ -0,0 +1,278 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.future;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.objectweb.proactive.annotation.PublicAPI;
+import org.objectweb.proactive.core.ProActiveTimeoutException;
+import org.objectweb.proactive.core.mop.MOP;
+import org.objectweb.proactive.core.mop.Proxy;
+import org.objectweb.proactive.core.mop.StubObject;
+import org.objectweb.proactive.utils.TimeoutAccounter;
+
+
+/**
+ * A queue returning futures in the order they are updated
+ *
+ * Futures are registered once and the queue is fed by the future updates, so taking the N
+ * registered futures costs O(N) whatever the number of outstanding futures. A future whose
+ * value is itself a future is only returned when the last future of the chain is updated,
+ * like {@link org.objectweb.proactive.api.PAFuture#isAwaited(Object)}. Objects which are not
+ * futures are available immediately.
+ *
+ * A queue should be {@link #close() closed} when it is discarded before all its futures have
+ * been taken, otherwise the pending futures keep a reference on it.
+ *
+ * @param <E> type of the futures
+ */
+@PublicAPI
+public class FutureCompletionQueue<E> {
+    /** The registered futures, by registration index */
+    final private List<E> futures;
+    /** Indexes of the futures updated but not yet taken, in update order */
+    final private ArrayDeque<Integer> completed;
+    /** Registration indexes of the awaited futures */
+    final private Map<FutureProxy, List<Integer>> pending;
+    private int taken;
+    private boolean closed;
+
+    public FutureCompletionQueue() {
+        this.futures = new ArrayList<E>();
+        this.completed = new ArrayDeque<Integer>();
+        this.pending = new IdentityHashMap<FutureProxy, List<Integer>>();
+        this.taken = 0;
+        this.closed = false;
+    }
+
+    /**
+     * Create a queue and register all the given futures, in the iteration order
+     */
+    public FutureCompletionQueue(Collection<? extends E> futures) {
+        this();
+        for (E future : futures) {
+            add(future);
+        }
+    }
+
+    /**
+     * Register a future
+     *
+     * The future is monitored (see {@link FutureMonitoring}) while it is awaited.
+     *
+     * @param future the future to register
+     * @return the registration index of the future, starting from 0
+     */
+    public int add(E future) {
+        int index;
+        synchronized (this) {
+            if (this.closed) {
+                throw new IllegalStateException("Completion queue is closed");
+            }
+            index = this.futures.size();
+            this.futures.add(future);
+        }
+
+        register(index, future);
+        return index;
+    }
+
+    /**
+     * Retrieve and remove the next updated future, waiting if necessary
+     *
+     * @return the next updated future
+     * @throws IllegalStateException if all the registered futures have already been taken
+     */
+    public E take() {
+        try {
+            return this.futures.get(takeIndex(0));
+        } catch (ProActiveTimeoutException e) {
+            // Cannot happen since timeout=0 means no timeout
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Retrieve and remove the next updated future, or return null if none is available
+     */
+    public synchronized E poll() {
+        Integer index = this.completed.poll();
+        if (index == null) {
+            return null;
+        }
+        this.taken++;
+        return this.futures.get(index);
+    }
+
+    /**
+     * Retrieve and remove the registration index of the next updated future, waiting up to
+     * timeout milliseconds if necessary
+     *
+     * @param timeout to wait in ms, 0 means no timeout
+     * @return the registration index of the next updated future
+     * @throws ProActiveTimeoutException if the timeout expires
+     * @throws IllegalStateException if all the registered futures have already been taken
+     */
+    public synchronized int takeIndex(long timeout) throws ProActiveTimeoutException {
+        TimeoutAccounter time = TimeoutAccounter.getAccounter(timeout);
+        while (this.completed.isEmpty()) {
+            if (this.taken == this.futures.size()) {
+                throw new IllegalStateException("No more future to take");
+            }
+            if (time.isTimeoutElapsed()) {
+                throw new ProActiveTimeoutException("Timeout expired while waiting for future update");
+            }
+            try {
+                this.wait(time.getRemainingTimeout());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for future update", e);
+            }
+        }
+
+        this.taken++;
+        return this.completed.poll();
+    }
+
+    /**
+     * @return the number of registered futures not yet taken
+     */
+    public synchronized int size() {
+        return this.futures.size() - this.taken;
+    }
+
+    /**
+     * @return true if all the registered futures have been taken
+     */
+    public synchronized boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Unregister this queue from the futures not yet updated
+     *
+     * No future can be registered after this call.
+     */
+    public void close() {
+        List<FutureProxy> proxies;
+        synchronized (this) {
+            this.closed = true;
+            proxies = new ArrayList<FutureProxy>(this.pending.keySet());
+            this.pending.clear();
+        }
+
+        for (FutureProxy fp : proxies) {
+            fp.removeCompletionQueue(this);
+        }
+    }
+
+    /**
+     * Called by the future proxy when it is updated
+     */
+    void completed(FutureProxy fp) {
+        List<Integer> indexes;
+        synchronized (this) {
+            indexes = this.pending.remove(fp);
+        }
+        if (indexes == null) {
+            return;
+        }
+
+        // The value may itself be a future, wait for the end of the chain
+        FutureProxy next = getAwaitedProxy(fp.getMethodCallResult().getResultObjet());
+        if (next != null) {
+            for (Integer index : indexes) {
+                register(index, next);
+            }
+            return;
+        }
+
+        synchronized (this) {
+            this.completed.addAll(indexes);
+            this.notifyAll();
+        }
+    }
+
+    private void register(int index, Object future) {
+        FutureProxy fp = getAwaitedProxy(future);
+        if (fp == null) {
+            synchronized (this) {
+                this.completed.add(index);
+                this.notifyAll();
+            }
+            return;
+        }
+
+        synchronized (this) {
+            List<Integer> indexes = this.pending.get(fp);
+            if (indexes == null) {
+                indexes = new ArrayList<Integer>(1);
+                this.pending.put(fp, indexes);
+            }
+            indexes.add(index);
+        }
+
+        if (fp.getUpdater() != null) {
+            FutureMonitoring.monitorFutureProxy(fp);
+        }
+        // Calls completed() now if the future has been updated in the meantime
+        fp.addCompletionQueue(this);
+    }
+
+    /**
+     * @return the proxy of the object if it is an awaited future, null otherwise
+     */
+    static private FutureProxy getAwaitedProxy(Object future) {
+        if (future instanceof FutureProxy) {
+            FutureProxy fp = (FutureProxy) future;
+            return fp.isAwaited() ? fp : getAwaitedProxy(fp.getMethodCallResult().getResultObjet());
+        }
+        if (future == null || !MOP.isReifiedObject(future)) {
+            return null;
+        }
+        Proxy proxy = ((StubObject) future).getProxy();
+        if (!(proxy instanceof FutureProxy)) {
+            return null;
+        }
+        return getAwaitedProxy(proxy);
+    }
+}
@@ -36,9 +36,17 @@
  */
 package org.objectweb.proactive.core.body.future;
 
-import java.util.Collection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
 import org.objectweb.proactive.core.ProActiveRuntimeException;
@@ -50,13 +58,40 @@ import org.objectweb.proactive.core.util.HeartbeatResponse;
 import org.objectweb.proactive.core.util.ActiveObjectLocationInfo;
 import org.objectweb.proactive.core.util.log.Loggers;
 import org.objectweb.proactive.core.util.log.ProActiveLogger;
+import org.objectweb.proactive.utils.NamedThreadFactory;
 
 
+/**
+ * Detects the failure of the bodies which will update the awaited futures
+ *
+ * The updater bodies are grouped by location, the URL of the node currently hosting them. Every
+ * TTM, one heartbeat is sent to each location hosting an updater body, heartbeats to different
+ * locations being sent in parallel by at most {@link #HEARTBEAT_THREADS} threads. The location of
+ * the pinged body is checked after each heartbeat, so a body which has migrated joins the group of
+ * its new location. When a heartbeat fails, all the futures awaited from this location are
+ * updated with a {@link FutureMonitoringPingFailureException}.
+ *
+ * A location which does not answer (a heartbeat is still in progress) is suspected with a phi
+ * accrual failure detector: the suspicion level grows with the time elapsed since the last answer,
+ * relatively to the mean delay between answers. Above
+ * {@link CentralPAPropertyRepository#PA_FUTUREMONITORING_PHI_THRESHOLD}, the location is
+ * considered as failed. As the mean delay is at least TTM, a silent location is failed after
+ * about threshold * ln(10) * TTM, that is 18 TTM (about 6 minutes) with the default values.
+ */
 public class FutureMonitoring implements Runnable {
 
-    /** Ping one body every 21s */
+    /** Heartbeat each location every 21s */
     private static int TTM = 21000;
 
+    /** Suspicion level above which a location is considered as failed */
+    private static int PHI_THRESHOLD = 8;
+
+    /** Number of heartbeat intervals used to compute the suspicion level */
+    private static final int HISTORY_SIZE = 100;
+
+    /** Maximum number of heartbeats sent in parallel */
+    static final int HEARTBEAT_THREADS = 8;
+
     /**
      * For each body, the list of futures to monitor. We ping the updater body,
      * so we should detect a broken automatic continuations chain.
@@ -64,8 +99,22 @@ public class FutureMonitoring implements Runnable {
     private static final ConcurrentHashMap<UniqueID, ConcurrentLinkedQueue<FutureProxy>> futuresToMonitor = new ConcurrentHashMap<UniqueID, ConcurrentLinkedQueue<FutureProxy>>();
     private static final ConcurrentHashMap<UniqueID, String> nodeUrls = new ConcurrentHashMap<UniqueID, String>();
 
+    /** The locations hosting the monitored bodies, by node URL */
+    private static final ConcurrentHashMap<String, PeerRuntime> peers = new ConcurrentHashMap<String, PeerRuntime>();
+    /** The location of each monitored body */
+    private static final ConcurrentHashMap<UniqueID, PeerRuntime> bodyPeers = new ConcurrentHashMap<UniqueID, PeerRuntime>();
+
+    /**
+     * Sends the heartbeats, a hanging location only holds one thread. Heartbeats queued behind
+     * hanging locations are delayed, which is far below the suspicion delay.
+     */
+    private static final ThreadPoolExecutor heartbeats = new ThreadPoolExecutor(HEARTBEAT_THREADS,
+        HEARTBEAT_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new NamedThreadFactory("Monitoring the Futures heartbeat", true));
+
     static final Logger logger = ProActiveLogger.getLogger(Loggers.CORE);
     static {
+        heartbeats.allowCoreThreadTimeOut(true);
 
         /* Dynamically configurable to make shorter tests */
         String ttm = CentralPAPropertyRepository.PA_FUTUREMONITORING_TTM.getValueAsString();
@@ -79,6 +128,14 @@ public class FutureMonitoring implements Runnable {
             }
         }
 
+        int phi = CentralPAPropertyRepository.PA_FUTUREMONITORING_PHI_THRESHOLD.getValue();
+        if (phi > 0) {
+            PHI_THRESHOLD = phi;
+        } else {
+            logger.error(CentralPAPropertyRepository.PA_FUTUREMONITORING_PHI_THRESHOLD.getName() +
+                " must be strictly positive. This value is ignored");
+        }
+
         if (TTM > 0) {
             Thread t = new Thread(new FutureMonitoring(), "Monitoring the Futures");
             t.setDaemon(true);
@@ -98,88 +155,71 @@ public class FutureMonitoring implements Runnable {
     }
 
     /**
-     * @return true iff a body has been pinged
+     * Every TTM, check the suspicion level of each location and send a heartbeat to the locations
+     * which answered the previous one.
+     *
+     * There is a single daemon thread running the monitoring, so
+     * it will end with the JVM.
      */
-    private static boolean pingBody(UniqueID bodyId) {
-        boolean pinged = false;
-        FutureMonitoringPingFailureException bodyException = null;
-        Collection<FutureProxy> futures = futuresToMonitor.get(bodyId);
-        String nodeUrl = nodeUrls.get(bodyId);
-        if (futures == null) {
+    public void run() {
+        for (;;) {
+            long now = System.currentTimeMillis();
+            for (PeerRuntime peer : peers.values()) {
+                peer.check(now);
+            }
+            monitoringDelay();
+        }
+    }
 
+    /**
+     * @return the awaited updater of the monitored futures of a body, or null
+     */
+    private static UniversalBody getUpdater(UniqueID bodyId) {
+        ConcurrentLinkedQueue<FutureProxy> futures = futuresToMonitor.get(bodyId);
+        if (futures == null) {
             /*
              * By the time we got to iterate over these futures, they have all
              * been updated, so the body entry was removed.
              */
-            return false;
+            return null;
         }
 
         for (FutureProxy fp : futures) {
-            if (!pinged) {
-
-                /* Not yet pinged somebody */
-                UniversalBody body = null;
-
-                synchronized (fp) {
-                    if (fp.isAwaited()) {
-                        body = fp.getUpdater();
-                    }
-                }
-                if (body != null) {
-                    /* OK, Found somebody to ping */
-                    pinged = true;
-                    try {
-                        Integer state = (Integer) body.receiveHeartbeat();
-                        /* If the object is dead, ping failed ... */
-                        if (state.equals(HeartbeatResponse.IS_DEAD)) {
-                            throw new ProActiveRuntimeException("Awaited body " + bodyId + " on " + nodeUrl +
-                                " has been terminated.");
-                        }
-                        /* Successful ping, nothing more to do */
-                        return true;
-                    } catch (Exception e) {
-                        /* Ping failure, update all awaited futures on this node with the exception */
-                        bodyException = new FutureMonitoringPingFailureException(bodyId, nodeUrl, e);
-                    }
-                }
-            }
-
-            if (bodyException != null) {
-                synchronized (fp) {
-                    if (fp.isAwaited()) {
-                        fp.receiveReply(new MethodCallResult(null, bodyException));
-                    }
+            synchronized (fp) {
+                if (fp.isAwaited()) {
+                    return fp.getUpdater();
                 }
             }
         }
-        return pinged;
+        return null;
     }
 
     /**
-     * Arrange to ping a single body every TTM
-     * There is a single daemon thread running the monitoring, so
-     * it will end with the JVM.
+     * Update all the awaited futures of a body with a ping failure
      */
-    public void run() {
-        for (;;) {
-            boolean pingedOneBody = false;
-            for (UniqueID bodyId : futuresToMonitor.keySet()) {
-                boolean pingedThisBody = pingBody(bodyId);
-                if (pingedThisBody) {
-                    pingedOneBody = true;
-                    monitoringDelay();
+    private static void failBody(UniqueID bodyId, Throwable cause) {
+        ConcurrentLinkedQueue<FutureProxy> futures = futuresToMonitor.get(bodyId);
+        if (futures == null) {
+            return;
+        }
+
+        FutureMonitoringPingFailureException bodyException = new FutureMonitoringPingFailureException(
+            bodyId, nodeUrls.get(bodyId), cause);
+        // Updating a future removes it from the queue
+        List<FutureProxy> snapshot = new ArrayList<FutureProxy>(futures);
+        for (FutureProxy fp : snapshot) {
+            synchronized (fp) {
+                if (fp.isAwaited()) {
+                    fp.receiveReply(new MethodCallResult(null, bodyException));
                 }
             }
-            if (!pingedOneBody) {
-                monitoringDelay();
-            }
         }
     }
 
     private static UniqueID getUpdaterBodyId(FutureProxy fp) {
         UniversalBody body = fp.getUpdater();
         if (body == null) {
-            new Exception("Cannot monitor this future, unknown updater body").printStackTrace();
+            logger.debug("Cannot monitor this future, unknown updater body");
             return null;
         }
         return body.getID();
@@ -188,17 +228,75 @@ public class FutureMonitoring implements Runnable {
     private static ActiveObjectLocationInfo getUpdaterLocationInfo(FutureProxy fp) {
         UniversalBody body = fp.getUpdater();
         if (body == null) {
-            new Exception("Cannot monitor this future, unknown updater body").printStackTrace();
+            logger.debug("Cannot monitor this future, unknown updater body");
             return null;
         }
         UniqueID id = body.getID();
-        String nodeUrl = "[unknown]";
+        return new ActiveObjectLocationInfo(id, getLocation(body));
+    }
+
+    /**
+     * @return the URL of the node currently hosting the body, or its VMID if unknown
+     */
+    private static String getLocation(UniversalBody body) {
         try {
-            nodeUrl = body.getNodeURL();
+            String nodeUrl = body.getNodeURL();
+            if (nodeUrl != null) {
+                return nodeUrl;
+            }
         } catch (Throwable e) {
+            logger.debug("Cannot get the location of body " + body.getID(), e);
+        }
+        return body.getID().getVMID().toString();
+    }
+
+    /**
+     * Add a body to the group of its location, futuresToMonitor must be locked
+     */
+    private static void join(UniqueID bodyId, String location) {
+        nodeUrls.put(bodyId, location);
+        PeerRuntime peer = peers.get(location);
+        if (peer == null) {
+            peer = new PeerRuntime(location, System.currentTimeMillis());
+            peers.put(location, peer);
+        }
+        peer.bodies.add(bodyId);
+        bodyPeers.put(bodyId, peer);
+    }
+
+    /**
+     * Remove a body from the group of its location, futuresToMonitor must be locked
+     */
+    private static void leave(UniqueID bodyId) {
+        nodeUrls.remove(bodyId);
+        PeerRuntime peer = bodyPeers.remove(bodyId);
+        if (peer != null) {
+            peer.bodies.remove(bodyId);
+            if (peer.bodies.isEmpty()) {
+                peers.remove(peer.location, peer);
+            }
+        }
+    }
 
+    /**
+     * Move a monitored body to the group of its new location, after a migration
+     */
+    static void relocate(UniqueID bodyId, String location) {
+        synchronized (futuresToMonitor) {
+            PeerRuntime peer = bodyPeers.get(bodyId);
+            if (peer != null && !peer.location.equals(location)) {
+                leave(bodyId);
+                join(bodyId, location);
+            }
         }
-        return new ActiveObjectLocationInfo(id, nodeUrl);
+    }
+
+    /**
+     * @return the location of a monitored body, or null
+     */
+    static String getMonitoredLocation(UniqueID bodyId) {
+        PeerRuntime peer = bodyPeers.get(bodyId);
+        return (peer == null) ? null : peer.location;
     }
 
     public static void removeFuture(FutureProxy fp) {
@@ -215,7 +313,7 @@ public class FutureMonitoring implements Runnable {
                 futures.remove(fp);
                 if (futures.isEmpty()) {
                     futuresToMonitor.remove(updaterId);
-                    nodeUrls.remove(updaterId);
+                    leave(updaterId);
                 }
             }
         }
@@ -226,11 +324,14 @@ public class FutureMonitoring implements Runnable {
             return;
         }
         ActiveObjectLocationInfo info = getUpdaterLocationInfo(fp);
+        if (info == null) {
+            return;
+        }
         UniqueID updaterId = info.getBodyId();
         if (updaterId == null) {
             return;
         }
-        String nodeUrl = info.getNodeUrl();
+        String location = info.getNodeUrl();
         synchronized (futuresToMonitor) {
             /*
              * Avoid a race with the suppression in the ConcurrentHashMap when the
@@ -240,11 +341,138 @@ public class FutureMonitoring implements Runnable {
             if (futures == null) {
                 futures = new ConcurrentLinkedQueue<FutureProxy>();
                 futuresToMonitor.put(updaterId, futures);
-                nodeUrls.put(updaterId, nodeUrl);
+                join(updaterId, location);
             }
             if (!futures.contains(fp)) {
                 futures.add(fp);
             }
         }
     }
+
+    /**
+     * A location hosting updater bodies, and the history of its heartbeats
+     */
+    static class PeerRuntime {
+        /** URL of the node */
+        final private String location;
+        /** The monitored bodies hosted by this location */
+        final private Set<UniqueID> bodies;
+        /** true while a heartbeat is being sent */
+        final private AtomicBoolean inFlight;
+        /** Delays between the last answered heartbeats */
+        final private ArrayDeque<Long> intervals;
+        private long intervalsSum;
+        /** Time of the last answered heartbeat, or of the creation */
+        private long lastHeartbeat;
+
+        PeerRuntime(String location, long now) {
+            this.location = location;
+            this.bodies = Collections.newSetFromMap(new ConcurrentHashMap<UniqueID, Boolean>());
+            this.inFlight = new AtomicBoolean(false);
+            this.intervals = new ArrayDeque<Long>();
+            this.intervalsSum = 0;
+            this.lastHeartbeat = now;
+        }
+
+        synchronized void heartbeatReceived(long now) {
+            long interval = now - this.lastHeartbeat;
+            this.intervals.add(interval);
+            this.intervalsSum += interval;
+            if (this.intervals.size() > HISTORY_SIZE) {
+                this.intervalsSum -= this.intervals.poll();
+            }
+            this.lastHeartbeat = now;
+        }
+
+        /**
+         * Phi accrual suspicion level, assuming exponentially distributed delays between heartbeats
+         */
+        synchronized double phi(long now) {
+            double mean = this.intervals.isEmpty() ? TTM : (double) this.intervalsSum /
+                this.intervals.size();
+            // Heartbeats are not sent more often than TTM
+            mean = Math.max(mean, TTM);
+            return (now - this.lastHeartbeat) / (mean * Math.log(10));
+        }
+
+        boolean isSuspected(long now) {
+            return phi(now) > PHI_THRESHOLD;
+        }
+
+        @Override
+        public String toString() {
+            return this.location;
+        }
+
+        void check(long now) {
+            if (this.bodies.isEmpty()) {
+                return;
+            }
+
+            if (isSuspected(now)) {
+                logger.info("Location " + this + " is suspected (phi=" + phi(now) + "), failing " +
+                    this.bodies.size() + " bodies");
+                this.fail(new ProActiveRuntimeException("Location " + this +
+                    " did not answer for " + (now - this.lastHeartbeat) + " ms"));
+                return;
+            }
+
+            if (this.inFlight.compareAndSet(false, true)) {
+                heartbeats.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            heartbeat();
+                        } finally {
+                            inFlight.set(false);
+                        }
+                    }
+                });
+            }
+        }
+
+        /**
+         * Ping one body of the location, and check that it has not migrated
+         */
+        private void heartbeat() {
+            for (UniqueID bodyId : this.bodies) {
+                UniversalBody body = getUpdater(bodyId);
+                if (body == null) {
+                    continue;
+                }
+
+                Integer state;
+                try {
+                    state = (Integer) body.receiveHeartbeat();
+                } catch (Exception e) {
+                    /* Ping failure, update all awaited futures on this location with the exception */
+                    this.fail(e);
+                    return;
+                }
+
+                this.heartbeatReceived(System.currentTimeMillis());
+                /* If the object is dead, ping failed ... but the location is alive */
+                if (state.equals(HeartbeatResponse.IS_DEAD)) {
+                    failBody(bodyId, new ProActiveRuntimeException("Awaited body " + bodyId + " on " +
+                        nodeUrls.get(bodyId) + " has been terminated."));
+                    continue;
+                }
+                /*
+                 * Successful ping. A migrated body leaves the group, the next heartbeat pings
+                 * another body of this location.
+                 */
+                relocate(bodyId, getLocation(body));
+                return;
+            }
+        }
+
+        private void fail(Throwable cause) {
+            for (UniqueID bodyId : new ArrayList<UniqueID>(this.bodies)) {
+                failBody(bodyId, cause);
+            }
+            synchronized (this) {
+                // Start again from scratch if new futures are awaited from this location
+                this.lastHeartbeat = System.currentTimeMillis();
+            }
+        }
+    }
 }
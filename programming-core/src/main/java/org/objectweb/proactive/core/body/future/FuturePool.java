@@ -38,8 +38,10 @@ package org.objectweb.proactive.core.body.future;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
@@ -50,8 +52,11 @@ import org.objectweb.proactive.core.body.AbstractBody;
 import org.objectweb.proactive.core.body.Context;
 import org.objectweb.proactive.core.body.LocalBodyStore;
 import org.objectweb.proactive.core.body.UniversalBody;
+import org.objectweb.proactive.core.body.exceptions.BatchedReplyException;
 import org.objectweb.proactive.core.body.reply.Reply;
+import org.objectweb.proactive.core.body.reply.ReplyBatcher;
 import org.objectweb.proactive.core.body.reply.ReplyImpl;
+import org.objectweb.proactive.core.body.reply.ReplySendQueue;
 import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
 import org.objectweb.proactive.core.mop.Utils;
 import org.objectweb.proactive.core.util.log.Loggers;
@@ -261,6 +266,52 @@ public class FuturePool extends Object implements java.io.Serializable {
      */
     public synchronized void receiveFutureValue(long id, UniqueID creatorID, MethodCallResult result,
             Reply reply) throws java.io.IOException {
+        if (updateFutures(id, creatorID, result)) {
+            stateChange();
+        }
+    }
+
+    /**
+     * Method called when several replies are received at once, see
+     * {@link #receiveFutureValue(long, UniqueID, MethodCallResult, Reply)}. The futures are
+     * updated in one pass, waiting threads are notified once.
+     * A reply which cannot be applied does not prevent the following ones from being applied.
+     * @param replies the received replies
+     * @throws BatchedReplyException if some replies have not been applied, so that the sender
+     * does not send the other ones again
+     */
+    public synchronized void receiveFutureValues(List<Reply> replies) throws java.io.IOException {
+        boolean changed = false;
+        int[] failed = new int[replies.size()];
+        int failedCount = 0;
+        Throwable failure = null;
+        for (int i = 0; i < replies.size(); i++) {
+            Reply reply = replies.get(i);
+            try {
+                changed |= updateFutures(reply.getSequenceNumber(), reply.getSourceBodyID(), reply
+                        .getResult());
+            } catch (Exception e) {
+                failed[failedCount++] = i;
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (changed) {
+            stateChange();
+        }
+        if (failure != null) {
+            throw new BatchedReplyException(Arrays.copyOf(failed, failedCount), failure);
+        }
+    }
+
+    /**
+     * Updates the futures awaiting a value and puts the automatic continuations in the
+     * activeACqueue.
+     * @return true if futures have been updated
+     */
+    private boolean updateFutures(long id, UniqueID creatorID, MethodCallResult result)
+            throws java.io.IOException {
         // get all aiwated futures
         ArrayList<Future> futuresToUpdate = futures.getFuturesToUpdate(id, creatorID);
 
@@ -285,7 +336,6 @@ public class FuturePool extends Object implements java.io.Serializable {
                 // register futures potentially generated during the copy of result
                 ((AbstractBody) ownerBody).registerIncomingFutures();
             }
-            stateChange();
 
             // 2) create and put ACservices
             if (this.registerACs) {
@@ -323,9 +373,11 @@ public class FuturePool extends Object implements java.io.Serializable {
             }
             // 3) Remove futures from the futureMap
             futures.removeFutures(id, creatorID);
+            return true;
         } else {
             // we have to store the result received by AC until future arrive
             this.valuesForFutures.put("" + id + creatorID, result);
+            return false;
         }
     }
 
@@ -638,7 +690,17 @@ public class FuturePool extends Object implements java.io.Serializable {
 
                     // send the reply
                     try {
-                        toSend.send(dest);
+                        // as the replies of the service thread, a slow destination must not hold
+                        // the AC thread
+                        ReplySendQueue sendQueue = ReplySendQueue.getInstance();
+                        ReplyBatcher batcher = ReplyBatcher.getInstance();
+                        if (sendQueue != null) {
+                            sendQueue.send(toSend, dest);
+                        } else if (batcher != null) {
+                            batcher.send(toSend, dest);
+                        } else {
+                            toSend.send(dest);
+                        }
                     } catch (IOException ioe) {
                         UniversalBody.sendReplyExceptionsLogger.error(ioe, ioe);
                     }
@@ -39,6 +39,7 @@ package org.objectweb.proactive.core.body.future;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import org.apache.log4j.Logger;
 import org.objectweb.proactive.Body;
@@ -135,6 +136,16 @@ public class FutureProxy implements Future, Proxy, java.io.Serializable {
      */
     private transient LocalFutureUpdateCallbacks callbacks;
 
+    /**
+     * The completion queues to feed when this future is updated
+     */
+    private transient List<FutureCompletionQueue<?>> completionQueues;
+
+    /**
+     * The actions to run when this future is updated
+     */
+    private transient List<Runnable> updateActions;
+
     // returns future update info used during dynamic dispatch for groups
     private transient DispatchMonitor dispatchMonitor;
 
@@ -244,6 +255,20 @@ public class FutureProxy implements Future, Proxy, java.io.Serializable {
             this.callbacks = null;
         }
 
+        if (this.completionQueues != null) {
+            for (FutureCompletionQueue<?> queue : this.completionQueues) {
+                queue.completed(this);
+            }
+            this.completionQueues = null;
+        }
+
+        if (this.updateActions != null) {
+            for (Runnable action : this.updateActions) {
+                action.run();
+            }
+            this.updateActions = null;
+        }
+
         this.notifyAll();
     }
 
@@ -631,6 +656,47 @@ public class FutureProxy implements Future, Proxy, java.io.Serializable {
         this.exceptionLevel = exceptionLevel;
     }
 
+    /**
+     * Feed the queue when the future is arrived, or now if the future is
+     * already arrived.
+     */
+    synchronized void addCompletionQueue(FutureCompletionQueue<?> queue) {
+        if (this.isAvailable()) {
+            queue.completed(this);
+            return;
+        }
+
+        if (this.completionQueues == null) {
+            this.completionQueues = new ArrayList<FutureCompletionQueue<?>>(1);
+        }
+        if (!this.completionQueues.contains(queue)) {
+            this.completionQueues.add(queue);
+        }
+    }
+
+    synchronized void removeCompletionQueue(FutureCompletionQueue<?> queue) {
+        if (this.completionQueues != null) {
+            this.completionQueues.remove(queue);
+        }
+    }
+
+    /**
+     * Run an action when the future is arrived, or now if the future is
+     * already arrived. The action is run by the thread updating the future
+     * and must not block.
+     */
+    public synchronized void addUpdateAction(Runnable action) {
+        if (this.isAvailable()) {
+            action.run();
+            return;
+        }
+
+        if (this.updateActions == null) {
+            this.updateActions = new ArrayList<Runnable>(1);
+        }
+        this.updateActions.add(action);
+    }
+
     /**
      * Add a method to call when the future is arrived, or call it now if the
      * future is already arrived.
@@ -38,6 +38,7 @@ package org.objectweb.proactive.core.body.message;
 
 import org.objectweb.proactive.core.UniqueID;
 import org.objectweb.proactive.core.body.tags.MessageTags;
+import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
 
 
 /**
@@ -130,6 +131,22 @@ public class MessageImpl implements Message, java.io.Serializable {
         return timeStamp;
     }
 
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+        if (!CentralPAPropertyRepository.PA_REQUEST_COMPACT_HEADER.isTrue()) {
+            out.defaultWriteObject();
+            return;
+        }
+
+        java.io.ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("methodName", this.methodName);
+        fields.put("sourceID", this.sourceID);
+        fields.put("sequenceNumber", this.sequenceNumber);
+        fields.put("isOneWay", this.isOneWay);
+        // Most messages have an empty tag container, do not send it
+        fields.put("tags", (this.tags != null && this.tags.isEmpty()) ? null : this.tags);
+        out.writeFields();
+    }
+
     private void readObject(java.io.ObjectInputStream s) throws java.io.IOException, ClassNotFoundException {
         s.defaultReadObject();
         this.timeStamp = System.currentTimeMillis();
@@ -0,0 +1,305 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.proxy;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.objectweb.proactive.annotation.Cache;
+import org.objectweb.proactive.annotation.Invalidates;
+import org.objectweb.proactive.core.UniqueID;
+import org.objectweb.proactive.core.body.future.FutureProxy;
+import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
+import org.objectweb.proactive.core.mop.MOP;
+import org.objectweb.proactive.core.mop.Proxy;
+import org.objectweb.proactive.core.mop.StubObject;
+
+
+/**
+ * The results of the methods annotated with {@link Cache}, shared by all the stubs of the JVM.
+ * <p>
+ * Results are keyed by active object, method and argument values. The cache is bounded and
+ * evicts the least recently used results. Results are dropped when they expire, when a
+ * method annotated with {@link Invalidates} is called through a stub of this JVM, or when
+ * the active object pushes an invalidation (see
+ * {@link org.objectweb.proactive.core.runtime.ProActiveRuntime#invalidateCachedResults}).
+ * <p>
+ * A future is only cached once its value is there, unless an invalidation happened since the
+ * call. Array arguments are copied, the other arguments are compared with equals and must not be
+ * modified once used as a key.
+ * <p>
+ * The stubs generated by {@link org.objectweb.proactive.core.mop.JavassistByteCodeStubBuilder}
+ * call this class.
+ */
+public class ResultCache {
+
+    /** Returned by {@link #get(Key)} when no result is cached, null being a valid result */
+    public static final Object MISS = new Object();
+
+    private static final int MAX_SIZE = CentralPAPropertyRepository.PA_STUB_CACHE_SIZE.getValue();
+
+    private static final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    /**
+     * Incremented by each invalidation, a result fetched across an invalidation is not cached. Keys
+     * record the generation of the call.
+     */
+    private static final AtomicLong generation = new AtomicLong();
+
+    private ResultCache() {
+    }
+
+    /**
+     * @return the key of a method call on an active object, or null if the call cannot be cached
+     */
+    public static Key key(Proxy proxy, String methodName, String signature, Object[] args) {
+        if ((MAX_SIZE <= 0) || !(proxy instanceof UniversalBodyProxy)) {
+            return null;
+        }
+        return key(((UniversalBodyProxy) proxy).getBodyID(), methodName, signature, args);
+    }
+
+    static Key key(UniqueID bodyID, String methodName, String signature, Object[] args) {
+        return new Key(bodyID, methodName, signature, args, generation.get());
+    }
+
+    /**
+     * @return the cached result, or {@link #MISS}
+     */
+    public static Object get(Key key) {
+        if (key == null) {
+            return MISS;
+        }
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return MISS;
+            }
+            if (entry.expires && (System.nanoTime() - entry.expiresAt > 0)) {
+                entries.remove(key);
+                return MISS;
+            }
+            return entry.value;
+        }
+    }
+
+    /**
+     * Caches a result, a future is cached when its value arrives
+     * @param ttl the time to live of the result in milliseconds, 0 for no expiration
+     */
+    public static void put(final Key key, final Object value, final long ttl) {
+        if (key == null) {
+            return;
+        }
+
+        if (MOP.isReifiedObject(value) && (((StubObject) value).getProxy() instanceof FutureProxy)) {
+            final FutureProxy future = (FutureProxy) ((StubObject) value).getProxy();
+            future.addUpdateAction(new Runnable() {
+                public void run() {
+                    // exceptions are not cached
+                    if (future.getMethodCallResult().getException() == null) {
+                        store(key, value, ttl);
+                    }
+                }
+            });
+        } else {
+            store(key, value, ttl);
+        }
+    }
+
+    private static void store(Key key, Object value, long ttl) {
+        Entry entry = new Entry(value, ttl > 0, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttl));
+        Key copy = key.copy();
+        synchronized (entries) {
+            // the result may predate an invalidation
+            if (key.generation == generation.get()) {
+                entries.put(copy, entry);
+            }
+        }
+    }
+
+    /**
+     * Drops the results of an active object, called by a stub before sending a call annotated
+     * with {@link Invalidates}
+     * @param methodNames comma separated names of the methods, all methods if empty
+     */
+    public static void invalidate(Proxy proxy, String methodNames) {
+        if ((MAX_SIZE > 0) && (proxy instanceof UniversalBodyProxy)) {
+            invalidate(((UniversalBodyProxy) proxy).getBodyID(), (methodNames.length() == 0) ? null
+                    : methodNames.split(","));
+        }
+    }
+
+    /**
+     * Drops the results of an active object
+     * @param bodyID the active object
+     * @param methodNames the names of the methods, all methods if null or empty
+     */
+    public static void invalidate(UniqueID bodyID, String[] methodNames) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            Iterator<Key> it = entries.keySet().iterator();
+            while (it.hasNext()) {
+                Key key = it.next();
+                if (key.bodyID.equals(bodyID) && matches(key.methodName, methodNames)) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of cached results
+     */
+    public static int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static boolean matches(String methodName, String[] methodNames) {
+        if ((methodNames == null) || (methodNames.length == 0)) {
+            return true;
+        }
+        for (String name : methodNames) {
+            if (name.equals(methodName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static final class Key {
+        final UniqueID bodyID;
+        final String methodName;
+        final String signature;
+        final Object[] args;
+        final long generation;
+        final int hash;
+
+        Key(UniqueID bodyID, String methodName, String signature, Object[] args, long generation) {
+            this.bodyID = bodyID;
+            this.methodName = methodName;
+            this.signature = signature;
+            this.args = args;
+            this.generation = generation;
+            this.hash = (((bodyID.hashCode() * 31) + methodName.hashCode()) * 31 + signature.hashCode()) *
+                31 + Arrays.deepHashCode(args);
+        }
+
+        private Key(Key key, Object[] args) {
+            this.bodyID = key.bodyID;
+            this.methodName = key.methodName;
+            this.signature = key.signature;
+            this.args = args;
+            this.generation = key.generation;
+            this.hash = key.hash;
+        }
+
+        /**
+         * @return a key the caller cannot modify by modifying its array arguments
+         */
+        Key copy() {
+            return new Key(this, (Object[]) copyArrays(this.args));
+        }
+
+        private static Object copyArrays(Object o) {
+            if (o instanceof Object[]) {
+                Object[] copy = ((Object[]) o).clone();
+                for (int i = 0; i < copy.length; i++) {
+                    copy[i] = copyArrays(copy[i]);
+                }
+                return copy;
+            } else if (o instanceof int[]) {
+                return ((int[]) o).clone();
+            } else if (o instanceof long[]) {
+                return ((long[]) o).clone();
+            } else if (o instanceof byte[]) {
+                return ((byte[]) o).clone();
+            } else if (o instanceof char[]) {
+                return ((char[]) o).clone();
+            } else if (o instanceof double[]) {
+                return ((double[]) o).clone();
+            } else if (o instanceof float[]) {
+                return ((float[]) o).clone();
+            } else if (o instanceof short[]) {
+                return ((short[]) o).clone();
+            } else if (o instanceof boolean[]) {
+                return ((boolean[]) o).clone();
+            }
+            return o;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return (this.hash == k.hash) && this.bodyID.equals(k.bodyID) &&
+                this.methodName.equals(k.methodName) && this.signature.equals(k.signature) &&
+                Arrays.deepEquals(this.args, k.args);
+        }
+    }
+
+    private static final class Entry {
+        final Object value;
+        final boolean expires;
+        final long expiresAt;
+
+        Entry(Object value, boolean expires, long expiresAt) {
+            this.value = value;
+            this.expires = expires;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -59,6 +59,7 @@ import org.objectweb.proactive.core.body.exceptions.InactiveBodyException;
 import org.objectweb.proactive.core.body.future.Future;
 import org.objectweb.proactive.core.body.future.FuturePool;
 import org.objectweb.proactive.core.body.future.FutureProxy;
+import org.objectweb.proactive.core.body.request.RequestSendPipeline;
 import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
 import org.objectweb.proactive.core.exceptions.ExceptionHandler;
 import org.objectweb.proactive.core.mop.ConstructorCall;
@@ -402,14 +403,35 @@ public class UniversalBodyProxy extends AbstractBodyProxy implements java.io.Ser
 
         }
 
+        RequestSendPipeline pipeline = RequestSendPipeline.getInstance();
         if (this.isLocal) {
             // Replaces the effective arguments with a deep copy
             // Only do this if the body is local
             // For remote bodies, this is automatically handled by the RMI stub
             methodCall.makeDeepCopyOfArguments();
-        }
 
-        sendRequestInternal(methodCall, future, sourceBody);
+            if (pipeline != null) {
+                // Local requests are not pipelined, the previous requests must be delivered first
+                pipeline.flush(sourceBody.getID());
+            }
+            sendRequestInternal(methodCall, future, sourceBody);
+        } else if (pipeline != null) {
+            // The request is serialized later by the pipeline: copy the arguments now, while the
+            // destination is registered for the automatic continuations. The copied futures
+            // must not register continuations again when the pipeline serializes them.
+            methodCall.makeDeepCopyOfArguments();
+            ArrayList<Future> incFutures = FuturePool.getIncomingFutures();
+            if (incFutures != null) {
+                for (Future f : incFutures) {
+                    f.setCopyMode(true);
+                }
+                FuturePool.removeIncomingFutures();
+            }
+            sourceBody.sendRequest(methodCall, future, pipeline.getPipelinedDestination(sourceBody.getID(),
+                    this.universalBody));
+        } else {
+            sendRequestInternal(methodCall, future, sourceBody);
+        }
 
         FuturePool fp = sourceBody.getFuturePool();
 
@@ -0,0 +1,154 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.reply;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.objectweb.proactive.core.UniqueID;
+import org.objectweb.proactive.core.body.UniversalBody;
+import org.objectweb.proactive.core.body.future.MethodCallResult;
+import org.objectweb.proactive.core.body.tags.MessageTags;
+import org.objectweb.proactive.core.exceptions.IOException6;
+import org.objectweb.proactive.core.util.converter.ProActiveByteToObjectConverter;
+
+
+/**
+ * Several replies sent to the same body in one message
+ *
+ * The replies are serialized by the sender, in the thread which produced them, so that the
+ * futures they contain are handled as if each reply were sent on its own. They are deserialized
+ * with the batch, and handed to the {@link org.objectweb.proactive.core.body.future.FuturePool}
+ * of the receiver at once.
+ *
+ * @see ReplyBatcher
+ */
+public class BatchedReply implements Reply, Serializable {
+
+    /** The serialized replies */
+    private final ArrayList<byte[]> serializedReplies;
+
+    private final long timeStamp;
+
+    private transient List<Reply> replies;
+
+    public BatchedReply(ArrayList<byte[]> serializedReplies) {
+        this.serializedReplies = serializedReplies;
+        this.timeStamp = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the replies of this batch, in the order they have been added
+     * @throws IOException if the replies cannot be deserialized
+     */
+    public synchronized List<Reply> getReplies() throws IOException {
+        if (this.replies == null) {
+            // not received through a transport
+            this.replies = deserialize();
+        }
+        return this.replies;
+    }
+
+    /**
+     * @return the number of replies in this batch
+     */
+    public int size() {
+        return this.serializedReplies.size();
+    }
+
+    public void send(UniversalBody destinationBody) throws IOException {
+        destinationBody.receiveReply(this);
+    }
+
+    /**
+     * A batch has no result of its own, see {@link #getReplies()}
+     */
+    public MethodCallResult getResult() {
+        return null;
+    }
+
+    public boolean isAutomaticContinuation() {
+        return false;
+    }
+
+    public synchronized UniqueID getSourceBodyID() {
+        return (this.replies == null || this.replies.isEmpty()) ? null : this.replies.get(0)
+                .getSourceBodyID();
+    }
+
+    public String getMethodName() {
+        return "batch of " + size() + " replies";
+    }
+
+    public long getSequenceNumber() {
+        return 0;
+    }
+
+    public boolean isOneWay() {
+        return true;
+    }
+
+    public long getTimeStamp() {
+        return this.timeStamp;
+    }
+
+    public MessageTags getTags() {
+        return null;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // Deserialized here, like the result of a single reply would be, so that the incoming
+        // futures are registered by the receiver
+        this.replies = deserialize();
+    }
+
+    private List<Reply> deserialize() throws IOException {
+        List<Reply> result = new ArrayList<Reply>(this.serializedReplies.size());
+        for (byte[] serializedReply : this.serializedReplies) {
+            try {
+                result.add((Reply) ProActiveByteToObjectConverter.MarshallStream.convert(serializedReply));
+            } catch (ClassNotFoundException e) {
+                throw new IOException6("Cannot deserialize a batched reply", e);
+            }
+        }
+        return result;
+    }
+}
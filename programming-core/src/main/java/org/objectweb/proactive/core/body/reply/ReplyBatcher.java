@@ -0,0 +1,325 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.reply;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import org.objectweb.proactive.core.UniqueID;
+import org.objectweb.proactive.core.body.LocalBodyStore;
+import org.objectweb.proactive.core.body.UniversalBody;
+import org.objectweb.proactive.core.body.exceptions.BatchedReplyException;
+import org.objectweb.proactive.core.body.future.MethodCallResult;
+import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
+import org.objectweb.proactive.core.util.OrderedLaneExecutor;
+import org.objectweb.proactive.core.util.converter.ProActiveObjectToByteConverter;
+import org.objectweb.proactive.core.util.log.Loggers;
+import org.objectweb.proactive.core.util.log.ProActiveLogger;
+import org.objectweb.proactive.utils.NamedThreadFactory;
+
+
+/**
+ * Coalesces the replies sent to a same remote body into {@link BatchedReply batches}
+ *
+ * A reply is serialized by the caller and added to the batch of its destination. The batch is
+ * sent when its size reaches {@link CentralPAPropertyRepository#PA_REPLY_BATCH_SIZE}, the caller
+ * adding the last reply waiting for its delivery, or at the latest
+ * {@link CentralPAPropertyRepository#PA_REPLY_BATCH_DELAY} milliseconds after its first reply.
+ * The batches to a destination are delivered one at a time and in order by a lane of the delivery
+ * threads. Replies to local bodies are sent immediately. A body flushes the batch of a destination
+ * before sending it a request, and all the batches when it terminates, so that its replies are not
+ * overtaken by its requests nor lost.
+ *
+ * Batching cannot be combined with the {@link ReplySendQueue}, which already delivers the replies
+ * from its own threads: if both are enabled, the replies are not batched.
+ *
+ * If the receiver could not apply some replies of a batch, it reports them with a
+ * {@link BatchedReplyException} and only these replies are replaced by the exception, the other
+ * ones are not sent again. If a batch cannot be delivered at all, its replies are sent one by one,
+ * a reply which cannot be sent being replaced by the exception, as when a reply is sent on its
+ * own. Failures are logged.
+ */
+public class ReplyBatcher {
+    final static private Logger logger = ProActiveLogger.getLogger(Loggers.BODY);
+
+    /** The instance is created, or not, on the first use */
+    static private class Holder {
+        static final ReplyBatcher INSTANCE = createInstance();
+    }
+
+    static private ReplyBatcher createInstance() {
+        int delay = CentralPAPropertyRepository.PA_REPLY_BATCH_DELAY.getValue();
+        if (delay > 0 && CentralPAPropertyRepository.PA_REPLY_SEND_QUEUE_THREADS.getValue() > 0) {
+            logger.error(CentralPAPropertyRepository.PA_REPLY_BATCH_DELAY.getName() +
+                " cannot be combined with " +
+                CentralPAPropertyRepository.PA_REPLY_SEND_QUEUE_THREADS.getName() +
+                ", the replies are sent by the reply send queue without batching");
+            return null;
+        }
+        if (delay > 0) {
+            return new ReplyBatcher(delay, CentralPAPropertyRepository.PA_REPLY_BATCH_SIZE.getValue());
+        }
+        return null;
+    }
+
+    /**
+     * @return the batcher of this runtime or null if the replies are sent one by one
+     */
+    static public ReplyBatcher getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /** Number of threads delivering the batches */
+    static final private int DELIVERY_THREADS = 4;
+
+    /** Maximum delay of a reply in milliseconds */
+    final private long delay;
+    /** Size of a batch in bytes above which it is sent immediately */
+    final private int maxBytes;
+    /** Only hands the expired batches over to the delivery threads, a slow destination cannot delay it */
+    final private ScheduledThreadPoolExecutor timer;
+    /** One lane per destination, never full so that the timer is never blocked */
+    final private OrderedLaneExecutor<UniqueID> deliverers;
+    final private ConcurrentHashMap<UniqueID, Batch> batches;
+
+    ReplyBatcher(long delay, int maxBytes) {
+        this.delay = delay;
+        this.maxBytes = maxBytes;
+        this.batches = new ConcurrentHashMap<UniqueID, Batch>();
+        this.timer = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("Reply batcher", true));
+        this.deliverers = new OrderedLaneExecutor<UniqueID>("Reply batch delivery", DELIVERY_THREADS,
+            Integer.MAX_VALUE);
+    }
+
+    /**
+     * Sends a reply, possibly later with other replies to the same destination
+     *
+     * @param reply the reply to send
+     * @param destination the body waiting for the reply
+     * @throws IOException if the reply cannot be serialized, or if it is sent immediately and fails
+     */
+    public void send(Reply reply, UniversalBody destination) throws IOException {
+        UniqueID destinationID = destination.getID();
+        LocalBodyStore store = LocalBodyStore.getInstance();
+        if ((store.getLocalBody(destinationID) != null) || (store.getLocalHalfBody(destinationID) != null)) {
+            reply.send(destination);
+            return;
+        }
+
+        add(reply, ProActiveObjectToByteConverter.MarshallStream.convert(reply), destination);
+    }
+
+    /**
+     * Sends the pending replies to a destination and waits until they have been delivered
+     *
+     * @param destinationID the destination
+     */
+    public void flush(UniqueID destinationID) {
+        Batch batch = this.batches.get(destinationID);
+        if (batch != null) {
+            batch.expire();
+        }
+        this.deliverers.flush(destinationID);
+    }
+
+    /**
+     * Sends all the pending replies and waits until they have been delivered, whatever their
+     * destination
+     */
+    public void flushAll() {
+        for (Batch batch : new ArrayList<Batch>(this.batches.values())) {
+            batch.expire();
+        }
+        this.deliverers.flushAll();
+    }
+
+    /**
+     * Adds a serialized reply to the batch of its destination
+     */
+    void add(Reply reply, byte[] serializedReply, UniversalBody destination) {
+        UniqueID destinationID = destination.getID();
+        while (true) {
+            Batch batch = this.batches.get(destinationID);
+            if (batch == null) {
+                Batch newBatch = new Batch(destinationID, destination);
+                batch = this.batches.putIfAbsent(destinationID, newBatch);
+                if (batch == null) {
+                    batch = newBatch;
+                }
+            }
+            if (batch.add(reply, serializedReply)) {
+                return;
+            }
+            // The batch has been sent while we were looking it up
+        }
+    }
+
+    private void sendAlone(Reply reply, UniversalBody destination, Throwable batchFailure) {
+        try {
+            reply.send(destination);
+        } catch (Throwable t) {
+            sendException(reply, destination, t, batchFailure);
+        }
+    }
+
+    private void sendException(Reply reply, UniversalBody destination, Throwable t, Throwable batchFailure) {
+        try {
+            // fill the future with the exception, works only if the failure is not due to the
+            // communication
+            new ReplyImpl(reply.getSourceBodyID(), reply.getSequenceNumber(), reply.getMethodName(),
+                new MethodCallResult(null, t)).send(destination);
+        } catch (Throwable t2) {
+            UniversalBody.sendReplyExceptionsLogger.error("Failed to send reply to method:" +
+                reply.getMethodName() + " sequence: " + reply.getSequenceNumber() + " to " +
+                destination.getID(), batchFailure);
+        }
+    }
+
+    /**
+     * @return the report of the replies the receiver could not apply, null if the batch has not
+     *         been applied at all
+     */
+    private static BatchedReplyException getPartialFailure(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BatchedReplyException) {
+                return (BatchedReplyException) cause;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The pending replies to a destination
+     *
+     * A batch is retired when it is sent, a new one is created by the next reply.
+     */
+    private class Batch implements Runnable {
+        final private UniqueID destinationID;
+        final private UniversalBody destination;
+        final private ArrayList<byte[]> serializedReplies;
+        /** Kept to send the replies one by one if the batch fails */
+        final private ArrayList<Reply> replies;
+        private int bytes;
+        private boolean retired;
+
+        Batch(UniqueID destinationID, UniversalBody destination) {
+            this.destinationID = destinationID;
+            this.destination = destination;
+            this.serializedReplies = new ArrayList<byte[]>();
+            this.replies = new ArrayList<Reply>();
+            this.bytes = 0;
+            this.retired = false;
+        }
+
+        /**
+         * @return false if the batch has been retired
+         */
+        boolean add(Reply reply, byte[] serializedReply) {
+            synchronized (this) {
+                if (this.retired) {
+                    return false;
+                }
+                this.serializedReplies.add(serializedReply);
+                this.replies.add(reply);
+                this.bytes += serializedReply.length;
+                if (this.bytes < ReplyBatcher.this.maxBytes) {
+                    if (this.replies.size() == 1) {
+                        ReplyBatcher.this.timer.schedule(new Runnable() {
+                            public void run() {
+                                expire();
+                            }
+                        }, ReplyBatcher.this.delay, TimeUnit.MILLISECONDS);
+                    }
+                    return true;
+                }
+                retire();
+            }
+            // Full, after the batches already handed over, and the caller waits for it
+            ReplyBatcher.this.deliverers.execute(this.destinationID, this);
+            ReplyBatcher.this.deliverers.flush(this.destinationID);
+            return true;
+        }
+
+        /**
+         * Called by the timer when the delay of the batch has expired, or when the batch is flushed
+         */
+        void expire() {
+            synchronized (this) {
+                if (this.retired) {
+                    return;
+                }
+                retire();
+            }
+            ReplyBatcher.this.deliverers.execute(this.destinationID, this);
+        }
+
+        public void run() {
+            deliver();
+        }
+
+        private void retire() {
+            this.retired = true;
+            ReplyBatcher.this.batches.remove(this.destinationID, this);
+        }
+
+        private void deliver() {
+            try {
+                new BatchedReply(this.serializedReplies).send(this.destination);
+            } catch (Throwable t) {
+                BatchedReplyException partialFailure = getPartialFailure(t);
+                if (partialFailure != null) {
+                    // The other replies have been applied, sending them again would duplicate them
+                    Throwable cause = partialFailure.getCause();
+                    for (int index : partialFailure.getFailedReplies()) {
+                        sendException(this.replies.get(index), this.destination, cause, t);
+                    }
+                    return;
+                }
+                // Not applied, one of the replies may be the culprit, e.g. its class is unknown to
+                // the receiver
+                for (Reply reply : this.replies) {
+                    sendAlone(reply, this.destination, t);
+                }
+            }
+        }
+    }
+}
@@ -45,6 +45,10 @@ public class ReplyReceiverImpl implements ReplyReceiver, java.io.Serializable {
     }
 
     public void receiveReply(Reply r, Body receiverBody, FuturePool futurePool) throws java.io.IOException {
-        futurePool.receiveFutureValue(r.getSequenceNumber(), r.getSourceBodyID(), r.getResult(), r);
+        if (r instanceof BatchedReply) {
+            futurePool.receiveFutureValues(((BatchedReply) r).getReplies());
+        } else {
+            futurePool.receiveFutureValue(r.getSequenceNumber(), r.getSourceBodyID(), r.getResult(), r);
+        }
     }
 }
@@ -0,0 +1,232 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.reply;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.objectweb.proactive.core.UniqueID;
+import org.objectweb.proactive.core.body.LocalBodyStore;
+import org.objectweb.proactive.core.body.UniversalBody;
+import org.objectweb.proactive.core.body.future.MethodCallResult;
+import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
+import org.objectweb.proactive.core.util.OrderedLaneExecutor;
+import org.objectweb.proactive.core.util.converter.ProActiveObjectToByteConverter;
+
+
+/**
+ * Sends the replies to remote callers from a pool of threads
+ *
+ * A reply is serialized by the service thread, so that the result cannot be modified by the
+ * following requests and the futures it contains are handled as for a synchronous send. It is
+ * then put in the lane of its destination in an {@link OrderedLaneExecutor}: a bounded FIFO of
+ * replies delivered one at a time by the threads of the pool. The service thread only waits when the lane is full, a slow caller
+ * does not delay the replies to the other callers. Replies to a caller are received in the order
+ * they have been sent. Replies to local bodies are sent immediately. A body flushes the lane of a
+ * destination before sending it a request, and all the lanes when it terminates, so that its
+ * replies are not overtaken by its requests nor lost.
+ *
+ * A reply which cannot be delivered is replaced by the exception, as with a synchronous send. If
+ * the exception cannot be delivered either, the {@link FailureListener} of the queue is notified.
+ * By default the failure is logged in {@link UniversalBody#sendReplyExceptionsLogger}.
+ */
+public class ReplySendQueue {
+
+    /**
+     * Notified of the replies which cannot be delivered, from a thread of the queue
+     */
+    public interface FailureListener {
+        /**
+         * @param reply the reply which has not been delivered
+         * @param destination the body waiting for the reply
+         * @param cause the failure of the delivery
+         */
+        public void replyNotSent(Reply reply, UniversalBody destination, Throwable cause);
+    }
+
+    static final private FailureListener LOGGING_LISTENER = new FailureListener() {
+        public void replyNotSent(Reply reply, UniversalBody destination, Throwable cause) {
+            UniversalBody.sendReplyExceptionsLogger.error("Failed to send reply to method:" +
+                reply.getMethodName() + " sequence: " + reply.getSequenceNumber() + " to " +
+                destination.getID(), cause);
+        }
+    };
+
+    /** The instance is created, or not, on the first use */
+    static private class Holder {
+        static final ReplySendQueue INSTANCE = createInstance();
+    }
+
+    static private ReplySendQueue createInstance() {
+        int size = CentralPAPropertyRepository.PA_REPLY_SEND_QUEUE_THREADS.getValue();
+        if (size > 0) {
+            return new ReplySendQueue(size, CentralPAPropertyRepository.PA_REPLY_SEND_QUEUE_CAPACITY
+                    .getValue());
+        }
+        return null;
+    }
+
+    /**
+     * @return the reply send queue of this runtime or null if the replies are sent by the
+     *         service thread
+     */
+    static public ReplySendQueue getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    final private OrderedLaneExecutor<UniqueID> lanes;
+    final private AtomicLong sent;
+    final private AtomicLong failed;
+    private volatile FailureListener failureListener;
+
+    ReplySendQueue(int size, int capacity) {
+        this.lanes = new OrderedLaneExecutor<UniqueID>("Reply send queue", size, capacity);
+        this.sent = new AtomicLong();
+        this.failed = new AtomicLong();
+        this.failureListener = LOGGING_LISTENER;
+    }
+
+    /**
+     * Sends a reply, from a thread of the queue if the destination is remote
+     *
+     * @param reply the reply to send
+     * @param destination the body waiting for the reply
+     * @throws IOException if the reply cannot be serialized, or if it is sent immediately and fails
+     */
+    public void send(Reply reply, UniversalBody destination) throws IOException {
+        UniqueID destinationID = destination.getID();
+        LocalBodyStore store = LocalBodyStore.getInstance();
+        if ((store.getLocalBody(destinationID) != null) || (store.getLocalHalfBody(destinationID) != null)) {
+            reply.send(destination);
+            return;
+        }
+
+        ArrayList<byte[]> serializedReply = new ArrayList<byte[]>(1);
+        serializedReply.add(ProActiveObjectToByteConverter.MarshallStream.convert(reply));
+        enqueue(new BatchedReply(serializedReply), reply, destination);
+    }
+
+    /**
+     * Waits until the replies to a destination pending when this method is called have been
+     * delivered
+     *
+     * @param destinationID the destination
+     */
+    public void flush(UniqueID destinationID) {
+        this.lanes.flush(destinationID);
+    }
+
+    /**
+     * Waits until all the replies pending when this method is called have been delivered, whatever
+     * their destination
+     */
+    public void flushAll() {
+        this.lanes.flushAll();
+    }
+
+    /**
+     * @param listener notified of the replies which cannot be delivered, null to log them
+     */
+    public void setFailureListener(FailureListener listener) {
+        this.failureListener = (listener == null) ? LOGGING_LISTENER : listener;
+    }
+
+    /**
+     * @return the number of replies delivered by the queue since its creation
+     */
+    public long getSentCount() {
+        return this.sent.get();
+    }
+
+    /**
+     * @return the number of replies which could not be delivered since the creation of the queue
+     */
+    public long getFailedCount() {
+        return this.failed.get();
+    }
+
+    /**
+     * @param message what is sent to the destination
+     * @param reply the reply carried by the message
+     * @param destination the body waiting for the reply
+     */
+    void enqueue(Reply message, Reply reply, UniversalBody destination) {
+        final Entry e = new Entry(message, reply, destination);
+        this.lanes.execute(destination.getID(), new Runnable() {
+            public void run() {
+                deliver(e);
+            }
+        });
+    }
+
+    private void deliver(Entry e) {
+        try {
+            e.message.send(e.destination);
+            this.sent.incrementAndGet();
+            return;
+        } catch (Throwable t) {
+            try {
+                // fill the future with the exception, works only if the failure is not due to the
+                // communication
+                new ReplyImpl(e.reply.getSourceBodyID(), e.reply.getSequenceNumber(), e.reply
+                        .getMethodName(), new MethodCallResult(null, t)).send(e.destination);
+                this.sent.incrementAndGet();
+            } catch (Throwable t2) {
+                // the initial exception must be the one reported
+                this.failed.incrementAndGet();
+                try {
+                    this.failureListener.replyNotSent(e.reply, e.destination, t);
+                } catch (Throwable t3) {
+                    LOGGING_LISTENER.replyNotSent(e.reply, e.destination, t);
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+        final Reply message;
+        final Reply reply;
+        final UniversalBody destination;
+
+        Entry(Reply message, Reply reply, UniversalBody destination) {
+            this.message = message;
+            this.reply = reply;
+            this.destination = destination;
+        }
+    }
+}
@@ -40,10 +40,12 @@ import java.util.Iterator;
 import java.util.LinkedList;
 
 import org.objectweb.proactive.Body;
+import org.objectweb.proactive.annotation.RequestQueueCapacity.OverflowPolicy;
 import org.objectweb.proactive.api.PAActiveObject;
 import org.objectweb.proactive.core.UniqueID;
 import org.objectweb.proactive.core.body.AbstractBody;
 import org.objectweb.proactive.core.body.LocalBodyStore;
+import org.objectweb.proactive.core.body.exceptions.RequestQueueFullException;
 import org.objectweb.proactive.core.event.RequestQueueEvent;
 import org.objectweb.proactive.core.group.spmd.MethodBarrier;
 import org.objectweb.proactive.core.group.spmd.MethodCallBarrierWithMethodName;
@@ -66,6 +68,19 @@ public class BlockingRequestQueueImpl extends RequestQueueImpl implements java.i
     private String specialMethod = "";
     private LinkedList<MethodBarrier> methodBarriers = new LinkedList<MethodBarrier>();
     private boolean waitingForRequest = false;
+    /** Maximum number of pending requests, 0 means unbounded */
+    private int capacity = 0;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    /** Blocked senders wait on this lock rather than on the queue */
+    final private Object slotLock = new Object();
+    /** Number of senders waiting for a free slot, guarded by slotLock */
+    private volatile int blockedSenders = 0;
+    /** Incremented each time a slot may have been freed, guarded by slotLock */
+    private long slotReleases = 0;
+    /** Number of requests which found the queue full */
+    private long saturationCount = 0;
+    /** Number of one-way requests dropped because the queue was full */
+    private long shedCount = 0;
 
     //
     // -- CONSTRUCTORS -----------------------------------------------
@@ -82,14 +97,124 @@ public class BlockingRequestQueueImpl extends RequestQueueImpl implements java.i
         super.clear();
         shouldWait = false;
         notifyAll();
+        wakeUpSenders();
     }
 
     public synchronized boolean isDestroyed() {
         return !shouldWait;
     }
 
+    /**
+     * Bound the number of pending requests
+     *
+     * Requests sent by the owner of the queue and priority non functional requests are always
+     * accepted, otherwise the service thread could deadlock.
+     *
+     * @param capacity maximum number of pending requests, 0 means unbounded
+     * @param overflowPolicy what to do with a request when the queue is full
+     */
+    public synchronized void setCapacity(int capacity, OverflowPolicy overflowPolicy) {
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        // Senders may be blocked on a lower capacity
+        wakeUpSenders();
+    }
+
+    public synchronized int getCapacity() {
+        return this.capacity;
+    }
+
+    public synchronized OverflowPolicy getOverflowPolicy() {
+        return this.overflowPolicy;
+    }
+
+    /**
+     * @return the number of incoming requests which found the queue full
+     */
+    public synchronized long getSaturationCount() {
+        return this.saturationCount;
+    }
+
+    /**
+     * @return the number of one-way requests dropped because the queue was full
+     */
+    public synchronized long getShedCount() {
+        return this.shedCount;
+    }
+
+    /**
+     * Add a request, applying the overflow policy if the queue is full
+     *
+     * A blocked sender waits outside of the queue monitor, so the service thread and the other
+     * senders are not held by it.
+     *
+     * @throws RequestQueueFullException if the request is rejected
+     */
     @Override
-    public synchronized void add(Request r) {
+    public void add(Request r) {
+        synchronized (this) {
+            if (hasRoom(r)) {
+                addAdmitted(r);
+                return;
+            }
+
+            this.saturationCount++;
+            switch (this.overflowPolicy) {
+                case FAIL:
+                    throw new RequestQueueFullException(ownerID, r.getMethodName(), this.capacity);
+                case SHED_ONE_WAY:
+                    if (r.isOneWay()) {
+                        this.shedCount++;
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("Request queue of " + ownerID +
+                                " is full, dropping one-way request " + r.getMethodName());
+                        }
+                        return;
+                    }
+                    // Other requests block the sender
+                case BLOCK:
+                default:
+                    break;
+            }
+        }
+
+        boolean interrupted = false;
+        synchronized (this.slotLock) {
+            this.blockedSenders++;
+        }
+        try {
+            while (true) {
+                long releases;
+                synchronized (this.slotLock) {
+                    releases = this.slotReleases;
+                }
+                synchronized (this) {
+                    if (hasRoom(r)) {
+                        addAdmitted(r);
+                        return;
+                    }
+                }
+                synchronized (this.slotLock) {
+                    while (releases == this.slotReleases) {
+                        try {
+                            this.slotLock.wait();
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                }
+            }
+        } finally {
+            synchronized (this.slotLock) {
+                this.blockedSenders--;
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void addAdmitted(Request r) {
         super.add(r);
         if (logger.isDebugEnabled()) {
             logger.debug("Adding request " + r.getMethodName());
@@ -131,6 +256,50 @@ public class BlockingRequestQueueImpl extends RequestQueueImpl implements java.i
         this.notifyAll();
     }
 
+    @Override
+    public synchronized Request removeOldest() {
+        return released(super.removeOldest());
+    }
+
+    @Override
+    public synchronized Request removeOldest(String methodName) {
+        return released(super.removeOldest(methodName));
+    }
+
+    @Override
+    public synchronized Request removeOldest(RequestFilter requestFilter) {
+        return released(super.removeOldest(requestFilter));
+    }
+
+    @Override
+    public synchronized Request removeYoungest() {
+        return released(super.removeYoungest());
+    }
+
+    @Override
+    public synchronized Request removeYoungest(String methodName) {
+        return released(super.removeYoungest(methodName));
+    }
+
+    @Override
+    public synchronized Request removeYoungest(RequestFilter requestFilter) {
+        return released(super.removeYoungest(requestFilter));
+    }
+
+    @Override
+    public synchronized void clear() {
+        super.clear();
+        released(null);
+    }
+
+    @Override
+    public void processRequests(RequestProcessor processor, Body body) {
+        super.processRequests(processor, body);
+        synchronized (this) {
+            released(null);
+        }
+    }
+
     public synchronized Request blockingRemoveOldest(RequestFilter requestFilter) throws InterruptedException {
         return blockingRemove(requestFilter, true, 0);
     }
@@ -227,6 +396,38 @@ public class BlockingRequestQueueImpl extends RequestQueueImpl implements java.i
     //
     // -- PRIVATE METHODS -----------------------------------------------
     //
+
+    /**
+     * @return true if the request can be added without exceeding the capacity
+     */
+    private boolean hasRoom(Request r) {
+        return !this.shouldWait || this.capacity <= 0 || this.requestQueue.size() < this.capacity ||
+            isExempted(r);
+    }
+
+    private boolean isExempted(Request r) {
+        int priority = r.getNFRequestPriority();
+        return (priority == Request.NFREQUEST_IMMEDIATE_PRIORITY) || (priority == Request.NFREQUEST_PRIORITY) ||
+            ownerID.equals(r.getSourceBodyID());
+    }
+
+    /**
+     * Wake up the senders waiting for a free slot
+     */
+    private Request released(Request r) {
+        if (this.blockedSenders > 0) {
+            wakeUpSenders();
+        }
+        return r;
+    }
+
+    private void wakeUpSenders() {
+        synchronized (this.slotLock) {
+            this.slotReleases++;
+            this.slotLock.notifyAll();
+        }
+    }
+
     private boolean waitResume(TimeoutAccounter time) {
         // If the queue is in suspended state and a timeout is set and not elapsed
         // we have to wait the queue becomes active again
@@ -356,6 +557,7 @@ public class BlockingRequestQueueImpl extends RequestQueueImpl implements java.i
 
     protected Request barrierRemoveOldest() {
         Request r = (Request) requestQueue.remove(indexOfRequestToServe());
+        released(r);
 
         // ProActiveEvent
         if (SEND_ADD_REMOVE_EVENT && hasListeners()) {
@@ -0,0 +1,238 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.request;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
+import org.objectweb.proactive.core.util.log.Loggers;
+import org.objectweb.proactive.core.util.log.ProActiveLogger;
+import org.objectweb.proactive.utils.NamedThreadFactory;
+
+
+/**
+ * A bounded pool of threads serving immediate services with unique thread
+ *
+ * The pool is shared by all the bodies of the runtime. Requests of a given caller are submitted
+ * through a {@link SerialQueue} so they are served one at a time and in FIFO order, without
+ * requiring a thread per caller.
+ *
+ * When all the threads are busy, the task is run by the submitting thread (usually the thread of
+ * the communication layer). It throttles the senders and avoids deadlocks when an immediate
+ * service calls another immediate service.
+ */
+public class ImmediateServiceExecutor {
+    final static private Logger logger = ProActiveLogger.getLogger(Loggers.REQUESTS);
+
+    /** The instance is created, or not, on the first use */
+    static private class Holder {
+        static final ImmediateServiceExecutor INSTANCE = createInstance();
+    }
+
+    static private ImmediateServiceExecutor createInstance() {
+        int size = CentralPAPropertyRepository.PA_IMMEDIATE_SERVICE_POOL_SIZE.getValue();
+        if (size > 0) {
+            return new ImmediateServiceExecutor(size);
+        }
+        return null;
+    }
+
+    /**
+     * @return the executor of this runtime or null if immediate services with unique thread
+     *         must be served by dedicated threads
+     */
+    static public ImmediateServiceExecutor getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    final private ThreadPoolExecutor pool;
+    /** Number of tasks submitted */
+    final private AtomicLong submitted;
+    /** Number of tasks run by the submitting thread because the pool was saturated */
+    final private AtomicLong saturated;
+
+    ImmediateServiceExecutor(int size) {
+        this.submitted = new AtomicLong();
+        this.saturated = new AtomicLong();
+        this.pool = new ThreadPoolExecutor(0, size, RequestReceiverImpl.THREAD_FOR_IS_PING_PERIOD,
+            TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new NamedThreadFactory(
+                "Immediate service executor", true), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Create a new serial queue
+     *
+     * Tasks submitted to a same queue are executed in FIFO order, one at a time.
+     */
+    public SerialQueue newSerialQueue() {
+        return new SerialQueue();
+    }
+
+    private void execute(Runnable task) {
+        this.submitted.incrementAndGet();
+        try {
+            this.pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            long n = this.saturated.incrementAndGet();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Immediate service executor is saturated (" + n +
+                    " times), serving in the calling thread");
+            }
+            task.run();
+        }
+    }
+
+    /**
+     * @return the number of tasks submitted since the creation of the executor
+     */
+    public long getSubmittedCount() {
+        return this.submitted.get();
+    }
+
+    /**
+     * @return the number of tasks run by the submitting thread because all the threads were busy
+     */
+    public long getSaturatedCount() {
+        return this.saturated.get();
+    }
+
+    /**
+     * @return the number of threads currently serving requests
+     */
+    public int getActiveCount() {
+        return this.pool.getActiveCount();
+    }
+
+    /**
+     * @return the maximum number of threads
+     */
+    public int getMaximumPoolSize() {
+        return this.pool.getMaximumPoolSize();
+    }
+
+    @Override
+    public String toString() {
+        return "ImmediateServiceExecutor [active=" + getActiveCount() + "/" + getMaximumPoolSize() +
+            ", submitted=" + getSubmittedCount() + ", saturated=" + getSaturatedCount() + "]";
+    }
+
+    /**
+     * Executes its tasks one at a time, in FIFO order, on the executor
+     *
+     * A queue does not hold any thread when it is empty.
+     */
+    public class SerialQueue implements Runnable {
+        final private Queue<Runnable> tasks;
+        /** true if a task of this queue is being executed or has been submitted to the pool */
+        private boolean scheduled;
+        private boolean closed;
+
+        private SerialQueue() {
+            this.tasks = new ArrayDeque<Runnable>();
+            this.scheduled = false;
+            this.closed = false;
+        }
+
+        /**
+         * Submit a task
+         *
+         * @throws RejectedExecutionException if the queue has been closed
+         */
+        public void execute(Runnable task) {
+            synchronized (this) {
+                if (this.closed) {
+                    throw new RejectedExecutionException("Serial queue is closed");
+                }
+                this.tasks.add(task);
+                if (this.scheduled) {
+                    return;
+                }
+                this.scheduled = true;
+            }
+            ImmediateServiceExecutor.this.execute(this);
+        }
+
+        /**
+         * Reject all the new tasks. Pending ones are still executed.
+         */
+        public synchronized void close() {
+            this.closed = true;
+        }
+
+        /**
+         * Close the queue if no task is pending
+         *
+         * @return true if the queue has been closed
+         */
+        public synchronized boolean closeIfEmpty() {
+            if (this.tasks.isEmpty()) {
+                this.closed = true;
+            }
+            return this.closed;
+        }
+
+        public void run() {
+            Runnable task;
+            synchronized (this) {
+                task = this.tasks.peek();
+            }
+
+            try {
+                task.run();
+            } finally {
+                boolean more;
+                synchronized (this) {
+                    this.tasks.poll();
+                    more = !this.tasks.isEmpty();
+                    this.scheduled = more;
+                }
+
+                // One task per run to be fair with the other queues
+                if (more) {
+                    ImmediateServiceExecutor.this.execute(this);
+                }
+            }
+        }
+    }
+}
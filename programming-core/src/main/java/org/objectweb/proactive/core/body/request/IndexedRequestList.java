@@ -0,0 +1,327 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.request;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import org.objectweb.proactive.core.util.CircularArrayList;
+
+
+/**
+ * A request list indexing its requests by method name
+ *
+ * Each method name maps to the FIFO of its requests, in the order of the list. Finding the
+ * oldest or the youngest request of a method is O(1), and O(k) for k method names. A filter can
+ * be applied to these candidates only, rather than to the whole list. All the
+ * modifications of the list, including the ones done through its iterators, keep the index up to
+ * date.
+ *
+ * Requests are numbered when they enter the list so the heads of several FIFO can be compared.
+ * An insertion in the middle of the list cannot be numbered, it drops the index which is rebuilt
+ * on the next lookup.
+ */
+public class IndexedRequestList extends CircularArrayList<Request> {
+    /** The requests of each method, rebuilt when null */
+    private transient HashMap<String, ArrayDeque<Entry>> index;
+    /** Number of the next request added at the tail */
+    private transient long nextTail;
+    /** Number of the next request added at the head */
+    private transient long nextHead;
+
+    public IndexedRequestList(int size) {
+        super(size);
+        this.index = new HashMap<String, ArrayDeque<Entry>>();
+        this.nextTail = 0;
+        this.nextHead = -1;
+    }
+
+    //
+    // -- LOOKUPS -----------------------------------------------
+    //
+
+    /**
+     * @param methodName a method name
+     * @return the number of requests for this method
+     */
+    public int count(String methodName) {
+        ArrayDeque<Entry> fifo = getIndex().get(methodName);
+        return fifo == null ? 0 : fifo.size();
+    }
+
+    /**
+     * @param methodNames the accepted method names
+     * @return the oldest request for one of the methods, null if none
+     */
+    public Request oldest(Collection<String> methodNames) {
+        return find(methodNames, null, false);
+    }
+
+    /**
+     * @param methodNames the method names of the candidate requests
+     * @param filter accepts or rejects each candidate, from the oldest one
+     * @return the oldest accepted request for one of the methods, null if none
+     */
+    public Request oldest(Collection<String> methodNames, RequestFilter filter) {
+        return find(methodNames, filter, false);
+    }
+
+    /**
+     * @param methodNames the accepted method names
+     * @return the youngest request for one of the methods, null if none
+     */
+    public Request youngest(Collection<String> methodNames) {
+        return find(methodNames, null, true);
+    }
+
+    /**
+     * @param methodNames the method names of the candidate requests
+     * @param filter accepts or rejects each candidate, from the youngest one
+     * @return the youngest accepted request for one of the methods, null if none
+     */
+    public Request youngest(Collection<String> methodNames, RequestFilter filter) {
+        return find(methodNames, filter, true);
+    }
+
+    /**
+     * Removes a request of the list
+     *
+     * @param request the request to remove
+     * @param fromTail whether the request is looked up from the tail, i.e. it is a young one
+     * @return true if the request has been found
+     */
+    public boolean removeRequest(Request request, boolean fromTail) {
+        int i = fromTail ? lastIndexOfRequest(request) : indexOfRequest(request);
+        if (i < 0) {
+            return false;
+        }
+        remove(i);
+        return true;
+    }
+
+    //
+    // -- MODIFICATIONS -----------------------------------------------
+    //
+
+    @Override
+    public boolean add(Request request) {
+        super.add(request);
+        if (this.index != null) {
+            fifo(request).addLast(new Entry(request, this.nextTail++));
+        }
+        return true;
+    }
+
+    @Override
+    public void add(int i, Request request) {
+        if (i == size()) {
+            add(request);
+            return;
+        }
+        super.add(i, request);
+        if (this.index != null) {
+            if (i == 0) {
+                fifo(request).addFirst(new Entry(request, this.nextHead--));
+            } else {
+                this.index = null;
+            }
+        }
+    }
+
+    @Override
+    public Request remove(int i) {
+        Request r = super.remove(i);
+        if (this.index != null) {
+            unindex(r);
+        }
+        return r;
+    }
+
+    @Override
+    public Request set(int i, Request request) {
+        Request old = super.set(i, request);
+        this.index = null;
+        return old;
+    }
+
+    @Override
+    public boolean addAll(int i, Collection<? extends Request> c) {
+        super.addAll(i, c);
+        this.index = null;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        this.index = new HashMap<String, ArrayDeque<Entry>>();
+        this.nextTail = 0;
+        this.nextHead = -1;
+    }
+
+    //
+    // -- PRIVATE METHODS -----------------------------------------------
+    //
+
+    private HashMap<String, ArrayDeque<Entry>> getIndex() {
+        if (this.index == null) {
+            this.index = new HashMap<String, ArrayDeque<Entry>>();
+            this.nextTail = 0;
+            this.nextHead = -1;
+            for (int i = 0; i < size(); i++) {
+                Request r = get(i);
+                fifo(r).addLast(new Entry(r, this.nextTail++));
+            }
+        }
+        return this.index;
+    }
+
+    /**
+     * Merge the FIFO of the methods in the order of the list until the filter accepts a request
+     */
+    private Request find(Collection<String> methodNames, RequestFilter filter, boolean youngest) {
+        HashMap<String, ArrayDeque<Entry>> idx = getIndex();
+        List<Iterator<Entry>> iterators = new ArrayList<Iterator<Entry>>(methodNames.size());
+        List<Entry> heads = new ArrayList<Entry>(methodNames.size());
+        for (String methodName : methodNames) {
+            ArrayDeque<Entry> fifo = idx.get(methodName);
+            if (fifo != null) {
+                Iterator<Entry> it = youngest ? fifo.descendingIterator() : fifo.iterator();
+                iterators.add(it);
+                heads.add(it.next());
+            }
+        }
+
+        while (!heads.isEmpty()) {
+            int next = 0;
+            for (int i = 1; i < heads.size(); i++) {
+                long number = heads.get(i).number;
+                if (youngest ? number > heads.get(next).number : number < heads.get(next).number) {
+                    next = i;
+                }
+            }
+            Entry e = heads.get(next);
+            if (filter == null || filter.acceptRequest(e.request)) {
+                return e.request;
+            }
+            Iterator<Entry> it = iterators.get(next);
+            if (it.hasNext()) {
+                heads.set(next, it.next());
+            } else {
+                iterators.remove(next);
+                heads.remove(next);
+            }
+        }
+        return null;
+    }
+
+    private ArrayDeque<Entry> fifo(Request request) {
+        String methodName = request.getMethodName();
+        ArrayDeque<Entry> fifo = this.index.get(methodName);
+        if (fifo == null) {
+            fifo = new ArrayDeque<Entry>();
+            this.index.put(methodName, fifo);
+        }
+        return fifo;
+    }
+
+    private void unindex(Request request) {
+        String methodName = request.getMethodName();
+        ArrayDeque<Entry> fifo = this.index.get(methodName);
+        if (fifo == null) {
+            // Should not happen, the index is wrong
+            this.index = null;
+            return;
+        }
+        if (fifo.peekFirst().request == request) {
+            fifo.pollFirst();
+        } else if (fifo.peekLast().request == request) {
+            fifo.pollLast();
+        } else {
+            Iterator<Entry> it = fifo.iterator();
+            while (it.hasNext()) {
+                if (it.next().request == request) {
+                    it.remove();
+                    break;
+                }
+            }
+        }
+        if (fifo.isEmpty()) {
+            this.index.remove(methodName);
+        }
+    }
+
+    private int indexOfRequest(Request request) {
+        for (int i = 0; i < size(); i++) {
+            if (get(i) == request) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int lastIndexOfRequest(Request request) {
+        for (int i = size() - 1; i >= 0; i--) {
+            if (get(i) == request) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // Rebuilt on the first lookup
+        this.index = null;
+    }
+
+    private static final class Entry {
+        final Request request;
+        final long number;
+
+        Entry(Request request, long number) {
+            this.request = request;
+            this.number = number;
+        }
+    }
+}
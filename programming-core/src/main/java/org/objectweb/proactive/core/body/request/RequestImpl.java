@@ -41,13 +41,16 @@ import java.io.IOException;
 import org.apache.log4j.Logger;
 import org.objectweb.proactive.Body;
 import org.objectweb.proactive.core.ProActiveRuntimeException;
+import org.objectweb.proactive.core.UniqueID;
 import org.objectweb.proactive.core.body.LocalBodyStore;
 import org.objectweb.proactive.core.body.UniversalBody;
+import org.objectweb.proactive.core.body.exceptions.UnknownSenderContextException;
 import org.objectweb.proactive.core.body.future.MethodCallResult;
 import org.objectweb.proactive.core.body.message.MessageImpl;
 import org.objectweb.proactive.core.body.reply.Reply;
 import org.objectweb.proactive.core.body.reply.ReplyImpl;
 import org.objectweb.proactive.core.body.tags.MessageTags;
+import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
 import org.objectweb.proactive.core.mop.MethodCall;
 import org.objectweb.proactive.core.mop.MethodCallExecutionFailedException;
 import org.objectweb.proactive.core.util.log.Loggers;
@@ -75,6 +78,16 @@ public class RequestImpl extends MessageImpl implements Request, java.io.Seriali
     protected int nfRequestPriority;
     protected String senderNodeURI;
 
+    // Compact header, see SenderContexts
+    /** handle of the sender context, 0 if none */
+    private transient int contextHandle;
+    /** whether the header is replaced by the handle when serialized */
+    private transient boolean compactHeader;
+    /** whether the full header has been serialized with a handle */
+    private transient boolean fullHeaderWritten;
+    /** whether the sender context of this received request was unknown */
+    private transient boolean senderContextMissing;
+
     //
     // -- CONSTRUCTORS -----------------------------------------------
     //
@@ -233,7 +246,60 @@ public class RequestImpl extends MessageImpl implements Request, java.io.Seriali
     }
 
     protected void sendRequest(UniversalBody destinationBody) throws IOException {
-        destinationBody.receiveRequest(this);
+        if (destinationBody instanceof RequestSendPipeline.PipelinedBody) {
+            // Delivered later by the pipeline
+            destinationBody.receiveRequest(this);
+        } else {
+            deliver(destinationBody);
+        }
+    }
+
+    /**
+     * Gives the request to the destination
+     */
+    void deliver(UniversalBody destinationBody) throws IOException {
+        // Only local senders have a stable context
+        if (!CentralPAPropertyRepository.PA_REQUEST_COMPACT_HEADER.isTrue() || !(this.sender instanceof Body) ||
+            (this.sourceID == null)) {
+            destinationBody.receiveRequest(this);
+            return;
+        }
+
+        UniqueID destinationID = destinationBody.getID();
+        int handle = SenderContexts.getHandle(this.sender);
+        boolean compact = SenderContexts.isKnown(this.sourceID, destinationID, handle);
+        this.contextHandle = handle;
+        this.compactHeader = compact;
+        this.fullHeaderWritten = false;
+        try {
+            try {
+                destinationBody.receiveRequest(this);
+            } catch (RuntimeException e) {
+                if (!compact || !isUnknownSenderContext(e)) {
+                    throw e;
+                }
+                resendFullHeader(destinationBody, destinationID);
+            } catch (IOException e) {
+                if (!compact || !isUnknownSenderContext(e)) {
+                    throw e;
+                }
+                resendFullHeader(destinationBody, destinationID);
+            }
+        } finally {
+            this.compactHeader = false;
+        }
+
+        // The header has been received, the next requests can use the handle
+        if (this.fullHeaderWritten) {
+            SenderContexts.setKnown(this.sourceID, destinationID, handle);
+        }
+    }
+
+    /**
+     * @return whether the sender context of this request was unknown when it has been received
+     */
+    public boolean isSenderContextMissing() {
+        return this.senderContextMissing;
     }
 
     //
@@ -245,7 +311,31 @@ public class RequestImpl extends MessageImpl implements Request, java.io.Seriali
     }
 
     protected void writeTheObject(java.io.ObjectOutputStream out) throws java.io.IOException {
-        out.defaultWriteObject();
+        if (!CentralPAPropertyRepository.PA_REQUEST_COMPACT_HEADER.isTrue()) {
+            out.defaultWriteObject();
+            writeSender(out);
+            return;
+        }
+
+        // Same fields as the default form, the header is replaced by the handle
+        boolean compact = this.compactHeader;
+        java.io.ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("methodCall", this.methodCall);
+        fields.put("sendCounter", this.sendCounter);
+        fields.put("isNFRequest", this.isNFRequest);
+        fields.put("nfRequestPriority", this.nfRequestPriority);
+        fields.put("codebase", compact ? null : this.codebase);
+        fields.put("senderNodeURI", compact ? null : this.senderNodeURI);
+        out.writeFields();
+        out.writeInt(this.contextHandle);
+        out.writeBoolean(compact);
+        if (!compact) {
+            writeSender(out);
+            this.fullHeaderWritten = this.contextHandle != 0;
+        }
+    }
+
+    private void writeSender(java.io.ObjectOutputStream out) throws java.io.IOException {
         if (this.sender != null) {
             out.writeObject(this.sender.getRemoteAdapter());
         } else {
@@ -260,7 +350,49 @@ public class RequestImpl extends MessageImpl implements Request, java.io.Seriali
     protected void readTheObject(java.io.ObjectInputStream in) throws java.io.IOException,
             ClassNotFoundException {
         in.defaultReadObject();
-        sender = (UniversalBody) in.readObject(); // it is actually a UniversalBody
+        if (!CentralPAPropertyRepository.PA_REQUEST_COMPACT_HEADER.isTrue()) {
+            sender = (UniversalBody) in.readObject(); // it is actually a UniversalBody
+            return;
+        }
+
+        int handle = in.readInt();
+        if (in.readBoolean()) {
+            SenderContexts.Context context = SenderContexts.lookup(this.sourceID, handle);
+            if (context != null) {
+                this.codebase = context.codebase;
+                this.senderNodeURI = context.senderNodeURI;
+                this.sender = context.sender;
+            } else {
+                // Rejected when received
+                this.senderNodeURI = "";
+                this.senderContextMissing = true;
+            }
+        } else {
+            sender = (UniversalBody) in.readObject(); // it is actually a UniversalBody
+            if (handle != 0) {
+                SenderContexts.register(this.sourceID, handle, this.sender, this.senderNodeURI,
+                        this.codebase);
+            }
+        }
+    }
+
+    private void resendFullHeader(UniversalBody destinationBody, UniqueID destinationID) throws IOException {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Sender context unknown by " + destinationID + ", sending the full header");
+        }
+        SenderContexts.setUnknown(this.sourceID, destinationID);
+        this.compactHeader = false;
+        destinationBody.receiveRequest(this);
+    }
+
+    private static boolean isUnknownSenderContext(Throwable t) {
+        while (t != null) {
+            if (t instanceof UnknownSenderContextException) {
+                return true;
+            }
+            t = t.getCause();
+        }
+        return false;
     }
 
     //
@@ -37,6 +37,8 @@
 package org.objectweb.proactive.core.body.request;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
@@ -56,7 +58,7 @@ public class RequestQueueImpl extends AbstractEventProducer implements java.io.S
     //
     // -- PROTECTED MEMBERS -----------------------------------------------
     //
-    protected CircularArrayList<Request> requestQueue;
+    protected IndexedRequestList requestQueue;
     protected UniqueID ownerID;
     protected RequestFilterOnMethodName requestFilterOnMethodName;
     protected static final boolean SEND_ADD_REMOVE_EVENT = false;
@@ -66,7 +68,7 @@ public class RequestQueueImpl extends AbstractEventProducer implements java.io.S
     // -- CONSTRUCTORS -----------------------------------------------
     //
     public RequestQueueImpl(UniqueID ownerID) {
-        this.requestQueue = new CircularArrayList<Request>(20);
+        this.requestQueue = new IndexedRequestList(20);
         this.ownerID = ownerID;
         this.requestFilterOnMethodName = new RequestFilterOnMethodName();
         this.nfRequestsProcessor = new NonFunctionalRequestsProcessor();
@@ -345,6 +347,23 @@ public class RequestQueueImpl extends AbstractEventProducer implements java.io.S
             }
         }
 
+        if (requestFilter instanceof MethodNameRequestFilter) {
+            // The per method index gives the candidates without scanning the queue
+            r = requestQueue.oldest(((MethodNameRequestFilter) requestFilter).getMethodNames(),
+                    requestFilter);
+            if ((r != null) && shouldRemove) {
+                requestQueue.removeRequest(r, false);
+
+                // ProActiveEvent
+                if (SEND_ADD_REMOVE_EVENT && hasListeners()) {
+                    notifyAllListeners(new RequestQueueEvent(ownerID, RequestQueueEvent.REMOVE_REQUEST));
+                }
+
+                // END ProActiveEvent
+            }
+            return r;
+        }
+
         iterator = requestQueue.iterator();
         //then we look for the oldest request fullfilling the criteria defined by the given filter
         while (iterator.hasNext()) {
@@ -384,6 +403,23 @@ public class RequestQueueImpl extends AbstractEventProducer implements java.io.S
             requestQueue.remove(r);
         }
 
+        if (requestFilter instanceof MethodNameRequestFilter) {
+            // The per method index gives the candidates without scanning the queue
+            r = requestQueue.youngest(((MethodNameRequestFilter) requestFilter).getMethodNames(),
+                    requestFilter);
+            if ((r != null) && shouldRemove) {
+                requestQueue.removeRequest(r, true);
+
+                // ProActiveEvent
+                if (SEND_ADD_REMOVE_EVENT && hasListeners()) {
+                    notifyAllListeners(new RequestQueueEvent(ownerID, RequestQueueEvent.REMOVE_REQUEST));
+                }
+
+                // END ProActiveEvent
+            }
+            return r;
+        }
+
         ListIterator<Request> iterator = requestQueue.listIterator(requestQueue.size());
         while (iterator.hasPrevious()) {
             r = iterator.previous();
@@ -407,8 +443,9 @@ public class RequestQueueImpl extends AbstractEventProducer implements java.io.S
     //
     // -- INNER CLASSES -----------------------------------------------
     //
-    protected class RequestFilterOnMethodName implements RequestFilter, java.io.Serializable {
+    protected class RequestFilterOnMethodName implements MethodNameRequestFilter, java.io.Serializable {
         private String methodName;
+        private Collection<String> methodNames;
 
         public RequestFilterOnMethodName() {
         }
@@ -417,8 +454,15 @@ public class RequestQueueImpl extends AbstractEventProducer implements java.io.S
             return methodName.equals(request.getMethodName());
         }
 
+        public Collection<String> getMethodNames() {
+            return methodNames;
+        }
+
         public void setMethodName(String methodName) {
-            this.methodName = methodName;
+            if (!methodName.equals(this.methodName)) {
+                this.methodName = methodName;
+                this.methodNames = Collections.singleton(methodName);
+            }
         }
     }
 }
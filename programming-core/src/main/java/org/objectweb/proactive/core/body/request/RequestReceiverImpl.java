@@ -43,6 +43,10 @@ import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -55,6 +59,7 @@ import org.objectweb.proactive.core.ProActiveRuntimeException;
 import org.objectweb.proactive.core.UniqueID;
 import org.objectweb.proactive.core.body.UniversalBody;
 import org.objectweb.proactive.core.body.exceptions.InactiveBodyException;
+import org.objectweb.proactive.core.body.exceptions.RequestQueueFullException;
 import org.objectweb.proactive.core.util.HeartbeatResponse;
 import org.objectweb.proactive.core.util.log.Loggers;
 import org.objectweb.proactive.core.util.log.ProActiveLogger;
@@ -124,6 +129,8 @@ public class RequestReceiverImpl implements RequestReceiver, java.io.Serializabl
     private AtomicInteger inImmediateService;
     // Thread associated to a given caller for immediate service with unique thread
     private transient Map<UniqueID, ThreadForImmediateService> threadsForCallers;
+    // Serial queue associated to a given caller when immediate services are served by the executor
+    private transient ConcurrentHashMap<UniqueID, ImmediateServiceExecutor.SerialQueue> queuesForCallers;
 
     public RequestReceiverImpl() {
         serviceModes = new Hashtable<String, Map<ClassArrayWrapper, ServiceMode>>(3);
@@ -139,6 +146,7 @@ public class RequestReceiverImpl implements RequestReceiver, java.io.Serializabl
         serviceModes.put("_terminateAOImmediately", ti);
         this.inImmediateService = new AtomicInteger(0);
         this.threadsForCallers = new Hashtable<UniqueID, ThreadForImmediateService>();
+        this.queuesForCallers = new ConcurrentHashMap<UniqueID, ImmediateServiceExecutor.SerialQueue>();
     }
 
     public void receiveRequest(Request request, Body bodyReceiver) {
@@ -155,7 +163,10 @@ public class RequestReceiverImpl implements RequestReceiver, java.io.Serializabl
                 }
                 this.inImmediateService.incrementAndGet();
                 try {
-                    if (mode.equals(ServiceMode.IMMEDIATE_UNIQUE_THREAD)) {
+                    final ImmediateServiceExecutor executor = ImmediateServiceExecutor.getInstance();
+                    if (mode.equals(ServiceMode.IMMEDIATE_UNIQUE_THREAD) && executor != null) {
+                        this.serveWithExecutor(executor, request, bodyReceiver);
+                    } else if (mode.equals(ServiceMode.IMMEDIATE_UNIQUE_THREAD)) {
                         final UniversalBody caller = request.getSender();
                         ThreadForImmediateService serviceThread = this.threadsForCallers.get(caller.getID());
                         if (serviceThread == null) {
@@ -182,14 +193,85 @@ public class RequestReceiverImpl implements RequestReceiver, java.io.Serializabl
                     throw new InactiveBodyException("Cannot add request \"" + request.getMethodName() +
                         "\" because this body is inactive", e);
                 }
-                queue.add(request);
+                try {
+                    queue.add(request);
+                } catch (RequestQueueFullException e) {
+                    if (request.isOneWay()) {
+                        throw e;
+                    }
+                    // The caller gets the exception through its future
+                    bodyReceiver.serveWithException(request, e);
+                }
             }
+        } catch (RequestQueueFullException e) {
+            // A one-way sender has no future, the rejection is thrown back by its send
+            throw e;
         } catch (Exception e) {
             logger.info("Error while receiving request " +
                 (request == null ? "null" : request.getMethodName()), e);
         }
     }
 
+    /**
+     * Serve the request on the executor, after the previous requests of the same caller. The calling
+     * thread is blocked until the service of the request ends.
+     */
+    private void serveWithExecutor(ImmediateServiceExecutor executor, final Request request,
+            final Body bodyReceiver) {
+        final UniqueID callerID = request.getSourceBodyID();
+        final FutureTask<Void> task = new FutureTask<Void>(new Runnable() {
+            public void run() {
+                bodyReceiver.serve(request);
+            }
+        }, null);
+
+        ImmediateServiceExecutor.SerialQueue queue;
+        while (true) {
+            queue = this.queuesForCallers.get(callerID);
+            if (queue == null) {
+                queue = executor.newSerialQueue();
+                ImmediateServiceExecutor.SerialQueue previous = this.queuesForCallers.putIfAbsent(callerID,
+                        queue);
+                if (previous != null) {
+                    queue = previous;
+                }
+            }
+
+            try {
+                queue.execute(task);
+                break;
+            } catch (RejectedExecutionException e) {
+                // The queue has just been retired, use a new one
+                this.queuesForCallers.remove(callerID, queue);
+            }
+        }
+
+        // wait for the completion of the call
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    task.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    logger.error("An exception occured in the service of " + request.getMethodName() +
+                        " for caller " + callerID, e.getCause());
+                    break;
+                }
+            }
+        } finally {
+            // The queue does not hold any thread, but the map must not grow with the number of callers
+            if (queue.closeIfEmpty()) {
+                this.queuesForCallers.remove(callerID, queue);
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     /**
      * Return the service mode for the incoming request
      */
@@ -287,7 +369,7 @@ public class RequestReceiverImpl implements RequestReceiver, java.io.Serializabl
     }
 
     public boolean hasThreadsForImmediateService() {
-        return this.threadsForCallers.size() != 0;
+        return this.threadsForCallers.size() != 0 || this.queuesForCallers.size() != 0;
     }
 
     /**
@@ -304,6 +386,11 @@ public class RequestReceiverImpl implements RequestReceiver, java.io.Serializabl
             t.kill();
         }
         this.threadsForCallers.clear();
+        // retire the serial queues, pending requests are still served
+        for (ImmediateServiceExecutor.SerialQueue q : this.queuesForCallers.values()) {
+            q.close();
+        }
+        this.queuesForCallers.clear();
     }
 
     /**
@@ -442,6 +529,7 @@ public class RequestReceiverImpl implements RequestReceiver, java.io.Serializabl
     private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
         in.defaultReadObject();
         this.threadsForCallers = new Hashtable<UniqueID, ThreadForImmediateService>();
+        this.queuesForCallers = new ConcurrentHashMap<UniqueID, ImmediateServiceExecutor.SerialQueue>();
     }
 
 }
@@ -0,0 +1,254 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.request;
+
+import java.io.IOException;
+
+import org.apache.log4j.Logger;
+import org.objectweb.proactive.core.ProActiveException;
+import org.objectweb.proactive.core.UniqueID;
+import org.objectweb.proactive.core.body.UniversalBody;
+import org.objectweb.proactive.core.body.exceptions.SendRequestCommunicationException;
+import org.objectweb.proactive.core.body.future.MethodCallResult;
+import org.objectweb.proactive.core.body.reply.Reply;
+import org.objectweb.proactive.core.body.reply.ReplyImpl;
+import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
+import org.objectweb.proactive.core.util.OrderedLaneExecutor;
+import org.objectweb.proactive.core.util.log.Loggers;
+import org.objectweb.proactive.core.util.log.ProActiveLogger;
+
+
+/**
+ * Sends the requests to remote active objects from a pool of threads
+ *
+ * Each sender has a lane of an {@link OrderedLaneExecutor}: a bounded FIFO of requests delivered
+ * one at a time by the threads of the pool. The caller only waits when its lane is full. Since all the requests of a sender go
+ * through the same lane, they are delivered in the order they have been sent, to a same
+ * destination but also across destinations. A request sent to B after a request sent to A cannot
+ * reach B before the one to A has been received, as with a synchronous send.
+ *
+ * The sender must {@link #flush(UniqueID) flush} its lane before sending a message outside of
+ * the pipeline, like a reply or a request to a local active object.
+ *
+ * A request which cannot be delivered fills its future with a
+ * {@link SendRequestCommunicationException}. The failures of one-way requests are logged.
+ */
+public class RequestSendPipeline {
+    final static private Logger logger = ProActiveLogger.getLogger(Loggers.REQUESTS);
+    final static private Logger oneWayExceptionsLogger = ProActiveLogger
+            .getLogger(Loggers.EXCEPTIONS_ONE_WAY);
+
+    /** The instance is created, or not, on the first use */
+    static private class Holder {
+        static final RequestSendPipeline INSTANCE = createInstance();
+    }
+
+    static private RequestSendPipeline createInstance() {
+        int size = CentralPAPropertyRepository.PA_SEND_PIPELINE_THREADS.getValue();
+        if (size > 0) {
+            return new RequestSendPipeline(size, CentralPAPropertyRepository.PA_SEND_PIPELINE_CAPACITY
+                    .getValue());
+        }
+        return null;
+    }
+
+    /**
+     * @return the pipeline of this runtime or null if requests are sent by the caller thread
+     */
+    static public RequestSendPipeline getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    final private OrderedLaneExecutor<UniqueID> lanes;
+
+    RequestSendPipeline(int size, int capacity) {
+        this.lanes = new OrderedLaneExecutor<UniqueID>("Request send pipeline", size, capacity);
+    }
+
+    /**
+     * Returns a destination whose <code>receiveRequest</code> puts the request in the lane of the
+     * sender instead of sending it.
+     *
+     * @param senderID the sender
+     * @param destination the destination of the requests
+     */
+    public UniversalBody getPipelinedDestination(UniqueID senderID, UniversalBody destination) {
+        return new PipelinedBody(senderID, destination);
+    }
+
+    /**
+     * Waits until all the requests of the sender have been delivered
+     *
+     * @param senderID the sender
+     */
+    public void flush(UniqueID senderID) {
+        this.lanes.flush(senderID);
+    }
+
+    private void enqueue(UniqueID senderID, Request request, UniversalBody destination) {
+        final Entry e = new Entry(request, destination);
+        this.lanes.execute(senderID, new Runnable() {
+            public void run() {
+                deliver(e);
+            }
+        });
+    }
+
+    private void deliver(Entry e) {
+        try {
+            if (e.request instanceof RequestImpl) {
+                ((RequestImpl) e.request).deliver(e.destination);
+            } else {
+                e.destination.receiveRequest(e.request);
+            }
+        } catch (Throwable t) {
+            fail(e, t);
+        }
+    }
+
+    private void fail(Entry e, Throwable t) {
+        String message = "Failed to send request " + e.request.getMethodName() + " to " +
+            e.destination.getID();
+        if (e.request.isOneWay()) {
+            oneWayExceptionsLogger.error(message, t);
+            return;
+        }
+
+        // The future of the request receives the exception as reply
+        MethodCallResult result = new MethodCallResult(null, new SendRequestCommunicationException(message,
+            (t instanceof Exception) ? (Exception) t : new ProActiveException(t)));
+        UniversalBody sender = e.request.getSender();
+        try {
+            sender.receiveReply(new ReplyImpl(e.destination.getID(), e.request.getSequenceNumber(), e.request
+                    .getMethodName(), result));
+        } catch (Throwable t2) {
+            logger.error(message + ", and failed to notify the sender", t);
+        }
+    }
+
+    private static final class Entry {
+        final Request request;
+        final UniversalBody destination;
+
+        Entry(Request request, UniversalBody destination) {
+            this.request = request;
+            this.destination = destination;
+        }
+    }
+
+    /**
+     * A destination putting the requests in the lane of the sender
+     */
+    class PipelinedBody implements UniversalBody {
+        final private UniqueID senderID;
+        final private UniversalBody target;
+
+        PipelinedBody(UniqueID senderID, UniversalBody target) {
+            this.senderID = senderID;
+            this.target = target;
+        }
+
+        public void receiveRequest(Request request) throws IOException {
+            enqueue(this.senderID, request, this.target);
+        }
+
+        public void receiveReply(Reply r) throws IOException {
+            this.target.receiveReply(r);
+        }
+
+        public String getNodeURL() {
+            return this.target.getNodeURL();
+        }
+
+        public UniqueID getID() {
+            return this.target.getID();
+        }
+
+        public String getName() {
+            return this.target.getName();
+        }
+
+        public void updateLocation(UniqueID id, UniversalBody body) throws IOException {
+            this.target.updateLocation(id, body);
+        }
+
+        public UniversalBody getRemoteAdapter() {
+            return this.target.getRemoteAdapter();
+        }
+
+        public String getReifiedClassName() {
+            return this.target.getReifiedClassName();
+        }
+
+        public void enableAC() throws IOException {
+            this.target.enableAC();
+        }
+
+        public void disableAC() throws IOException {
+            this.target.disableAC();
+        }
+
+        public Object receiveHeartbeat() throws IOException {
+            return this.target.receiveHeartbeat();
+        }
+
+        public String registerByName(String name, boolean rebind) throws IOException, ProActiveException {
+            return this.target.registerByName(name, rebind);
+        }
+
+        public String registerByName(String name, boolean rebind, String protocol) throws IOException,
+                ProActiveException {
+            return this.target.registerByName(name, rebind, protocol);
+        }
+
+        public void interruptService() throws IllegalStateException {
+            this.target.interruptService();
+        }
+
+        public String getUrl() {
+            return this.target.getUrl();
+        }
+
+        public String[] getUrls() {
+            return this.target.getUrls();
+        }
+
+        private Object writeReplace() {
+            return this.target.getRemoteAdapter();
+        }
+    }
+}
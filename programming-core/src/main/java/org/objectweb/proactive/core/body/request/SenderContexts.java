@@ -0,0 +1,183 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.request;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.objectweb.proactive.core.UniqueID;
+import org.objectweb.proactive.core.body.UniversalBody;
+
+
+/**
+ * Sender contexts of the compact request headers
+ *
+ * The header of a request (sender reference, sender node URL and codebase) only changes when the
+ * sender migrates. A sender sends it once to each destination, with a handle identifying this
+ * header. The runtime of the destination keeps the header, and the next requests only carry the
+ * handle.
+ *
+ * Both sides only keep a bounded number of contexts. A receiver which does not know the context
+ * of a request rejects it, and the sender sends it again with its full header. A sender which has
+ * forgotten a destination just sends the full header again.
+ */
+final class SenderContexts {
+    /** Maximum number of contexts kept on each side */
+    final static int MAX_CONTEXTS = 8192;
+
+    /**
+     * Handle of each local sender. A body coming back after a migration is a new object, so it gets
+     * a new handle.
+     */
+    final static private Map<UniversalBody, Integer> handles = Collections
+            .synchronizedMap(new WeakHashMap<UniversalBody, Integer>());
+
+    /** Sender side: the destinations knowing the context of a sender */
+    final static private Map<Pair, Integer> known = Collections.synchronizedMap(new Lru<Pair, Integer>());
+
+    /** Receiver side: the contexts of the remote senders */
+    final static private Map<UniqueID, Context> contexts = Collections
+            .synchronizedMap(new Lru<UniqueID, Context>());
+
+    private SenderContexts() {
+    }
+
+    /**
+     * @param sender a local sender
+     * @return the handle of the sender context
+     */
+    static int getHandle(UniversalBody sender) {
+        synchronized (handles) {
+            Integer handle = handles.get(sender);
+            if (handle == null) {
+                int h;
+                do {
+                    h = ThreadLocalRandom.current().nextInt();
+                } while (h == 0);
+                handle = h;
+                handles.put(sender, handle);
+            }
+            return handle;
+        }
+    }
+
+    /**
+     * @return true if the runtime of destinationID knows the given context of senderID
+     */
+    static boolean isKnown(UniqueID senderID, UniqueID destinationID, int handle) {
+        Integer h = known.get(new Pair(senderID, destinationID));
+        return (h != null) && (h.intValue() == handle);
+    }
+
+    static void setKnown(UniqueID senderID, UniqueID destinationID, int handle) {
+        known.put(new Pair(senderID, destinationID), handle);
+    }
+
+    static void setUnknown(UniqueID senderID, UniqueID destinationID) {
+        known.remove(new Pair(senderID, destinationID));
+    }
+
+    /**
+     * Receiver side: stores the header of a request
+     */
+    static void register(UniqueID senderID, int handle, UniversalBody sender, String senderNodeURI,
+            String codebase) {
+        contexts.put(senderID, new Context(handle, sender, senderNodeURI, codebase));
+    }
+
+    /**
+     * Receiver side: finds the header of a request
+     *
+     * @return the context, null if unknown
+     */
+    static Context lookup(UniqueID senderID, int handle) {
+        Context c = contexts.get(senderID);
+        return ((c != null) && (c.handle == handle)) ? c : null;
+    }
+
+    static final class Context {
+        final int handle;
+        final UniversalBody sender;
+        final String senderNodeURI;
+        final String codebase;
+
+        Context(int handle, UniversalBody sender, String senderNodeURI, String codebase) {
+            this.handle = handle;
+            this.sender = sender;
+            this.senderNodeURI = senderNodeURI;
+            this.codebase = codebase;
+        }
+    }
+
+    private static final class Pair {
+        final UniqueID sender;
+        final UniqueID destination;
+
+        Pair(UniqueID sender, UniqueID destination) {
+            this.sender = sender;
+            this.destination = destination;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.sender.hashCode() + this.destination.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof Pair) {
+                Pair p = (Pair) o;
+                return this.sender.equals(p.sender) && this.destination.equals(p.destination);
+            }
+            return false;
+        }
+    }
+
+    private static final class Lru<K, V> extends LinkedHashMap<K, V> {
+        Lru() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > MAX_CONTEXTS;
+        }
+    }
+}
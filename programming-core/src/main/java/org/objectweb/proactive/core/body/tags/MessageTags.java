@@ -137,6 +137,13 @@ public class MessageTags implements Serializable {
         return messagestags.get(id) != null;
     }
 
+    /**
+     * @return true if there is no tag
+     */
+    public boolean isEmpty() {
+        return messagestags.isEmpty();
+    }
+
     /**
      * Display informations of all tags
      */
@@ -0,0 +1,194 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.tags.tag;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import org.objectweb.proactive.core.body.request.Request;
+import org.objectweb.proactive.core.body.tags.MessageTags;
+import org.objectweb.proactive.core.body.tags.Tag;
+import org.objectweb.proactive.core.body.tags.tracing.Tracer;
+
+
+/**
+ * TraceTag propagates a trace context along a call chain.
+ *
+ * The context is the identifier of the trace, the identifier of the span of the request carrying
+ * the tag, and the sampling decision taken at the head of the chain. It is written as 25 bytes.
+ * Each propagation creates a new context whose parent is the span serving the current request.
+ *
+ * The data of the tag is the context in the W3C traceparent format.
+ */
+public class TraceTag extends Tag implements Externalizable {
+
+    public static final String IDENTIFIER = "PA_TAG_TRACE";
+
+    private long traceHigh;
+    private long traceLow;
+    private long spanId;
+    private boolean sampled;
+
+    // Local information, not propagated
+    private transient long parentSpanId;
+    private transient long receivedAt;
+    private transient long serveSpanId;
+
+    /**
+     * For deserialization only
+     */
+    public TraceTag() {
+        super(IDENTIFIER);
+    }
+
+    /**
+     * @param traceHigh high bits of the trace identifier
+     * @param traceLow low bits of the trace identifier
+     * @param spanId identifier of the span of the request carrying this tag
+     * @param parentSpanId identifier of the parent span, 0 for the root of the trace
+     * @param sampled whether the spans of this trace are recorded
+     */
+    public TraceTag(long traceHigh, long traceLow, long spanId, long parentSpanId, boolean sampled) {
+        super(IDENTIFIER);
+        this.traceHigh = traceHigh;
+        this.traceLow = traceLow;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.sampled = sampled;
+    }
+
+    /**
+     * Returns the context of the next request, child of the span serving the current request.
+     */
+    @Override
+    public Tag apply() {
+        long parent = this.serveSpanId != 0 ? this.serveSpanId : this.spanId;
+        return new TraceTag(this.traceHigh, this.traceLow, Tracer.newSpanId(), parent, this.sampled);
+    }
+
+    /**
+     * @param request a request
+     * @return the trace tag of the request if it is sampled, null otherwise
+     */
+    public static TraceTag getSampled(Request request) {
+        MessageTags tags = request.getTags();
+        if (tags == null) {
+            return null;
+        }
+        Tag t = tags.getTag(IDENTIFIER);
+        if (t instanceof TraceTag && ((TraceTag) t).sampled) {
+            return (TraceTag) t;
+        }
+        return null;
+    }
+
+    public long getTraceHigh() {
+        return this.traceHigh;
+    }
+
+    public long getTraceLow() {
+        return this.traceLow;
+    }
+
+    public long getSpanId() {
+        return this.spanId;
+    }
+
+    public long getParentSpanId() {
+        return this.parentSpanId;
+    }
+
+    public boolean isSampled() {
+        return this.sampled;
+    }
+
+    /**
+     * @return the time the request carrying this tag has been received, 0 if unknown
+     */
+    public long getReceivedAt() {
+        return this.receivedAt;
+    }
+
+    public void setReceivedAt(long receivedAt) {
+        this.receivedAt = receivedAt;
+    }
+
+    /**
+     * @return the span serving the request carrying this tag, 0 if not served yet
+     */
+    public long getServeSpanId() {
+        return this.serveSpanId;
+    }
+
+    public void setServeSpanId(long serveSpanId) {
+        this.serveSpanId = serveSpanId;
+    }
+
+    @Override
+    public Object getData() {
+        return toTraceParent();
+    }
+
+    @Override
+    public String toString() {
+        return "[TAG]" + id + "[DATA]" + toTraceParent() + "[END]";
+    }
+
+    /**
+     * @return the context in the W3C traceparent format
+     */
+    public String toTraceParent() {
+        return "00-" + Tracer.toHex(this.traceHigh) + Tracer.toHex(this.traceLow) + "-" +
+            Tracer.toHex(this.spanId) + (this.sampled ? "-01" : "-00");
+    }
+
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeLong(this.traceHigh);
+        out.writeLong(this.traceLow);
+        out.writeLong(this.spanId);
+        out.writeBoolean(this.sampled);
+    }
+
+    public void readExternal(ObjectInput in) throws IOException {
+        this.traceHigh = in.readLong();
+        this.traceLow = in.readLong();
+        this.spanId = in.readLong();
+        this.sampled = in.readBoolean();
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.tags.tracing;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.objectweb.proactive.core.util.log.Loggers;
+import org.objectweb.proactive.core.util.log.ProActiveLogger;
+
+
+/**
+ * Appends the spans to a file, one JSON object per line
+ *
+ * Spans are written by a background thread. When the writer cannot keep up and the buffer is
+ * full, new spans are dropped rather than slowing down the active objects.
+ */
+public class FileSpanExporter implements SpanExporter {
+    final static private Logger logger = ProActiveLogger.getLogger(Loggers.MESSAGE_TAGGING_TRACING);
+
+    /** Maximum number of spans waiting to be written */
+    final static private int BUFFER_SIZE = 65536;
+
+    final private File file;
+    final private BlockingQueue<Span> buffer;
+    final private Writer writer;
+    final private Thread thread;
+    final private AtomicLong dropped;
+    private volatile boolean closed;
+
+    public FileSpanExporter(File file) throws IOException {
+        this.file = file;
+        this.buffer = new LinkedBlockingQueue<Span>(BUFFER_SIZE);
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+        this.dropped = new AtomicLong();
+        this.closed = false;
+        this.thread = new Thread(new Runnable() {
+            public void run() {
+                write();
+            }
+        }, "ProActive span exporter");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public void export(Span span) {
+        if (this.closed || !this.buffer.offer(span)) {
+            this.dropped.incrementAndGet();
+        }
+    }
+
+    public void close() {
+        this.closed = true;
+        try {
+            this.thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the number of spans dropped because the buffer was full
+     */
+    public long getDroppedCount() {
+        return this.dropped.get();
+    }
+
+    public File getFile() {
+        return this.file;
+    }
+
+    private void write() {
+        List<Span> spans = new ArrayList<Span>();
+        try {
+            while (!this.closed || !this.buffer.isEmpty()) {
+                Span first = this.buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                spans.add(first);
+                this.buffer.drainTo(spans);
+                for (Span span : spans) {
+                    this.writer.write(span.toJson());
+                    this.writer.write('\n');
+                }
+                spans.clear();
+                this.writer.flush();
+            }
+        } catch (InterruptedException e) {
+            logger.debug("Span exporter interrupted", e);
+        } catch (IOException e) {
+            logger.warn("Failed to write spans to " + this.file + ", tracing output is disabled", e);
+            this.closed = true;
+        } finally {
+            try {
+                this.writer.close();
+            } catch (IOException e) {
+                ProActiveLogger.logEatedException(logger, e);
+            }
+        }
+    }
+}
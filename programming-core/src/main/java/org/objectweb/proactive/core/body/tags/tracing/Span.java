@@ -0,0 +1,157 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.tags.tracing;
+
+import org.objectweb.proactive.core.body.tags.tag.TraceTag;
+
+
+/**
+ * A timed operation of a trace
+ *
+ * The phases of a request are: send (caller side, until the request is delivered), queue (callee
+ * side, from the reception to the beginning of the service), serve (the execution of the method)
+ * and reply (the sending of the result). The spans of the callee are children of the send span.
+ */
+public class Span {
+    public enum Phase {
+        SEND("CLIENT"), QUEUE("INTERNAL"), SERVE("SERVER"), REPLY("INTERNAL");
+
+        /** OTLP kind of the span */
+        final String kind;
+
+        Phase(String kind) {
+            this.kind = kind;
+        }
+    }
+
+    final private long traceHigh;
+    final private long traceLow;
+    final private long spanId;
+    final private long parentSpanId;
+    final private Phase phase;
+    final private String methodName;
+    final private String bodyID;
+    final private long start;
+    final private long end;
+
+    /**
+     * @param context the trace of the span
+     * @param spanId the identifier of the span
+     * @param parentSpanId the identifier of the parent span, 0 for a root span
+     * @param phase the phase of the request
+     * @param methodName the name of the method of the request
+     * @param bodyID the active object recording the span
+     * @param start start time, in nanoseconds since the epoch
+     * @param end end time, in nanoseconds since the epoch
+     */
+    public Span(TraceTag context, long spanId, long parentSpanId, Phase phase, String methodName,
+            String bodyID, long start, long end) {
+        this.traceHigh = context.getTraceHigh();
+        this.traceLow = context.getTraceLow();
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.phase = phase;
+        this.methodName = methodName;
+        this.bodyID = bodyID;
+        this.start = start;
+        this.end = end;
+    }
+
+    public long getSpanId() {
+        return this.spanId;
+    }
+
+    public long getParentSpanId() {
+        return this.parentSpanId;
+    }
+
+    public Phase getPhase() {
+        return this.phase;
+    }
+
+    public String getMethodName() {
+        return this.methodName;
+    }
+
+    public long getDuration() {
+        return this.end - this.start;
+    }
+
+    /**
+     * @return the span as a JSON object using the field names of OTLP
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder(320);
+        sb.append("{\"traceId\":\"").append(Tracer.toHex(this.traceHigh)).append(Tracer.toHex(this.traceLow));
+        sb.append("\",\"spanId\":\"").append(Tracer.toHex(this.spanId));
+        if (this.parentSpanId != 0) {
+            sb.append("\",\"parentSpanId\":\"").append(Tracer.toHex(this.parentSpanId));
+        }
+        sb.append("\",\"name\":\"").append(this.phase.name().toLowerCase()).append(' ');
+        appendEscaped(sb, this.methodName);
+        sb.append("\",\"kind\":\"SPAN_KIND_").append(this.phase.kind);
+        sb.append("\",\"startTimeUnixNano\":").append(this.start);
+        sb.append(",\"endTimeUnixNano\":").append(this.end);
+        sb.append(",\"attributes\":[{\"key\":\"proactive.body\",\"value\":{\"stringValue\":\"");
+        appendEscaped(sb, this.bodyID);
+        sb.append("\"}},{\"key\":\"proactive.method\",\"value\":{\"stringValue\":\"");
+        appendEscaped(sb, this.methodName);
+        sb.append("\"}}]}");
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+
+    private static void appendEscaped(StringBuilder sb, String s) {
+        if (s == null) {
+            return;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+    }
+}
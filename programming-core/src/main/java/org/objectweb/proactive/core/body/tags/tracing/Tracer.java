@@ -0,0 +1,179 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.tags.tracing;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.log4j.Logger;
+import org.objectweb.proactive.core.UniqueID;
+import org.objectweb.proactive.core.body.tags.tag.TraceTag;
+import org.objectweb.proactive.core.body.tags.tracing.Span.Phase;
+import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
+import org.objectweb.proactive.core.util.log.Loggers;
+import org.objectweb.proactive.core.util.log.ProActiveLogger;
+
+
+/**
+ * Records the spans of the traced requests of this runtime
+ *
+ * A trace starts when an active object sends a request without being in a traced call chain. The
+ * sampling decision is taken at this point and propagated by the {@link TraceTag} of the requests,
+ * so a call chain is either fully recorded or not at all.
+ *
+ * Runtimes where tracing is disabled still propagate the trace tags they receive but record no
+ * span.
+ */
+public class Tracer {
+    final static private Logger logger = ProActiveLogger.getLogger(Loggers.MESSAGE_TAGGING_TRACING);
+
+    final private SpanExporter exporter;
+    final private int sampleOneIn;
+    // Wall clock base, spans are measured with nanoTime
+    final private long baseNanos;
+    final private long baseWallNanos;
+
+    private static class Holder {
+        final static Tracer instance = create();
+
+        private static Tracer create() {
+            if (!CentralPAPropertyRepository.PA_TRACING.isTrue()) {
+                return null;
+            }
+            String path = CentralPAPropertyRepository.PA_TRACING_FILE.getValue();
+            File file = path != null ? new File(path) : new File(System.getProperty("java.io.tmpdir"),
+                "proactive-spans-" + Integer.toHexString(UniqueID.getCurrentVMID().hashCode()) + ".json");
+            try {
+                final Tracer tracer = new Tracer(new FileSpanExporter(file),
+                    CentralPAPropertyRepository.PA_TRACING_SAMPLE_ONE_IN.getValue());
+                Runtime.getRuntime().addShutdownHook(new Thread() {
+                    @Override
+                    public void run() {
+                        tracer.exporter.close();
+                    }
+                });
+                logger.info("Tracing enabled, spans are written to " + file);
+                return tracer;
+            } catch (IOException e) {
+                logger.error("Cannot open the span file " + file + ", tracing is disabled", e);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * @param exporter where the spans are sent
+     * @param sampleOneIn one trace out of this number is recorded
+     */
+    public Tracer(SpanExporter exporter, int sampleOneIn) {
+        this.exporter = exporter;
+        this.sampleOneIn = Math.max(1, sampleOneIn);
+        this.baseNanos = System.nanoTime();
+        this.baseWallNanos = System.currentTimeMillis() * 1000000L;
+    }
+
+    /**
+     * @return the tracer of this runtime, null if tracing is disabled
+     */
+    public static Tracer getInstance() {
+        return Holder.instance;
+    }
+
+    /**
+     * Starts a new trace, sampled or not
+     *
+     * @return the context of the first request of the trace
+     */
+    public TraceTag newTrace() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean sampled = this.sampleOneIn == 1 || random.nextInt(this.sampleOneIn) == 0;
+        return new TraceTag(random.nextLong(), random.nextLong(), newSpanId(), 0, sampled);
+    }
+
+    /**
+     * @return the current time, in nanoseconds since the epoch
+     */
+    public long now() {
+        return this.baseWallNanos + (System.nanoTime() - this.baseNanos);
+    }
+
+    /**
+     * Records a span of a sampled trace
+     *
+     * @param context the trace of the span
+     * @param spanId the identifier of the span
+     * @param parentSpanId the identifier of the parent span
+     * @param phase the phase of the request
+     * @param methodName the method of the request
+     * @param bodyID the active object recording the span
+     * @param start start time given by {@link #now()}
+     * @param end end time given by {@link #now()}
+     */
+    public void record(TraceTag context, long spanId, long parentSpanId, Phase phase, String methodName,
+            UniqueID bodyID, long start, long end) {
+        this.exporter.export(new Span(context, spanId, parentSpanId, phase, methodName, bodyID
+                .getCanonString(), start, end));
+    }
+
+    /**
+     * @return a new span identifier, never 0
+     */
+    public static long newSpanId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        return id;
+    }
+
+    /**
+     * @param l a long
+     * @return the 16 hexadecimal digits of the long
+     */
+    public static String toHex(long l) {
+        String s = Long.toHexString(l);
+        if (s.length() == 16) {
+            return s;
+        }
+        StringBuilder sb = new StringBuilder(16);
+        for (int i = s.length(); i < 16; i++) {
+            sb.append('0');
+        }
+        return sb.append(s).toString();
+    }
+}
@@ -40,9 +40,12 @@ import java.io.IOException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 import org.objectweb.proactive.core.ProActiveException;
+import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
 import org.objectweb.proactive.core.runtime.ProActiveRuntime;
 import org.objectweb.proactive.core.runtime.RuntimeFactory;
 import org.objectweb.proactive.core.util.log.Loggers;
@@ -52,6 +55,20 @@ import org.objectweb.proactive.core.util.log.ProActiveLogger;
 public class AbstractHandler extends URLStreamHandler {
     final static private Logger logger = ProActiveLogger.getLogger(Loggers.CLASSLOADING);
 
+    /** Maximum number of prefetched classes kept */
+    final static int MAX_PREFETCHED = 1024;
+
+    /**
+     * Classes received in a bundle and not requested yet, by runtime URL and class name. The
+     * least recently received are dropped, they are downloaded again if needed.
+     */
+    final static private Map<String, byte[]> prefetched = new LinkedHashMap<String, byte[]>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return size() > MAX_PREFETCHED;
+        }
+    };
+
     @Override
     protected URLConnection openConnection(URL u) throws IOException {
         // WARNING: This method will break if URL mapping change
@@ -96,8 +113,12 @@ public class AbstractHandler extends URLStreamHandler {
 
         if (classname != null) {
             try {
-                ProActiveRuntime rt = RuntimeFactory.getRuntime(runtimeUrl);
-                byte[] b = rt.getClassData(classname);
+                byte[] b = takePrefetched(runtimeUrl, classname);
+                if (b == null) {
+                    b = download(runtimeUrl, classname);
+                } else if (logger.isDebugEnabled()) {
+                    logger.debug(classname + " was prefetched from " + runtimeUrl);
+                }
 
                 if (b != null) {
                     if (logger.isDebugEnabled()) {
@@ -117,4 +138,47 @@ public class AbstractHandler extends URLStreamHandler {
         }
 
     }
+
+    /**
+     * Downloads a class, along with the classes it references when bundles are enabled
+     */
+    private static byte[] download(String runtimeUrl, String classname) throws ProActiveException {
+        ProActiveRuntime rt = RuntimeFactory.getRuntime(runtimeUrl);
+        if (CentralPAPropertyRepository.PA_CLASSLOADING_BUNDLE_SIZE.getValue() <= 1) {
+            return rt.getClassData(classname);
+        }
+
+        Map<String, byte[]> bundle = rt.getClassDataBundle(classname);
+        byte[] b = bundle.remove(classname);
+        prefetch(runtimeUrl, bundle);
+        return b;
+    }
+
+    /**
+     * Keeps the classes of a bundle until they are requested, except the ones the local class
+     * loader can load: they will never be requested.
+     */
+    static void prefetch(String runtimeUrl, Map<String, byte[]> bundle) {
+        ClassLoader cl = AbstractHandler.class.getClassLoader();
+        for (Map.Entry<String, byte[]> e : bundle.entrySet()) {
+            if ((cl != null) && (cl.getResource(e.getKey().replace('.', '/') + ".class") != null)) {
+                continue;
+            }
+            synchronized (prefetched) {
+                String key = runtimeUrl + "/" + e.getKey();
+                if (!prefetched.containsKey(key)) {
+                    prefetched.put(key, e.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the prefetched bytecode of a class, or null
+     */
+    static byte[] takePrefetched(String runtimeUrl, String classname) {
+        synchronized (prefetched) {
+            return prefetched.remove(runtimeUrl + "/" + classname);
+        }
+    }
 }
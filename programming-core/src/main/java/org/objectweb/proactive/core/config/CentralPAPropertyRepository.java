@@ -159,6 +159,14 @@ public class CentralPAPropertyRepository implements PAPropertiesLoaderSPI {
     static public PAPropertyBoolean PA_EXIT_ON_EMPTY = new PAPropertyBoolean("proactive.exit_on_empty",
         false, false);
 
+    /**
+     * Serialize UniqueIDs in the compact wire format
+     *
+     * All the runtimes of the deployment must run a version able to read this format.
+     */
+    static public PAPropertyBoolean PA_UNIQUEID_COMPACT = new PAPropertyBoolean("proactive.uniqueid.compact",
+        false, false);
+
     /**
      * Boolean to activate automatic continuations for this runtime.
      */
@@ -180,6 +188,18 @@ public class CentralPAPropertyRepository implements PAPropertiesLoaderSPI {
     static public PAPropertyInteger PA_FUTUREMONITORING_TTM = new PAPropertyInteger(
         "proactive.futuremonitoring.ttm", false);
 
+    /**
+     * Suspicion level above which a node is considered as failed by the future monitoring
+     *
+     * The suspicion level (phi) grows with the time elapsed since the last heartbeat answered
+     * by the node, relatively to the usual delay between two answers. A phi of 8 means a
+     * probability of 10^-8 that the node is still alive. As the usual delay is at least the
+     * monitoring period, a silent node is failed after about threshold * 2.3 periods: 18
+     * periods, about 6 minutes, with the default values.
+     */
+    static public PAPropertyInteger PA_FUTUREMONITORING_PHI_THRESHOLD = new PAPropertyInteger(
+        "proactive.futuremonitoring.phi_threshold", false, 8);
+
     /**
      * When this property is set to true, at each proactive call, the stack trace context of the call is embedded in the future.
      * It is specially useful when debugging automatic continuations. If an exception is thrown consecutively to a proactive call,
@@ -190,6 +210,69 @@ public class CentralPAPropertyRepository implements PAPropertiesLoaderSPI {
     static public PAPropertyBoolean PA_STACKTRACE = new PAPropertyBoolean("proactive.stack_trace", false,
         false);
 
+    /**
+     * Maximum number of threads serving immediate services with unique thread
+     *
+     * If set to 0 (default), a dedicated thread is created for each caller. Otherwise requests
+     * are served by a bounded pool shared by all the bodies of the runtime, the requests of
+     * a given caller still being served in FIFO order. When all the threads are busy, the
+     * request is served by the thread which received it.
+     */
+    static public PAPropertyInteger PA_IMMEDIATE_SERVICE_POOL_SIZE = new PAPropertyInteger(
+        "proactive.immediate_service.pool_size", false, 0);
+
+    /**
+     * Send the header of the requests (sender reference, node URL, codebase) once per destination
+     *
+     * The next requests only carry a handle on the header kept by the runtime of the destination.
+     * Requests whose header has been forgotten are sent again with the full header. Empty message
+     * tags are not sent either. This changes the serialized form of the messages, so it must be set
+     * on all the runtimes exchanging requests.
+     */
+    static public PAPropertyBoolean PA_REQUEST_COMPACT_HEADER = new PAPropertyBoolean(
+        "proactive.requests.compact_header", false, false);
+
+    /**
+     * Number of threads sending the requests to remote active objects, 0 to send them from the
+     * caller thread
+     *
+     * Requests of a caller are delivered in FIFO order. The caller only waits when it has more
+     * than proactive.requests.send_pipeline.capacity pending requests.
+     */
+    static public PAPropertyInteger PA_SEND_PIPELINE_THREADS = new PAPropertyInteger(
+        "proactive.requests.send_pipeline.threads", false, 0);
+
+    /** Maximum number of pending requests of a caller in the send pipeline */
+    static public PAPropertyInteger PA_SEND_PIPELINE_CAPACITY = new PAPropertyInteger(
+        "proactive.requests.send_pipeline.capacity", false, 64);
+
+    /**
+     * Maximum delay in milliseconds a reply to a remote caller may wait to be sent with the
+     * following replies to the same caller, 0 to send each reply on its own
+     *
+     * Ignored, with an error, if proactive.replies.send_queue.threads is set.
+     */
+    static public PAPropertyInteger PA_REPLY_BATCH_DELAY = new PAPropertyInteger(
+        "proactive.replies.batch.delay", false, 0);
+
+    /** Size in bytes above which a batch of replies is sent without waiting for the delay */
+    static public PAPropertyInteger PA_REPLY_BATCH_SIZE = new PAPropertyInteger(
+        "proactive.replies.batch.size", false, 64 * 1024);
+
+    /**
+     * Number of threads sending the replies to remote callers, 0 to send them from the service
+     * thread
+     *
+     * Replies to a caller are delivered in FIFO order. The service thread only waits when a caller
+     * has more than proactive.replies.send_queue.capacity pending replies.
+     */
+    static public PAPropertyInteger PA_REPLY_SEND_QUEUE_THREADS = new PAPropertyInteger(
+        "proactive.replies.send_queue.threads", false, 0);
+
+    /** Maximum number of pending replies to a caller in the reply send queue */
+    static public PAPropertyInteger PA_REPLY_SEND_QUEUE_CAPACITY = new PAPropertyInteger(
+        "proactive.replies.send_queue.capacity", false, 64);
+
     /**
      * Activates the legacy SAX ProActive Descriptor parser
      *
@@ -320,6 +403,15 @@ public class CentralPAPropertyRepository implements PAPropertiesLoaderSPI {
 
     static public PAPropertyBoolean PA_CLASSLOADING_USEHTTP = new PAPropertyBoolean(
         "proactive.classloading.useHTTP", false, true);
+
+    /**
+     * Maximum number of classes sent back when a remote runtime downloads a class: the class
+     * and the classes it references, which the remote runtime will likely ask for next.
+     * 1 disables the bundles.
+     */
+    static public PAPropertyInteger PA_CLASSLOADING_BUNDLE_SIZE = new PAPropertyInteger(
+        "proactive.classloading.bundle_size", false, 32);
+
     /* ------------------------------------
      *  HTTP
      */
@@ -405,6 +497,13 @@ public class CentralPAPropertyRepository implements PAPropertiesLoaderSPI {
     static public PAPropertyInteger PA_RMISSH_CONNECT_TIMEOUT = new PAPropertyInteger(
         "proactive.communication.rmissh.connect_timeout", false);
 
+    /** SSH gateways to which a connection is opened at startup (hosts separated by comma)
+     *
+     * The first RMISSH call to these hosts does not pay the SSH connection setup
+     */
+    static public PAPropertyList PA_RMISSH_PREWARM_HOSTS = new PAPropertyList(
+        "proactive.communication.rmissh.prewarm_hosts", ",", false);
+
     // Not documented, temporary workaround until 4.3.0
     static public PAPropertyString PA_RMISSH_REMOTE_USERNAME = new PAPropertyString(
         "proactive.communication.rmissh.username", false);
@@ -459,6 +558,24 @@ public class CentralPAPropertyRepository implements PAPropertiesLoaderSPI {
     /** Enable or disable the Distributed Service ID Tag */
     static public PAPropertyBoolean PA_TAG_DSF = new PAPropertyBoolean("proactive.tag.dsf", false, false);
 
+    /** Enable or disable the tracing of requests */
+    static public PAPropertyBoolean PA_TRACING = new PAPropertyBoolean("proactive.tracing", false, false);
+
+    /**
+     * Head sampling of the traces: one call chain out of this number is traced
+     *
+     * The decision is taken by the first active object of the chain and propagated with the requests.
+     */
+    static public PAPropertyInteger PA_TRACING_SAMPLE_ONE_IN = new PAPropertyInteger(
+        "proactive.tracing.sample_one_in", false, 1);
+
+    /**
+     * File receiving the spans, one JSON object per line using the OTLP field names
+     *
+     * Default is proactive-spans-[runtime].json in the temporary directory.
+     */
+    static public PAPropertyString PA_TRACING_FILE = new PAPropertyString("proactive.tracing.file", false);
+
     /* ------------------------------------
      *  FILE TRANSFER
      */
@@ -489,6 +606,28 @@ public class CentralPAPropertyRepository implements PAPropertiesLoaderSPI {
     static public PAPropertyInteger PA_FILETRANSFER_MAX_BUFFER_SIZE = new PAPropertyInteger(
         "proactive.filetransfer.buffer_size_kb", false, 256);
 
+    /**
+     * The number of FileTransferService objects of the destination node used
+     * in parallel to receive the blocks of a single file.
+     */
+    static public PAPropertyInteger PA_FILETRANSFER_STREAMS = new PAPropertyInteger(
+        "proactive.filetransfer.streams", false, 1);
+
+    /**
+     * Upper bound of the adaptive number of file blocks in flight. The window starts at
+     * proactive.filetransfer.blocks_number and grows while the measured throughput improves.
+     * A value lower than proactive.filetransfer.blocks_number disables the adaptation.
+     */
+    static public PAPropertyInteger PA_FILETRANSFER_MAX_WINDOW = new PAPropertyInteger(
+        "proactive.filetransfer.max_window", false, 32);
+
+    /**
+     * If true, an existing destination file is not truncated: only the blocks whose
+     * checksum differs from the source are sent.
+     */
+    static public PAPropertyBoolean PA_FILETRANSFER_RESUME = new PAPropertyBoolean(
+        "proactive.filetransfer.resume", false, false);
+
     // -------------- DATA SPACES
 
     /**
@@ -505,6 +644,28 @@ public class CentralPAPropertyRepository implements PAPropertiesLoaderSPI {
     static public PAPropertyString PA_DATASPACES_SCRATCH_PATH = new PAPropertyString(
         "proactive.dataspaces.scratch_path", false);
 
+    /**
+     * Local directory where the files read from remote input spaces are cached, and shared by the
+     * active objects of the host. Unset disables the cache.
+     */
+    static public PAPropertyString PA_DATASPACES_INPUT_CACHE_PATH = new PAPropertyString(
+        "proactive.dataspaces.input_cache_path", false);
+
+    /**
+     * Maximum size in bytes of the files kept in {@link #PA_DATASPACES_INPUT_CACHE_PATH}, the least
+     * recently used files are evicted first.
+     */
+    static public PAPropertyLong PA_DATASPACES_INPUT_CACHE_SIZE = new PAPropertyLong(
+        "proactive.dataspaces.input_cache_size", false, 1024L * 1024 * 1024);
+
+    /**
+     * Period in milliseconds of the leases granted by a dataspaces naming service to the nodes
+     * replicating its directory. A node that does not renew its lease within this period stops
+     * receiving updates.
+     */
+    static public PAPropertyInteger PA_DATASPACES_NAMING_SERVICE_LEASE_PERIOD = new PAPropertyInteger(
+        "proactive.dataspaces.naming_service.lease_period", false, 60000);
+
     // -------------- VFS PROVIDER
 
     /**
@@ -521,6 +682,13 @@ public class CentralPAPropertyRepository implements PAPropertiesLoaderSPI {
     static public PAPropertyInteger PA_VFSPROVIDER_SERVER_STREAM_OPEN_MAXIMUM_PERIOD_MILLIS = new PAPropertyInteger(
         "proactive.vfsprovider.server.stream_open_maximum_period_millis", false);
 
+    /**
+     * This property indicates how many files a file system server pulls in parallel from another
+     * server during a server to server copy.
+     */
+    static public PAPropertyInteger PA_VFSPROVIDER_SERVER_COPY_THREADS = new PAPropertyInteger(
+        "proactive.vfsprovider.server.copy_threads", false, 4);
+
     // -------------- Misc
 
     /**
@@ -564,6 +732,23 @@ public class CentralPAPropertyRepository implements PAPropertiesLoaderSPI {
     static public PAPropertyString PA_GCMD_UNIX_SHELL = new PAPropertyString("proactive.gcmd.unix.shell",
         false, "/bin/sh");
 
+    /**
+     * Time in milliseconds the GCM deployment waits for other runtime registrations after the
+     * first one, to dispatch them in a single batch. 0 dispatches what has already been received.
+     */
+    static public PAPropertyInteger PA_GCMD_REGISTRATION_BATCH_WINDOW = new PAPropertyInteger(
+        "proactive.gcmd.registration.batch_window", false, 20);
+
+    /**
+     * Maximum number of compiled deployment descriptors kept in memory
+     *
+     * A compiled descriptor is a parsed, validated and variable resolved descriptor. Deploying
+     * again the same descriptor with the same variables in the same JVM does not parse it again.
+     * Compiled descriptors are not persisted. 0, the default, disables the cache.
+     */
+    static public PAPropertyInteger PA_DESCRIPTOR_CACHE_SIZE = new PAPropertyInteger(
+        "proactive.descriptor.cache.size", false, 0);
+
     /**
      * if true, write the bytecode of the generated stub on the disk
      *
@@ -578,6 +763,21 @@ public class CentralPAPropertyRepository implements PAPropertiesLoaderSPI {
     static public PAPropertyString PA_MOP_GENERATEDCLASSES_DIR = new PAPropertyString(
         "proactive.mop.generatedclassesdir", false);
 
+    /**
+     * Directory where the generated stubs and proxies are kept across JVMs. A cached class is
+     * reused only if the classes it was generated from and the ProActive version did not change.
+     * Unset disables the cache.
+     */
+    static public PAPropertyString PA_MOP_STUBCACHE_DIR = new PAPropertyString("proactive.mop.stubcachedir",
+        false);
+
+    /**
+     * Maximum number of results of methods annotated with @Cache kept by the stubs of a JVM.
+     * 0 disables the cache.
+     */
+    static public PAPropertyInteger PA_STUB_CACHE_SIZE = new PAPropertyInteger("proactive.stub.cache.size",
+        false, 10000);
+
     /**
      * activate or not the ping feature in ProActive -- each time a runtime
      * starts it pings a given web server.
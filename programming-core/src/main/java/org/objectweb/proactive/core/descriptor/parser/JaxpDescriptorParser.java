@@ -39,6 +39,7 @@ package org.objectweb.proactive.core.descriptor.parser;
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -92,6 +93,8 @@ import org.objectweb.proactive.core.process.prun.PrunSubProcess;
 import org.objectweb.proactive.core.process.rsh.maprsh.MapRshProcess;
 import org.objectweb.proactive.core.util.log.Loggers;
 import org.objectweb.proactive.core.util.log.ProActiveLogger;
+import org.objectweb.proactive.core.xml.CachingXPath;
+import org.objectweb.proactive.core.xml.DescriptorCache;
 import org.objectweb.proactive.core.xml.VariableContractImpl;
 import org.objectweb.proactive.core.xml.VariableContractType;
 import org.objectweb.proactive.utils.OperatingSystem;
@@ -108,6 +111,9 @@ public class JaxpDescriptorParser implements ProActiveDescriptorConstants {
     static final String JAXP_SCHEMA_LANGUAGE = "http://java.sun.com/xml/jaxp/properties/schemaLanguage";
     static final String W3C_XML_SCHEMA = "http://www.w3.org/2001/XMLSchema";
     static final String JAXP_SCHEMA_SOURCE = "http://java.sun.com/xml/jaxp/properties/schemaSource";
+
+    /** Validated documents, variables are expanded while reading the document so they can be shared */
+    static final private DescriptorCache<Document> documents = new DescriptorCache<Document>();
     public static final String DESCRIPTOR_NAMESPACE = "urn:proactive:deployment:3.3";
     public static final String SECURITY_NAMESPACE = "urn:proactive:security:1.0";
     public static final String RMI_DEFAULT_PORT = "1099";
@@ -213,11 +219,10 @@ public class JaxpDescriptorParser implements ProActiveDescriptorConstants {
             proActiveDescriptor = new ProActiveDescriptorImpl(xmlDescriptorUrl);
             proActiveDescriptor.setVariableContract(variableContract);
 
-            logger.debug("Parsing " + xmlDescriptorUrl);
-            document = builder.parse(xmlDescriptorUrl);
+            document = parseDocument(builder);
             XPathFactory factory = XPathFactory.newInstance();
 
-            xpath = factory.newXPath();
+            xpath = new CachingXPath(factory.newXPath());
             xpath.setNamespaceContext(new ProActiveNamespaceContext());
 
             handleVariables();
@@ -242,6 +247,34 @@ public class JaxpDescriptorParser implements ProActiveDescriptorConstants {
         }
     }
 
+    private Document parseDocument(DocumentBuilder builder) throws SAXException, IOException {
+        String key = null;
+        if (documents.isEnabled()) {
+            try {
+                key = DescriptorCache.computeKey(new URL(xmlDescriptorUrl));
+            } catch (MalformedURLException e) {
+                // Not an URL, don't cache it
+            }
+        }
+
+        if (key != null) {
+            Document cached = documents.get(key);
+            if (cached != null) {
+                logger.debug("Reusing parsed " + xmlDescriptorUrl);
+                synchronized (cached) {
+                    return (Document) cached.cloneNode(true);
+                }
+            }
+        }
+
+        logger.debug("Parsing " + xmlDescriptorUrl);
+        Document parsed = builder.parse(xmlDescriptorUrl);
+        if (key != null) {
+            documents.put(key, (Document) parsed.cloneNode(true));
+        }
+        return parsed;
+    }
+
     private void handleSecurity() throws SAXException, XPathExpressionException {
         NodeList nodes = (NodeList) xpath.evaluate(SECURITY_TAG, document, XPathConstants.NODESET);
         Node securityNode = nodes.item(0);
@@ -39,7 +39,12 @@ package org.objectweb.proactive.core.filetransfer;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
 
 import org.apache.log4j.Logger;
 import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
@@ -59,9 +64,11 @@ public class FileBlock implements Serializable {
     protected static Logger logger = ProActiveLogger.getLogger(Loggers.FILETRANSFER);
     public static final int DEFAULT_BLOCK_SIZE = CentralPAPropertyRepository.PA_FILETRANSFER_MAX_BLOCK_SIZE
             .getValue() * 1024; //Bytes
-    private byte[] buffer;
+    private transient byte[] buffer;
     private int usage;
     private long offset;
+    private long position;
+    private long checksum;
     private int blockSize;
     private Exception exception;
 
@@ -96,8 +103,46 @@ public class FileBlock implements Serializable {
         }
 
         try {
+            position = offset;
             usage = bis.read(buffer, 0, blockSize);
+            if (usage < 0) {
+                usage = 0;
+            }
             offset += usage;
+            checksum = checksum(buffer, usage);
+        } catch (IOException e) {
+            usage = 0;
+            throw e;
+        }
+    }
+
+    /**
+     * Loads the block starting at <code>position</code> from a file channel. The read is
+     * positional, so several blocks of the same channel can be loaded concurrently.
+     * @param channel The channel of the source file.
+     * @param position The position of the block in the file.
+     * @throws IOException If an error is encountered.
+     */
+    public void loadBlock(FileChannel channel, long position) throws IOException {
+        if (channel == null) {
+            throw new IllegalArgumentException("Can not handle null FileChannel parameter.");
+        }
+
+        try {
+            ByteBuffer bb = ByteBuffer.wrap(buffer, 0, blockSize);
+            long pos = position;
+            while (bb.hasRemaining()) {
+                int read = channel.read(bb, pos);
+                if (read < 0) {
+                    break;
+                }
+                pos += read;
+            }
+
+            this.position = position;
+            this.usage = bb.position();
+            this.offset = position + usage;
+            this.checksum = checksum(buffer, usage);
         } catch (IOException e) {
             usage = 0;
             throw e;
@@ -117,6 +162,37 @@ public class FileBlock implements Serializable {
         bos.write(buffer, 0, usage);
     }
 
+    /**
+     * Saves the current block at its own position in a file channel. The write is
+     * positional, so blocks can be saved out of order and by several threads.
+     * @param channel The channel of the destination file.
+     * @throws IOException If the block is corrupted or an error is encountered.
+     */
+    public void saveBlock(FileChannel channel) throws IOException {
+        if (channel == null) {
+            throw new IllegalArgumentException("Can not handle null FileChannel parameter.");
+        }
+
+        if (checksum(buffer, usage) != checksum) {
+            throw new IOException("Corrupted file block at position " + position);
+        }
+
+        ByteBuffer bb = ByteBuffer.wrap(buffer, 0, usage);
+        long pos = position;
+        while (bb.hasRemaining()) {
+            pos += channel.write(bb, pos);
+        }
+    }
+
+    /**
+     * @return the CRC32 checksum of the first <code>length</code> bytes of <code>data</code>
+     */
+    static long checksum(byte[] data, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        return crc.getValue();
+    }
+
     /**
      * @return Returns the offset.
      */
@@ -131,6 +207,27 @@ public class FileBlock implements Serializable {
         return blockSize;
     }
 
+    /**
+     * @return Returns the position in the file of the data held by this block.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return Returns the number of meaningful bytes held by this block.
+     */
+    public int getUsage() {
+        return usage;
+    }
+
+    /**
+     * @return Returns the CRC32 checksum of the data held by this block.
+     */
+    public long getChecksum() {
+        return checksum;
+    }
+
     public Exception getException() {
         return exception;
     }
@@ -142,4 +239,19 @@ public class FileBlock implements Serializable {
     public void setException(Exception e) {
         exception = e;
     }
+
+    // Only the meaningful part of the buffer goes on the wire, the last block
+    // of a file is usually much smaller than the block size.
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        if (usage > 0) {
+            out.write(buffer, 0, usage);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        buffer = new byte[usage];
+        in.readFully(buffer);
+    }
 }
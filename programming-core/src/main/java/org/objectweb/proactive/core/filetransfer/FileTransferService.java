@@ -36,14 +36,15 @@
  */
 package org.objectweb.proactive.core.filetransfer;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channel;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 import org.objectweb.proactive.Body;
@@ -51,7 +52,11 @@ import org.objectweb.proactive.InitActive;
 import org.objectweb.proactive.ProActiveInternalObject;
 import org.objectweb.proactive.api.PAActiveObject;
 import org.objectweb.proactive.api.PAFuture;
+import org.objectweb.proactive.core.UniqueID;
+import org.objectweb.proactive.core.body.proxy.UniversalBodyProxy;
 import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
+import org.objectweb.proactive.core.mop.Proxy;
+import org.objectweb.proactive.core.mop.StubObject;
 import org.objectweb.proactive.core.util.log.Loggers;
 import org.objectweb.proactive.core.util.log.ProActiveLogger;
 import org.objectweb.proactive.core.util.wrapper.BooleanWrapper;
@@ -72,7 +77,14 @@ public class FileTransferService implements ProActiveInternalObject, InitActive,
             .getValue();
     public static final int DEFAULT_BUFFER_SIZE = CentralPAPropertyRepository.PA_FILETRANSFER_MAX_BUFFER_SIZE
             .getValue() * 1024; //Bytes
-    protected HashMap<File, BufferedOutputStream> writeBufferMap; //Map for storing the opened output sockets
+    public static final int DEFAULT_MAX_WINDOW = CentralPAPropertyRepository.PA_FILETRANSFER_MAX_WINDOW
+            .getValue();
+
+    /**
+     * The files opened for writing, by transfer ID. They are shared by all the services of this
+     * runtime since the blocks of a transfer can be spread over several of them.
+     */
+    protected static final ConcurrentHashMap<String, FileChannel> writeChannels = new ConcurrentHashMap<String, FileChannel>();
 
     /**
      * This is an empty constructor for ProActive's MOP. Don't use directly.
@@ -83,21 +95,64 @@ public class FileTransferService implements ProActiveInternalObject, InitActive,
 
     //TODO Java 1.6: @Override
     public void initActivity(Body body) {
-        writeBufferMap = new HashMap<File, BufferedOutputStream>();
-
         //PAActiveObject.setImmediateService("requestFileTransfer", new Class[] { FileTransferRequest.class });
     }
 
     /* ***************** BEGIN FILETRANSFER SERVICE RECIEVE  ***************************/
     public void openWrite(File file) throws IOException {
-        getWritingBuffer(file, false);
+        openWrite(file, fileTransferID(file));
+    }
+
+    /**
+     * Opens the specified file for writing, truncating it. The blocks of the transfer are then
+     * written with {@link #writeFileBlock(String, FileBlock)} until {@link #closeWrite(String)}.
+     *
+     * @param file The destination file.
+     * @param transferID The identifier of the transfer, unique to its sender.
+     */
+    public void openWrite(File file, String transferID) throws IOException {
+        openWritingChannel(file, transferID, true);
+    }
+
+    /**
+     * Opens the specified file for writing without truncating it, and returns the checksums
+     * of the blocks already present so that the sender can skip them.
+     *
+     * @param file The destination file.
+     * @param transferID The identifier of the transfer, unique to its sender.
+     * @param bsize The size of the blocks the file is split into.
+     * @param length The length of the source file, the destination file is resized to it.
+     * @return The CRC32 checksum of each block of the destination file, -1 if the block is missing.
+     */
+    public long[] openResume(File file, String transferID, int bsize, long length) throws IOException {
+        FileChannel channel = openWritingChannel(file, transferID, false);
+
+        long existing = Math.min(channel.size(), length);
+        long[] checksums = new long[(int) ((length + bsize - 1) / bsize)];
+        FileBlock block = new FileBlock(0, bsize);
+        for (int i = 0; i < checksums.length; i++) {
+            long position = (long) i * bsize;
+            if (position < existing) {
+                block.loadBlock(channel, position);
+                checksums[i] = block.getChecksum();
+            } else {
+                checksums[i] = -1;
+            }
+        }
+
+        channel.truncate(length);
+        return checksums;
     }
 
-    public synchronized BooleanWrapper closeWrite(File f) {
-        BufferedOutputStream bos = writeBufferMap.remove(f);
+    public BooleanWrapper closeWrite(File f) {
+        return closeWrite(fileTransferID(f));
+    }
+
+    public BooleanWrapper closeWrite(String transferID) {
+        FileChannel channel = writeChannels.remove(transferID);
         try {
-            if (bos != null) {
-                bos.close();
+            if (channel != null) {
+                channel.close();
             }
         } catch (IOException e) {
             return new BooleanWrapper(false);
@@ -110,12 +165,11 @@ public class FileTransferService implements ProActiveInternalObject, InitActive,
      * This method will save the specified FileBlock.
      *
      * @param dstFile The destination file.
-     * @param block The block to append to the file.
+     * @param block The block to write at its position in the file.
      */
     public void saveFileBlock(File dstFile, FileBlock block) throws IOException {
         //TODO propagate exception into forwarded files
-        BufferedOutputStream bos = getWritingBuffer(dstFile);
-        block.saveCurrentBlock(bos);
+        block.saveBlock(getWritingChannel(dstFile));
     }
 
     public void saveFileBlockWithoutThrowingException(File dstFile, FileBlock block) {
@@ -126,25 +180,89 @@ public class FileTransferService implements ProActiveInternalObject, InitActive,
         }
     }
 
-    protected BufferedOutputStream getWritingBuffer(File f) throws IOException {
-        return getWritingBuffer(f, false);
+    /**
+     * Saves the specified FileBlock and reports the outcome through a future, so that
+     * several blocks can be in flight while their errors are still reported to the sender.
+     *
+     * @param transferID The identifier given when the destination file was opened.
+     * @param block The block to write at its position in the file.
+     * @return The result status of the operation.
+     */
+    public OperationStatus writeFileBlock(String transferID, FileBlock block) {
+        FileChannel channel = writeChannels.get(transferID);
+        if (channel == null) {
+            return new OperationStatus(new IOException("No file opened for the transfer " + transferID));
+        }
+
+        try {
+            block.saveBlock(channel);
+        } catch (IOException e) {
+            return new OperationStatus(e);
+        }
+
+        return new OperationStatus();
     }
 
-    protected synchronized BufferedOutputStream getWritingBuffer(File f, boolean append) throws IOException {
+    /**
+     * Returns the channel of a file opened for writing by the File based methods, opening it
+     * if needed. Blocks are written with positional writes, so the channel can be shared by all
+     * the services of this runtime receiving the same file.
+     */
+    protected FileChannel getWritingChannel(File f) throws IOException {
+        String key = fileTransferID(f);
+        FileChannel channel = writeChannels.get(key);
+        if (channel == null) {
+            FileChannel opened = newWritingChannel(f.getAbsoluteFile(), false);
+            channel = writeChannels.putIfAbsent(key, opened);
+            if (channel == null) {
+                channel = opened;
+            } else {
+                close(opened);
+            }
+        }
+
+        return channel;
+    }
+
+    /**
+     * Opens a file for writing under the given transfer ID. Reopening a transfer replaces its
+     * own channel only, the other transfers of the same file keep theirs.
+     */
+    protected FileChannel openWritingChannel(File f, String transferID, boolean truncate)
+            throws IOException {
+        FileChannel channel = newWritingChannel(f.getAbsoluteFile(), truncate);
+        FileChannel previous = writeChannels.put(transferID, channel);
+        if (previous != null) {
+            close(previous);
+        }
+
+        return channel;
+    }
+
+    /**
+     * The transfer ID used by the methods identifying a transfer by its destination file.
+     */
+    private static String fileTransferID(File f) {
+        return "file:" + f.getAbsolutePath();
+    }
+
+    private FileChannel newWritingChannel(File f, boolean truncate) throws IOException {
         mkdirs(f.getParentFile());
 
-        if (!writeBufferMap.containsKey(f)) {
-            try {
-                BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(f.getAbsolutePath(),
-                    append), DEFAULT_BUFFER_SIZE);
-                writeBufferMap.put(f, bos);
-            } catch (FileNotFoundException e) {
-                logger.error("Unable to open file: " + f.getAbsolutePath());
-                return null;
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(f, "rw");
+            if (truncate) {
+                raf.setLength(0);
             }
+            return raf.getChannel();
+        } catch (IOException e) {
+            logger.error("Unable to open file: " + f.getAbsolutePath());
+            if (raf != null) {
+                close(raf.getChannel());
+            }
+            throw e;
         }
-
-        return writeBufferMap.get(f);
     }
 
     public OperationStatus mkdirs(File dstFile) {
@@ -208,8 +326,17 @@ public class FileTransferService implements ProActiveInternalObject, InitActive,
      */
     public OperationStatus send(File srcFile, FileTransferServiceReceive ftsRemote, File dstFile, int bsize,
             int numFlyingBlocks) {
+        return send(srcFile, new FileTransferServiceReceive[] { ftsRemote }, dstFile, bsize, numFlyingBlocks);
+    }
+
+    /**
+     * Sends files, spreading the blocks of each file over several remote FileTransferService
+     * objects of the destination node. The first one opens and closes the destination files.
+     */
+    public OperationStatus send(File srcFile, FileTransferServiceReceive[] ftsRemotes, File dstFile,
+            int bsize, int numFlyingBlocks) {
         try {
-            internalSend(srcFile, ftsRemote, dstFile, bsize, numFlyingBlocks);
+            internalSend(srcFile, ftsRemotes, dstFile, bsize, numFlyingBlocks);
         } catch (IOException ex) {
             return new OperationStatus(ex);
         }
@@ -217,15 +344,15 @@ public class FileTransferService implements ProActiveInternalObject, InitActive,
         return new OperationStatus();
     }
 
-    protected void internalSend(File srcFile, FileTransferServiceReceive ftsRemote, File dstFile, int bsize,
-            int numFlyingBlocks) throws IOException {
+    protected void internalSend(File srcFile, FileTransferServiceReceive[] ftsRemotes, File dstFile,
+            int bsize, int numFlyingBlocks) throws IOException {
         if (srcFile.isFile()) {
-            internalSendFile(srcFile, ftsRemote, dstFile, bsize, numFlyingBlocks);
+            internalSendFile(srcFile, ftsRemotes, dstFile, bsize, numFlyingBlocks);
         } else if (srcFile.isDirectory()) {
-            ftsRemote.mkdirs(dstFile);
+            ftsRemotes[0].mkdirs(dstFile);
             File[] files = srcFile.listFiles();
             for (File f : files) {
-                internalSend(f, ftsRemote, new File(dstFile, f.getName()), bsize, numFlyingBlocks);
+                internalSend(f, ftsRemotes, new File(dstFile, f.getName()), bsize, numFlyingBlocks);
             }
         } else {
             throw new IOException("Cannot transfer, not directory nor regular file: " + srcFile.getPath());
@@ -234,22 +361,30 @@ public class FileTransferService implements ProActiveInternalObject, InitActive,
 
     /**
      * This method handles the sending of a file.
-     * @param ftsRemote The remote FileTransferService object that will receive the file.
+     * <p>
+     * Blocks are read with positional reads from a FileChannel and are written at their
+     * position on the remote side, so they can travel over several streams. The number of
+     * blocks in flight starts at <code>numFlyingBlocks</code> and grows, up to
+     * {@link #DEFAULT_MAX_WINDOW}, while the measured throughput improves. When the remote
+     * service lives in this runtime the file is copied with {@link FileChannel#transferTo}.
+     *
+     * @param ftsRemotes The remote FileTransferService objects that will receive the file.
      * @param srcFile The local source of the file.
      * @param dstFile The remote destination of the file.
      * @param bsize The size of the blocks the file will be split into.
-     * @param numFlyingBlocks The number of simultaneous blocks that will be sent.
+     * @param numFlyingBlocks The initial number of simultaneous blocks that will be sent per stream.
      * @return The result status of the operation.
      */
-    protected boolean internalSendFile(File srcFile, FileTransferServiceReceive ftsRemote, File dstFile,
+    protected boolean internalSendFile(File srcFile, FileTransferServiceReceive[] ftsRemotes, File dstFile,
             int bsize, int numFlyingBlocks) throws IOException {
         long init = System.currentTimeMillis();
         long numBlocks = 0;
+        FileTransferServiceReceive ftsRemote = ftsRemotes[0];
 
-        //Open the local reading buffer
-        BufferedInputStream bis;
+        //Open the local reading channel
+        FileChannel channel;
         try {
-            bis = new BufferedInputStream(new FileInputStream(srcFile.getAbsolutePath()), DEFAULT_BUFFER_SIZE);
+            channel = new FileInputStream(srcFile.getAbsolutePath()).getChannel();
         } catch (Exception e) {
             //TODO change when moving to Java 1.6
             //throw new IOException( "Cannot open for sending:" + srcFile.getAbsoluteFile(), e);
@@ -257,61 +392,59 @@ public class FileTransferService implements ProActiveInternalObject, InitActive,
                 e.getMessage());
         }
 
-        long totalNumBlocks = Math.round(Math.ceil((double) srcFile.length() / bsize));
+        long length = channel.size();
+        long totalNumBlocks = (length + bsize - 1) / bsize;
         if (totalNumBlocks == 0) {
-            close(bis);
+            close(channel);
             //TODO change when moving to Java 1.6
             //throw new IOException( "Cannot send an empty File:" + srcFile.getAbsolutePath(),e);
             throw new IOException("Cannot send an empty File:" + srcFile.getAbsolutePath());
         }
 
+        String transferID = new UniqueID().getCanonString();
+        long[] remoteChecksums = null;
         try {
-            ftsRemote.openWrite(dstFile);
+            if (CentralPAPropertyRepository.PA_FILETRANSFER_RESUME.isTrue()) {
+                remoteChecksums = ftsRemote.openResume(dstFile, transferID, bsize, length);
+            } else {
+                ftsRemote.openWrite(dstFile, transferID);
+            }
         } catch (Exception e) {
-            close(bis);
+            close(channel);
+            closeRemote(ftsRemote, transferID);
             //TODO change when moving to Java 1.6
             //throw new IOException( "Unable to open remote file for writing: " + dstFile.getAbsolutePath(), e);
             throw new IOException("Unable to open remote file for writing: " + dstFile.getAbsolutePath() +
                 e.getMessage());
         }
 
-        FileBlock fileBlock = new FileBlock(0, bsize);
-        while (numBlocks < (totalNumBlocks - 1)) {
-            for (int i = 0; (i < numFlyingBlocks) && (numBlocks < (totalNumBlocks - 1)); i++) {
-                try {
-                    fileBlock.loadNextBlock(bis);
-
-                    if (i == (numFlyingBlocks - 1)) { //rendezvous the burst, so the remote AO will not be drowned
-                        ftsRemote.saveFileBlock(dstFile, fileBlock);
-                    } else { //simply burst
-                        ftsRemote.saveFileBlockWithoutThrowingException(dstFile, fileBlock); //remote (async) invocation
-                    }
-                    numBlocks++;
-                } catch (IOException e) {
-                    //TODO change when moving to Java 1.6
-                    //throw new IOException("Cannot send file block to:" + PAActiveObject.getActiveObjectNodeUrl(ftsRemote), e);
-                    throw new IOException("Cannot send file block to:" +
-                        PAActiveObject.getActiveObjectNodeUrl(ftsRemote) + e);
-                }
+        try {
+            FileChannel localChannel = null;
+            if (remoteChecksums == null && isLocal(ftsRemote)) {
+                localChannel = writeChannels.get(transferID);
             }
-        }
 
-        //Handle a rendezvous with last block here
-        try {
-            fileBlock.loadNextBlock(bis);
-            ftsRemote.saveFileBlock(dstFile, fileBlock);
-            numBlocks++;
+            if (localChannel != null) {
+                long position = 0;
+                while (position < length) {
+                    position += channel.transferTo(position, length - position, localChannel);
+                }
+                numBlocks = totalNumBlocks;
+            } else {
+                numBlocks = sendBlocks(channel, totalNumBlocks, remoteChecksums, ftsRemotes, transferID,
+                        bsize, numFlyingBlocks);
+            }
         } catch (IOException e) {
             //TODO change when moving to Java 1.6
             //throw new IOException("Cannot send File to:" + PAActiveObject.getActiveObjectNodeUrl(ftsRemote), e);
             throw new IOException("Cannot send File to:" + PAActiveObject.getActiveObjectNodeUrl(ftsRemote) +
                 e);
+        } finally {
+            close(channel);
+            //Close the remote file, even if the transfer failed
+            closeRemote(ftsRemote, transferID);
         }
 
-        //Close the remote/local buffers
-        PAFuture.waitFor(ftsRemote.closeWrite(dstFile));
-        close(bis);
-
         if (logger.isDebugEnabled()) {
             long fin = System.currentTimeMillis();
             long delta = (fin - init);
@@ -322,9 +455,89 @@ public class FileTransferService implements ProActiveInternalObject, InitActive,
         return true;
     }
 
-    protected void close(BufferedInputStream bis) {
+    /**
+     * Sends the blocks of a file by windows, waiting for the whole window before reading the
+     * next one so the remote AOs will not be drowned. The window size is adapted to the
+     * throughput measured on each window.
+     *
+     * @return The number of blocks actually sent.
+     */
+    private long sendBlocks(FileChannel channel, long totalNumBlocks, long[] remoteChecksums,
+            FileTransferServiceReceive[] ftsRemotes, String transferID, int bsize, int numFlyingBlocks)
+            throws IOException {
+        int window = Math.max(1, numFlyingBlocks);
+        int maxWindow = Math.max(window, DEFAULT_MAX_WINDOW);
+        double lastThroughput = 0;
+
+        FileBlock fileBlock = new FileBlock(0, bsize);
+        List<OperationStatus> pending = new ArrayList<OperationStatus>();
+        long numBlocks = 0;
+        long blockIndex = 0;
+        int stream = 0;
+
+        while (blockIndex < totalNumBlocks) {
+            long start = System.nanoTime();
+            long bytes = 0;
+            int quota = window * ftsRemotes.length;
+
+            while ((pending.size() < quota) && (blockIndex < totalNumBlocks)) {
+                fileBlock.loadBlock(channel, blockIndex * bsize);
+                if ((remoteChecksums == null) || (remoteChecksums[(int) blockIndex] != fileBlock.getChecksum())) {
+                    // The block is serialized when the request is sent, so it can be reused right away
+                    pending.add(ftsRemotes[stream].writeFileBlock(transferID, fileBlock));
+                    stream = (stream + 1) % ftsRemotes.length;
+                    bytes += fileBlock.getUsage();
+                    numBlocks++;
+                }
+                blockIndex++;
+            }
+
+            //rendezvous the window
+            PAFuture.waitForAll(pending);
+            for (OperationStatus status : pending) {
+                if (status.hasException()) {
+                    throw status.getException();
+                }
+            }
+            pending.clear();
+
+            if (bytes == 0) {
+                continue;
+            }
+
+            // Additive increase while the throughput improves, multiplicative decrease when it drops
+            double throughput = (double) bytes / Math.max(1, System.nanoTime() - start);
+            if (throughput > lastThroughput * 1.05) {
+                window = Math.min(window + 1, maxWindow);
+            } else if (throughput < lastThroughput * 0.8) {
+                window = Math.max(window / 2, 1);
+            }
+            lastThroughput = throughput;
+        }
+
+        return numBlocks;
+    }
+
+    private void closeRemote(FileTransferServiceReceive ftsRemote, String transferID) {
+        try {
+            PAFuture.waitFor(ftsRemote.closeWrite(transferID));
+        } catch (Exception e) {
+            logger.debug("Unable to close the remote file of the transfer " + transferID, e);
+        }
+    }
+
+    private static boolean isLocal(Object stub) {
+        if (stub instanceof StubObject) {
+            Proxy proxy = ((StubObject) stub).getProxy();
+            return (proxy instanceof UniversalBodyProxy) && ((UniversalBodyProxy) proxy).isLocal();
+        }
+
+        return false;
+    }
+
+    protected void close(Channel channel) {
         try {
-            bis.close();
+            channel.close();
         } catch (IOException e) {
             //We don't care about closing exceptions
         }
@@ -45,12 +45,20 @@ import org.objectweb.proactive.core.util.wrapper.BooleanWrapper;
 public interface FileTransferServiceReceive {
     public void openWrite(File file) throws IOException;
 
+    public void openWrite(File file, String transferID) throws IOException;
+
+    public long[] openResume(File file, String transferID, int bsize, long length) throws IOException;
+
     public BooleanWrapper closeWrite(File f);
 
+    public BooleanWrapper closeWrite(String transferID);
+
     public void saveFileBlock(File dstFile, FileBlock block) throws IOException;
 
     public void saveFileBlockWithoutThrowingException(File dstFile, FileBlock block);
 
+    public OperationStatus writeFileBlock(String transferID, FileBlock block);
+
     public void putBackInLocalPool();
 
     public OperationStatus mkdirs(File dstFile);
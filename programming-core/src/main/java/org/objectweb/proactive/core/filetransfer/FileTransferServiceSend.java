@@ -53,5 +53,13 @@ public interface FileTransferServiceSend {
     public OperationStatus send(File srcFile, FileTransferServiceReceive ftsRemote, File dstFile, int bsize,
             int numFlyingBlocks);
 
+    /**
+     * Same as {@link #send(File, FileTransferServiceReceive, File, int, int)}, but the blocks
+     * of each file are spread over several FileTransferService objects of the destination node.
+     * @param ftsRemotes The remote FileTransferService objects, the first one opens and closes the files.
+     */
+    public OperationStatus send(File srcFile, FileTransferServiceReceive[] ftsRemotes, File dstFile,
+            int bsize, int numFlyingBlocks);
+
     public void putBackInPool(FileTransferServiceReceive ftsDst);
 }
@@ -42,7 +42,6 @@ import java.lang.reflect.TypeVariable;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -68,6 +67,7 @@ import org.objectweb.proactive.core.mop.MethodCall;
 import org.objectweb.proactive.core.mop.Proxy;
 import org.objectweb.proactive.core.mop.StubObject;
 import org.objectweb.proactive.core.node.Node;
+import org.objectweb.proactive.core.util.BulkAoCreation;
 import org.objectweb.proactive.core.util.log.Loggers;
 import org.objectweb.proactive.core.util.log.ProActiveLogger;
 
@@ -1240,7 +1240,8 @@ public class ProxyForGroup<E> extends AbstractProxy implements Proxy, Group<E>,
      */
 
     /**
-     * Builds the members using the threads (of the threadpool).
+     * Builds the members, the members to create on a same runtime are created by a single
+     * request.
      * 
      * @param className
      *            - the name of the Class<?> of the members.
@@ -1249,29 +1250,18 @@ public class ProxyForGroup<E> extends AbstractProxy implements Proxy, Group<E>,
      * @param nodeList
      *            - the nodes where the member will be created.
      */
+    @SuppressWarnings("unchecked")
     public void createMemberWithMultithread(String className, Class<?>[] genericParameters,
             Object[][] params, Node[] nodeList) {
-        // Initializes the Group to the correct size
-        for (int i = 0; i < params.length; i++) {
-            this.memberList.add(null);
-        }
-        CountDownLatch doneSignal = new CountDownLatch(params.length);
-        Queue<AbstractProcessForGroup> tasksToDispatch = new LinkedList<AbstractProcessForGroup>();
-        for (int i = 0; i < params.length; i++) {
-            tasksToDispatch.add(new ProcessForGroupCreation(this, className, genericParameters, params[i],
-                nodeList[i % nodeList.length], i, doneSignal));
-        }
-        dispatcher.dispatchTasks(tasksToDispatch, doneSignal, null);
-        try {
-            doneSignal.await();
-        } catch (InterruptedException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+        Object[] members = BulkAoCreation.newActives(className, genericParameters, params, nodeList);
+        for (Object member : members) {
+            this.memberList.add((E) member);
         }
     }
 
     /**
-     * Builds the members using the threads (of the threadpool).
+     * Builds the members, the members to create on a same runtime are created by a single
+     * request.
      * 
      * @param className
      *            - the name of the Class<?> of the members.
@@ -1282,23 +1272,11 @@ public class ProxyForGroup<E> extends AbstractProxy implements Proxy, Group<E>,
      */
     public void createMemberWithMultithread(String className, Class<?>[] genericParameters, Object[] params,
             Node[] nodeList) {
-        // Initializes the Group to the correct size
+        Object[][] allParams = new Object[nodeList.length][];
         for (int i = 0; i < nodeList.length; i++) {
-            this.memberList.add(null);
-        }
-        CountDownLatch doneSignal = new CountDownLatch(nodeList.length);
-        Queue<AbstractProcessForGroup> tasksToDispatch = new LinkedList<AbstractProcessForGroup>();
-        for (int i = 0; i < nodeList.length; i++) {
-            tasksToDispatch.add(new ProcessForGroupCreation(this, className, genericParameters, params,
-                nodeList[i], i, doneSignal));
-        }
-        dispatcher.dispatchTasks(tasksToDispatch, doneSignal, null);
-        try {
-            doneSignal.await();
-        } catch (InterruptedException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+            allParams[i] = params;
         }
+        createMemberWithMultithread(className, genericParameters, allParams, nodeList);
     }
 
     /*
@@ -0,0 +1,64 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.group.spmd;
+
+import org.objectweb.proactive.annotation.PublicAPI;
+
+
+/**
+ * The algorithms available to synchronize the members of a group with a barrier.
+ * All the members entering a barrier have to use the same algorithm.
+ */
+@PublicAPI
+public enum BarrierAlgorithm {
+    /**
+     * Every member sends a message to every other member: N<sup>2</sup> messages, one round.
+     */
+    ALL_TO_ALL,
+
+    /**
+     * In round k, the member of rank i notifies the member of rank (i + 2<sup>k</sup>) mod N:
+     * N log<sub>2</sub>N messages, log<sub>2</sub>N rounds.
+     */
+    DISSEMINATION,
+
+    /**
+     * The arrivals are gathered up a binary tree rooted at rank 0, then the release is
+     * broadcast down the tree: 2(N-1) messages, 2 log<sub>2</sub>N rounds.
+     */
+    TREE;
+}
@@ -0,0 +1,110 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.group.spmd;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.objectweb.proactive.api.PAActiveObject;
+import org.objectweb.proactive.core.body.AbstractBody;
+import org.objectweb.proactive.core.group.MethodCallControlForGroup;
+import org.objectweb.proactive.core.mop.MethodCallExecutionFailedException;
+
+
+/**
+ * This class represents a message of a barrier completing in several rounds, see
+ * {@link BarrierAlgorithm#DISSEMINATION} and {@link BarrierAlgorithm#TREE}.
+ * Unlike {@link MethodCallBarrier}, it is sent to a single member of the group.
+ *
+ * @author The ProActive Team
+ */
+public class MethodCallBarrierRound extends MethodCallControlForGroup {
+
+    /** The unique ID of the barrier */
+    private String IDName;
+
+    /** The round of the barrier this message belongs to */
+    private int round;
+
+    /**
+     * Constructor
+     * @param idname - the id name of the barrier
+     * @param round - the round this message belongs to
+     */
+    public MethodCallBarrierRound(String idname, int round) {
+        this.IDName = idname;
+        this.round = round;
+    }
+
+    /**
+     * Returns the name of the call
+     * @return the String "MethodCallBarrierRound"
+     */
+    @Override
+    public String getName() {
+        return "MethodCallBarrierRound";
+    }
+
+    /**
+     * Returns the ID name of the barrier
+     * @return the ID name of the barrier
+     */
+    public String getIDName() {
+        return this.IDName;
+    }
+
+    /**
+     * Returns the round of the barrier this message belongs to
+     * @return the round of the barrier this message belongs to
+     */
+    public int getRound() {
+        return this.round;
+    }
+
+    /**
+     * Execution of a barrier round call is to record the round, and to go on with the
+     * barrier if the object already entered it.
+     * @param target this object is not used.
+     * @return null
+     */
+    @Override
+    public Object execute(Object target) throws InvocationTargetException, MethodCallExecutionFailedException {
+        ProActiveSPMDGroupManager spmdManager = ((AbstractBody) PAActiveObject.getBodyOnThis())
+                .getProActiveSPMDGroupManager();
+        spmdManager.receiveBarrierRound(this.IDName, this.round);
+        return null;
+    }
+}
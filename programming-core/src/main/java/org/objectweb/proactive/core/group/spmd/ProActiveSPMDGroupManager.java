@@ -116,6 +116,54 @@ public class ProActiveSPMDGroupManager implements java.io.Serializable {
         bs.setAwaitedCalls(nbCalls);
     }
 
+    /**
+     * Enters a barrier completing in several rounds: tags the outgoing messages and sends
+     * the messages of the first round.
+     * @param barrierName the name of the barrier
+     * @param algorithm the algorithm of the barrier
+     * @param group the group synchronized by the barrier
+     * @param rank the rank of the object in the group
+     * @param size the size of the group
+     */
+    public void enterBarrier(String barrierName, BarrierAlgorithm algorithm, Object group, int rank, int size) {
+        this.addToBarrierTags(barrierName);
+        RoundBarrierState state = getRoundBarrierStateFor(barrierName);
+        state.enter(algorithm, group, rank, size);
+        progressBarrier(barrierName, state);
+    }
+
+    /**
+     * Records a message of a barrier completing in several rounds, and goes on with the
+     * barrier if possible.
+     * @param barrierName the name of the barrier
+     * @param round the round of the message
+     */
+    public void receiveBarrierRound(String barrierName, int round) {
+        RoundBarrierState state = getRoundBarrierStateFor(barrierName);
+        state.receive(round);
+        progressBarrier(barrierName, state);
+    }
+
+    private RoundBarrierState getRoundBarrierStateFor(String barrierName) {
+        BarrierState bs = this.currentBarriers.get(barrierName);
+        if (!(bs instanceof RoundBarrierState)) {
+            bs = new RoundBarrierState();
+            this.addToCurrentBarriers(barrierName, bs);
+        }
+        return (RoundBarrierState) bs;
+    }
+
+    private void progressBarrier(String barrierName, RoundBarrierState state) {
+        if (state.progress(barrierName)) {
+            this.remove(barrierName);
+            // messages sent by faster members for the next use of this barrier name
+            RoundBarrierState next = state.next();
+            if (next != null) {
+                this.addToCurrentBarriers(barrierName, next);
+            }
+        }
+    }
+
     /**
      * Set a BarrierState for the specified barrier
      * @param barrierName the name of the barrier
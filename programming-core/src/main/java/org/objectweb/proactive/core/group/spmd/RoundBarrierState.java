@@ -0,0 +1,202 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.group.spmd;
+
+import org.apache.log4j.Logger;
+import org.objectweb.proactive.api.PAGroup;
+import org.objectweb.proactive.core.mop.StubObject;
+import org.objectweb.proactive.core.util.log.Loggers;
+import org.objectweb.proactive.core.util.log.ProActiveLogger;
+
+
+/**
+ * This class describes the state of a barrier completing in several rounds
+ * ({@link BarrierAlgorithm#DISSEMINATION} or {@link BarrierAlgorithm#TREE}).
+ * <p>
+ * Round messages can be received before the object enters the barrier, and even for the next
+ * use of the same barrier name by a faster member: they are counted, and the ones that are not
+ * consumed when the barrier is released are carried over to a new state.
+ *
+ * @author The ProActive Team
+ */
+public class RoundBarrierState extends BarrierState {
+    private static final Logger logger = ProActiveLogger.getLogger(Loggers.GROUPS);
+
+    /** Round of the tree barrier messages sent by a child to its parent */
+    static final int TREE_ARRIVE = 0;
+
+    /** Round of the tree barrier messages sent by a parent to its children */
+    static final int TREE_RELEASE = 1;
+
+    /** The number of messages received for each round */
+    private final int[] received = new int[Integer.SIZE];
+
+    private BarrierAlgorithm algorithm;
+    private Object group;
+    private int rank;
+    private int size;
+    private boolean entered = false;
+
+    /** The number of dissemination rounds sent, or 1 once the tree arrival has been sent */
+    private int sentRounds = 0;
+
+    /**
+     * Records that the object entered the barrier.
+     * @param algorithm the algorithm of the barrier
+     * @param group the group synchronized by the barrier
+     * @param rank the rank of the object in the group
+     * @param size the size of the group
+     */
+    public void enter(BarrierAlgorithm algorithm, Object group, int rank, int size) {
+        this.algorithm = algorithm;
+        this.group = group;
+        this.rank = rank;
+        this.size = size;
+        this.entered = true;
+    }
+
+    /**
+     * Records a message received for the specified round
+     * @param round the round of the message
+     */
+    public void receive(int round) {
+        this.received[round]++;
+        this.incrementReceivedCalls();
+    }
+
+    /**
+     * Sends the messages of the rounds that can be completed.
+     * @param barrierName the name of the barrier
+     * @return true if the barrier is over for this object
+     */
+    public boolean progress(String barrierName) {
+        if (!this.entered) {
+            return false;
+        }
+
+        if (this.algorithm == BarrierAlgorithm.TREE) {
+            return progressTree(barrierName);
+        } else {
+            return progressDissemination(barrierName);
+        }
+    }
+
+    private boolean progressDissemination(String barrierName) {
+        int rounds = rounds(this.size);
+        while ((this.sentRounds < rounds) && ((this.sentRounds == 0) || (this.received[this.sentRounds - 1] > 0))) {
+            send(barrierName, (this.rank + (1 << this.sentRounds)) % this.size, this.sentRounds);
+            this.sentRounds++;
+        }
+
+        if ((this.sentRounds == rounds) && ((rounds == 0) || (this.received[rounds - 1] > 0))) {
+            for (int i = 0; i < rounds; i++) {
+                this.received[i]--;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private boolean progressTree(String barrierName) {
+        int children = children(this.rank, this.size);
+        if ((this.sentRounds == 0) && (this.received[TREE_ARRIVE] >= children)) {
+            this.received[TREE_ARRIVE] -= children;
+            this.sentRounds = 1;
+            if (this.rank == 0) {
+                // the whole group has arrived
+                sendToChildren(barrierName);
+                return true;
+            }
+            send(barrierName, (this.rank - 1) / 2, TREE_ARRIVE);
+        }
+
+        if ((this.sentRounds == 1) && (this.received[TREE_RELEASE] > 0)) {
+            this.received[TREE_RELEASE]--;
+            sendToChildren(barrierName);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns a state holding the messages received for the next use of the barrier name,
+     * or null if there is none.
+     * @return a new state, or null
+     */
+    public RoundBarrierState next() {
+        RoundBarrierState next = null;
+        for (int i = 0; i < this.received.length; i++) {
+            if (this.received[i] > 0) {
+                if (next == null) {
+                    next = new RoundBarrierState();
+                }
+                next.received[i] = this.received[i];
+            }
+        }
+        return next;
+    }
+
+    private void sendToChildren(String barrierName) {
+        for (int child = (2 * this.rank) + 1; (child <= ((2 * this.rank) + 2)) && (child < this.size); child++) {
+            send(barrierName, child, TREE_RELEASE);
+        }
+    }
+
+    void send(String barrierName, int target, int round) {
+        try {
+            StubObject member = (StubObject) PAGroup.getGroup(this.group).get(target);
+            member.getProxy().reify(new MethodCallBarrierRound(barrierName, round));
+        } catch (Throwable e) {
+            logger.error("Unable to send round " + round + " of barrier " + barrierName + " to rank " +
+                target, e);
+        }
+    }
+
+    /**
+     * @return the number of rounds of a dissemination barrier, ceil(log2(size))
+     */
+    static int rounds(int size) {
+        return (size <= 1) ? 0 : (Integer.SIZE - Integer.numberOfLeadingZeros(size - 1));
+    }
+
+    /**
+     * @return the number of children of the specified rank in the binary tree of a group
+     */
+    static int children(int rank, int size) {
+        return Math.max(0, Math.min(2, size - ((2 * rank) + 1)));
+    }
+}
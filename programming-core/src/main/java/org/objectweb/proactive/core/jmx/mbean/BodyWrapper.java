@@ -53,6 +53,9 @@ import javax.management.ObjectName;
 import org.apache.log4j.Logger;
 import org.objectweb.proactive.core.UniqueID;
 import org.objectweb.proactive.core.body.AbstractBody;
+import org.objectweb.proactive.core.body.exceptions.InactiveBodyException;
+import org.objectweb.proactive.core.body.request.BlockingRequestQueueImpl;
+import org.objectweb.proactive.core.body.request.RequestQueue;
 import org.objectweb.proactive.core.jmx.naming.FactoryName;
 import org.objectweb.proactive.core.jmx.notification.NotificationType;
 import org.objectweb.proactive.core.util.log.Loggers;
@@ -328,4 +331,19 @@ public class BodyWrapper extends NotificationBroadcasterSupport implements Seria
     public boolean getIsReifiedObjectSerializable() {
         return this.isReifiedObjectSerializable;
     }
+
+    /**
+     * @see org.objectweb.proactive.core.jmx.mbean.BodyWrapperMBean#getRequestQueueSaturationCount()
+     */
+    public long getRequestQueueSaturationCount() {
+        try {
+            RequestQueue queue = this.body.getRequestQueue();
+            if (queue instanceof BlockingRequestQueueImpl) {
+                return ((BlockingRequestQueueImpl) queue).getSaturationCount();
+            }
+        } catch (InactiveBodyException e) {
+            // No more requests
+        }
+        return 0;
+    }
 }
@@ -105,4 +105,12 @@ public interface BodyWrapperMBean extends Serializable {
      *         {@link java.io.Serializable} <code>False</code> otherwise
      */
     public boolean getIsReifiedObjectSerializable();
+
+    /**
+     * Returns the number of incoming requests which found the request queue full.
+     *
+     * @return the number of incoming requests which found the request queue full, 0 if the
+     *         request queue is unbounded
+     */
+    public long getRequestQueueSaturationCount();
 }
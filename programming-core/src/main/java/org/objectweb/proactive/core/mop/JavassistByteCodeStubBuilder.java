@@ -394,20 +394,25 @@ public class JavassistByteCodeStubBuilder {
                         "); \n");
                 }
 
-                boolean fieldToCache = hasAnnotation(reifiedMethod.getCtMethod(), Cache.class);
-                CtField cachedField = null;
-
-                if (fieldToCache) {
-                    // the generated has to cache the method
-
-                    cachedField = new CtField(getClassPool().get(
-                            reifiedMethod.getCtMethod().getReturnType().getName()), reifiedMethod
-                            .getCtMethod().getName() +
-                        i, generatedClass);
-
-                    generatedClass.addField(cachedField);
-
-                    body.append("if (" + cachedField.getName() + " == null) { ");
+                Cache cache = getAnnotation(reifiedMethod.getCtMethod(), Cache.class);
+                String resultCache = "org.objectweb.proactive.core.body.proxy.ResultCache";
+
+                if (cache != null) {
+                    // the result is looked up in the cache of the JVM, keyed by the argument values
+                    body.append(resultCache + ".Key cacheKey = " + resultCache + ".key(myProxy, \"" +
+                        reifiedMethod.getCtMethod().getName() + "\", \"" +
+                        reifiedMethod.getCtMethod().getSignature() + "\", $args);\n");
+                    body.append("Object cachedResult = " + resultCache + ".get(cacheKey);\n");
+                    body.append("if (cachedResult != " + resultCache + ".MISS) { return ($r) cachedResult; }\n");
+                }
+
+                Invalidates invalidates = getAnnotation(reifiedMethod.getCtMethod(), Invalidates.class);
+                if (invalidates != null) {
+                    StringBuilder names = new StringBuilder();
+                    for (String name : invalidates.value()) {
+                        names.append((names.length() == 0) ? "" : ",").append(name);
+                    }
+                    body.append(resultCache + ".invalidate(myProxy, \"" + names + "\");\n");
                 }
 
                 //                body.append("\nObject[] parameters = $args;\n");
@@ -430,22 +435,23 @@ public class JavassistByteCodeStubBuilder {
                     }
                 }
 
-                if (fieldToCache) {
-                    body.append(cachedField.getName() + "=");
+                if (cache != null) {
+                    body.append("Object result = ");
                 } else {
                     body.append("return ($r)");
-                }
 
-                if (preWrap != null) {
-                    body.append(preWrap);
+                    if (preWrap != null) {
+                        body.append(preWrap);
+                    }
                 }
 
                 body.append("myProxy.reify(org.objectweb.proactive.core.mop.MethodCall.getMethodCall(" +
                     "(java.lang.reflect.Method)overridenMethods[" + i + "]" +
                     ", $args, genericTypesMapping))");
 
-                if (fieldToCache) {
-                    body.append(";\n } \n return ($r)" + cachedField.getName());
+                if (cache != null) {
+                    body.append(";\n" + resultCache + ".put(cacheKey, result, " + cache.ttl() +
+                        "L);\n return ($r) result");
                 }
 
                 body.append(";");
@@ -486,13 +492,6 @@ public class JavassistByteCodeStubBuilder {
 
             generatedClass.addMethod(methodToGenerate);
 
-            //            if (fieldToCache) {
-            //              CtMethod proxySetterMethod = generatedClass.getMethod(proxySetter.getName(), proxySetter.getSignature());
-            //              String statementsToAdd = "if (myProxy != null ) { \n" +  cachedField.getName() + " = null ; \n " + reifiedMethods[i].getName() + "(); } \n ";
-            //              System.out
-            //                      .println("JavassistByteCodeStubBuilder.createReifiedMethods() statementsToAdd " + statementsToAdd);
-            //              proxySetterMethod.insertAfter(statementsToAdd);
-            //            }
         }
     }
 
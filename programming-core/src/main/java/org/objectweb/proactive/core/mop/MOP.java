@@ -1169,6 +1169,11 @@ public abstract class MOP {
         return createStubObject(className, null, null, new Object[] { body });
     }
 
+    public static Object createStubObject(String className, Class<?>[] genericParameters, UniversalBody body)
+            throws MOPException {
+        return createStubObject(className, genericParameters, null, new Object[] { body });
+    }
+
     public static Object createStubObject(String className, Class<?>[] genericParameters,
             Object[] constructorParameters, Node node, Active activity, MetaObjectFactory factory)
             throws MOPException {
@@ -47,15 +47,15 @@ import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 public class MOPClassLoader extends URLClassLoader {
 
     private static Logger logger = ProActiveLogger.getLogger(Loggers.MOP);
 
-    public Map<String, byte[]> classDataCache = new HashMap<String, byte[]>();
+    public Map<String, byte[]> classDataCache = new ConcurrentHashMap<String, byte[]>();
 
     // lazy-loaded singleton
     private static class LazyHolder {
@@ -88,7 +88,8 @@ public class MOPClassLoader extends URLClassLoader {
      * @return An array representing the bytecode of the stub, null if the
      * stub could not be found or created
      */
-    public synchronized byte[] getClassData(String classname) {
+    public byte[] getClassData(String classname) {
+        // generating the class locks the class loader, only misses pay for it
         byte[] cb = classDataCache.get(classname);
 
         if (cb == null) {
@@ -204,11 +205,17 @@ public class MOPClassLoader extends URLClassLoader {
         } catch (ClassNotFoundException e) {
             if (PAProxyBuilder.doesClassNameEndWithPAProxySuffix(name) && !(Utils.isStubClassName(name))) {
                 try {
-                    byte[] data = PAProxyBuilder.generatePAProxy(PAProxyBuilder
-                            .getBaseClassNameFromPAProxyName(name));
+                    String baseName = PAProxyBuilder.getBaseClassNameFromPAProxyName(name);
+                    StubCache stubCache = StubCache.getInstance();
+                    String fingerprint = stubCache.fingerprint(name, new String[] { baseName }, null);
+                    byte[] data = stubCache.load(name, fingerprint);
+                    if (data == null) {
+                        data = PAProxyBuilder.generatePAProxy(baseName);
+                        stubCache.store(name, fingerprint, data);
+                    }
                     classDataCache.put(name, data);
 
-                    Class<?> baseCl = Class.forName(PAProxyBuilder.getBaseClassNameFromPAProxyName(name));
+                    Class<?> baseCl = Class.forName(baseName);
 
                     if (cl == null) {
                         cl = baseCl.getClassLoader();
@@ -244,9 +251,13 @@ public class MOPClassLoader extends URLClassLoader {
                     }
                 }
 
-                byte[] data = null;
-
-                data = JavassistByteCodeStubBuilder.create(classname, genericParameters);
+                StubCache stubCache = StubCache.getInstance();
+                String fingerprint = stubCache.fingerprint(name, new String[] { classname }, genericParameters);
+                byte[] data = stubCache.load(name, fingerprint);
+                if (data == null) {
+                    data = JavassistByteCodeStubBuilder.create(classname, genericParameters);
+                    stubCache.store(name, fingerprint, data);
+                }
                 classDataCache.put(name, data);
 
                 // We use introspection to invoke the defineClass method to avoid the normal 
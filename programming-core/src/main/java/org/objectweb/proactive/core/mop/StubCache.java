@@ -0,0 +1,317 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.mop;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.objectweb.proactive.Main;
+import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
+import org.objectweb.proactive.core.util.CacheUtils;
+import org.objectweb.proactive.core.util.log.Loggers;
+import org.objectweb.proactive.core.util.log.ProActiveLogger;
+
+
+/**
+ * Keeps the bytecode of generated stubs and proxies on disk so that other JVMs do not generate
+ * them again.
+ * <p>
+ * Each class is stored in its own file of the directory given by
+ * {@link CentralPAPropertyRepository#PA_MOP_STUBCACHE_DIR}, along with a fingerprint of
+ * everything the generated bytecode depends on: the ProActive version, the bytecode of the
+ * generators, of the reified class, of its superclasses and interfaces and of the generic
+ * parameters. A file whose fingerprint does not match is ignored and overwritten. Classes whose
+ * bytecode cannot be read (generated classes, JDK classes loaded by the bootstrap class loader
+ * excepted) are not cached.
+ */
+class StubCache {
+    private static Logger logger = ProActiveLogger.getLogger(Loggers.MOP);
+
+    /** Bumped when the layout of the cache files changes */
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC = 0x50415354;
+
+    static private class Holder {
+        static final StubCache INSTANCE = createInstance();
+    }
+
+    /** The cache directory, null if stubs are not cached */
+    private final File dir;
+
+    /**
+     * @param dir the cache directory, null to disable the cache
+     */
+    StubCache(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * @return the cache configured by {@link CentralPAPropertyRepository#PA_MOP_STUBCACHE_DIR}
+     */
+    static StubCache getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static StubCache createInstance() {
+        File d = null;
+        if (CentralPAPropertyRepository.PA_MOP_STUBCACHE_DIR.isSet()) {
+            d = new File(CentralPAPropertyRepository.PA_MOP_STUBCACHE_DIR.getValue());
+            if (!d.isDirectory() && !d.mkdirs()) {
+                logger.warn("Cannot create the stub cache directory " + d + ", stubs will not be cached");
+                d = null;
+            }
+        }
+        return new StubCache(d);
+    }
+
+    /**
+     * @param name the name of the generated class
+     * @param classNames the classes the generated class is built from
+     * @param genericParameters the generic parameters of the generated class, may be null
+     * @return the fingerprint of the generated class, or null if it cannot be cached
+     */
+    String fingerprint(String name, String[] classNames, Class<?>[] genericParameters) {
+        if (dir == null) {
+            return null;
+        }
+
+        try {
+            MessageDigest md = CacheUtils.newSHA1Digest();
+            update(md, String.valueOf(FORMAT_VERSION));
+            update(md, Main.getProActiveVersion());
+            update(md, System.getProperty("java.specification.version"));
+            update(md, name);
+            if (!digestClass(md, JavassistByteCodeStubBuilder.class) || !digestClass(md, PAProxyBuilder.class)) {
+                return null;
+            }
+
+            Set<Class<?>> visited = new HashSet<Class<?>>();
+            for (String className : classNames) {
+                Class<?> cl = forName(className);
+                if (!digestHierarchy(md, cl, visited)) {
+                    return null;
+                }
+            }
+            if (genericParameters != null) {
+                for (Class<?> cl : genericParameters) {
+                    if (!digestHierarchy(md, cl, visited)) {
+                        return null;
+                    }
+                }
+            }
+            return CacheUtils.toHex(md.digest());
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            logger.debug("Cannot read the bytecode " + name + " depends on", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the cached bytecode of a generated class, or null if it is not cached or stale
+     */
+    byte[] load(String name, String fingerprint) {
+        if (fingerprint == null) {
+            return null;
+        }
+
+        File file = fileFor(name);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new FileInputStream(file));
+            if ((in.readInt() != MAGIC) || !fingerprint.equals(in.readUTF())) {
+                return null;
+            }
+            String checksum = in.readUTF();
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            if (!checksum.equals(CacheUtils.sha1Hex(data))) {
+                logger.warn("Ignoring corrupted stub cache file " + file);
+                return null;
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("Loaded " + name + " from the stub cache");
+            }
+            return data;
+        } catch (IOException e) {
+            logger.debug("Cannot read stub cache file " + file, e);
+            return null;
+        } finally {
+            close(in);
+        }
+    }
+
+    /**
+     * Writes the bytecode of a generated class in the cache. The file is written aside and
+     * renamed so that concurrent JVMs never read a partial file.
+     */
+    void store(String name, String fingerprint, byte[] data) {
+        if (fingerprint == null) {
+            return;
+        }
+
+        File file = fileFor(name);
+        File tmp = null;
+        DataOutputStream out = null;
+        try {
+            tmp = File.createTempFile(name, ".tmp", dir);
+            out = new DataOutputStream(new FileOutputStream(tmp));
+            out.writeInt(MAGIC);
+            out.writeUTF(fingerprint);
+            out.writeUTF(CacheUtils.sha1Hex(data));
+            out.writeInt(data.length);
+            out.write(data);
+            out.close();
+            out = null;
+            CacheUtils.moveInPlace(tmp, file);
+            tmp = null;
+        } catch (IOException e) {
+            logger.debug("Cannot write stub cache file " + file, e);
+        } finally {
+            close(out);
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+
+    private static Class<?> forName(String className) throws ClassNotFoundException {
+        ClassLoader ccl = Thread.currentThread().getContextClassLoader();
+        if (ccl != null) {
+            try {
+                return Class.forName(className, false, ccl);
+            } catch (ClassNotFoundException e) {
+                // try our own class loader
+            }
+        }
+        return Class.forName(className, false, StubCache.class.getClassLoader());
+    }
+
+    private File fileFor(String name) {
+        return new File(dir, name + ".stub");
+    }
+
+    private static boolean digestHierarchy(MessageDigest md, Class<?> cl, Set<Class<?>> visited)
+            throws IOException {
+        if ((cl == null) || !visited.add(cl)) {
+            return true;
+        }
+        if (cl.isArray()) {
+            return digestHierarchy(md, cl.getComponentType(), visited);
+        }
+        if (cl.isPrimitive() || (cl.getClassLoader() == null)) {
+            // JDK classes are covered by the java version
+            update(md, cl.getName());
+            return true;
+        }
+        if (!digestClass(md, cl)) {
+            return false;
+        }
+        if (!digestHierarchy(md, cl.getSuperclass(), visited)) {
+            return false;
+        }
+        for (Class<?> itf : cl.getInterfaces()) {
+            if (!digestHierarchy(md, itf, visited)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean digestClass(MessageDigest md, Class<?> cl) throws IOException {
+        ClassLoader loader = cl.getClassLoader();
+        if (loader instanceof MOPClassLoader) {
+            // generated class
+            return false;
+        }
+        InputStream in = (loader == null) ? ClassLoader.getSystemResourceAsStream(resourceName(cl))
+                : loader.getResourceAsStream(resourceName(cl));
+        if (in == null) {
+            return false;
+        }
+        try {
+            update(md, cl.getName());
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                md.update(buf, 0, n);
+            }
+            return true;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static String resourceName(Class<?> cl) {
+        return cl.getName().replace('.', '/') + ".class";
+    }
+
+    private static void update(MessageDigest md, String s) {
+        try {
+            md.update(String.valueOf(s).getBytes("UTF-8"));
+        } catch (IOException e) {
+            // UTF-8 is always supported
+        }
+        md.update((byte) 0);
+    }
+
+    private static void close(Closeable c) {
+        if (c != null) {
+            try {
+                c.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
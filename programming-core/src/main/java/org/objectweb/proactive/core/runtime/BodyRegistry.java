@@ -0,0 +1,217 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.runtime;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.objectweb.proactive.Body;
+import org.objectweb.proactive.core.UniqueID;
+
+
+/**
+ * For internal use only.
+ * Active objects indexed by id and by class name of their reified object. All operations are
+ * thread safe. Lookups by id do not depend on the number of active objects, registrations are
+ * logarithmic.
+ * <p>
+ * The listings follow the registration order, as the list of ids the nodes used to keep.
+ * <p>
+ * Registering a body replaces the body with the same id, which happens when an active object
+ * comes back after a migration, and unregistering a body does not remove its replacement.
+ * <p>
+ * {@link org.objectweb.proactive.core.body.LocalBodyStore} registers the active bodies of the
+ * JVM when their activity starts, and unregisters them when it stops. Each {@link LocalNode}
+ * indexes the bodies the runtime created on it, from their creation, which comes before their
+ * activity starts. The bodies of a node are removed when the store unregisters them (see
+ * {@link ProActiveRuntimeImpl#unregisterBody(Body)}).
+ */
+public class BodyRegistry {
+    private final AtomicLong registrations;
+    private final ConcurrentMap<UniqueID, Registration> bodies;
+    /** the registered bodies by registration number */
+    private final ConcurrentSkipListMap<Long, Body> ordered;
+    private final ConcurrentMap<String, ConcurrentSkipListMap<Long, Body>> bodiesByClassName;
+
+    public BodyRegistry() {
+        this.registrations = new AtomicLong();
+        this.bodies = new ConcurrentHashMap<UniqueID, Registration>();
+        this.ordered = new ConcurrentSkipListMap<Long, Body>();
+        this.bodiesByClassName = new ConcurrentHashMap<String, ConcurrentSkipListMap<Long, Body>>();
+    }
+
+    /**
+     * Registers a body, replacing the body registered with the same id
+     * @param body the body to register
+     * @return true if no body with this id was registered
+     */
+    public boolean register(Body body) {
+        UniqueID bodyID = body.getID();
+        Object reifiedObject = body.getReifiedObject();
+        String className = (reifiedObject != null) ? reifiedObject.getClass().getName() : null;
+        Registration registration = new Registration(body, this.registrations.incrementAndGet(), className);
+        Registration previous = this.bodies.put(bodyID, registration);
+        if (previous != null) {
+            removeFromListings(previous);
+        }
+
+        this.ordered.put(registration.number, body);
+        if (className != null) {
+            ConcurrentSkipListMap<Long, Body> sameClass = this.bodiesByClassName.get(className);
+            if (sameClass == null) {
+                sameClass = new ConcurrentSkipListMap<Long, Body>();
+                ConcurrentSkipListMap<Long, Body> existing = this.bodiesByClassName.putIfAbsent(className,
+                        sameClass);
+                if (existing != null) {
+                    sameClass = existing;
+                }
+            }
+            sameClass.put(registration.number, body);
+        }
+        if (this.bodies.get(bodyID) != registration) {
+            // unregistered or replaced meanwhile
+            removeFromListings(registration);
+        }
+        return previous == null;
+    }
+
+    /**
+     * Unregisters a body
+     * @param bodyID the id of the body to unregister
+     * @return the body, or null if it was not registered
+     */
+    public Body unregister(UniqueID bodyID) {
+        Registration registration = this.bodies.remove(bodyID);
+        if (registration == null) {
+            return null;
+        }
+        removeFromListings(registration);
+        return registration.body;
+    }
+
+    /**
+     * Unregisters a body, unless another body with the same id replaced it
+     * @param body the body to unregister
+     * @return true if the body was registered
+     */
+    public boolean unregister(Body body) {
+        UniqueID bodyID = body.getID();
+        Registration registration = this.bodies.get(bodyID);
+        if ((registration == null) || (registration.body != body) ||
+            !this.bodies.remove(bodyID, registration)) {
+            return false;
+        }
+        removeFromListings(registration);
+        return true;
+    }
+
+    /**
+     * @return the registered body with this id, or null
+     */
+    public Body get(UniqueID bodyID) {
+        Registration registration = this.bodies.get(bodyID);
+        return (registration != null) ? registration.body : null;
+    }
+
+    /**
+     * @return true if a body with this id is registered
+     */
+    public boolean contains(UniqueID bodyID) {
+        return this.bodies.containsKey(bodyID);
+    }
+
+    /**
+     * @return a live view of the registered bodies, in registration order
+     */
+    public Collection<Body> getBodies() {
+        return Collections.unmodifiableCollection(this.ordered.values());
+    }
+
+    /**
+     * @return a live view of the registered bodies, the last registered first
+     */
+    public Collection<Body> getBodiesInReverseOrder() {
+        return Collections.unmodifiableCollection(this.ordered.descendingMap().values());
+    }
+
+    /**
+     * @param className the name of the class of the reified objects
+     * @return a live view of the registered bodies whose reified object is of this exact class, in
+     * registration order
+     */
+    public Collection<Body> getBodies(String className) {
+        ConcurrentSkipListMap<Long, Body> sameClass = this.bodiesByClassName.get(className);
+        if (sameClass == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableCollection(sameClass.values());
+    }
+
+    /**
+     * @return the number of registered bodies
+     */
+    public int size() {
+        return this.bodies.size();
+    }
+
+    private void removeFromListings(Registration registration) {
+        this.ordered.remove(registration.number);
+        if (registration.className != null) {
+            ConcurrentSkipListMap<Long, Body> sameClass = this.bodiesByClassName.get(registration.className);
+            if (sameClass != null) {
+                // empty class entries are kept, a node hosts few different classes
+                sameClass.remove(registration.number);
+            }
+        }
+    }
+
+    private static final class Registration {
+        final Body body;
+        final long number;
+        final String className;
+
+        Registration(Body body, long number, String className) {
+            this.body = body;
+            this.number = number;
+            this.className = className;
+        }
+    }
+}
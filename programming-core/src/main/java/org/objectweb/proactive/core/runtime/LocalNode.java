@@ -52,7 +52,6 @@ import org.apache.log4j.Logger;
 import org.objectweb.proactive.Body;
 import org.objectweb.proactive.core.ProActiveException;
 import org.objectweb.proactive.core.UniqueID;
-import org.objectweb.proactive.core.body.LocalBodyStore;
 import org.objectweb.proactive.core.body.UniversalBody;
 import org.objectweb.proactive.core.filter.DefaultFilter;
 import org.objectweb.proactive.core.filter.Filter;
@@ -75,7 +74,7 @@ import org.objectweb.proactive.core.util.log.ProActiveLogger;
 public class LocalNode {
     private static Logger logger = ProActiveLogger.getLogger(Loggers.JMX_MBEAN);
     private String name;
-    private List<UniqueID> activeObjectsId;
+    private BodyRegistry bodies;
     private String virtualNodeName;
     private Properties localProperties;
     private RemoteObjectExposer<ProActiveRuntime> runtimeRoe;
@@ -94,7 +93,7 @@ public class LocalNode {
             throws ProActiveException {
         this.name = nodeName;
         this.virtualNodeName = virtualNodeName;
-        this.activeObjectsId = new ArrayList<UniqueID>();
+        this.bodies = new BodyRegistry();
         this.localProperties = new Properties();
 
         this.runtimeRoe = new RemoteObjectExposer<ProActiveRuntime>("LocalNode_" + name,
@@ -128,16 +127,16 @@ public class LocalNode {
     /**
      * @return Returns the active objects located inside the node.
      */
-    public List<UniqueID> getActiveObjectsId() {
-        return this.activeObjectsId;
+    public BodyRegistry getBodyRegistry() {
+        return this.bodies;
     }
 
     /**
-     * set the list of active objects contained by the node
-     * @param activeObjects active objects to set.
+     * set the active objects contained by the node
+     * @param bodies active objects to set.
      */
-    public void setActiveObjects(List<UniqueID> activeObjects) {
-        this.activeObjectsId = activeObjects;
+    public void setBodyRegistry(BodyRegistry bodies) {
+        this.bodies = bodies;
     }
 
     /**
@@ -187,31 +186,11 @@ public class LocalNode {
      */
     public List<UniversalBody> getActiveObjects(Filter filter) {
         List<UniversalBody> localBodies = new ArrayList<UniversalBody>();
-        LocalBodyStore localBodystore = LocalBodyStore.getInstance();
 
-        if (this.activeObjectsId == null) {
-            // Probably the node is killed
-            return localBodies;
-        }
-
-        synchronized (this.activeObjectsId) {
-            for (int i = 0; i < this.activeObjectsId.size(); i++) {
-                UniqueID bodyID = this.activeObjectsId.get(i);
-
-                //check if the body is still on this vm
-                Body body = localBodystore.getLocalBody(bodyID);
-
-                if (body == null) {
-                    //runtimeLogger.warn("body null");
-                    // the body with the given ID is not any more on this ProActiveRuntime
-                    // unregister it from this ProActiveRuntime
-                    this.activeObjectsId.remove(bodyID);
-                } else {
-                    if (filter.filter(body)) {
-                        //the body is on this runtime then return the remote reference of the active object
-                        localBodies.add(body.getRemoteAdapter());
-                    }
-                }
+        for (Body body : this.bodies.getBodies()) {
+            if (filter.filter(body)) {
+                //the body is on this runtime then return the remote reference of the active object
+                localBodies.add(body.getRemoteAdapter());
             }
         }
         return localBodies;
@@ -222,32 +201,22 @@ public class LocalNode {
      * @param bodyID The <code>UniqueID</code> to remove
      */
     public void unregisterBody(UniqueID bodyID) {
-        this.activeObjectsId.remove(bodyID);
+        this.bodies.unregister(bodyID);
     }
 
     /**
-     * Registers the specified body in the node. In fact it is the <code>UniqueID</code>
-     * of the body that is attached to the node.
-     * @param bodyID The body to register
+     * Registers the specified body in the node.
+     * @param body The body to register
      */
-    public void registerBody(UniqueID bodyID) {
-        this.activeObjectsId.add(bodyID);
+    public void registerBody(Body body) {
+        this.bodies.register(body);
     }
 
     public void terminate() {
-        List<UniqueID> activeObjects = this.getActiveObjectsId();
-
-        for (int i = 0; i < activeObjects.size(); i++) {
-            UniqueID bodyID = activeObjects.get(i);
-
-            //check if the body is still on this vm
-            Body body = LocalBodyStore.getInstance().getLocalBody(bodyID);
-
-            if (body != null) {
-                ProActiveLogger.getLogger(Loggers.NODE).info(
-                        "node " + this.name + " is being killed, terminating body " + bodyID);
-                body.terminate();
-            }
+        for (Body body : this.bodies.getBodies()) {
+            ProActiveLogger.getLogger(Loggers.NODE).info(
+                    "node " + this.name + " is being killed, terminating body " + body.getID());
+            body.terminate();
         }
 
         try {
@@ -39,9 +39,11 @@ package org.objectweb.proactive.core.runtime;
 import java.io.IOException;
 import java.rmi.AlreadyBoundException;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 import org.objectweb.proactive.core.ProActiveException;
+import org.objectweb.proactive.core.UniqueID;
 import org.objectweb.proactive.core.body.UniversalBody;
 import org.objectweb.proactive.core.descriptor.data.ProActiveDescriptorInternal;
 import org.objectweb.proactive.core.descriptor.data.VirtualNodeInternal;
@@ -262,6 +264,34 @@ public interface ProActiveRuntime {
             throws ProActiveException, ConstructorCallExecutionFailedException,
             java.lang.reflect.InvocationTargetException;
 
+    /**
+     * <p>
+     * Creates several active objects of the same class in a single call. The active objects
+     * are built locally by this runtime, in parallel, so creating many active objects on a
+     * remote runtime costs one round trip instead of one per active object.
+     * </p>
+     * @param nodeNames the name of the node each active object will be associated to
+     * @param className the name of the class of the active objects
+     * @param genericParameters the possibly null parameterizing types
+     * @param constructorParameters the constructor parameters of each active object
+     * @param isNodeLocal boolean. True if proxy and bodies are on the same vm, false otherwise
+     * @return the bodies of the new active objects, in the order of <code>constructorParameters</code>.
+     * An active object that cannot be created leaves a null entry.
+     * @exception ProActiveException if a node is unknown or if the creation is interrupted
+     */
+    public UniversalBody[] createBodies(String[] nodeNames, String className, Class<?>[] genericParameters,
+            Object[][] constructorParameters, boolean isNodeLocal) throws ProActiveException;
+
+    /**
+     * Drops the results of an active object cached by the stubs of this runtime. Called by the
+     * active object when it serves a method annotated with
+     * {@link org.objectweb.proactive.annotation.Invalidates}.
+     * @param bodyID the id of the active object
+     * @param methodNames the names of the cached methods, all of them if empty
+     * @exception ProActiveException if a problem occurs due to the remote nature of this ProactiveRuntime
+     */
+    public void invalidateCachedResults(UniqueID bodyID, String[] methodNames) throws ProActiveException;
+
     // SECURITY
     public String getVNName(String Nodename) throws ProActiveException;
 
@@ -274,6 +304,17 @@ public interface ProActiveRuntime {
      */
     public byte[] getClassData(String className);
 
+    /**
+     * Looks for the bytecode of a class and of the classes it references in the current runtime.
+     * The referenced classes found are added to the bundle, up to
+     * {@link org.objectweb.proactive.core.config.CentralPAPropertyRepository#PA_CLASSLOADING_BUNDLE_SIZE}
+     * classes.
+     *
+     * @param className name of the class
+     * @return the bytecode of the classes by class name, empty if the class is not found
+     */
+    public Map<String, byte[]> getClassDataBundle(String className);
+
     /**
      * launch the main method of the main class with parameters
      * @param className
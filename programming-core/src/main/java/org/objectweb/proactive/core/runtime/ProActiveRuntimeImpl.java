@@ -36,6 +36,8 @@
  */
 package org.objectweb.proactive.core.runtime;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
@@ -48,10 +50,21 @@ import java.net.UnknownHostException;
 import java.rmi.AlreadyBoundException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.management.InstanceAlreadyExistsException;
 import javax.management.InstanceNotFoundException;
@@ -61,17 +74,23 @@ import javax.management.MalformedObjectNameException;
 import javax.management.NotCompliantMBeanException;
 import javax.management.ObjectName;
 
+import javassist.bytecode.ClassFile;
+
 import org.apache.log4j.Logger;
 import org.apache.log4j.MDC;
 import org.objectweb.proactive.ActiveObjectCreationException;
 import org.objectweb.proactive.Body;
+import org.objectweb.proactive.api.PAActiveObject;
 import org.objectweb.proactive.api.PALifeCycle;
 import org.objectweb.proactive.api.PARemoteObject;
 import org.objectweb.proactive.core.Constants;
 import org.objectweb.proactive.core.ProActiveException;
+import org.objectweb.proactive.core.ProActiveRuntimeException;
 import org.objectweb.proactive.core.UniqueID;
 import org.objectweb.proactive.core.body.LocalBodyStore;
 import org.objectweb.proactive.core.body.UniversalBody;
+import org.objectweb.proactive.core.body.proxy.ResultCache;
+import org.objectweb.proactive.core.body.proxy.UniversalBodyProxy;
 import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
 import org.objectweb.proactive.core.descriptor.data.ProActiveDescriptorInternal;
 import org.objectweb.proactive.core.descriptor.data.VirtualNodeInternal;
@@ -94,6 +113,7 @@ import org.objectweb.proactive.core.jmx.util.JMXNotificationManager;
 import org.objectweb.proactive.core.mop.ConstructorCall;
 import org.objectweb.proactive.core.mop.ConstructorCallExecutionFailedException;
 import org.objectweb.proactive.core.mop.JavassistByteCodeStubBuilder;
+import org.objectweb.proactive.core.mop.StubObject;
 import org.objectweb.proactive.core.mop.Utils;
 import org.objectweb.proactive.core.node.Node;
 import org.objectweb.proactive.core.node.NodeException;
@@ -110,6 +130,7 @@ import org.objectweb.proactive.core.util.ProActiveRandom;
 import org.objectweb.proactive.core.util.URIBuilder;
 import org.objectweb.proactive.core.util.log.Loggers;
 import org.objectweb.proactive.core.util.log.ProActiveLogger;
+import org.objectweb.proactive.utils.NamedThreadFactory;
 
 
 /**
@@ -195,6 +216,9 @@ public class ProActiveRuntimeImpl extends RuntimeRegistrationEventProducerImpl i
     private ProActiveRuntime parentRuntime;
     protected RemoteObjectExposer<ProActiveRuntime> roe;
 
+    // threads of createBodies, lazily created
+    private ExecutorService creationExecutor;
+
     // JMX
     /** The Server Connector to connect remotely to the JMX server */
     private ServerConnector serverConnector;
@@ -211,6 +235,7 @@ public class ProActiveRuntimeImpl extends RuntimeRegistrationEventProducerImpl i
     //
     // singleton
     protected ProActiveRuntimeImpl() throws ProActiveException {
+        UniqueID.setCompactWireFormat(CentralPAPropertyRepository.PA_UNIQUEID_COMPACT.isTrue());
         try {
 
             this.vmInformation = new VMInformationImpl();
@@ -446,7 +471,7 @@ public class ProActiveRuntimeImpl extends RuntimeRegistrationEventProducerImpl i
         try {
             LocalNode localNode = new LocalNode(nodeName, vnName, replacePreviousBinding);
             if (replacePreviousBinding && (this.nodeMap.get(nodeName) != null)) {
-                localNode.setActiveObjects(this.nodeMap.get(nodeName).getActiveObjectsId());
+                localNode.setBodyRegistry(this.nodeMap.get(nodeName).getBodyRegistry());
                 this.nodeMap.remove(nodeName);
             }
 
@@ -758,39 +783,17 @@ public class ProActiveRuntimeImpl extends RuntimeRegistrationEventProducerImpl i
      */
     @Override
     public List<UniversalBody> getActiveObjects(String nodeName) {
-        // the array to return
-        List<UniversalBody> localBodies = new ArrayList<UniversalBody>();
-        LocalBodyStore localBodystore = LocalBodyStore.getInstance();
-        List<UniqueID> bodyList = this.nodeMap.get(nodeName).getActiveObjectsId();
-
-        if (bodyList == null) {
-            // Probably the node is killed
-            return localBodies;
-        }
-
-        synchronized (bodyList) {
-            for (int i = 0; i < bodyList.size(); i++) {
-                UniqueID bodyID = bodyList.get(i);
-
-                // check if the body is still on this vm
-                Body body = localBodystore.getLocalBody(bodyID);
-
-                if (body == null) {
-                    // runtimeLogger.warn("body null");
-                    // the body with the given ID is not any more on this
-                    // ProActiveRuntime
-                    // unregister it from this ProActiveRuntime
-                    unregisterBody(nodeName, bodyID);
-                } else {
-                    // the body is on this runtime then return adapter and class
-                    // name of the reified
-                    // object to enable the construction of stub-proxy couple.
-                    localBodies.add(0, body.getRemoteAdapter());
-                }
-            }
+        BodyRegistry bodies = this.nodeMap.get(nodeName).getBodyRegistry();
 
-            return localBodies;
+        // the body is on this runtime then return adapter and class
+        // name of the reified
+        // object to enable the construction of stub-proxy couple.
+        // The last created active object comes first
+        List<UniversalBody> localBodies = new ArrayList<UniversalBody>(bodies.size());
+        for (Body body : bodies.getBodiesInReverseOrder()) {
+            localBodies.add(body.getRemoteAdapter());
         }
+        return localBodies;
     }
 
     /**
@@ -836,42 +839,12 @@ public class ProActiveRuntimeImpl extends RuntimeRegistrationEventProducerImpl i
      */
     @Override
     public List<UniversalBody> getActiveObjects(String nodeName, String className) {
-        // the array to return
+        // the bodies whose reified object is of the specified type
         ArrayList<UniversalBody> localBodies = new ArrayList<UniversalBody>();
-        LocalBodyStore localBodystore = LocalBodyStore.getInstance();
-        List<UniqueID> bodyList = this.nodeMap.get(nodeName).getActiveObjectsId();
-
-        if (bodyList == null) {
-            // Probably the node is killed
-            return localBodies;
-        }
-
-        synchronized (bodyList) {
-            for (int i = 0; i < bodyList.size(); i++) {
-                UniqueID bodyID = bodyList.get(i);
-
-                // check if the body is still on this vm
-                Body body = localBodystore.getLocalBody(bodyID);
-
-                if (body == null) {
-                    // runtimeLogger.warn("body null");
-                    // the body with the given ID is not any more on this
-                    // ProActiveRuntime
-                    // unregister it from this ProActiveRuntime
-                    unregisterBody(nodeName, bodyID);
-                } else {
-                    String objectClass = body.getReifiedObject().getClass().getName();
-
-                    // if the reified object is of the specified type
-                    // return the body adapter
-                    if (objectClass.equals(className)) {
-                        localBodies.add(body.getRemoteAdapter());
-                    }
-                }
-            }
-
-            return localBodies;
+        for (Body body : this.nodeMap.get(nodeName).getBodyRegistry().getBodies(className)) {
+            localBodies.add(body.getRemoteAdapter());
         }
+        return localBodies;
     }
 
     /**
@@ -909,6 +882,83 @@ public class ProActiveRuntimeImpl extends RuntimeRegistrationEventProducerImpl i
         }
     }
 
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public UniversalBody[] createBodies(String[] nodeNames, final String className,
+            final Class<?>[] genericParameters, Object[][] constructorParameters, final boolean isLocal)
+            throws ProActiveException {
+        final UniversalBody[] bodies = new UniversalBody[constructorParameters.length];
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(constructorParameters.length);
+
+        for (int i = 0; i < constructorParameters.length; i++) {
+            if (NodeFactory.isHalfBodiesNode(nodeNames[i])) {
+                throw new ActiveObjectCreationException(
+                    "Cannot create an active object on the reserved halfbodies node.");
+            }
+
+            LocalNode localNode = this.nodeMap.get(nodeNames[i]);
+            if (localNode == null) {
+                throw new ProActiveException("Unknown node " + nodeNames[i] + " on runtime " + getURL());
+            }
+
+            final int index = i;
+            final Object[] parameters = constructorParameters[i];
+            final Node node = new NodeImpl(this, localNode.getURL());
+            tasks.add(new Callable<Void>() {
+                public Void call() {
+                    try {
+                        Object stub = PAActiveObject.newActive(className, genericParameters, parameters,
+                                node);
+                        Body body = (Body) ((UniversalBodyProxy) ((StubObject) stub).getProxy()).getBody();
+                        bodies[index] = isLocal ? body : body.getRemoteAdapter();
+                    } catch (Exception e) {
+                        ProActiveLogger.getLogger(Loggers.RUNTIME).error(
+                                "Failed to create an active object of class " + className + " on node " +
+                                    node.getNodeInformation().getName(), e);
+                    }
+                    return null;
+                }
+            });
+        }
+
+        try {
+            getCreationExecutor().invokeAll(tasks);
+        } catch (InterruptedException e) {
+            throw new ProActiveException("Interrupted while creating active objects", e);
+        }
+
+        return bodies;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void invalidateCachedResults(UniqueID bodyID, String[] methodNames) {
+        ResultCache.invalidate(bodyID, methodNames);
+    }
+
+    /** The class data lookups in progress, by class name */
+    private final ConcurrentHashMap<String, FutureTask<byte[]>> classDataLoads = new ConcurrentHashMap<String, FutureTask<byte[]>>();
+
+    /**
+     * The threads building the active objects requested by {@link #createBodies}. Idle threads
+     * are released, so the pool costs nothing when no bulk creation is running.
+     */
+    private synchronized ExecutorService getCreationExecutor() {
+        if (this.creationExecutor == null) {
+            int size = Runtime.getRuntime().availableProcessors();
+            ThreadPoolExecutor tpe = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("ProActive bulk creation", true));
+            tpe.allowCoreThreadTimeOut(true);
+            this.creationExecutor = tpe;
+        }
+
+        return this.creationExecutor;
+    }
+
     /**
      * Registers the specified body in the node with the nodeName key. In fact
      * it is the <code>UniqueID</code> of the body that is attached to the node.
@@ -920,54 +970,73 @@ public class ProActiveRuntimeImpl extends RuntimeRegistrationEventProducerImpl i
      *            The body to register
      */
     private void registerBody(String nodeName, Body body) {
-        UniqueID bodyID = body.getID();
-        List<UniqueID> bodyList = this.nodeMap.get(nodeName).getActiveObjectsId();
-
-        synchronized (bodyList) {
-            if (!bodyList.contains(bodyID)) {
-                // System.out.println("in registerbody id = "+
-                // bodyID.toString());
-                bodyList.add(bodyID);
-            }
-        }
+        this.nodeMap.get(nodeName).registerBody(body);
     }
 
     /**
-     * Unregisters the specified <code>UniqueID</code> from the node
-     * corresponding to the nodeName key
+     * Unregisters a body leaving this runtime from the node hosting it
      * 
-     * @param nodeName
-     *            The key where to remove the <code>UniqueID</code>
-     * @param bodyID
-     *            The <code>UniqueID</code> to remove
+     * @param body
+     *            The body to unregister
      */
-    private void unregisterBody(String nodeName, UniqueID bodyID) {
-        // System.out.println("in remove id= "+ bodyID.toString());
-        // System.out.println("array size
-        // "+((ArrayList)hostsMap.get(nodeName)).size());
-        List<UniqueID> bodyList = this.nodeMap.get(nodeName).getActiveObjectsId();
-
-        synchronized (bodyList) {
-            bodyList.remove(bodyID);
-
-            // System.out.println("array size
-            // "+((ArrayList)hostsMap.get(nodeName)).size());
+    public void unregisterBody(Body body) {
+        // a runtime hosts few nodes
+        for (LocalNode localNode : this.nodeMap.values()) {
+            if (localNode.getBodyRegistry().unregister(body)) {
+                return;
+            }
         }
     }
 
-    public synchronized byte[] getClassData(String className) {
-        byte[] classData = null;
-
-        // Check class data cache (already generated stub)
-        classData = ClassDataCache.instance().getClassData(className);
+    public byte[] getClassData(final String className) {
+        // Check class data cache (already served class or generated stub)
+        byte[] classData = ClassDataCache.instance().getClassData(className);
         if (classData != null) {
             return classData;
+        } else if (ClassDataCache.instance().isMissing(className)) {
+            if (clLogger.isTraceEnabled()) {
+                clLogger.trace(className + " is known to be missing");
+            }
+            return null;
         } else {
             if (clLogger.isTraceEnabled()) {
                 clLogger.trace(className + " is not in the class data cache");
             }
         }
 
+        // Concurrent requests for the same class wait for the same lookup
+        FutureTask<byte[]> load = new FutureTask<byte[]>(new Callable<byte[]>() {
+            public byte[] call() {
+                return loadClassData(className);
+            }
+        });
+        FutureTask<byte[]> previous = this.classDataLoads.putIfAbsent(className, load);
+        if (previous == null) {
+            try {
+                load.run();
+            } finally {
+                this.classDataLoads.remove(className, load);
+            }
+        } else {
+            load = previous;
+        }
+
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ProActiveRuntimeException(e.getCause());
+        }
+    }
+
+    private byte[] loadClassData(String className) {
+        byte[] classData = null;
+
         // Look in classpath
         try {
             classData = FileProcess.getBytesFromResource(className);
@@ -975,6 +1044,7 @@ public class ProActiveRuntimeImpl extends RuntimeRegistrationEventProducerImpl i
                 if (clLogger.isTraceEnabled()) {
                     clLogger.trace("Found " + className + " in the classpath");
                 }
+                ClassDataCache.instance().addClassData(className, classData);
                 return classData;
             } else {
                 if (clLogger.isTraceEnabled()) {
@@ -1000,9 +1070,76 @@ public class ProActiveRuntimeImpl extends RuntimeRegistrationEventProducerImpl i
             }
         }
 
+        ClassDataCache.instance().addMissingClass(className);
         return null;
     }
 
+    public Map<String, byte[]> getClassDataBundle(String className) {
+        Map<String, byte[]> bundle = new HashMap<String, byte[]>();
+        byte[] classData = getClassData(className);
+        if (classData == null) {
+            return bundle;
+        }
+        bundle.put(className, classData);
+
+        // Breadth first walk of the constant pools, closest dependencies first
+        int maxSize = CentralPAPropertyRepository.PA_CLASSLOADING_BUNDLE_SIZE.getValue();
+        Set<String> visited = new HashSet<String>();
+        visited.add(className);
+        LinkedList<byte[]> toWalk = new LinkedList<byte[]>();
+        toWalk.add(classData);
+        while (!toWalk.isEmpty() && (bundle.size() < maxSize)) {
+            for (String dependency : getReferencedClasses(toWalk.removeFirst())) {
+                if (bundle.size() >= maxSize) {
+                    break;
+                }
+                if (!visited.add(dependency) || !isBundled(dependency)) {
+                    continue;
+                }
+                byte[] dependencyData = getClassData(dependency);
+                if (dependencyData != null) {
+                    bundle.put(dependency, dependencyData);
+                    toWalk.add(dependencyData);
+                }
+            }
+        }
+        return bundle;
+    }
+
+    /**
+     * @return the names of the classes referenced by the constant pool of a class
+     */
+    private static List<String> getReferencedClasses(byte[] classData) {
+        List<String> names = new ArrayList<String>();
+        try {
+            ClassFile cf = new ClassFile(new DataInputStream(new ByteArrayInputStream(classData)));
+            for (Object o : cf.getConstPool().getClassNames()) {
+                String name = (String) o;
+                if (name.startsWith("[")) {
+                    // array, keep the element type if it is a class
+                    name = name.substring(name.lastIndexOf('[') + 1);
+                    if (!name.startsWith("L") || !name.endsWith(";")) {
+                        continue;
+                    }
+                    name = name.substring(1, name.length() - 1);
+                }
+                names.add(name.replace('/', '.'));
+            }
+        } catch (IOException e) {
+            ProActiveLogger.logEatedException(clLogger, e);
+        }
+        return names;
+    }
+
+    /**
+     * The classes available on every runtime are never bundled
+     */
+    private static boolean isBundled(String className) {
+        return !(className.startsWith("java.") || className.startsWith("javax.") ||
+            className.startsWith("sun.") || className.startsWith("com.sun.") || className
+                .startsWith("org.objectweb.proactive."));
+    }
+
     public void launchMain(String className, String[] parameters) throws ClassNotFoundException,
             NoSuchMethodException, ProActiveException {
         System.out.println("ProActiveRuntimeImpl.launchMain() -" + className + "-");
@@ -40,9 +40,11 @@ import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.rmi.AlreadyBoundException;
 import java.util.List;
+import java.util.Map;
 
 import org.objectweb.proactive.Body;
 import org.objectweb.proactive.core.ProActiveException;
+import org.objectweb.proactive.core.UniqueID;
 import org.objectweb.proactive.core.body.UniversalBody;
 import org.objectweb.proactive.core.descriptor.data.ProActiveDescriptorInternal;
 import org.objectweb.proactive.core.descriptor.data.VirtualNodeInternal;
@@ -107,6 +109,16 @@ public class ProActiveRuntimeRemoteObjectAdapter extends Adapter<ProActiveRuntim
         return target.createBody(nodeName, bodyConstructorCall, isNodeLocal);
     }
 
+    public UniversalBody[] createBodies(String[] nodeNames, String className, Class<?>[] genericParameters,
+            Object[][] constructorParameters, boolean isNodeLocal) throws ProActiveException {
+        return target.createBodies(nodeNames, className, genericParameters, constructorParameters,
+                isNodeLocal);
+    }
+
+    public void invalidateCachedResults(UniqueID bodyID, String[] methodNames) throws ProActiveException {
+        target.invalidateCachedResults(bodyID, methodNames);
+    }
+
     public Node createLocalNode(String nodeName, boolean replacePreviousBinding, String vnName)
             throws NodeException, AlreadyBoundException {
         return target.createLocalNode(nodeName, replacePreviousBinding, vnName);
@@ -241,4 +253,8 @@ public class ProActiveRuntimeRemoteObjectAdapter extends Adapter<ProActiveRuntim
     public byte[] getClassData(String className) {
         return target.getClassData(className);
     }
+
+    public Map<String, byte[]> getClassDataBundle(String className) {
+        return target.getClassDataBundle(className);
+    }
 }
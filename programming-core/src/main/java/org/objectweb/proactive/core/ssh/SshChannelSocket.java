@@ -0,0 +1,431 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.ssh;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+
+import com.trilead.ssh2.LocalStreamForwarder;
+
+
+/**
+ * A socket multiplexed over a shared SSH connection
+ *
+ * Each socket is a direct-tcpip channel of the SSH connection. Unlike {@link SshTunnel}, no local
+ * port is bound and no local TCP connection is made.
+ *
+ * The socket is never connected at the OS level. Socket options are only recorded, so setting
+ * them does not allocate a file descriptor. Only the read timeout has an effect: reads throw a
+ * {@link SocketTimeoutException} when no data is received within the timeout. As the streams of a
+ * channel cannot be read with a timeout, once a read timeout is set a thread reads the channel
+ * ahead into a buffer.
+ */
+public class SshChannelSocket extends Socket {
+    /** Size of the buffers of a trilead channel */
+    static final private int CHANNEL_BUFFER_SIZE = 30000;
+
+    final private Endpoint endpoint;
+    final private String remoteHost;
+    final private int remotePort;
+    final private InputStream inputStream;
+    private volatile boolean closed;
+    /** Started by the first read with a timeout */
+    private ReadAhead readAhead;
+
+    /* Recorded socket options */
+    private volatile int soTimeout;
+    private boolean keepAlive;
+    private boolean oobInline;
+    private int receiveBufferSize = CHANNEL_BUFFER_SIZE;
+    private int sendBufferSize = CHANNEL_BUFFER_SIZE;
+    private boolean reuseAddress;
+    private boolean tcpNoDelay;
+    private int trafficClass;
+    private int soLinger = -1;
+
+    /**
+     * Open a channel to remoteHost:remotePort over the SSH connection
+     *
+     * @param connection The SSH connection to use
+     * @param remoteHost The remote host
+     * @param remotePort The remote TCP port
+     * @throws IOException if the channel cannot be opened
+     */
+    SshChannelSocket(SshConnection connection, String remoteHost, int remotePort) throws IOException {
+        this(new TrileadEndpoint(connection.getTrileadConnection().createLocalStreamForwarder(
+                remoteHost, remotePort)), remoteHost, remotePort);
+    }
+
+    SshChannelSocket(Endpoint endpoint, String remoteHost, int remotePort) {
+        this.endpoint = endpoint;
+        this.remoteHost = remoteHost;
+        this.remotePort = remotePort;
+        this.inputStream = new TimeoutInputStream();
+        this.closed = false;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        checkOpen();
+        return this.inputStream;
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        checkOpen();
+        return this.endpoint.getOutputStream();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return true;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!this.closed) {
+            this.closed = true;
+            try {
+                this.endpoint.close();
+            } finally {
+                if (this.readAhead != null) {
+                    this.readAhead.wakeUp();
+                }
+                super.close();
+            }
+        }
+    }
+
+    @Override
+    public void setSoTimeout(int timeout) throws SocketException {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout can't be negative");
+        }
+        this.soTimeout = timeout;
+    }
+
+    @Override
+    public int getSoTimeout() {
+        return this.soTimeout;
+    }
+
+    @Override
+    public synchronized void setKeepAlive(boolean on) {
+        this.keepAlive = on;
+    }
+
+    @Override
+    public synchronized boolean getKeepAlive() {
+        return this.keepAlive;
+    }
+
+    @Override
+    public synchronized void setOOBInline(boolean on) {
+        this.oobInline = on;
+    }
+
+    @Override
+    public synchronized boolean getOOBInline() {
+        return this.oobInline;
+    }
+
+    @Override
+    public synchronized void setReceiveBufferSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("invalid receive size");
+        }
+        this.receiveBufferSize = size;
+    }
+
+    @Override
+    public synchronized int getReceiveBufferSize() {
+        return this.receiveBufferSize;
+    }
+
+    @Override
+    public synchronized void setSendBufferSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("negative send size");
+        }
+        this.sendBufferSize = size;
+    }
+
+    @Override
+    public synchronized int getSendBufferSize() {
+        return this.sendBufferSize;
+    }
+
+    @Override
+    public synchronized void setReuseAddress(boolean on) {
+        this.reuseAddress = on;
+    }
+
+    @Override
+    public synchronized boolean getReuseAddress() {
+        return this.reuseAddress;
+    }
+
+    @Override
+    public synchronized void setTcpNoDelay(boolean on) {
+        this.tcpNoDelay = on;
+    }
+
+    @Override
+    public synchronized boolean getTcpNoDelay() {
+        return this.tcpNoDelay;
+    }
+
+    @Override
+    public synchronized void setTrafficClass(int tc) {
+        this.trafficClass = tc;
+    }
+
+    @Override
+    public synchronized int getTrafficClass() {
+        return this.trafficClass;
+    }
+
+    @Override
+    public synchronized void setSoLinger(boolean on, int linger) {
+        this.soLinger = on ? linger : -1;
+    }
+
+    @Override
+    public synchronized int getSoLinger() {
+        return this.soLinger;
+    }
+
+    @Override
+    public String toString() {
+        return "Socket[SSH channel to " + remoteHost + ":" + remotePort + "]";
+    }
+
+    private void checkOpen() throws SocketException {
+        if (this.closed) {
+            throw new SocketException("Socket is closed");
+        }
+    }
+
+    /**
+     * @return the read ahead buffer, or null if the channel is read directly
+     */
+    private synchronized ReadAhead getReadAhead() {
+        if (this.readAhead == null && this.soTimeout > 0 && !this.closed) {
+            this.readAhead = new ReadAhead();
+            Thread t = new Thread(this.readAhead, "SSH channel reader " + remoteHost + ":" + remotePort);
+            t.setDaemon(true);
+            t.start();
+        }
+        return this.readAhead;
+    }
+
+    /**
+     * Reads from the channel, waiting at most soTimeout ms for data
+     */
+    private class TimeoutInputStream extends InputStream {
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int read = read(b, 0, 1);
+            return (read == -1) ? -1 : (b[0] & 0xFF);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            ReadAhead r = getReadAhead();
+            if (r == null) {
+                return endpoint.getInputStream().read(b, off, len);
+            }
+            if (len == 0) {
+                return 0;
+            }
+            return r.read(b, off, len, soTimeout);
+        }
+
+        @Override
+        public int available() throws IOException {
+            ReadAhead r = getReadAhead();
+            return (r == null) ? endpoint.getInputStream().available() : r.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            SshChannelSocket.this.close();
+        }
+    }
+
+    /**
+     * Reads the channel ahead into a bounded buffer, from which reads can wait with a timeout
+     */
+    private class ReadAhead implements Runnable {
+        final private byte[] buffer = new byte[CHANNEL_BUFFER_SIZE];
+        private int start;
+        private int count;
+        private boolean eof;
+        private IOException failure;
+
+        public void run() {
+            byte[] chunk = new byte[CHANNEL_BUFFER_SIZE];
+            try {
+                InputStream in = endpoint.getInputStream();
+                while (true) {
+                    int free;
+                    synchronized (this) {
+                        while (this.count == this.buffer.length && !closed) {
+                            this.wait();
+                        }
+                        if (closed) {
+                            return;
+                        }
+                        free = this.buffer.length - this.count;
+                    }
+                    int read = in.read(chunk, 0, free);
+                    synchronized (this) {
+                        if (read == -1) {
+                            this.eof = true;
+                        } else {
+                            for (int i = 0; i < read; i++) {
+                                this.buffer[(this.start + this.count + i) % this.buffer.length] = chunk[i];
+                            }
+                            this.count += read;
+                        }
+                        this.notifyAll();
+                        if (this.eof) {
+                            return;
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    this.failure = e;
+                    this.notifyAll();
+                }
+            } catch (InterruptedException e) {
+                synchronized (this) {
+                    this.failure = new IOException(e);
+                    this.notifyAll();
+                }
+            }
+        }
+
+        synchronized int read(byte[] b, int off, int len, int timeout) throws IOException {
+            long deadline = System.currentTimeMillis() + timeout;
+            while (this.count == 0) {
+                if (closed) {
+                    throw new SocketException("Socket is closed");
+                }
+                if (this.eof) {
+                    return -1;
+                }
+                if (this.failure != null) {
+                    throw this.failure;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (timeout > 0 && remaining <= 0) {
+                    throw new SocketTimeoutException("Read timed out");
+                }
+                try {
+                    this.wait(timeout > 0 ? remaining : 0);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            int n = Math.min(len, this.count);
+            for (int i = 0; i < n; i++) {
+                b[off + i] = this.buffer[(this.start + i) % this.buffer.length];
+            }
+            this.start = (this.start + n) % this.buffer.length;
+            this.count -= n;
+            this.notifyAll();
+            return n;
+        }
+
+        synchronized int available() {
+            return this.count;
+        }
+
+        synchronized void wakeUp() {
+            this.notifyAll();
+        }
+    }
+
+    /**
+     * The SSH channel behind a socket
+     */
+    static abstract class Endpoint {
+        abstract InputStream getInputStream() throws IOException;
+
+        abstract OutputStream getOutputStream() throws IOException;
+
+        abstract void close() throws IOException;
+    }
+
+    /**
+     * A trilead direct-tcpip channel
+     */
+    static private class TrileadEndpoint extends Endpoint {
+        final private LocalStreamForwarder forwarder;
+
+        TrileadEndpoint(LocalStreamForwarder forwarder) {
+            this.forwarder = forwarder;
+        }
+
+        @Override
+        InputStream getInputStream() throws IOException {
+            return this.forwarder.getInputStream();
+        }
+
+        @Override
+        OutputStream getOutputStream() throws IOException {
+            return this.forwarder.getOutputStream();
+        }
+
+        @Override
+        void close() throws IOException {
+            this.forwarder.close();
+        }
+    }
+}
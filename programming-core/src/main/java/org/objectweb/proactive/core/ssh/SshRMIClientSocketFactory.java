@@ -41,6 +41,8 @@ import java.io.Serializable;
 import java.net.Socket;
 import java.rmi.server.RMIClientSocketFactory;
 
+import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
+
 
 public class SshRMIClientSocketFactory implements RMIClientSocketFactory, Serializable {
     final static private Object tunnelLock = new Object();
@@ -53,6 +55,9 @@ public class SshRMIClientSocketFactory implements RMIClientSocketFactory, Serial
     public SshRMIClientSocketFactory(SshConfig config) {
         synchronized (tunnelLock) {
             tunnelPool = new SshTunnelPool(config);
+            if (CentralPAPropertyRepository.PA_RMISSH_PREWARM_HOSTS.isSet()) {
+                tunnelPool.prewarm(CentralPAPropertyRepository.PA_RMISSH_PREWARM_HOSTS.getValue());
+            }
         }
     }
 
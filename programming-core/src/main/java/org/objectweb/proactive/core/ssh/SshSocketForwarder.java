@@ -0,0 +1,217 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.ssh;
+
+import static org.objectweb.proactive.core.ssh.SSH.logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * A local port forwarded to a remote endpoint through a {@link SshTunnelPool}
+ *
+ * For the clients which must be given an address rather than a socket, like
+ * HttpURLConnection. Each connection accepted on the local port is relayed over its own socket of
+ * the pool, a SSH channel when the remote endpoint cannot be reached directly.
+ *
+ * The local port is bound on the loopback interface. The forwarder closes itself after idleTime
+ * ms without any connection.
+ */
+public class SshSocketForwarder {
+    final private SshTunnelPool pool;
+    final private String remoteHost;
+    final private int remotePort;
+    final private ServerSocket serverSocket;
+    /** Number of relayed connections */
+    final private AtomicInteger connections;
+
+    /**
+     * Bind a local port and start forwarding its connections to remoteHost:remotePort
+     *
+     * @param pool the pool providing the sockets to the remote endpoint
+     * @param remoteHost The remote host
+     * @param remotePort The remote TCP port
+     * @param idleTime time in ms without connection after which the forwarder is closed, 0 to
+     *        keep it until {@link #close()} is called
+     * @throws IOException if no local port can be bound
+     */
+    public SshSocketForwarder(SshTunnelPool pool, String remoteHost, int remotePort, int idleTime)
+            throws IOException {
+        this.pool = pool;
+        this.remoteHost = remoteHost;
+        this.remotePort = remotePort;
+        this.connections = new AtomicInteger();
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getByName(null));
+        this.serverSocket.setSoTimeout(idleTime);
+
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                accept();
+            }
+        };
+        t.setDaemon(true);
+        t.setName("SSH forwarder to " + remoteHost + ":" + remotePort);
+        t.start();
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Forwarding " + getHost() + ":" + getPort() + " to " + remoteHost + ":" + remotePort);
+        }
+    }
+
+    /**
+     * @return the local address to connect to
+     */
+    public String getHost() {
+        return this.serverSocket.getInetAddress().getHostAddress();
+    }
+
+    /**
+     * @return the local port to connect to
+     */
+    public int getPort() {
+        return this.serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stop accepting connections, the connections already accepted are not interrupted
+     */
+    public void close() {
+        try {
+            this.serverSocket.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close SSH forwarder to " + remoteHost + ":" + remotePort, e);
+        }
+    }
+
+    public boolean isClosed() {
+        return this.serverSocket.isClosed();
+    }
+
+    @Override
+    public String toString() {
+        return "localport=" + getPort() + " distanthost=" + remoteHost + " distantport=" + remotePort;
+    }
+
+    private void accept() {
+        while (!this.serverSocket.isClosed()) {
+            Socket local;
+            try {
+                local = this.serverSocket.accept();
+            } catch (SocketTimeoutException e) {
+                if (this.connections.get() == 0) {
+                    logger.debug("Closing idle SSH forwarder " + this);
+                    close();
+                }
+                continue;
+            } catch (IOException e) {
+                if (!this.serverSocket.isClosed()) {
+                    logger.info("SSH forwarder " + this + " failed", e);
+                    close();
+                }
+                return;
+            }
+
+            Socket remote;
+            try {
+                remote = this.pool.getSocket(this.remoteHost, this.remotePort);
+            } catch (IOException e) {
+                logger.info("Failed to forward a connection to " + remoteHost + ":" + remotePort, e);
+                closeQuietly(local);
+                continue;
+            }
+            relay(local, remote);
+        }
+    }
+
+    private void relay(final Socket local, final Socket remote) {
+        this.connections.incrementAndGet();
+        // The connection ends when any side closes it
+        final AtomicInteger pumps = new AtomicInteger(2);
+        Runnable done = new Runnable() {
+            public void run() {
+                closeQuietly(local);
+                closeQuietly(remote);
+                if (pumps.decrementAndGet() == 0) {
+                    connections.decrementAndGet();
+                }
+            }
+        };
+        pump(local, remote, done, "out");
+        pump(remote, local, done, "in");
+    }
+
+    private void pump(final Socket from, final Socket to, final Runnable done, String direction) {
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                byte[] buffer = new byte[8192];
+                try {
+                    InputStream in = from.getInputStream();
+                    OutputStream out = to.getOutputStream();
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    // Closed by the other side
+                } finally {
+                    done.run();
+                }
+            }
+        };
+        t.setDaemon(true);
+        t.setName("SSH forwarder " + direction + " " + remoteHost + ":" + remotePort);
+        t.start();
+    }
+
+    static private void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+}
@@ -37,46 +37,51 @@
 package org.objectweb.proactive.core.ssh;
 
 import java.io.IOException;
-import java.net.BindException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.objectweb.proactive.core.ssh.proxycommand.ProxyCommandConfig;
 import org.objectweb.proactive.core.ssh.proxycommand.SshProxyConnection;
 import org.objectweb.proactive.core.ssh.proxycommand.SshProxySession;
 import org.objectweb.proactive.core.util.ProActiveInet;
-import org.objectweb.proactive.core.util.ProActiveRandom;
-import org.objectweb.proactive.core.util.log.Loggers;
-import org.objectweb.proactive.core.util.log.ProActiveLogger;
-import org.objectweb.proactive.utils.Sleeper;
 
 import static org.objectweb.proactive.core.ssh.SSH.logger;
 
 
+/**
+ * A pool of SSH connections
+ *
+ * One SSH connection is opened per gateway host. All the sockets to this host are multiplexed over
+ * this connection, each socket being a SSH channel (see {@link SshChannelSocket}). Lookups are lock
+ * free, only the first connection to a given host is serialized.
+ *
+ * Connections without opened socket for more than {@link SshConfig#getGcIdleTime()} are closed. Idle
+ * connections are looked for every {@link SshConfig#getGcInterval()} ms by a garbage collector
+ * thread. A garbage collection interval of 0 disables it.
+ */
 public class SshTunnelPool {
     /** The SSH configuration to use in this pool */
     private SshConfig config;
     /** A cache to remember if plain socket connection works for a given destination */
     final private TryCache tryCache;
-    /** SSH connection & tunnels cache */
-    final private Map<String, Pair> cache;
+    /** SSH connections cache, one per gateway host */
+    final private ConcurrentHashMap<String, Pair> cache;
     /** SSH proxy connection & sessions cache */
-    final private Map<String, List<ProxyPair>> proxyCommandCache;
-    /** The thread in charge of tunnel & connection garbage collection */
-    private Thread gcThread = null;
+    final private ConcurrentHashMap<String, List<ProxyPair>> proxyCommandCache;
+    /** Garbage collector of the idle connections, null until started */
+    private ScheduledExecutorService gc;
 
     /**
-     * The garbage collector thread isn't launch by this constructor because
-     * of lack of SshConfig
+     * Create a SSH tunnel pool without configuration nor garbage collector
      *
      * @see SshTunnelPool#setSshConfig(SshConfig)
      * @see SshTunnelPool#createAndStartGCThread()
@@ -85,33 +90,48 @@ public class SshTunnelPool {
         logger.debug("Created a new SSH tunnel pool");
 
         this.tryCache = new TryCache();
-        this.cache = new HashMap<String, Pair>();
-        this.proxyCommandCache = new HashMap<String, List<ProxyPair>>();
+        this.cache = new ConcurrentHashMap<String, Pair>();
+        this.proxyCommandCache = new ConcurrentHashMap<String, List<ProxyPair>>();
     }
 
     /**
-     * If the GCThread hasn't been created and launch before do it
+     * If the garbage collector hasn't been started before, start it
      */
-    public void createAndStartGCThread() {
-        if (config == null && gcThread == null) {
-            // Throw an exception ?
+    public synchronized void createAndStartGCThread() {
+        if (this.config == null || this.gc != null || this.config.getGcInterval() <= 0) {
             return;
         }
-        this.gcThread = new Thread(new GCThread());
-        this.gcThread.setDaemon(true);
-        this.gcThread.setName("SSH Tunnel pool GC");
-        if (this.config.getGcInterval() > 0) {
-            logger.debug("Starting SSH GC thread");
-            this.gcThread.start();
-        }
+
+        logger.debug("Starting SSH GC thread");
+        this.gc = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "SSH Tunnel pool GC");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        long gcInterval = this.config.getGcInterval();
+        this.gc.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    collectIdleConnections();
+                } catch (Throwable t) {
+                    logger.info("SSH garbage collection failed", t);
+                }
+            }
+        }, gcInterval, gcInterval, TimeUnit.MILLISECONDS);
     }
 
     public void setSshConfig(SshConfig config) {
         this.config = config;
     }
 
+    public SshConfig getSshConfig() {
+        return this.config;
+    }
+
     /**
-     * This constructor launch the garbage collector thread, no need to call
+     * This constructor starts the garbage collector, no need to call
      * method SshTunnelPool#createAndStartGCThread() after instantiation.
      *
      * @param config
@@ -119,13 +139,33 @@ public class SshTunnelPool {
     public SshTunnelPool(SshConfig config) {
         this();
         this.config = config;
-        this.gcThread = new Thread(new GCThread());
-        this.gcThread.setDaemon(true);
-        this.gcThread.setName("SSH Tunnel pool GC");
-        if (this.config.getGcInterval() > 0) {
-            logger.debug("Starting SSH GC thread");
-            this.gcThread.start();
-        }
+        createAndStartGCThread();
+    }
+
+    /**
+     * Open the SSH connections to the given hosts in background
+     *
+     * The first socket to these hosts will not pay the connection setup. Pre-warmed connections are
+     * garbage collected like any other connection.
+     *
+     * @param hosts the gateway hosts
+     */
+    public void prewarm(final List<String> hosts) {
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                for (String host : hosts) {
+                    try {
+                        getPair(host).getConnection();
+                    } catch (IOException e) {
+                        logger.info("Failed to pre-warm SSH connection to " + host, e);
+                    }
+                }
+            }
+        };
+        t.setDaemon(true);
+        t.setName("SSH Tunnel pool pre-warm");
+        t.start();
     }
 
     /**
@@ -164,74 +204,134 @@ public class SshTunnelPool {
                     : null;
             // if proxyCommand command mechanism is needed
             if (gateway != null || outGateway != null) {
-                synchronized (this.proxyCommandCache) {
-                    SshProxyConnection cnx = null;
-                    List<ProxyPair> pairs = this.proxyCommandCache.get(gateway);
-                    if (pairs == null) {
-                        cnx = SshProxyConnection.getInstance(gateway, outGateway, config);
-                        pairs = new ArrayList<ProxyPair>();
-                        ProxyPair p = new ProxyPair(cnx);
-                        pairs.add(p);
-                        this.proxyCommandCache.put(gateway, pairs);
-                    }
+                socket = getProxySocket(gateway, outGateway, host, port);
+            }
+        }
 
-                    SshProxySession session = null;
-                    // For each connection, try to open a session
-                    for (int i = 0; i < pairs.size(); i++) {
-                        try {
-                            cnx = (SshProxyConnection) pairs.get(i).cnx;
-                            // Always create a new session because there are not Thread-Safe
-                            session = cnx.getSession(host, port);
-                            pairs.get(i).registerSession(session);
-                            break;
-                        } catch (IOException channelException) {
-                            continue;
-                        }
-                    }
+        if (socket == null) {
+            // SSH channel must be used
+            socket = getChannelSocket(host, port);
+        }
 
-                    if (session == null) {
-                        // No Connections permit to open a new session
-                        // Create a new connection
-                        cnx = SshProxyConnection.getInstance(gateway, outGateway, (SshConfig) config);
-                        session = cnx.getSession(host, port);
-                        ProxyPair pair = new ProxyPair(cnx);
-                        pair.registerSession(session);
-                        pairs.add(pair);
-                    }
+        return socket;
+    }
 
-                    // Grab a socket
-                    socket = session.getSocket();
-                }
+    private Socket getProxySocket(String gateway, String outGateway, String host, int port)
+            throws IOException {
+        // ConcurrentHashMap does not accept null keys
+        String key = String.valueOf(gateway);
+        List<ProxyPair> pairs = this.proxyCommandCache.get(key);
+        if (pairs == null) {
+            List<ProxyPair> newPairs = new ArrayList<ProxyPair>();
+            pairs = this.proxyCommandCache.putIfAbsent(key, newPairs);
+            if (pairs == null) {
+                pairs = newPairs;
             }
         }
 
-        if (socket == null) {
-            // SSH tunnel must be used
-            synchronized (this.cache) {
-                int sshPort = this.config.getPort(host);
-                String username = this.config.getUsername(host);
-
-                Pair pair = this.cache.get(host);
-                if (pair == null) {
-                    // Open a SSH connection
-                    SshConnection cnx = new SshConnection(username, host, sshPort, config
-                            .getPrivateKeyPath(host));
-                    pair = new Pair(cnx);
-                    this.cache.put(host, pair);
+        // Only the sockets through the same gateway are serialized
+        synchronized (pairs) {
+            SshProxyConnection cnx = null;
+            SshProxySession session = null;
+            // For each connection, try to open a session
+            for (int i = 0; i < pairs.size(); i++) {
+                try {
+                    cnx = (SshProxyConnection) pairs.get(i).cnx;
+                    // Always create a new session because there are not Thread-Safe
+                    session = cnx.getSession(host, port);
+                    pairs.get(i).registerSession(session);
+                    break;
+                } catch (IOException channelException) {
+                    continue;
                 }
+            }
 
-                SshTunnelStatefull tunnel = pair.getTunnel(host, port);
-                if (tunnel == null) {
-                    // Open a tunnel
-                    tunnel = createSshTunStatefull(pair.cnx, host, port);
-                    pair.registerTunnel(tunnel);
+            if (session == null) {
+                // No Connections permit to open a new session
+                // Create a new connection
+                cnx = SshProxyConnection.getInstance(gateway, outGateway, (SshConfig) config);
+                session = cnx.getSession(host, port);
+                ProxyPair pair = new ProxyPair(cnx);
+                pair.registerSession(session);
+                pairs.add(pair);
+            }
+
+            // Grab a socket
+            return session.getSocket();
+        }
+    }
+
+    private Socket getChannelSocket(String host, int port) throws IOException {
+        boolean retried = false;
+        while (true) {
+            Pair pair = getPair(host);
+            try {
+                Socket socket = pair.openSocket(host, port);
+                if (socket != null) {
+                    return socket;
+                }
+                // Garbage collected in the meantime, a fresh connection is needed
+                this.cache.remove(host, pair);
+            } catch (IOException e) {
+                // The connection is probably broken, retry once with a fresh one
+                if (this.cache.remove(host, pair)) {
+                    pair.close();
                 }
-                // Grab a socket
-                socket = tunnel.getSocket();
+                if (retried) {
+                    throw e;
+                }
+                logger.debug("Failed to open a SSH channel to " + host + ":" + port + ", reconnecting", e);
+                retried = true;
             }
         }
+    }
 
-        return socket;
+    private Pair getPair(String host) {
+        Pair pair = this.cache.get(host);
+        if (pair == null) {
+            Pair newPair = new Pair(host);
+            pair = this.cache.putIfAbsent(host, newPair);
+            if (pair == null) {
+                pair = newPair;
+            }
+        }
+        return pair;
+    }
+
+    /**
+     * Performs garbage collection of the SSH connections and proxy command sessions
+     */
+    void collectIdleConnections() {
+        logger.trace("Running garbage collection");
+
+        // Purge unused connections (no opened channel)
+        long ctime = System.currentTimeMillis();
+        for (Map.Entry<String, Pair> entry : this.cache.entrySet()) {
+            Pair p = entry.getValue();
+            if (p.retireIfIdle(ctime, this.config.getGcIdleTime())) {
+                this.cache.remove(entry.getKey(), p);
+                p.close();
+            }
+        }
+
+        // Purge unused proxyCommand sessions and connections (no opened session)
+        for (List<ProxyPair> lP : this.proxyCommandCache.values()) {
+            synchronized (lP) {
+                for (int i = lP.size() - 1; i >= 0; i--) {
+                    ProxyPair p = lP.get(i);
+                    for (int j = p.sessions.size() - 1; j >= 0; j--) {
+                        if (p.sessions.get(j).isUnused()) {
+                            p.sessions.remove(j);
+                        }
+                    }
+
+                    if (p.sessions.isEmpty()) {
+                        p.cnx.close();
+                        lP.remove(i);
+                    }
+                }
+            }
+        }
     }
 
     /**
@@ -286,93 +386,105 @@ public class SshTunnelPool {
         }
     }
 
-    // Cannot be static in SshTunnelStatefull 
-    private SshTunnelStatefull createSshTunStatefull(SshConnection connection, String remoteHost,
-            int remotePort) throws IOException {
-        int initialPort = ProActiveRandom.nextInt(65536 - 1024) + 1024;
-        for (int localPort = (initialPort == 65535) ? 1024 : (initialPort + 1); localPort != initialPort; localPort = (localPort == 65535) ? 1024
-                : (localPort + 1)) {
-
-            try {
-                logger.trace("initialPort:" + initialPort + " localPort:" + localPort);
-                SshTunnelStatefull tunnel = new SshTunnelStatefull(connection, remoteHost, remotePort,
-                    localPort);
-                return tunnel;
-            } catch (BindException e) {
-                // Try another port
-                if (logger.isDebugEnabled()) {
-                    logger.debug("The port " + localPort + " is not free");
-                }
-            }
-        }
-
-        throw new IOException("Failed to create a SSH Tunnel to " + remoteHost + ":" + remotePort);
-    }
-
     /**
-     * A SshTunnel which manage statistics about the number of opened sockets
+     * A SSH connection to a gateway host and statistics about the number of opened sockets
+     *
+     * Once retired by the garbage collector no socket can be opened, so the connection is never
+     * closed under a socket being opened.
      */
-    private class SshTunnelStatefull extends SshTunnel {
+    private class Pair {
+        final private String host;
+        /** Lazily opened */
+        private volatile SshConnection cnx;
+        /** Serializes the opening of the connection */
+        final private Object connectLock = new Object();
         /** number of currently open sockets */
-        final private AtomicInteger users = new AtomicInteger();
+        private int users;
         /** If users == 0, the timestamp of the last call to close() */
-        final private AtomicLong unusedSince = new AtomicLong();
+        private long unusedSince = System.currentTimeMillis();
+        /** Set by the garbage collector, no socket can be opened afterwards */
+        private boolean retired;
 
-        SshTunnelStatefull(SshConnection connection, String distantHost, int distantPort, int localPort)
-                throws IOException {
-            super(connection, distantHost, distantPort, localPort);
+        private Pair(String host) {
+            this.host = host;
         }
 
-        @Override
-        public Socket getSocket() throws IOException {
-            this.users.incrementAndGet();
-
-            InetSocketAddress address = new InetSocketAddress(ProActiveInet.getInstance().getInetAddress(),
-                this.getPort());
-            Socket socket = new Socket() {
-                public synchronized void close() throws IOException {
-                    synchronized (SshTunnelPool.this.cache) {
-                        unusedSince.set(System.currentTimeMillis());
-                        users.decrementAndGet();
+        SshConnection getConnection() throws IOException {
+            SshConnection c = this.cnx;
+            if (c == null) {
+                // Concurrent callers wait for the same connection
+                synchronized (this.connectLock) {
+                    c = this.cnx;
+                    if (c == null) {
+                        int sshPort = config.getPort(host);
+                        String username = config.getUsername(host);
+                        c = new SshConnection(username, host, sshPort, config.getPrivateKeyPath(host));
+                        this.cnx = c;
                     }
-                    super.close();
                 }
-            };
-            socket.connect(address);
-            return socket;
+            }
+            return c;
         }
 
-        public long unusedSince() {
-            if (this.users.get() == 0) {
-                return this.unusedSince.get();
-            } else {
-                return Long.MAX_VALUE;
+        /**
+         * @return a socket, or null if the connection has been retired
+         */
+        Socket openSocket(String remoteHost, int remotePort) throws IOException {
+            if (!acquire()) {
+                return null;
+            }
+            try {
+                return new SshChannelSocket(getConnection(), remoteHost, remotePort) {
+                    private boolean released = false;
+
+                    @Override
+                    public synchronized void close() throws IOException {
+                        if (!released) {
+                            released = true;
+                            release();
+                        }
+                        super.close();
+                    }
+                };
+            } catch (IOException e) {
+                release();
+                throw e;
             }
         }
-    }
 
-    private static class Pair {
-        final private SshConnection cnx;
-        final private Map<String, SshTunnelStatefull> tunnels;
-
-        private Pair(SshConnection cnx) {
-            this.cnx = cnx;
-            this.tunnels = new HashMap<String, SshTunnelStatefull>();
+        private synchronized boolean acquire() {
+            if (this.retired) {
+                return false;
+            }
+            this.users++;
+            return true;
         }
 
-        public SshTunnelStatefull getTunnel(String host, int port) {
-            return this.tunnels.get(buildKey(host, port));
+        private synchronized void release() {
+            this.unusedSince = System.currentTimeMillis();
+            this.users--;
         }
 
-        public void registerTunnel(SshTunnelStatefull tunnel) {
-            String host = tunnel.getDistantHost();
-            int port = tunnel.getRemotePort();
-
-            this.tunnels.put(buildKey(host, port), tunnel);
+        /**
+         * Retire the connection if it has no opened socket for more than idleTime ms
+         *
+         * @return true if the connection has been retired and must be closed
+         */
+        synchronized boolean retireIfIdle(long ctime, long idleTime) {
+            if (this.users == 0 && (ctime - this.unusedSince) > idleTime) {
+                this.retired = true;
+            }
+            return this.retired;
         }
 
-        private String buildKey(String host, int port) {
-            return host + ":" + port;
+        void close() {
+            synchronized (this) {
+                this.retired = true;
+            }
+            SshConnection c = this.cnx;
+            if (c != null) {
+                c.close();
+            }
         }
     }
 
@@ -394,77 +506,4 @@ public class SshTunnelPool {
         }
     }
 
-    /**
-     *  Performs garbage collection of the SSH tunnels and SSH connections
-     */
-    private final class GCThread implements Runnable {
-        private Sleeper sleeper;
-
-        public GCThread() {
-            this.sleeper = new Sleeper(config.getGcInterval(), ProActiveLogger.getLogger(Loggers.SLEEPER));
-        }
-
-        public void run() {
-            while (true) {
-                sleeper.sleep();
-
-                synchronized (SshTunnelPool.this.cache) {
-                    logger.trace("Running garbage collection");
-                    long ctime = System.currentTimeMillis(); // Avoid too many context switches
-
-                    // Purge unused tunnels
-                    for (Pair p : cache.values()) {
-                        for (Iterator<SshTunnelStatefull> iT = p.tunnels.values().iterator(); iT.hasNext();) {
-                            SshTunnelStatefull t = iT.next();
-                            if (ctime - t.unusedSince() > config.getGcInterval()) {
-                                try {
-                                    t.close();
-                                } catch (Exception e) {
-                                    logger.error("", e);
-                                }
-                                iT.remove();
-                            }
-                        }
-                    }
-
-                    // Purge unused proxyCommand session
-                    for (List<ProxyPair> lp : proxyCommandCache.values()) {
-                        for (ProxyPair p : lp) {
-                            for (int i = 0; i < p.sessions.size(); i++) {
-                                SshProxySession s = p.sessions.get(i);
-                                if (s.isUnused()) {
-                                    p.sessions.remove(i);
-                                }
-                            }
-                        }
-                    }
-
-                    // Purge unused connections (no opened tunnel)
-                    for (Iterator<Pair> iP = cache.values().iterator(); iP.hasNext();) {
-                        Pair p = iP.next();
-                        if (p.tunnels.isEmpty()) {
-                            p.cnx.close();
-                            iP.remove();
-                        }
-                    }
-
-                    // Purge unused proxyCommand connections (no opened session)
-                    for (Iterator<List<ProxyPair>> iLP = proxyCommandCache.values().iterator(); iLP.hasNext();) {
-                        List<ProxyPair> lP = iLP.next();
-                        for (int i = 0; i < lP.size(); i++) {
-                            ProxyPair p = lP.get(i);
-                            if (p.sessions.isEmpty()) {
-                                p.cnx.close();
-                                lP.remove(i);
-                            }
-                        }
-                        if (lP.size() == 0) {
-                            iLP.remove();
-                        }
-                    }
-
-                }
-            }
-        }
-    }
 }
@@ -383,9 +383,12 @@ public class SshTunnelSocketFactory extends SocketFactory {
 
             @Override
             public void close() throws IOException {
-                if (realSocket != null) {
-                    realSocket.close();
-                } else {
+                try {
+                    if (realSocket != null) {
+                        realSocket.close();
+                    }
+                } finally {
+                    // Options may have been set before the connection
                     super.close();
                 }
             }
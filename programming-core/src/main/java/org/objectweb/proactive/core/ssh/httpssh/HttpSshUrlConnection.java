@@ -41,7 +41,6 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.ProtocolException;
-import java.net.Socket;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Hashtable;
@@ -52,6 +51,7 @@ import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.objectweb.proactive.core.ssh.SshConfig;
+import org.objectweb.proactive.core.ssh.SshSocketForwarder;
 import org.objectweb.proactive.core.ssh.SshTunnelPool;
 import org.objectweb.proactive.core.util.log.Loggers;
 import org.objectweb.proactive.core.util.log.ProActiveLogger;
@@ -65,6 +65,7 @@ public class HttpSshUrlConnection extends java.net.HttpURLConnection {
     private HttpURLConnection _httpConnection;
     private java.util.Hashtable<String, List<String>> _properties;
     private SshTunnelPool tunnelPool;
+    private SshSocketForwarder forwarder;
 
     @Override
     protected void finalize() throws Throwable {
@@ -72,8 +73,12 @@ public class HttpSshUrlConnection extends java.net.HttpURLConnection {
     }
 
     public HttpSshUrlConnection(java.net.URL u) throws IOException {
+        this(u, new SshTunnelPool(new SshConfig()));
+    }
+
+    HttpSshUrlConnection(java.net.URL u, SshTunnelPool tunnelPool) {
         super(u);
-        this.tunnelPool = new SshTunnelPool(new SshConfig());
+        this.tunnelPool = tunnelPool;
         _properties = new Hashtable<String, List<String>>();
     }
 
@@ -162,6 +167,9 @@ public class HttpSshUrlConnection extends java.net.HttpURLConnection {
     @Override
     public void disconnect() {
         connected = false;
+        if (forwarder != null) {
+            forwarder.close();
+        }
     }
 
     @Override
@@ -278,9 +286,10 @@ public class HttpSshUrlConnection extends java.net.HttpURLConnection {
         logger.debug("create http " + url.toString());
         String host = u.getHost();
         int port = u.getPort();
-        Socket socket = tunnelPool.getSocket(host, port);
-        URL httpURL = new URL("http://" + socket.getInetAddress().getHostName() + ":" + socket.getPort() +
-            u.getPath());
+        // SSH channels have no address, HttpURLConnection connects to a local forwarded port
+        forwarder = new SshSocketForwarder(tunnelPool, host, port, (int) tunnelPool.getSshConfig()
+                .getGcIdleTime());
+        URL httpURL = new URL("http", forwarder.getHost(), forwarder.getPort(), u.getFile());
         _httpConnection = (HttpURLConnection) httpURL.openConnection();
         ensureSetup(_httpConnection);
     }
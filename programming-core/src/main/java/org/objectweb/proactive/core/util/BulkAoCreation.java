@@ -0,0 +1,145 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.util;
+
+import java.rmi.dgc.VMID;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.objectweb.proactive.core.UniqueID;
+import org.objectweb.proactive.core.body.UniversalBody;
+import org.objectweb.proactive.core.mop.MOP;
+import org.objectweb.proactive.core.mop.MOPException;
+import org.objectweb.proactive.core.node.Node;
+import org.objectweb.proactive.core.runtime.ProActiveRuntime;
+import org.objectweb.proactive.core.runtime.ProActiveRuntimeImpl;
+import org.objectweb.proactive.core.util.log.Loggers;
+import org.objectweb.proactive.core.util.log.ProActiveLogger;
+import org.objectweb.proactive.utils.NamedThreadFactory;
+
+
+/**
+ * Creates active objects in bulk. The creations targeting the same runtime are sent in a
+ * single {@link ProActiveRuntime#createBodies} call, and the runtimes are contacted in parallel.
+ */
+public class BulkAoCreation {
+    private static final Logger logger = ProActiveLogger.getLogger(Loggers.RUNTIME);
+
+    /**
+     * Creates one active object per element of <code>constructorParameters</code>, the i-th one
+     * on <code>nodes[i % nodes.length]</code>.
+     *
+     * @return the stubs of the new active objects, in the order of <code>constructorParameters</code>.
+     * An active object that cannot be created leaves a null entry.
+     */
+    public static Object[] newActives(final String className, final Class<?>[] genericParameters,
+            Object[][] constructorParameters, Node[] nodes) {
+        final Object[] result = new Object[constructorParameters.length];
+
+        Map<VMID, List<Integer>> byRuntime = new LinkedHashMap<VMID, List<Integer>>();
+        for (int i = 0; i < constructorParameters.length; i++) {
+            VMID vmid = nodes[i % nodes.length].getNodeInformation().getVMInformation().getVMID();
+            List<Integer> indexes = byRuntime.get(vmid);
+            if (indexes == null) {
+                indexes = new ArrayList<Integer>();
+                byRuntime.put(vmid, indexes);
+            }
+            indexes.add(i);
+        }
+
+        ExecutorService threadPool = Executors.newCachedThreadPool(new NamedThreadFactory(
+            "ProActive newActive in //"));
+        List<Future<?>> futures = new ArrayList<Future<?>>(byRuntime.size());
+        for (Map.Entry<VMID, List<Integer>> entry : byRuntime.entrySet()) {
+            final boolean isLocal = entry.getKey().equals(UniqueID.getCurrentVMID());
+            final List<Integer> indexes = entry.getValue();
+            final String[] nodeNames = new String[indexes.size()];
+            final Object[][] parameters = new Object[indexes.size()][];
+            for (int j = 0; j < indexes.size(); j++) {
+                int i = indexes.get(j);
+                nodeNames[j] = nodes[i % nodes.length].getNodeInformation().getName();
+                parameters[j] = constructorParameters[i];
+            }
+            final Node node = nodes[indexes.get(0) % nodes.length];
+
+            futures.add(threadPool.submit(new Runnable() {
+                public void run() {
+                    try {
+                        // Bodies created in this runtime must not be copied by a remote call
+                        ProActiveRuntime part = isLocal ? ProActiveRuntimeImpl.getProActiveRuntime() : node
+                                .getProActiveRuntime();
+                        UniversalBody[] bodies = part.createBodies(nodeNames, className, genericParameters,
+                                parameters, isLocal);
+                        for (int j = 0; j < bodies.length; j++) {
+                            if (bodies[j] != null) {
+                                result[indexes.get(j)] = MOP.createStubObject(className, genericParameters,
+                                        bodies[j]);
+                            }
+                        }
+                    } catch (MOPException e) {
+                        logger.error("Cannot create the stubs of the active objects created on " +
+                            node.getNodeInformation().getURL(), e);
+                    } catch (Exception e) {
+                        logger.error("Cannot create active objects on " + node.getNodeInformation().getURL(),
+                                e);
+                    }
+                }
+            }));
+        }
+        threadPool.shutdown();
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                logger.error("Bulk active object creation failed", e.getCause());
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+
+/**
+ * This class is a utility class for the caches keeping their entries in files: the keys of
+ * the entries are hexadecimal SHA-1 digests, and the files are written aside then renamed.
+ */
+public class CacheUtils {
+
+    private CacheUtils() {
+    }
+
+    /**
+     * @return a new SHA-1 message digest, every Java platform supports it
+     */
+    public static MessageDigest newSHA1Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param data the data to digest
+     * @return the hexadecimal SHA-1 digest of the data
+     */
+    public static String sha1Hex(byte[] data) {
+        return toHex(newSHA1Digest().digest(data));
+    }
+
+    /**
+     * @param bytes the bytes to convert, typically a digest
+     * @return the lowercase hexadecimal representation of the bytes
+     */
+    public static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Renames a file written aside over its target. The rename is atomic when the file system
+     * supports it, so that other threads and JVMs never read a partially written target.
+     *
+     * @param written the complete file, in the directory of the target
+     * @param target the file to replace
+     * @throws IOException if the file cannot be renamed
+     */
+    public static void moveInPlace(File written, File target) throws IOException {
+        try {
+            Files.move(written.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(written.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -36,8 +36,10 @@
  */
 package org.objectweb.proactive.core.util;
 
-import java.util.Hashtable;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
 import org.objectweb.proactive.core.runtime.ProActiveRuntimeImpl;
@@ -48,7 +50,9 @@ import org.objectweb.proactive.core.util.log.ProActiveLogger;
 /**
  * A cache for classes bytecode.
  * It also contains bytecodes of stubs generated
- * by the MOP.
+ * by the MOP, and the names of the classes which could not be found.
+ * A missing class is looked for again after {@link #MISSING_CLASS_TTL} ms, and at most
+ * {@link #MAX_MISSING_CLASSES} missing classes are remembered.
  *
  * @author The ProActive Team
  *
@@ -56,10 +60,18 @@ import org.objectweb.proactive.core.util.log.ProActiveLogger;
 public class ClassDataCache {
     static Logger logger = ProActiveLogger.getLogger(Loggers.CLASSLOADING);
     private static ClassDataCache classCache = new ClassDataCache();
+    /** Time during which a missing class is not looked for again, in milliseconds */
+    static final long MISSING_CLASS_TTL = 60000;
+    /** Maximum number of missing classes remembered */
+    static final int MAX_MISSING_CLASSES = 4096;
+
     private static Map<String, byte[]> classStorage;
+    /** The missing classes and the time they have been found missing, see System.nanoTime() */
+    private static ConcurrentHashMap<String, Long> missingClasses;
 
     private ClassDataCache() {
-        classStorage = new Hashtable<String, byte[]>();
+        classStorage = new ConcurrentHashMap<String, byte[]>();
+        missingClasses = new ConcurrentHashMap<String, Long>();
     }
 
     public static ClassDataCache instance() {
@@ -86,6 +98,7 @@ public class ClassDataCache {
                 ("ClassDataCache caching class " + fullname));
         }
         classStorage.put(fullname, classData);
+        missingClasses.remove(fullname);
     }
 
     /**
@@ -99,4 +112,59 @@ public class ClassDataCache {
         }
         return classStorage.get(fullname);
     }
+
+    /**
+     * Records that the bytecode of a class could not be found nor generated, until it is added.
+     * @param fullname the name of the class
+     */
+    public void addMissingClass(String fullname) {
+        addMissingClass(fullname, System.nanoTime());
+    }
+
+    void addMissingClass(String fullname, long now) {
+        if (classStorage.containsKey(fullname)) {
+            return;
+        }
+        if (missingClasses.size() >= MAX_MISSING_CLASSES) {
+            removeExpiredMissingClasses(now);
+            if (missingClasses.size() >= MAX_MISSING_CLASSES) {
+                // Still full: they will be looked for again
+                missingClasses.clear();
+            }
+        }
+        missingClasses.put(fullname, now);
+    }
+
+    /**
+     * Indicates whether the bytecode of a class is known to be unavailable
+     * @param fullname the name of the class
+     */
+    public boolean isMissing(String fullname) {
+        return isMissing(fullname, System.nanoTime());
+    }
+
+    boolean isMissing(String fullname, long now) {
+        Long since = missingClasses.get(fullname);
+        if (since == null) {
+            return false;
+        }
+        if (isExpired(since, now)) {
+            missingClasses.remove(fullname, since);
+            return false;
+        }
+        return true;
+    }
+
+    private static void removeExpiredMissingClasses(long now) {
+        Iterator<Long> it = missingClasses.values().iterator();
+        while (it.hasNext()) {
+            if (isExpired(it.next(), now)) {
+                it.remove();
+            }
+        }
+    }
+
+    private static boolean isExpired(long since, long now) {
+        return now - since >= TimeUnit.MILLISECONDS.toNanos(MISSING_CLASS_TTL);
+    }
 }
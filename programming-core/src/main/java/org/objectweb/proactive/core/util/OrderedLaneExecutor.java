@@ -0,0 +1,220 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.objectweb.proactive.core.util.log.Loggers;
+import org.objectweb.proactive.core.util.log.ProActiveLogger;
+import org.objectweb.proactive.utils.NamedThreadFactory;
+
+
+/**
+ * Runs tasks on a pool of threads, one at a time and in FIFO order for the tasks of a same key
+ *
+ * Each key has a lane: a bounded FIFO of tasks run by the threads of the pool. The submitter only
+ * waits when the lane of its key is full, a slow lane does not delay the other ones. A lane is
+ * retired when it becomes empty, a new one is created by the next task, so idle keys hold
+ * nothing.
+ *
+ * @param <K> the type of the keys
+ */
+public class OrderedLaneExecutor<K> {
+    final static private Logger logger = ProActiveLogger.getLogger(Loggers.CORE);
+
+    /** Maximum number of tasks of a lane run in a row, to be fair with the other lanes */
+    static final private int MAX_BURST = 64;
+
+    final private ThreadPoolExecutor pool;
+    /** Maximum number of pending tasks of a lane */
+    final private int capacity;
+    final private ConcurrentHashMap<K, Lane> lanes;
+
+    /**
+     * @param name the name of the threads
+     * @param threads the maximum number of threads
+     * @param capacity the maximum number of pending tasks of a key
+     */
+    public OrderedLaneExecutor(String name, int threads, int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.lanes = new ConcurrentHashMap<K, Lane>();
+        this.pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory(name, true));
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Runs a task after the tasks previously submitted with the same key, waits while the lane of
+     * the key is full
+     *
+     * @param key the key of the task
+     * @param task the task, its failures are logged
+     */
+    public void execute(K key, Runnable task) {
+        while (true) {
+            Lane lane = this.lanes.get(key);
+            if (lane == null) {
+                Lane newLane = new Lane(key);
+                lane = this.lanes.putIfAbsent(key, newLane);
+                if (lane == null) {
+                    lane = newLane;
+                }
+            }
+            if (lane.add(task)) {
+                return;
+            }
+            // The lane has been retired while we were looking it up
+        }
+    }
+
+    /**
+     * Waits until the tasks of a key submitted before this call have been run
+     *
+     * @param key the key
+     */
+    public void flush(K key) {
+        Lane lane = this.lanes.get(key);
+        if (lane != null) {
+            lane.flush();
+        }
+    }
+
+    /**
+     * Waits until all the tasks submitted before this call have been run, whatever their key
+     */
+    public void flushAll() {
+        for (Lane lane : new ArrayList<Lane>(this.lanes.values())) {
+            lane.flush();
+        }
+    }
+
+    /**
+     * The pending tasks of a key
+     */
+    private class Lane implements Runnable {
+        final private K key;
+        final private ArrayDeque<Runnable> tasks;
+        /** Whether a thread of the pool is running the tasks of this lane */
+        private boolean scheduled;
+        private boolean retired;
+        /** Numbers of tasks added to and run from this lane, to flush without starving */
+        private long added;
+        private long done;
+
+        Lane(K key) {
+            this.key = key;
+            this.tasks = new ArrayDeque<Runnable>();
+            this.scheduled = false;
+            this.retired = false;
+            this.added = 0;
+            this.done = 0;
+        }
+
+        /**
+         * @return false if the lane has been retired
+         */
+        boolean add(Runnable task) {
+            synchronized (this) {
+                while (!this.retired && (this.tasks.size() >= OrderedLaneExecutor.this.capacity)) {
+                    try {
+                        this.wait();
+                    } catch (InterruptedException ie) {
+                        // Keep the task, the interruption is for the caller
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                if (this.retired) {
+                    return false;
+                }
+                this.tasks.add(task);
+                this.added++;
+                if (this.scheduled) {
+                    return true;
+                }
+                this.scheduled = true;
+            }
+            OrderedLaneExecutor.this.pool.execute(this);
+            return true;
+        }
+
+        synchronized void flush() {
+            long target = this.added;
+            while (this.done < target) {
+                try {
+                    this.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        public void run() {
+            int burst = Math.min(OrderedLaneExecutor.this.capacity, MAX_BURST);
+            for (int i = 0; i < burst; i++) {
+                Runnable task;
+                synchronized (this) {
+                    task = this.tasks.peek();
+                }
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    logger.error("Task of lane " + this.key + " failed", t);
+                }
+                synchronized (this) {
+                    this.tasks.poll();
+                    this.done++;
+                    this.notifyAll();
+                    if (this.tasks.isEmpty()) {
+                        this.scheduled = false;
+                        this.retired = true;
+                        OrderedLaneExecutor.this.lanes.remove(this.key, this);
+                        return;
+                    }
+                }
+            }
+            OrderedLaneExecutor.this.pool.execute(this);
+        }
+    }
+}
@@ -119,6 +119,7 @@ public interface Loggers {
     static final public String MESSAGE_TAGGING = CORE + ".messagetagging";
     static final public String MESSAGE_TAGGING_LOCALMEMORY = MESSAGE_TAGGING + ".localmemory";
     static final public String MESSAGE_TAGGING_LOCALMEMORY_LEASING = MESSAGE_TAGGING_LOCALMEMORY + ".leasing";
+    static final public String MESSAGE_TAGGING_TRACING = MESSAGE_TAGGING + ".tracing";
 
     // Exceptions
     public static final String EXCEPTIONS = CORE + ".exceptions";
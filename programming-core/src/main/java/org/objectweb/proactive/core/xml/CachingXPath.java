@@ -0,0 +1,126 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.xml;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFunctionResolver;
+import javax.xml.xpath.XPathVariableResolver;
+
+import org.xml.sax.InputSource;
+
+
+/**
+ * An {@link XPath} compiling each expression only once
+ *
+ * Descriptor parsers evaluate the same constant expressions again and again. This XPath keeps the
+ * compiled form of each evaluated expression. Like any XPath, it is not thread safe.
+ */
+public class CachingXPath implements XPath {
+    final private XPath xpath;
+
+    final private Map<String, XPathExpression> expressions;
+
+    public CachingXPath(XPath xpath) {
+        this.xpath = xpath;
+        this.expressions = new HashMap<String, XPathExpression>();
+    }
+
+    public void reset() {
+        xpath.reset();
+        expressions.clear();
+    }
+
+    public void setXPathVariableResolver(XPathVariableResolver resolver) {
+        xpath.setXPathVariableResolver(resolver);
+        expressions.clear();
+    }
+
+    public XPathVariableResolver getXPathVariableResolver() {
+        return xpath.getXPathVariableResolver();
+    }
+
+    public void setXPathFunctionResolver(XPathFunctionResolver resolver) {
+        xpath.setXPathFunctionResolver(resolver);
+        expressions.clear();
+    }
+
+    public XPathFunctionResolver getXPathFunctionResolver() {
+        return xpath.getXPathFunctionResolver();
+    }
+
+    public void setNamespaceContext(NamespaceContext nsContext) {
+        xpath.setNamespaceContext(nsContext);
+        expressions.clear();
+    }
+
+    public NamespaceContext getNamespaceContext() {
+        return xpath.getNamespaceContext();
+    }
+
+    public XPathExpression compile(String expression) throws XPathExpressionException {
+        XPathExpression compiled = expressions.get(expression);
+        if (compiled == null) {
+            compiled = xpath.compile(expression);
+            expressions.put(expression, compiled);
+        }
+        return compiled;
+    }
+
+    public Object evaluate(String expression, Object item, QName returnType) throws XPathExpressionException {
+        return compile(expression).evaluate(item, returnType);
+    }
+
+    public String evaluate(String expression, Object item) throws XPathExpressionException {
+        return compile(expression).evaluate(item);
+    }
+
+    public Object evaluate(String expression, InputSource source, QName returnType)
+            throws XPathExpressionException {
+        return compile(expression).evaluate(source, returnType);
+    }
+
+    public String evaluate(String expression, InputSource source) throws XPathExpressionException {
+        return compile(expression).evaluate(source);
+    }
+}
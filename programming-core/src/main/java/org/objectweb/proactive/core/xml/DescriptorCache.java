@@ -0,0 +1,236 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.apache.log4j.Logger;
+import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
+import org.objectweb.proactive.core.util.CacheUtils;
+import org.objectweb.proactive.core.util.log.Loggers;
+import org.objectweb.proactive.core.util.log.ProActiveLogger;
+import org.xml.sax.SAXException;
+
+
+/**
+ * A bounded cache of compiled deployment descriptors
+ *
+ * Descriptors are identified by a digest of their content and of all the parameters which can
+ * change the result of the compilation (variables, schemas...). The cache holds at most
+ * {@link CentralPAPropertyRepository#PA_DESCRIPTOR_CACHE_SIZE} entries, the least recently used
+ * entry is evicted first. A size of 0, the default, disables the cache.
+ *
+ * Compiled descriptors are only kept in the memory of the JVM: a JVM which deploys the same
+ * descriptor several times benefits from the cache, a launcher deploying it once does not.
+ *
+ * Compiled XML {@link Schema} are immutable and thread safe, they are shared by all the parsers
+ * through {@link #getSchema(List)}. At most {@link #MAX_SCHEMAS} schemas are kept.
+ *
+ * @param <V> the compiled form of a descriptor
+ */
+public class DescriptorCache<V> {
+    static final Logger logger = ProActiveLogger.getLogger(Loggers.XML);
+
+    /** Maximum number of compiled schemas kept, the least recently used is evicted first */
+    static final int MAX_SCHEMAS = 32;
+
+    static final private Map<List<String>, Schema> schemas = new LinkedHashMap<List<String>, Schema>(16,
+        0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<String>, Schema> eldest) {
+            return size() > MAX_SCHEMAS;
+        }
+    };
+
+    final private int capacity;
+
+    final private LinkedHashMap<String, V> entries;
+
+    public DescriptorCache() {
+        this(CentralPAPropertyRepository.PA_DESCRIPTOR_CACHE_SIZE.getValue());
+    }
+
+    public DescriptorCache(final int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<String, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @return true if compiled descriptors are kept
+     */
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /**
+     * @param key
+     *            a key computed by {@link #computeKey(URL, Object...)}
+     * @return the compiled descriptor or null if not cached
+     */
+    public synchronized V get(String key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(String key, V compiled) {
+        if (isEnabled()) {
+            entries.put(key, compiled);
+        }
+    }
+
+    public synchronized void remove(String key) {
+        entries.remove(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Computes the cache key of a descriptor
+     *
+     * @param descriptor
+     *            the descriptor location, its content is read to compute the key
+     * @param parameters
+     *            everything which can change the compiled form of the descriptor. The string
+     *            representation of each parameter is used, the entries of a {@link Map} are
+     *            sorted by the string representation of their key.
+     * @return an hexadecimal SHA-1 digest
+     * @throws IOException
+     *             if the descriptor cannot be read
+     */
+    public static String computeKey(URL descriptor, Object... parameters) throws IOException {
+        MessageDigest md = CacheUtils.newSHA1Digest();
+
+        InputStream is = descriptor.openStream();
+        try {
+            byte[] buf = new byte[8192];
+            int read;
+            while ((read = is.read(buf)) != -1) {
+                md.update(buf, 0, read);
+            }
+        } finally {
+            is.close();
+        }
+
+        for (Object parameter : parameters) {
+            md.update((byte) 0);
+            md.update(String.valueOf(canonicalize(parameter)).getBytes("UTF-8"));
+        }
+
+        return CacheUtils.toHex(md.digest());
+    }
+
+    /**
+     * @return the parameter, or a sorted view of it if the iteration order of a map would change its
+     *         string representation
+     */
+    private static Object canonicalize(Object parameter) {
+        if (parameter instanceof Map) {
+            Map<String, String> sorted = new TreeMap<String, String>();
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) parameter).entrySet()) {
+                sorted.put(String.valueOf(e.getKey()), String.valueOf(canonicalize(e.getValue())));
+            }
+            return sorted;
+        }
+        return parameter;
+    }
+
+    /**
+     * Returns the W3C XML schema compiled from the given locations
+     *
+     * Schemas are compiled once then shared.
+     *
+     * @param locations
+     *            schema URLs, order matters
+     * @return the compiled schema
+     * @throws SAXException
+     *             if a schema cannot be compiled
+     */
+    public static Schema getSchema(List<String> locations) throws SAXException {
+        List<String> key = new ArrayList<String>(locations);
+        Schema schema;
+        synchronized (schemas) {
+            schema = schemas.get(key);
+        }
+        if (schema == null) {
+            SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+
+            Source[] schemaSources = new Source[key.size()];
+            int idx = 0;
+            for (String s : key) {
+                schemaSources[idx++] = new StreamSource(s);
+            }
+
+            schema = schemaFactory.newSchema(schemaSources);
+            synchronized (schemas) {
+                schemas.put(key, schema);
+            }
+            logger.debug("Compiled schema " + key);
+        }
+
+        return schema;
+    }
+
+    static int getSchemaCount() {
+        synchronized (schemas) {
+            return schemas.size();
+        }
+    }
+}
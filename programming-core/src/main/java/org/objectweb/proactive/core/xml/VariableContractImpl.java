@@ -482,6 +482,7 @@ public class VariableContractImpl implements VariableContract, Serializable, Clo
         try {
             vContract = (VariableContractImpl) super.clone();
             vContract.closed = this.closed;
+            vContract.variablesMap = new HashMap<String, PropertiesDatas>();
             for (String key : variablesMap.keySet()) {
                 PropertiesDatas data = variablesMap.get(key);
 
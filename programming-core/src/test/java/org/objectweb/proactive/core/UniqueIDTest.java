@@ -0,0 +1,207 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.rmi.dgc.VMID;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.junit.After;
+import org.junit.Test;
+
+
+public class UniqueIDTest {
+
+    /** new UniqueID("id") serialized by the UID/VMID based class of ProActive 63 */
+    static final String BASELINE = ""
+        + "rO0ABXNyACVvcmcub2JqZWN0d2ViLnByb2FjdGl2ZS5jb3JlLlVuaXF1ZUlEAAAAAAAAAD8CAANMAAJpZHQAFUxq"
+        + "YXZhL3JtaS9zZXJ2ZXIvVUlEO0wACmlkZW50aWZpZXJ0ABJMamF2YS9sYW5nL1N0cmluZztMAAR2bUlEdAATTGph"
+        + "dmEvcm1pL2RnYy9WTUlEO3hwc3IAE2phdmEucm1pLnNlcnZlci5VSUQPEnANvzZPEgIAA1MABWNvdW50SgAEdGlt"
+        + "ZUkABnVuaXF1ZXhwgAEAAAGhVUrOGp7qH0d0AAJpZHNyABFqYXZhLnJtaS5kZ2MuVk1JRPiGW6+kpW22AgACWwAE"
+        + "YWRkcnQAAltCTAADdWlkcQB+AAF4cHVyAAJbQqzzF/gGCFTgAgAAeHAAAAAI2tVe77OgLu5zcQB+AAWAAAAAAaFV"
+        + "Ss4anuofRw==";
+    static final String BASELINE_CANON = ""
+        + "id-6115e0b9-1a1554ace1a--7fff--dad55eefb3a02eee--6115e0b9-1a1554ace1a--8000";
+
+    @After
+    public void after() {
+        UniqueID.setCompactWireFormat(false);
+    }
+
+    @Test
+    public void idsAreOrderedByCanonString() {
+        UniqueID u0 = new UniqueID();
+        UniqueID u1 = new UniqueID();
+        int order = Integer.signum(u0.getCanonString().compareTo(u1.getCanonString()));
+        assertTrue(order != 0);
+        assertEquals(order, Integer.signum(u0.compareTo(u1)));
+        assertEquals(-order, Integer.signum(u1.compareTo(u0)));
+        assertEquals(0, u0.compareTo(u0));
+        assertTrue(!u0.equals(u1));
+    }
+
+    @Test
+    public void legacyRoundTrip() throws Exception {
+        roundTrip(false);
+    }
+
+    @Test
+    public void compactRoundTrip() throws Exception {
+        roundTrip(true);
+    }
+
+    private void roundTrip(boolean compact) throws Exception {
+        UniqueID.setCompactWireFormat(compact);
+        UniqueID u = new UniqueID("id");
+        String canon = u.getCanonString();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(u);
+        oos.close();
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+        UniqueID copy = (UniqueID) ois.readObject();
+
+        assertNotSame(u, copy);
+        assertEquals(u, copy);
+        assertEquals(u.hashCode(), copy.hashCode());
+        assertEquals(0, u.compareTo(copy));
+        assertEquals(u.getUID(), copy.getUID());
+        assertSame(u.getVMID(), copy.getVMID());
+        assertEquals(canon, copy.getCanonString());
+    }
+
+    @Test
+    public void readBaselineBytes() throws Exception {
+        UniqueID u = (UniqueID) read(baselineBytes());
+        assertEquals(BASELINE_CANON, u.getCanonString());
+        assertEquals(u, read(baselineBytes()));
+        assertSame(u.getVMID(), ((UniqueID) read(baselineBytes())).getVMID());
+
+        // Written back in both formats, it is still the same id
+        assertEquals(u, read(write(u)));
+        assertEquals(BASELINE_CANON, ((UniqueID) read(write(u))).getCanonString());
+        UniqueID.setCompactWireFormat(true);
+        UniqueID compact = (UniqueID) read(write(u));
+        assertEquals(u, compact);
+        assertEquals(u.getUID(), compact.getUID());
+        assertEquals(BASELINE_CANON, compact.getCanonString());
+    }
+
+    @Test
+    public void sameUIDOnOtherVMIsNotEqual() throws Exception {
+        byte[] bytes = baselineBytes();
+        // Change the address of the VMID, keep its UID and the one of the UniqueID
+        int addr = indexOf(bytes, DatatypeConverter.parseHexBinary("dad55eefb3a02eee"));
+        bytes[addr] ^= 1;
+        UniqueID u = (UniqueID) read(baselineBytes());
+        UniqueID other = (UniqueID) read(bytes);
+
+        assertEquals(u.getUID(), other.getUID());
+        assertFalse(u.getVMID().equals(other.getVMID()));
+        assertFalse(u.equals(other));
+        assertTrue(u.compareTo(other) != 0);
+        assertEquals(-Integer.signum(u.compareTo(other)), Integer.signum(other.compareTo(u)));
+    }
+
+    @Test
+    public void unusedVMIDsAreForgotten() throws Exception {
+        UniqueID u = (UniqueID) read(baselineBytes());
+        WeakReference<VMID> vmID = new WeakReference<VMID>(u.getVMID());
+        u = null;
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (vmID.get() != null && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(vmID.get());
+
+        // Read again, it is still the same id
+        assertEquals(BASELINE_CANON, ((UniqueID) read(baselineBytes())).getCanonString());
+    }
+
+    /**
+     * Released builds stamp the same serialVersionUID on every class, builds from the sources
+     * compute it. Put the one of the class under test in the baseline stream.
+     */
+    private static byte[] baselineBytes() {
+        byte[] bytes = DatatypeConverter.parseBase64Binary(BASELINE);
+        byte[] name = UniqueID.class.getName().getBytes(Charset.forName("UTF-8"));
+        int suid = indexOf(bytes, name) + name.length;
+        long serialVersionUID = ObjectStreamClass.lookup(UniqueID.class).getSerialVersionUID();
+        ByteBuffer.wrap(bytes, suid, 8).putLong(serialVersionUID);
+        return bytes;
+    }
+
+    private static int indexOf(byte[] bytes, byte[] sub) {
+        for (int i = 0; i + sub.length <= bytes.length; i++) {
+            if (Arrays.equals(sub, Arrays.copyOfRange(bytes, i, i + sub.length))) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("not found");
+    }
+
+    private static byte[] write(Object o) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(o);
+        oos.close();
+        return baos.toByteArray();
+    }
+
+    private static Object read(byte[] bytes) throws Exception {
+        return new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.objectweb.proactive.core.UniqueID;
+
+
+public class LocalBodyStoreTest {
+
+    @Test
+    public void returningBodyReplacesTheBodyItLeft() {
+        LocalBodyStore store = LocalBodyStore.getInstance();
+        TestBody left = new TestBody(new UniqueID());
+        TestBody back = new TestBody(left.getID());
+
+        store.registerBody(left);
+        store.registerBody(back);
+        assertSame(back, store.getLocalBody(left.getID()));
+
+        // The body which left unregisters after the new one arrived
+        store.unregisterBody(left);
+        assertSame(back, store.getLocalBody(left.getID()));
+        assertSame(back, store.getLocalBodies().getBody(left.getID()));
+    }
+
+    @Test
+    public void halfBodyIsRemovedOnlyByItself() {
+        LocalBodyStore store = LocalBodyStore.getInstance();
+        TestBody first = new TestBody(new UniqueID());
+        TestBody second = new TestBody(first.getID());
+
+        store.registerHalfBody(first);
+        store.registerHalfBody(second);
+        store.unregisterHalfBody(first);
+        assertSame(second, store.getLocalHalfBody(first.getID()));
+
+        store.unregisterHalfBody(second);
+        assertNull(store.getLocalHalfBody(first.getID()));
+    }
+
+    @Test
+    public void forwarderIsRemovedOnlyByItself() {
+        LocalBodyStore store = LocalBodyStore.getInstance();
+        TestBody first = new TestBody(new UniqueID());
+        TestBody second = new TestBody(first.getID());
+
+        store.registerForwarder(first);
+        store.registerForwarder(second);
+        store.unregisterForwarder(first);
+        assertSame(second, store.getForwarder(first.getID()));
+
+        store.unregisterForwarder(second);
+        assertNull(store.getForwarder(first.getID()));
+    }
+
+    /**
+     * A ProActive internal body, no JMX notification is sent for it
+     */
+    private static class TestBody extends ActiveBody {
+        TestBody(UniqueID id) {
+            this.bodyID = id;
+            this.isProActiveInternalObject = true;
+        }
+
+        @Override
+        public Object getReifiedObject() {
+            return this;
+        }
+    }
+}
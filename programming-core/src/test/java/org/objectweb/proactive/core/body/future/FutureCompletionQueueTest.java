@@ -0,0 +1,102 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.objectweb.proactive.core.ProActiveTimeoutException;
+
+
+public class FutureCompletionQueueTest {
+
+    @Test
+    public void futuresAreTakenInUpdateOrder() throws Exception {
+        FutureProxy f0 = new FutureProxy();
+        FutureProxy f1 = new FutureProxy();
+        FutureProxy f2 = new FutureProxy();
+        FutureCompletionQueue<Object> queue = new FutureCompletionQueue<Object>(Arrays.<Object> asList(f0,
+                f1, f2));
+
+        assertNull(queue.poll());
+        f2.receiveReply(new MethodCallResult("2", null));
+        f0.receiveReply(new MethodCallResult("0", null));
+
+        assertEquals(2, queue.takeIndex(0));
+        assertSame(f0, queue.take());
+        assertEquals(1, queue.size());
+
+        f1.receiveReply(new MethodCallResult("1", null));
+        assertSame(f1, queue.take());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void availableObjectsAreQueuedImmediately() throws Exception {
+        FutureProxy awaited = new FutureProxy();
+        FutureCompletionQueue<Object> queue = new FutureCompletionQueue<Object>(Arrays.<Object> asList(
+                awaited, "value"));
+
+        assertEquals(1, queue.takeIndex(0));
+    }
+
+    @Test
+    public void chainedFutureIsQueuedWhenLastIsUpdated() throws Exception {
+        FutureProxy outer = new FutureProxy();
+        FutureProxy inner = new FutureProxy();
+        FutureCompletionQueue<Object> queue = new FutureCompletionQueue<Object>(Arrays
+                .<Object> asList(outer));
+
+        outer.receiveReply(new MethodCallResult(inner, null));
+        assertNull(queue.poll());
+
+        inner.receiveReply(new MethodCallResult("value", null));
+        assertSame(outer, queue.poll());
+    }
+
+    @Test(expected = ProActiveTimeoutException.class)
+    public void timeout() throws Exception {
+        FutureCompletionQueue<Object> queue = new FutureCompletionQueue<Object>();
+        queue.add(new FutureProxy());
+        queue.takeIndex(10);
+    }
+}
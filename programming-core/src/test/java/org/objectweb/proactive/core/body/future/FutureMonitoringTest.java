@@ -0,0 +1,143 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.junit.Test;
+import org.objectweb.proactive.core.UniqueID;
+import org.objectweb.proactive.core.body.UniversalBody;
+import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
+
+
+public class FutureMonitoringTest {
+    /** Longer than any TTM used by the tests, so that the mean is not clamped to the TTM */
+    private static final long INTERVAL = 1000000;
+
+    @Test
+    public void phiGrowsLinearlyWithTheSilence() {
+        FutureMonitoring.PeerRuntime peer = new FutureMonitoring.PeerRuntime("node", 0);
+        for (int i = 1; i <= 10; i++) {
+            peer.heartbeatReceived(i * INTERVAL);
+        }
+        long last = 10 * INTERVAL;
+
+        assertEquals(0, peer.phi(last), 1e-9);
+        // phi = -log10(e^(-t/mean)) with exponentially distributed intervals
+        assertEquals(1, peer.phi(last + (long) (INTERVAL * Math.log(10))), 1e-6);
+        assertEquals(2 * peer.phi(last + INTERVAL), peer.phi(last + 2 * INTERVAL), 1e-9);
+    }
+
+    @Test
+    public void phiFollowsTheMeanInterval() {
+        FutureMonitoring.PeerRuntime regular = new FutureMonitoring.PeerRuntime("node", 0);
+        FutureMonitoring.PeerRuntime slow = new FutureMonitoring.PeerRuntime("node", 0);
+        for (int i = 1; i <= 10; i++) {
+            regular.heartbeatReceived(i * INTERVAL);
+            slow.heartbeatReceived(i * 4 * INTERVAL);
+        }
+
+        // The same silence is less suspicious for a runtime which answers slowly
+        long silence = 3 * INTERVAL;
+        assertEquals(4 * slow.phi(40 * INTERVAL + silence), regular.phi(10 * INTERVAL + silence), 1e-9);
+    }
+
+    @Test
+    public void suspicionThreshold() {
+        FutureMonitoring.PeerRuntime peer = new FutureMonitoring.PeerRuntime("node", 0);
+        for (int i = 1; i <= 10; i++) {
+            peer.heartbeatReceived(i * INTERVAL);
+        }
+        long last = 10 * INTERVAL;
+        int threshold = CentralPAPropertyRepository.PA_FUTUREMONITORING_PHI_THRESHOLD.getValue();
+        long silenceAtThreshold = (long) (threshold * INTERVAL * Math.log(10));
+
+        assertFalse(peer.isSuspected(last + silenceAtThreshold - 1000));
+        assertTrue(peer.isSuspected(last + silenceAtThreshold + 1000));
+    }
+
+    @Test
+    public void bodiesAreGroupedByCurrentLocation() throws Exception {
+        UniqueID id = new UniqueID();
+        FutureProxy future = new FutureProxy();
+        future.setID(1);
+        future.setCreatorID(new UniqueID());
+        future.setUpdater(updater(id, "rmi://host/nodeA"));
+        FutureMonitoring.monitorFutureProxy(future);
+        assertEquals("rmi://host/nodeA", FutureMonitoring.getMonitoredLocation(id));
+
+        // After a migration, the body joins the group of its new node
+        FutureMonitoring.relocate(id, "rmi://other/nodeB");
+        assertEquals("rmi://other/nodeB", FutureMonitoring.getMonitoredLocation(id));
+
+        FutureMonitoring.removeFuture(future);
+        assertNull(FutureMonitoring.getMonitoredLocation(id));
+    }
+
+    @Test
+    public void unmonitoredBodiesAreNotRelocated() {
+        UniqueID id = new UniqueID();
+        FutureMonitoring.relocate(id, "elsewhere");
+        assertNull(FutureMonitoring.getMonitoredLocation(id));
+    }
+
+    private static UniversalBody updater(final UniqueID id, final String nodeUrl) {
+        return (UniversalBody) Proxy.newProxyInstance(UniversalBody.class.getClassLoader(),
+                new Class<?>[] { UniversalBody.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if (name.equals("getID")) {
+                            return id;
+                        } else if (name.equals("getNodeURL")) {
+                            return nodeUrl;
+                        } else if (name.equals("equals")) {
+                            return proxy == args[0];
+                        } else if (name.equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        }
+                        return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.proactive.Body;
+import org.objectweb.proactive.core.UniqueID;
+import org.objectweb.proactive.core.body.exceptions.BatchedReplyException;
+import org.objectweb.proactive.core.body.reply.Reply;
+import org.objectweb.proactive.core.body.reply.ReplyImpl;
+
+
+public class FuturePoolTest {
+
+    private FuturePool pool;
+
+    private UniqueID creatorID;
+
+    @Before
+    public void setUp() {
+        this.creatorID = new UniqueID();
+        this.pool = new FuturePool();
+        this.pool.setOwnerBody(owner(this.creatorID));
+    }
+
+    @Test
+    public void batchUpdatesAllFuturesInOnePass() throws Exception {
+        FutureProxy f1 = future(1);
+        FutureProxy f2 = future(2);
+
+        this.pool.receiveFutureValues(Arrays.<Reply> asList(reply(1, "v1"), reply(2, "v2"), reply(3, "v3")));
+
+        assertEquals("v1", f1.getResult());
+        assertEquals("v2", f2.getResult());
+        // a value arrived before its future is kept for it
+        assertEquals("v3", future(3).getResult());
+    }
+
+    @Test
+    public void failedReplyDoesNotPreventTheOthers() throws Exception {
+        FutureProxy f1 = future(1);
+        FutureProxy f2 = future(2);
+        FutureProxy f3 = future(3);
+        // a second value for f2 is rejected
+        f2.receiveReply(new MethodCallResult("already", null));
+
+        try {
+            this.pool.receiveFutureValues(Arrays.<Reply> asList(reply(1, "v1"), reply(2, "v2"), reply(3,
+                    "v3")));
+            fail("BatchedReplyException expected");
+        } catch (BatchedReplyException e) {
+            assertArrayEquals(new int[] { 1 }, e.getFailedReplies());
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        assertEquals("v1", f1.getResult());
+        assertEquals("v3", f3.getResult());
+        assertFalse(f3.isAwaited());
+    }
+
+    private FutureProxy future(long id) throws Exception {
+        FutureProxy future = new FutureProxy();
+        future.setID(id);
+        future.setCreatorID(this.creatorID);
+        this.pool.receiveFuture(future);
+        return future;
+    }
+
+    private Reply reply(long id, Object value) {
+        return new ReplyImpl(this.creatorID, id, "m" + id, new MethodCallResult(value, null));
+    }
+
+    private static Body owner(final UniqueID id) {
+        return (Body) Proxy.newProxyInstance(Body.class.getClassLoader(), new Class<?>[] { Body.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getName().equals("getID")) {
+                            return id;
+                        }
+                        return null;
+                    }
+                });
+    }
+}
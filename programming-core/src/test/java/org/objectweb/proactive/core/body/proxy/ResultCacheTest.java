@@ -0,0 +1,150 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.objectweb.proactive.core.UniqueID;
+import org.objectweb.proactive.core.body.future.FutureProxy;
+import org.objectweb.proactive.core.body.future.MethodCallResult;
+import org.objectweb.proactive.core.mop.Proxy;
+import org.objectweb.proactive.core.mop.StubObject;
+
+
+public class ResultCacheTest {
+
+    @Test
+    public void keysCompareArgumentValues() {
+        UniqueID id = new UniqueID();
+        ResultCache.put(ResultCache.key(id, "m", "([I)", new Object[] { new int[] { 1, 2 } }), "a", 0);
+        assertEquals("a", ResultCache.get(ResultCache.key(id, "m", "([I)", new Object[] { new int[] { 1,
+                2 } })));
+        assertSame(ResultCache.MISS, ResultCache.get(ResultCache.key(id, "m", "([I)",
+                new Object[] { new int[] { 2, 1 } })));
+    }
+
+    @Test
+    public void invalidateDropsNamedMethodsOnly() {
+        UniqueID id = new UniqueID();
+        UniqueID other = new UniqueID();
+        ResultCache.put(ResultCache.key(id, "a", "()", new Object[0]), "a", 0);
+        ResultCache.put(ResultCache.key(id, "b", "()", new Object[0]), "b", 0);
+        ResultCache.put(ResultCache.key(other, "a", "()", new Object[0]), "c", 0);
+
+        ResultCache.invalidate(id, new String[] { "a" });
+        assertSame(ResultCache.MISS, ResultCache.get(ResultCache.key(id, "a", "()", new Object[0])));
+        assertEquals("b", ResultCache.get(ResultCache.key(id, "b", "()", new Object[0])));
+        assertEquals("c", ResultCache.get(ResultCache.key(other, "a", "()", new Object[0])));
+    }
+
+    @Test
+    public void resultFetchedAcrossInvalidationIsNotCached() {
+        UniqueID id = new UniqueID();
+        ResultCache.Key key = ResultCache.key(id, "m", "()", new Object[0]);
+        ResultCache.invalidate(id, null);
+        ResultCache.put(key, "stale", 0);
+        assertSame(ResultCache.MISS, ResultCache.get(ResultCache.key(id, "m", "()", new Object[0])));
+    }
+
+    @Test
+    public void modifyingAnArgumentDoesNotModifyTheKey() {
+        UniqueID id = new UniqueID();
+        int[] values = { 1, 2 };
+        Object[] nested = { new int[] { 3 } };
+        ResultCache.put(ResultCache.key(id, "m", "([I[Ljava/lang/Object;)", new Object[] { values, nested }),
+                "a", 0);
+        values[0] = 5;
+        ((int[]) nested[0])[0] = 6;
+
+        assertEquals("a", ResultCache.get(ResultCache.key(id, "m", "([I[Ljava/lang/Object;)", new Object[] {
+                new int[] { 1, 2 }, new Object[] { new int[] { 3 } } })));
+        assertSame(ResultCache.MISS, ResultCache.get(ResultCache.key(id, "m", "([I[Ljava/lang/Object;)",
+                new Object[] { values, nested })));
+    }
+
+    @Test
+    public void futureIsCachedWhenItsValueArrives() throws Exception {
+        UniqueID id = new UniqueID();
+        FutureStub future = new FutureStub();
+        ResultCache.put(ResultCache.key(id, "m", "()", new Object[0]), future, 0);
+        assertSame(ResultCache.MISS, ResultCache.get(ResultCache.key(id, "m", "()", new Object[0])));
+
+        future.proxy.receiveReply(new MethodCallResult("value", null));
+        assertSame(future, ResultCache.get(ResultCache.key(id, "m", "()", new Object[0])));
+    }
+
+    @Test
+    public void futureUpdatedAfterAnInvalidationIsNotCached() throws Exception {
+        UniqueID id = new UniqueID();
+        FutureStub future = new FutureStub();
+        ResultCache.put(ResultCache.key(id, "m", "()", new Object[0]), future, 0);
+        ResultCache.invalidate(id, null);
+
+        future.proxy.receiveReply(new MethodCallResult("stale", null));
+        assertSame(ResultCache.MISS, ResultCache.get(ResultCache.key(id, "m", "()", new Object[0])));
+    }
+
+    @Test
+    public void exceptionIsNotCached() throws Exception {
+        UniqueID id = new UniqueID();
+        FutureStub future = new FutureStub();
+        ResultCache.put(ResultCache.key(id, "m", "()", new Object[0]), future, 0);
+
+        future.proxy.receiveReply(new MethodCallResult(null, new IllegalStateException()));
+        assertSame(ResultCache.MISS, ResultCache.get(ResultCache.key(id, "m", "()", new Object[0])));
+    }
+
+    /**
+     * The stub of an awaited future
+     */
+    private static class FutureStub implements StubObject {
+        final FutureProxy proxy;
+
+        FutureStub() throws Exception {
+            this.proxy = new FutureProxy();
+        }
+
+        public void setProxy(Proxy p) {
+        }
+
+        public Proxy getProxy() {
+            return this.proxy;
+        }
+    }
+}
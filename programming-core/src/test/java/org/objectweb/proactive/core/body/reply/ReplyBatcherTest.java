@@ -0,0 +1,203 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.reply;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.objectweb.proactive.core.UniqueID;
+import org.objectweb.proactive.core.body.UniversalBody;
+import org.objectweb.proactive.core.body.exceptions.BatchedReplyException;
+import org.objectweb.proactive.core.body.future.MethodCallResult;
+
+
+public class ReplyBatcherTest {
+
+    @Test
+    public void fullBatchIsDeliveredBeforeTheCallerReturns() throws Exception {
+        ReplyBatcher batcher = new ReplyBatcher(60000, 10);
+        List<Object> received = Collections.synchronizedList(new ArrayList<Object>());
+        UniversalBody destination = body(received, null);
+
+        batcher.add(reply("m0"), new byte[6], destination);
+        assertTrue(received.isEmpty());
+        batcher.add(reply("m1"), new byte[6], destination);
+
+        assertEquals(1, received.size());
+        BatchedReply batch = (BatchedReply) received.get(0);
+        assertEquals(2, batch.size());
+
+        // the next reply starts a new batch
+        batcher.add(reply("m2"), new byte[6], destination);
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void batchIsSentByADeliveryThreadAfterTheDelay() throws Exception {
+        ReplyBatcher batcher = new ReplyBatcher(50, 1 << 20);
+        final List<Object> received = Collections.synchronizedList(new ArrayList<Object>());
+        final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+        UniversalBody destination = body(received, null, threads);
+
+        batcher.add(reply("m0"), new byte[1], destination);
+        batcher.add(reply("m1"), new byte[1], destination);
+        assertTrue(received.isEmpty());
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (received.isEmpty() && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, received.size());
+        assertEquals(2, ((BatchedReply) received.get(0)).size());
+        assertTrue(threads.get(0), threads.get(0).startsWith("Reply batch delivery"));
+    }
+
+    @Test
+    public void flushSendsThePendingBatch() throws Exception {
+        ReplyBatcher batcher = new ReplyBatcher(60000, 1 << 20);
+        List<Object> received = Collections.synchronizedList(new ArrayList<Object>());
+        UniversalBody destination = body(received, null);
+        List<Object> otherReceived = Collections.synchronizedList(new ArrayList<Object>());
+        UniversalBody other = body(otherReceived, null);
+
+        batcher.add(reply("m0"), new byte[1], destination);
+        batcher.add(reply("m1"), new byte[1], other);
+        batcher.flush(destination.getID());
+        assertEquals(1, received.size());
+        assertTrue(otherReceived.isEmpty());
+
+        batcher.add(reply("m2"), new byte[1], destination);
+        batcher.flushAll();
+        assertEquals(2, received.size());
+        assertEquals(1, otherReceived.size());
+    }
+
+    @Test
+    public void repliesAreSentAloneWhenTheBatchFails() throws Exception {
+        ReplyBatcher batcher = new ReplyBatcher(60000, 2);
+        List<Object> received = Collections.synchronizedList(new ArrayList<Object>());
+        UniversalBody destination = body(received, new IOException("cannot deserialize"));
+
+        Reply r0 = reply("m0");
+        Reply r1 = reply("m1");
+        batcher.add(r0, new byte[1], destination);
+        batcher.add(r1, new byte[1], destination);
+
+        assertEquals(Arrays.<Object> asList(r0, r1), received);
+    }
+
+    @Test
+    public void appliedRepliesAreNotSentAgain() throws Exception {
+        ReplyBatcher batcher = new ReplyBatcher(60000, 3);
+        List<Object> received = Collections.synchronizedList(new ArrayList<Object>());
+        IllegalStateException cause = new IllegalStateException("future already updated");
+        UniversalBody destination = body(received, new BatchedReplyException(new int[] { 1 }, cause));
+
+        batcher.add(reply("m0"), new byte[1], destination);
+        batcher.add(reply("m1"), new byte[1], destination);
+        batcher.add(reply("m2"), new byte[1], destination);
+
+        // only the failed reply is replaced by the exception
+        assertEquals(1, received.size());
+        Reply exceptionReply = (Reply) received.get(0);
+        assertEquals("m1", exceptionReply.getMethodName());
+        assertSame(cause, exceptionReply.getResult().getException());
+    }
+
+    private static UniversalBody body(List<Object> received, Exception batchFailure) {
+        return body(received, batchFailure, new ArrayList<String>());
+    }
+
+    /**
+     * A remote body recording the replies it receives and the receiving threads, failing the
+     * batches if batchFailure is not null
+     */
+    private static UniversalBody body(final List<Object> received, final Exception batchFailure,
+            final List<String> threads) {
+        final UniqueID id = new UniqueID();
+        return (UniversalBody) Proxy.newProxyInstance(UniversalBody.class.getClassLoader(),
+                new Class<?>[] { UniversalBody.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        String name = method.getName();
+                        if (name.equals("receiveReply")) {
+                            if ((batchFailure != null) && (args[0] instanceof BatchedReply)) {
+                                throw batchFailure;
+                            }
+                            threads.add(Thread.currentThread().getName());
+                            received.add(args[0]);
+                        } else if (name.equals("getID")) {
+                            return id;
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    private static Reply reply(final String methodName) {
+        return (Reply) Proxy.newProxyInstance(Reply.class.getClassLoader(), new Class<?>[] { Reply.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        String name = method.getName();
+                        if (name.equals("send")) {
+                            ((UniversalBody) args[0]).receiveReply((Reply) proxy);
+                        } else if (name.equals("getMethodName")) {
+                            return methodName;
+                        } else if (name.equals("getSequenceNumber")) {
+                            return 1L;
+                        } else if (name.equals("getResult")) {
+                            return new MethodCallResult(null, null);
+                        } else if (name.equals("equals")) {
+                            return proxy == args[0];
+                        } else if (name.equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        }
+                        return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.reply;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.objectweb.proactive.core.UniqueID;
+import org.objectweb.proactive.core.body.UniversalBody;
+import org.objectweb.proactive.core.body.future.MethodCallResult;
+
+
+public class ReplySendQueueTest {
+
+    @Test
+    public void repliesToACallerAreDeliveredInOrder() throws Exception {
+        ReplySendQueue queue = new ReplySendQueue(4, 8);
+        List<Object> receivedByA = Collections.synchronizedList(new ArrayList<Object>());
+        List<Object> receivedByB = Collections.synchronizedList(new ArrayList<Object>());
+        UniversalBody a = body(receivedByA, new UniqueID(), false);
+        UniversalBody b = body(receivedByB, new UniqueID(), false);
+
+        List<Reply> sentToA = new ArrayList<Reply>();
+        List<Reply> sentToB = new ArrayList<Reply>();
+        for (int i = 0; i < 100; i++) {
+            Reply r = reply("m" + i);
+            if (i % 3 == 0) {
+                sentToA.add(r);
+                queue.enqueue(r, r, a);
+            } else {
+                sentToB.add(r);
+                queue.enqueue(r, r, b);
+            }
+        }
+        queue.flush(a.getID());
+        queue.flush(b.getID());
+
+        assertEquals(sentToA, receivedByA);
+        assertEquals(sentToB, receivedByB);
+        assertEquals(100, queue.getSentCount());
+    }
+
+    @Test
+    public void failureIsReportedToTheListener() throws Exception {
+        ReplySendQueue queue = new ReplySendQueue(1, 8);
+        final List<Reply> notSent = Collections.synchronizedList(new ArrayList<Reply>());
+        queue.setFailureListener(new ReplySendQueue.FailureListener() {
+            public void replyNotSent(Reply reply, UniversalBody destination, Throwable cause) {
+                assertTrue(cause instanceof IOException);
+                notSent.add(reply);
+            }
+        });
+        UniversalBody destination = body(new ArrayList<Object>(), new UniqueID(), true);
+
+        Reply r = reply("m");
+        queue.enqueue(r, r, destination);
+        queue.flush(destination.getID());
+
+        assertEquals(1, notSent.size());
+        assertSame(r, notSent.get(0));
+        assertEquals(1, queue.getFailedCount());
+        assertEquals(0, queue.getSentCount());
+    }
+
+    @Test
+    public void flushAllWaitsForEveryDestination() throws Exception {
+        ReplySendQueue queue = new ReplySendQueue(2, 8);
+        List<Object> receivedByA = Collections.synchronizedList(new ArrayList<Object>());
+        List<Object> receivedByB = Collections.synchronizedList(new ArrayList<Object>());
+        UniversalBody a = slowBody(receivedByA);
+        UniversalBody b = slowBody(receivedByB);
+
+        for (int i = 0; i < 5; i++) {
+            Reply r = reply("m" + i);
+            queue.enqueue(r, r, a);
+            queue.enqueue(r, r, b);
+        }
+        queue.flushAll();
+
+        assertEquals(5, receivedByA.size());
+        assertEquals(5, receivedByB.size());
+    }
+
+    /**
+     * A body taking some time to receive a reply
+     */
+    private static UniversalBody slowBody(final List<Object> received) {
+        final UniversalBody body = body(received, new UniqueID(), false);
+        return (UniversalBody) Proxy.newProxyInstance(UniversalBody.class.getClassLoader(),
+                new Class<?>[] { UniversalBody.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getName().equals("receiveReply")) {
+                            Thread.sleep(10);
+                        }
+                        return method.invoke(body, args);
+                    }
+                });
+    }
+
+    /**
+     * A body recording the replies it receives, or failing
+     */
+    private static UniversalBody body(final List<Object> received, final UniqueID id, final boolean fail) {
+        return (UniversalBody) Proxy.newProxyInstance(UniversalBody.class.getClassLoader(),
+                new Class<?>[] { UniversalBody.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        String name = method.getName();
+                        if (name.equals("receiveReply")) {
+                            if (fail) {
+                                throw new IOException("unreachable");
+                            }
+                            received.add(args[0]);
+                        } else if (name.equals("getID")) {
+                            return id;
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    private static Reply reply(final String methodName) {
+        return (Reply) Proxy.newProxyInstance(Reply.class.getClassLoader(), new Class<?>[] { Reply.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        String name = method.getName();
+                        if (name.equals("send")) {
+                            ((UniversalBody) args[0]).receiveReply((Reply) proxy);
+                        } else if (name.equals("getMethodName")) {
+                            return methodName;
+                        } else if (name.equals("getSequenceNumber")) {
+                            return 1L;
+                        } else if (name.equals("getResult")) {
+                            return new MethodCallResult(null, null);
+                        } else if (name.equals("equals")) {
+                            return proxy == args[0];
+                        } else if (name.equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        }
+                        return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.junit.Test;
+import org.objectweb.proactive.annotation.RequestQueueCapacity.OverflowPolicy;
+import org.objectweb.proactive.core.UniqueID;
+import org.objectweb.proactive.core.body.exceptions.RequestQueueFullException;
+
+
+public class BlockingRequestQueueImplTest {
+    private static final UniqueID SENDER = new UniqueID();
+
+    @Test
+    public void blockPolicyWaitsForAFreeSlot() throws Exception {
+        final BlockingRequestQueueImpl queue = new BlockingRequestQueueImpl(new UniqueID());
+        queue.setCapacity(1, OverflowPolicy.BLOCK);
+        Request first = request("first", false);
+        final Request second = request("second", false);
+        queue.add(first);
+
+        Thread sender = new Thread() {
+            @Override
+            public void run() {
+                queue.add(second);
+            }
+        };
+        sender.start();
+        sender.join(200);
+        assertTrue("the sender must wait while the queue is full", sender.isAlive());
+        assertEquals(1, queue.size());
+
+        assertSame(first, queue.removeOldest());
+        sender.join(5000);
+        assertFalse(sender.isAlive());
+        assertSame(second, queue.removeOldest());
+        assertEquals(1, queue.getSaturationCount());
+    }
+
+    @Test
+    public void raisingTheCapacityReleasesBlockedSenders() throws Exception {
+        final BlockingRequestQueueImpl queue = new BlockingRequestQueueImpl(new UniqueID());
+        queue.setCapacity(1, OverflowPolicy.BLOCK);
+        queue.add(request("first", false));
+
+        Thread sender = new Thread() {
+            @Override
+            public void run() {
+                queue.add(request("second", false));
+            }
+        };
+        sender.start();
+        sender.join(200);
+        assertTrue(sender.isAlive());
+
+        queue.setCapacity(2, OverflowPolicy.BLOCK);
+        sender.join(5000);
+        assertFalse(sender.isAlive());
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    public void failPolicyRejectsTheRequest() {
+        BlockingRequestQueueImpl queue = new BlockingRequestQueueImpl(new UniqueID());
+        queue.setCapacity(1, OverflowPolicy.FAIL);
+        queue.add(request("first", false));
+        try {
+            queue.add(request("second", false));
+            fail("the request should have been rejected");
+        } catch (RequestQueueFullException e) {
+            // expected
+        }
+        assertEquals(1, queue.size());
+        assertEquals(1, queue.getSaturationCount());
+    }
+
+    @Test
+    public void shedOneWayPolicyDropsOneWayRequests() {
+        BlockingRequestQueueImpl queue = new BlockingRequestQueueImpl(new UniqueID());
+        queue.setCapacity(1, OverflowPolicy.SHED_ONE_WAY);
+        Request first = request("first", false);
+        queue.add(first);
+        queue.add(request("oneway", true));
+
+        assertEquals(1, queue.size());
+        assertSame(first, queue.removeOldest());
+        assertEquals(1, queue.getShedCount());
+        assertEquals(1, queue.getSaturationCount());
+    }
+
+    @Test
+    public void requestsOfTheOwnerBypassTheBound() {
+        UniqueID owner = new UniqueID();
+        BlockingRequestQueueImpl queue = new BlockingRequestQueueImpl(owner);
+        queue.setCapacity(1, OverflowPolicy.FAIL);
+        queue.add(request("first", false));
+        queue.add(request("self", false, owner));
+        assertEquals(2, queue.size());
+    }
+
+    private static Request request(String methodName, boolean oneWay) {
+        return request(methodName, oneWay, SENDER);
+    }
+
+    private static Request request(final String methodName, final boolean oneWay, final UniqueID sourceID) {
+        return (Request) Proxy.newProxyInstance(Request.class.getClassLoader(),
+                new Class<?>[] { Request.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if (name.equals("getMethodName")) {
+                            return methodName;
+                        } else if (name.equals("isOneWay")) {
+                            return oneWay;
+                        } else if (name.equals("getSourceBodyID")) {
+                            return sourceID;
+                        } else if (name.equals("getNFRequestPriority")) {
+                            return Request.NFREQUEST_NO_PRIORITY;
+                        } else if (name.equals("isFunctionalRequest")) {
+                            return true;
+                        } else if (name.equals("getSequenceNumber")) {
+                            return 1L;
+                        } else if (name.equals("equals")) {
+                            return proxy == args[0];
+                        } else if (name.equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        }
+                        return null;
+                    }
+                });
+    }
+}
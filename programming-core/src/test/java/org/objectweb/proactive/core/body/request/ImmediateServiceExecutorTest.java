@@ -0,0 +1,114 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+
+public class ImmediateServiceExecutorTest {
+
+    @Test
+    public void serialQueueIsFifo() throws InterruptedException {
+        ImmediateServiceExecutor executor = new ImmediateServiceExecutor(4);
+        ImmediateServiceExecutor.SerialQueue queue = executor.newSerialQueue();
+
+        final List<Integer> served = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            final int n = i;
+            queue.execute(new Runnable() {
+                public void run() {
+                    served.add(n);
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) served.get(i));
+        }
+    }
+
+    @Test
+    public void saturatedExecutorRunsInCaller() throws InterruptedException {
+        ImmediateServiceExecutor executor = new ImmediateServiceExecutor(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.newSerialQueue().execute(new Runnable() {
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        final Thread caller = Thread.currentThread();
+        final List<Thread> runner = new ArrayList<Thread>();
+        executor.newSerialQueue().execute(new Runnable() {
+            public void run() {
+                runner.add(Thread.currentThread());
+            }
+        });
+        release.countDown();
+
+        assertEquals(caller, runner.get(0));
+        assertEquals(1, executor.getSaturatedCount());
+        assertEquals(2, executor.getSubmittedCount());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void closedQueueRejects() {
+        ImmediateServiceExecutor.SerialQueue queue = new ImmediateServiceExecutor(1).newSerialQueue();
+        assertTrue(queue.closeIfEmpty());
+        queue.execute(new Runnable() {
+            public void run() {
+            }
+        });
+    }
+}
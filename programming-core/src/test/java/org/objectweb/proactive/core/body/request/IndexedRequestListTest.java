@@ -0,0 +1,150 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+
+public class IndexedRequestListTest {
+
+    @Test
+    public void oldestAndYoungestByMethod() {
+        IndexedRequestList list = new IndexedRequestList(2);
+        Request a0 = request("a");
+        Request b0 = request("b");
+        Request a1 = request("a");
+        Request c0 = request("c");
+        list.add(a0);
+        list.add(b0);
+        list.add(a1);
+        list.add(c0);
+
+        assertSame(a0, list.oldest(Collections.singleton("a")));
+        assertSame(a1, list.youngest(Collections.singleton("a")));
+        assertSame(b0, list.oldest(Arrays.asList("c", "b")));
+        assertSame(c0, list.youngest(Arrays.asList("c", "b")));
+        assertNull(list.oldest(Collections.singleton("d")));
+
+        list.removeRequest(a0, false);
+        assertSame(a1, list.oldest(Collections.singleton("a")));
+        assertEquals(Arrays.asList(b0, a1, c0), list);
+    }
+
+    @Test
+    public void filterIsAppliedToTheCandidates() {
+        IndexedRequestList list = new IndexedRequestList(2);
+        Request a0 = request("a");
+        Request b0 = request("b");
+        Request a1 = request("a");
+        Request b1 = request("b");
+        list.add(a0);
+        list.add(b0);
+        list.add(a1);
+        list.add(b1);
+
+        final Request rejected = b0;
+        RequestFilter filter = new RequestFilter() {
+            public boolean acceptRequest(Request request) {
+                return request != rejected;
+            }
+        };
+        assertSame(a0, list.oldest(Arrays.asList("b", "a"), filter));
+        assertSame(b1, list.oldest(Collections.singleton("b"), filter));
+        assertSame(b1, list.youngest(Collections.singleton("b"), filter));
+        assertNull(list.youngest(Collections.singleton("b"), new RequestFilter() {
+            public boolean acceptRequest(Request request) {
+                return false;
+            }
+        }));
+    }
+
+    @Test
+    public void indexFollowsAllModifications() {
+        IndexedRequestList list = new IndexedRequestList(2);
+        Request a0 = request("a");
+        Request a1 = request("a");
+        Request a2 = request("a");
+        Request b0 = request("b");
+        list.add(a1);
+        list.add(b0);
+        list.add(0, a0);
+        assertSame(a0, list.oldest(Collections.singleton("a")));
+
+        // Insertion in the middle
+        list.add(2, a2);
+        assertEquals(Arrays.asList(a0, a1, a2, b0), list);
+        assertSame(a2, list.youngest(Collections.singleton("a")));
+        assertSame(a0, list.oldest(Arrays.asList("a", "b")));
+
+        Iterator<Request> it = list.iterator();
+        it.next();
+        it.remove();
+        assertSame(a1, list.oldest(Collections.singleton("a")));
+        assertEquals(2, list.count("a"));
+
+        list.clear();
+        assertEquals(0, list.count("a"));
+        assertNull(list.oldest(Collections.singleton("b")));
+    }
+
+    private static Request request(final String methodName) {
+        return (Request) Proxy.newProxyInstance(Request.class.getClassLoader(),
+                new Class<?>[] { Request.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("getMethodName")) {
+                            return methodName;
+                        } else if (method.getName().equals("equals")) {
+                            return proxy == args[0];
+                        } else if (method.getName().equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        }
+                        return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.objectweb.proactive.core.UniqueID;
+import org.objectweb.proactive.core.body.UniversalBody;
+import org.objectweb.proactive.core.body.exceptions.SendRequestCommunicationException;
+import org.objectweb.proactive.core.body.reply.Reply;
+
+
+public class RequestSendPipelineTest {
+
+    @Test
+    public void requestsOfASenderAreDeliveredInOrder() throws Exception {
+        RequestSendPipeline pipeline = new RequestSendPipeline(4, 8);
+        UniqueID senderID = new UniqueID();
+        List<Object> received = Collections.synchronizedList(new ArrayList<Object>());
+        UniversalBody a = body(received, null, false);
+        UniversalBody b = body(received, null, false);
+
+        List<Request> sent = new ArrayList<Request>();
+        for (int i = 0; i < 100; i++) {
+            Request r = request("m" + i, true, null);
+            sent.add(r);
+            pipeline.getPipelinedDestination(senderID, (i % 3 == 0) ? a : b).receiveRequest(r);
+        }
+        pipeline.flush(senderID);
+
+        assertEquals(sent, received);
+    }
+
+    @Test
+    public void failureIsReportedToTheFuture() throws Exception {
+        RequestSendPipeline pipeline = new RequestSendPipeline(1, 8);
+        UniqueID senderID = new UniqueID();
+        List<Object> replies = Collections.synchronizedList(new ArrayList<Object>());
+        UniversalBody sender = body(replies, null, false);
+        UniversalBody destination = body(new ArrayList<Object>(), new UniqueID(), true);
+
+        pipeline.getPipelinedDestination(senderID, destination).receiveRequest(request("m", false, sender));
+        pipeline.flush(senderID);
+
+        assertEquals(1, replies.size());
+        Reply reply = (Reply) replies.get(0);
+        assertEquals("m", reply.getMethodName());
+        assertTrue(reply.getResult().getException() instanceof SendRequestCommunicationException);
+    }
+
+    /**
+     * A body recording the requests and replies it receives, or failing
+     */
+    private static UniversalBody body(final List<Object> received, final UniqueID id, final boolean fail) {
+        return (UniversalBody) Proxy.newProxyInstance(UniversalBody.class.getClassLoader(),
+                new Class<?>[] { UniversalBody.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        String name = method.getName();
+                        if (name.equals("receiveRequest") || name.equals("receiveReply")) {
+                            if (fail) {
+                                throw new IOException("unreachable");
+                            }
+                            received.add(args[0]);
+                        } else if (name.equals("getID")) {
+                            return id;
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    private static Request request(final String methodName, final boolean oneWay, final UniversalBody sender) {
+        return (Request) Proxy.newProxyInstance(Request.class.getClassLoader(),
+                new Class<?>[] { Request.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if (name.equals("getMethodName")) {
+                            return methodName;
+                        } else if (name.equals("isOneWay")) {
+                            return oneWay;
+                        } else if (name.equals("getSender")) {
+                            return sender;
+                        } else if (name.equals("getSequenceNumber")) {
+                            return 1L;
+                        } else if (name.equals("equals")) {
+                            return proxy == args[0];
+                        } else if (name.equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        }
+                        return null;
+                    }
+                });
+    }
+}
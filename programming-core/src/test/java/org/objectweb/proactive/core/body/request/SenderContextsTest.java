@@ -0,0 +1,241 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.objectweb.proactive.Body;
+import org.objectweb.proactive.core.UniqueID;
+import org.objectweb.proactive.core.body.UniversalBody;
+import org.objectweb.proactive.core.body.exceptions.UnknownSenderContextException;
+import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
+
+
+public class SenderContextsTest {
+
+    @After
+    public void after() {
+        CentralPAPropertyRepository.PA_REQUEST_COMPACT_HEADER.setValue(false);
+    }
+
+    @Test
+    public void handleIsStablePerSender() {
+        Body a = sender(new UniqueID());
+        Body b = sender(new UniqueID());
+        int h = SenderContexts.getHandle(a);
+
+        assertTrue(h != 0);
+        assertEquals(h, SenderContexts.getHandle(a));
+        assertTrue(h != SenderContexts.getHandle(b));
+    }
+
+    @Test
+    public void destinationKnowsOnlyTheLastHandle() {
+        UniqueID sender = new UniqueID();
+        UniqueID destination = new UniqueID();
+        assertFalse(SenderContexts.isKnown(sender, destination, 1));
+
+        SenderContexts.setKnown(sender, destination, 1);
+        assertTrue(SenderContexts.isKnown(sender, destination, 1));
+        assertFalse(SenderContexts.isKnown(sender, destination, 2));
+        assertFalse(SenderContexts.isKnown(sender, new UniqueID(), 1));
+
+        SenderContexts.setUnknown(sender, destination);
+        assertFalse(SenderContexts.isKnown(sender, destination, 1));
+    }
+
+    @Test
+    public void lookupChecksTheHandle() {
+        UniqueID sender = new UniqueID();
+        SenderContexts.register(sender, 1, null, "node", "codebase");
+
+        SenderContexts.Context c = SenderContexts.lookup(sender, 1);
+        assertNotNull(c);
+        assertEquals("node", c.senderNodeURI);
+        assertEquals("codebase", c.codebase);
+        assertNull(SenderContexts.lookup(sender, 2));
+
+        // A new context of the sender replaces the previous one
+        SenderContexts.register(sender, 2, null, "other", null);
+        assertNull(SenderContexts.lookup(sender, 1));
+        assertEquals("other", SenderContexts.lookup(sender, 2).senderNodeURI);
+    }
+
+    @Test
+    public void contextsAreBounded() {
+        UniqueID first = new UniqueID();
+        SenderContexts.register(first, 1, null, "node", null);
+        UniqueID last = null;
+        for (int i = 0; i < SenderContexts.MAX_CONTEXTS; i++) {
+            last = new UniqueID();
+            SenderContexts.register(last, 1, null, "node", null);
+        }
+
+        assertNull(SenderContexts.lookup(first, 1));
+        assertNotNull(SenderContexts.lookup(last, 1));
+    }
+
+    @Test
+    public void legacyEncodingWhenDisabled() throws Exception {
+        UniqueID id = new UniqueID();
+        List<TestRequest> received = new ArrayList<TestRequest>();
+        UniversalBody destination = destination(received);
+        new TestRequest(id, sender(id)).deliver(destination);
+        new TestRequest(id, sender(id)).deliver(destination);
+
+        // The header is part of the default serialized form, as before compact headers
+        ObjectStreamClass desc = ObjectStreamClass.lookup(RequestImpl.class);
+        assertNotNull(desc.getField("codebase"));
+        assertNotNull(desc.getField("senderNodeURI"));
+        assertEquals(2, received.size());
+        for (TestRequest r : received) {
+            assertEquals("node", r.getSenderNodeURL());
+            assertEquals("codebase", r.codebase);
+        }
+    }
+
+    @Test
+    public void headerIsSentOncePerDestination() throws Exception {
+        CentralPAPropertyRepository.PA_REQUEST_COMPACT_HEADER.setValue(true);
+        UniqueID id = new UniqueID();
+        Body sender = sender(id);
+        List<TestRequest> received = new ArrayList<TestRequest>();
+        UniversalBody destination = destination(received);
+
+        new TestRequest(id, sender).deliver(destination);
+        new TestRequest(id, sender).deliver(destination);
+        // The receiving runtime forgets the context
+        SenderContexts.register(id, 0, null, null, null);
+        new TestRequest(id, sender).deliver(destination);
+
+        // full header, compact header, unknown context, full header again
+        assertEquals(4, received.size());
+        assertTrue(received.get(1).size < received.get(0).size);
+        assertEquals(received.get(0).size, received.get(3).size);
+        assertFalse(received.get(1).isSenderContextMissing());
+        assertTrue(received.get(2).isSenderContextMissing());
+        for (int i : new int[] { 0, 1, 3 }) {
+            assertEquals("node", received.get(i).getSenderNodeURL());
+            assertEquals("codebase", received.get(i).codebase);
+        }
+        assertNotNull(SenderContexts.lookup(id, SenderContexts.getHandle(sender)));
+    }
+
+    /**
+     * A request with a header and no method call
+     */
+    static class TestRequest extends RequestImpl {
+        /** serialized size, set by the destination */
+        transient int size;
+
+        TestRequest(UniqueID sourceID, UniversalBody sender) {
+            this.sourceID = sourceID;
+            this.methodName = "m";
+            this.sender = sender;
+            this.senderNodeURI = "node";
+            this.codebase = "codebase";
+        }
+    }
+
+    /**
+     * A remote destination: the requests are serialized and rejected when their context is unknown
+     */
+    private static UniversalBody destination(final List<TestRequest> received) {
+        final UniqueID id = new UniqueID();
+        return (UniversalBody) Proxy.newProxyInstance(UniversalBody.class.getClassLoader(),
+                new Class<?>[] { UniversalBody.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        String name = method.getName();
+                        if (name.equals("receiveRequest")) {
+                            byte[] bytes = write(args[0]);
+                            TestRequest r = (TestRequest) new ObjectInputStream(new ByteArrayInputStream(
+                                bytes)).readObject();
+                            r.size = bytes.length;
+                            received.add(r);
+                            if (r.isSenderContextMissing()) {
+                                throw new UnknownSenderContextException("destination", r.getMethodName());
+                            }
+                        } else if (name.equals("getID")) {
+                            return id;
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    private static Body sender(final UniqueID id) {
+        return (Body) Proxy.newProxyInstance(Body.class.getClassLoader(), new Class<?>[] { Body.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if (name.equals("getID")) {
+                            return id;
+                        } else if (name.equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        } else if (name.equals("equals")) {
+                            return proxy == args[0];
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    private static byte[] write(Object o) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(o);
+        oos.close();
+        return baos.toByteArray();
+    }
+}
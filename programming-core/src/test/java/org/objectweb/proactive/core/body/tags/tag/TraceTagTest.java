@@ -0,0 +1,97 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.body.tags.tag;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+import org.objectweb.proactive.core.body.tags.tracing.Span;
+import org.objectweb.proactive.core.body.tags.tracing.Span.Phase;
+
+
+public class TraceTagTest {
+
+    @Test
+    public void contextIsPropagated() throws Exception {
+        TraceTag root = new TraceTag(1, 2, 3, 0, true);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(root);
+        oos.close();
+        TraceTag received = (TraceTag) new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))
+                .readObject();
+
+        assertEquals(TraceTag.IDENTIFIER, received.getId());
+        assertEquals(root.toTraceParent(), received.toTraceParent());
+        assertEquals("00-00000000000000010000000000000002-0000000000000003-01", received.toTraceParent());
+
+        // The next request is a child of the span serving the received one
+        received.setServeSpanId(42);
+        TraceTag child = (TraceTag) received.apply();
+        assertEquals(1, child.getTraceHigh());
+        assertEquals(2, child.getTraceLow());
+        assertEquals(42, child.getParentSpanId());
+        assertTrue(child.getSpanId() != 0 && child.getSpanId() != 3);
+        assertTrue(child.isSampled());
+    }
+
+    @Test
+    public void samplingDecisionIsKept() {
+        TraceTag root = new TraceTag(1, 2, 3, 0, false);
+        assertFalse(((TraceTag) root.apply()).isSampled());
+    }
+
+    @Test
+    public void spanJson() {
+        TraceTag context = new TraceTag(1, 2, 3, 0, true);
+        Span span = new Span(context, 4, 3, Phase.SERVE, "foo\"", "body", 10, 25);
+        assertEquals(15, span.getDuration());
+        assertEquals("{\"traceId\":\"00000000000000010000000000000002\",\"spanId\":\"0000000000000004\","
+            + "\"parentSpanId\":\"0000000000000003\",\"name\":\"serve foo\\\"\",\"kind\":\"SPAN_KIND_SERVER\","
+            + "\"startTimeUnixNano\":10,\"endTimeUnixNano\":25,\"attributes\":[{\"key\":\"proactive.body\","
+            + "\"value\":{\"stringValue\":\"body\"}},{\"key\":\"proactive.method\",\"value\":{\"stringValue\":"
+            + "\"foo\\\"\"}}]}", span.toJson());
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.classloading.protocols;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+
+public class AbstractHandlerTest {
+
+    @Test
+    public void prefetchedClassIsTakenOnce() {
+        Map<String, byte[]> bundle = new HashMap<String, byte[]>();
+        bundle.put("remote.A", new byte[] { 1 });
+        AbstractHandler.prefetch("pa://host/rt1", bundle);
+
+        assertNull(AbstractHandler.takePrefetched("pa://host/rt2", "remote.A"));
+        assertArrayEquals(new byte[] { 1 }, AbstractHandler.takePrefetched("pa://host/rt1", "remote.A"));
+        assertNull(AbstractHandler.takePrefetched("pa://host/rt1", "remote.A"));
+    }
+
+    @Test
+    public void locallyLoadableClassesAreNotKept() {
+        Map<String, byte[]> bundle = new HashMap<String, byte[]>();
+        bundle.put(AbstractHandler.class.getName(), new byte[] { 1 });
+        bundle.put("remote.B", new byte[] { 2 });
+        AbstractHandler.prefetch("pa://host/rt", bundle);
+
+        assertNull(AbstractHandler.takePrefetched("pa://host/rt", AbstractHandler.class.getName()));
+        assertNotNull(AbstractHandler.takePrefetched("pa://host/rt", "remote.B"));
+    }
+
+    @Test
+    public void prefetchedClassesAreBounded() {
+        for (int i = 0; i <= AbstractHandler.MAX_PREFETCHED; i++) {
+            Map<String, byte[]> bundle = new HashMap<String, byte[]>();
+            bundle.put("remote.C" + i, new byte[] { 3 });
+            AbstractHandler.prefetch("pa://host/bounded", bundle);
+        }
+
+        assertNull(AbstractHandler.takePrefetched("pa://host/bounded", "remote.C0"));
+        assertNotNull(AbstractHandler.takePrefetched("pa://host/bounded", "remote.C" +
+            AbstractHandler.MAX_PREFETCHED));
+    }
+}
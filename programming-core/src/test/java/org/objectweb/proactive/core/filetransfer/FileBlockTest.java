@@ -0,0 +1,149 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.filetransfer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class FileBlockTest {
+    private File src;
+    private File dst;
+
+    @Before
+    public void before() throws IOException {
+        src = File.createTempFile("fileblock", ".src");
+        dst = File.createTempFile("fileblock", ".dst");
+    }
+
+    @After
+    public void after() {
+        src.delete();
+        dst.delete();
+    }
+
+    @Test
+    public void blocksCanBeSavedOutOfOrder() throws Exception {
+        byte[] data = new byte[10000];
+        new Random(42).nextBytes(data);
+        write(src, data);
+
+        int bsize = 4096;
+        RandomAccessFile in = new RandomAccessFile(src, "r");
+        RandomAccessFile out = new RandomAccessFile(dst, "rw");
+        try {
+            FileChannel inChannel = in.getChannel();
+            FileChannel outChannel = out.getChannel();
+            for (long position = 8192; position >= 0; position -= bsize) {
+                FileBlock block = new FileBlock(0, bsize);
+                block.loadBlock(inChannel, position);
+                assertEquals(position, block.getPosition());
+                assertEquals(Math.min(bsize, data.length - position), block.getUsage());
+
+                roundTrip(block).saveBlock(outChannel);
+            }
+        } finally {
+            in.close();
+            out.close();
+        }
+
+        assertArrayEquals(data, read(dst));
+    }
+
+    @Test
+    public void onlyTheUsedPartIsSerialized() throws Exception {
+        write(src, new byte[10]);
+
+        FileBlock block = new FileBlock(0, 1024 * 1024);
+        RandomAccessFile in = new RandomAccessFile(src, "r");
+        try {
+            block.loadBlock(in.getChannel(), 0);
+        } finally {
+            in.close();
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(block);
+        oos.close();
+        assertTrue(baos.size() < 1024);
+    }
+
+    private static FileBlock roundTrip(FileBlock block) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(block);
+        oos.close();
+        return (FileBlock) new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray())).readObject();
+    }
+
+    private static void write(File f, byte[] data) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(f, "rw");
+        try {
+            raf.setLength(0);
+            raf.write(data);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static byte[] read(File f) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(f, "r");
+        try {
+            byte[] data = new byte[(int) raf.length()];
+            raf.readFully(data);
+            return data;
+        } finally {
+            raf.close();
+        }
+    }
+}
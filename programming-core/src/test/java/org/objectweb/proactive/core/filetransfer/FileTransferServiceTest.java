@@ -0,0 +1,146 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.filetransfer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.proactive.core.ProActiveRuntimeException;
+
+
+@SuppressWarnings("deprecation")
+public class FileTransferServiceTest {
+    private File src;
+    private File dst;
+
+    @Before
+    public void before() throws IOException {
+        src = File.createTempFile("filetransfer", ".src");
+        dst = File.createTempFile("filetransfer", ".dst");
+    }
+
+    @After
+    public void after() {
+        src.delete();
+        dst.delete();
+    }
+
+    @Test
+    public void transfersOfTheSameFileDoNotShareChannels() throws Exception {
+        FileTransferService fts = new FileTransferService();
+        fts.openWrite(dst, "first");
+        fts.openWrite(dst, "second");
+        try {
+            FileBlock block = new FileBlock(0, 16);
+            assertFalse(fts.writeFileBlock("first", block).hasException());
+            assertFalse(fts.writeFileBlock("second", block).hasException());
+
+            assertTrue(fts.closeWrite("first").getBooleanValue());
+            assertTrue(fts.writeFileBlock("first", block).hasException());
+            assertFalse(fts.writeFileBlock("second", block).hasException());
+        } finally {
+            fts.closeWrite("first");
+            fts.closeWrite("second");
+        }
+    }
+
+    @Test
+    public void sentFileIsCopied() throws Exception {
+        byte[] data = new byte[10000];
+        new Random(42).nextBytes(data);
+        write(src, data);
+
+        FileTransferService sender = new FileTransferService();
+        FileTransferService receiver = new FileTransferService();
+        assertFalse(sender.send(src, receiver, dst, 4096, 2).hasException());
+
+        assertArrayEquals(data, read(dst));
+        assertTrue(FileTransferService.writeChannels.isEmpty());
+    }
+
+    @Test
+    public void failedSendClosesTheRemoteFile() throws Exception {
+        write(src, new byte[10000]);
+
+        FileTransferService sender = new FileTransferService();
+        FileTransferService receiver = new FileTransferService() {
+            @Override
+            public OperationStatus writeFileBlock(String transferID, FileBlock block) {
+                return new OperationStatus(new IOException("disk full"));
+            }
+        };
+        try {
+            sender.send(src, receiver, dst, 4096, 2);
+            fail();
+        } catch (ProActiveRuntimeException e) {
+            // The error message names the node of the receiver, which is not an active object here
+        }
+
+        assertTrue(FileTransferService.writeChannels.isEmpty());
+    }
+
+    private static void write(File f, byte[] data) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(f, "rw");
+        try {
+            raf.setLength(0);
+            raf.write(data);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static byte[] read(File f) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(f, "r");
+        try {
+            byte[] data = new byte[(int) raf.length()];
+            raf.readFully(data);
+            return data;
+        } finally {
+            raf.close();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.group.spmd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+
+public class RoundBarrierStateTest {
+
+    @Test
+    public void roundsAndChildren() {
+        assertEquals(0, RoundBarrierState.rounds(1));
+        assertEquals(1, RoundBarrierState.rounds(2));
+        assertEquals(2, RoundBarrierState.rounds(3));
+        assertEquals(10, RoundBarrierState.rounds(1024));
+        assertEquals(11, RoundBarrierState.rounds(1025));
+        assertEquals(2, RoundBarrierState.children(0, 3));
+        assertEquals(1, RoundBarrierState.children(1, 4));
+        assertEquals(0, RoundBarrierState.children(2, 4));
+    }
+
+    @Test
+    public void dissemination() {
+        for (int size = 1; size <= 17; size++) {
+            assertEquals(size * RoundBarrierState.rounds(size), simulate(BarrierAlgorithm.DISSEMINATION, size));
+        }
+    }
+
+    @Test
+    public void tree() {
+        for (int size = 1; size <= 17; size++) {
+            assertEquals(2 * (size - 1), simulate(BarrierAlgorithm.TREE, size));
+        }
+    }
+
+    /**
+     * Runs a barrier among <code>size</code> simulated members entering in a random order, and
+     * delivers the messages in a random order.
+     * @return the number of messages sent
+     */
+    private int simulate(BarrierAlgorithm algorithm, int size) {
+        Random random = new Random(size);
+        final List<int[]> inFlight = new ArrayList<int[]>();
+        SimulatedState[] states = new SimulatedState[size];
+        boolean[] released = new boolean[size];
+        List<Integer> notEntered = new ArrayList<Integer>();
+        for (int i = 0; i < size; i++) {
+            states[i] = new SimulatedState(inFlight);
+            notEntered.add(i);
+        }
+
+        int sent = 0;
+        while (!notEntered.isEmpty() || !inFlight.isEmpty()) {
+            if (!notEntered.isEmpty() && (inFlight.isEmpty() || random.nextBoolean())) {
+                int rank = notEntered.remove(random.nextInt(notEntered.size()));
+                states[rank].enter(algorithm, null, rank, size);
+                released[rank] |= states[rank].progress("b");
+            } else {
+                int[] message = inFlight.remove(random.nextInt(inFlight.size()));
+                sent++;
+                states[message[0]].receive(message[1]);
+                if (states[message[0]].progress("b")) {
+                    assertTrue(!released[message[0]]);
+                    released[message[0]] = true;
+                }
+            }
+            // nobody is released before everybody entered
+            for (int i = 0; i < size; i++) {
+                if (released[i]) {
+                    assertTrue("rank " + i + " released too early", notEntered.isEmpty());
+                }
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            assertTrue(released[i]);
+            assertNull(states[i].next());
+        }
+        return sent;
+    }
+
+    private static class SimulatedState extends RoundBarrierState {
+        private final List<int[]> inFlight;
+
+        SimulatedState(List<int[]> inFlight) {
+            this.inFlight = inFlight;
+        }
+
+        @Override
+        void send(String barrierName, int target, int round) {
+            this.inFlight.add(new int[] { target, round });
+        }
+    }
+}
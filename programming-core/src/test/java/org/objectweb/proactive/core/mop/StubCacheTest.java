@@ -0,0 +1,212 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.mop;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class StubCacheTest {
+    private static final String NAME = "pa.stub.org.objectweb.proactive.core.mop._StubStubCacheTest";
+
+    private File dir;
+    private StubCache cache;
+
+    @Before
+    public void before() throws IOException {
+        dir = File.createTempFile("stubcache", "");
+        dir.delete();
+        dir.mkdirs();
+        cache = new StubCache(dir);
+    }
+
+    @After
+    public void after() {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void disabledCacheHasNoFingerprint() {
+        assertNull(new StubCache(null).fingerprint(NAME, new String[] { getClass().getName() }, null));
+    }
+
+    @Test
+    public void missingEntryIsAMiss() {
+        assertNull(cache.load(NAME, fingerprint()));
+    }
+
+    @Test
+    public void storedEntryIsAHit() {
+        byte[] data = data(1000, 1);
+        cache.store(NAME, fingerprint(), data);
+
+        assertArrayEquals(data, cache.load(NAME, fingerprint()));
+    }
+
+    @Test
+    public void staleEntryIsAMiss() {
+        cache.store(NAME, fingerprint(), data(1000, 1));
+
+        String other = cache.fingerprint(NAME, new String[] { StubCache.class.getName() }, null);
+        assertNotNull(other);
+        assertTrue(!other.equals(fingerprint()));
+        assertNull(cache.load(NAME, other));
+    }
+
+    @Test
+    public void corruptedEntryIsAMiss() throws IOException {
+        cache.store(NAME, fingerprint(), data(1000, 1));
+        File file = onlyFile();
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(raf.length() - 10);
+            int b = raf.read();
+            raf.seek(raf.length() - 10);
+            raf.write(b ^ 0xff);
+        } finally {
+            raf.close();
+        }
+        assertNull(cache.load(NAME, fingerprint()));
+
+        raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(raf.length() / 2);
+        } finally {
+            raf.close();
+        }
+        assertNull(cache.load(NAME, fingerprint()));
+
+        // The next store repairs the entry
+        cache.store(NAME, fingerprint(), data(1000, 1));
+        assertArrayEquals(data(1000, 1), cache.load(NAME, fingerprint()));
+    }
+
+    @Test
+    public void concurrentWritersNeverExposeAPartialEntry() throws Exception {
+        final String fingerprint = fingerprint();
+        final int writers = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(writers * 2);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < writers; i++) {
+                final byte[] data = data(256 * 1024, i);
+                results.add(pool.submit(new Callable<Boolean>() {
+                    public Boolean call() {
+                        for (int j = 0; j < 20; j++) {
+                            cache.store(NAME, fingerprint, data);
+                        }
+                        return true;
+                    }
+                }));
+                results.add(pool.submit(new Callable<Boolean>() {
+                    public Boolean call() {
+                        for (int j = 0; j < 20; j++) {
+                            byte[] loaded = cache.load(NAME, fingerprint);
+                            if ((loaded != null) && !isWhole(loaded)) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertTrue(isWhole(cache.load(NAME, fingerprint)));
+        // The files written aside have all been renamed
+        assertEquals(1, dir.listFiles().length);
+    }
+
+    private String fingerprint() {
+        String fingerprint = cache.fingerprint(NAME, new String[] { getClass().getName() }, null);
+        assertNotNull(fingerprint);
+        return fingerprint;
+    }
+
+    private File onlyFile() {
+        File[] files = dir.listFiles();
+        assertEquals(1, files.length);
+        return files[0];
+    }
+
+    /** Data filled with a single value, so that mixing two writers is detected */
+    private static byte[] data(int length, int value) {
+        byte[] data = new byte[length];
+        Arrays.fill(data, (byte) value);
+        return data;
+    }
+
+    private static boolean isWhole(byte[] data) {
+        if (data.length != 256 * 1024) {
+            return false;
+        }
+        for (byte b : data) {
+            if (b != data[0]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
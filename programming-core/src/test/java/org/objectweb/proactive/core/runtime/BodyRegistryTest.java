@@ -0,0 +1,176 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.objectweb.proactive.Body;
+import org.objectweb.proactive.core.UniqueID;
+
+
+public class BodyRegistryTest {
+
+    private static Body body(final Object reifiedObject) {
+        return body(reifiedObject, new UniqueID());
+    }
+
+    private static Body body(final Object reifiedObject, final UniqueID id) {
+        return (Body) Proxy.newProxyInstance(Body.class.getClassLoader(), new Class<?>[] { Body.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("getID")) {
+                            return id;
+                        } else if (method.getName().equals("getReifiedObject")) {
+                            return reifiedObject;
+                        } else if (method.getName().equals("equals")) {
+                            return proxy == args[0];
+                        } else if (method.getName().equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    @Test
+    public void registerIndexesByIdAndClassName() {
+        BodyRegistry registry = new BodyRegistry();
+        Body s1 = body("a");
+        Body s2 = body("b");
+        Body i = body(Integer.valueOf(1));
+
+        assertTrue(registry.register(s1));
+        assertTrue(registry.register(s2));
+        assertTrue(registry.register(i));
+        assertFalse(registry.register(s1));
+
+        assertEquals(3, registry.size());
+        assertSame(s1, registry.get(s1.getID()));
+        assertEquals(2, registry.getBodies(String.class.getName()).size());
+        assertEquals(1, registry.getBodies(Integer.class.getName()).size());
+        assertTrue(registry.getBodies(Long.class.getName()).isEmpty());
+    }
+
+    @Test
+    public void unregisterRemovesFromIndexes() {
+        BodyRegistry registry = new BodyRegistry();
+        Body s1 = body("a");
+        Body s2 = body("b");
+        registry.register(s1);
+        registry.register(s2);
+
+        assertSame(s1, registry.unregister(s1.getID()));
+        assertNull(registry.unregister(s1.getID()));
+        assertFalse(registry.contains(s1.getID()));
+        assertEquals(1, registry.size());
+        assertTrue(registry.getBodies(String.class.getName()).contains(s2));
+        assertFalse(registry.getBodies(String.class.getName()).contains(s1));
+    }
+
+    @Test
+    public void listingsFollowRegistrationOrder() {
+        BodyRegistry registry = new BodyRegistry();
+        Body[] strings = new Body[20];
+        Body[] all = new Body[40];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = body("s" + i);
+            all[2 * i] = strings[i];
+            all[2 * i + 1] = body(Integer.valueOf(i));
+        }
+        for (Body b : all) {
+            registry.register(b);
+        }
+
+        assertEquals(Arrays.asList(all), new ArrayList<Body>(registry.getBodies()));
+        assertEquals(Arrays.asList(strings), new ArrayList<Body>(registry.getBodies(String.class.getName())));
+        ArrayList<Body> reversed = new ArrayList<Body>(Arrays.asList(all));
+        Collections.reverse(reversed);
+        assertEquals(reversed, new ArrayList<Body>(registry.getBodiesInReverseOrder()));
+
+        // A body registered again comes last
+        registry.unregister(all[0].getID());
+        registry.register(all[0]);
+        assertSame(all[0], registry.getBodiesInReverseOrder().iterator().next());
+    }
+
+    @Test
+    public void registerReplacesTheBodyWithTheSameId() {
+        BodyRegistry registry = new BodyRegistry();
+        Body before = body("a");
+        // the same active object, back after a migration
+        Body after = body(Integer.valueOf(1), before.getID());
+        registry.register(before);
+
+        assertFalse(registry.register(after));
+        assertSame(after, registry.get(before.getID()));
+        assertEquals(1, registry.size());
+        assertEquals(1, registry.getBodies().size());
+        assertTrue(registry.getBodies(String.class.getName()).isEmpty());
+        assertTrue(registry.getBodies(Integer.class.getName()).contains(after));
+    }
+
+    @Test
+    public void unregisterKeepsTheReplacement() {
+        BodyRegistry registry = new BodyRegistry();
+        Body before = body("a");
+        Body after = body("b", before.getID());
+        registry.register(before);
+        registry.register(after);
+
+        // the body which left unregisters after its replacement arrived
+        assertFalse(registry.unregister(before));
+        assertSame(after, registry.get(before.getID()));
+        assertTrue(registry.getBodies(String.class.getName()).contains(after));
+
+        assertTrue(registry.unregister(after));
+        assertFalse(registry.contains(before.getID()));
+        assertTrue(registry.getBodies().isEmpty());
+        assertTrue(registry.getBodies(String.class.getName()).isEmpty());
+    }
+}
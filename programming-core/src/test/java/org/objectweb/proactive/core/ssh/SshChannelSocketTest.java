@@ -0,0 +1,180 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.ssh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+
+import org.junit.Test;
+
+
+public class SshChannelSocketTest {
+
+    @Test
+    public void readTimesOut() throws Exception {
+        PipeEndpoint endpoint = new PipeEndpoint();
+        SshChannelSocket socket = new SshChannelSocket(endpoint, "host", 1);
+        socket.setSoTimeout(100);
+        assertEquals(100, socket.getSoTimeout());
+
+        long start = System.currentTimeMillis();
+        try {
+            socket.getInputStream().read();
+            fail("read should have timed out");
+        } catch (SocketTimeoutException e) {
+            assertTrue(System.currentTimeMillis() - start >= 100);
+        }
+
+        // The socket is still usable after a timeout
+        endpoint.remote.write(42);
+        endpoint.remote.flush();
+        assertEquals(42, socket.getInputStream().read());
+        socket.close();
+    }
+
+    @Test
+    public void readWithoutTimeout() throws Exception {
+        PipeEndpoint endpoint = new PipeEndpoint();
+        SshChannelSocket socket = new SshChannelSocket(endpoint, "host", 1);
+        endpoint.remote.write(new byte[] { 1, 2, 3 });
+
+        byte[] b = new byte[3];
+        assertEquals(3, socket.getInputStream().read(b, 0, 3));
+        assertEquals(3, b[2]);
+        socket.close();
+    }
+
+    @Test
+    public void endOfStreamWithTimeout() throws Exception {
+        PipeEndpoint endpoint = new PipeEndpoint();
+        SshChannelSocket socket = new SshChannelSocket(endpoint, "host", 1);
+        socket.setSoTimeout(1000);
+        endpoint.remote.write(new byte[] { 1, 2, 3 });
+        endpoint.remote.close();
+
+        InputStream in = socket.getInputStream();
+        byte[] b = new byte[8];
+        int read = 0;
+        int n;
+        while ((n = in.read(b, read, b.length - read)) != -1) {
+            read += n;
+        }
+        assertEquals(3, read);
+        assertEquals(3, b[2]);
+        socket.close();
+    }
+
+    @Test
+    public void optionsAreRecorded() throws Exception {
+        SshChannelSocket socket = new SshChannelSocket(new PipeEndpoint(), "host", 1);
+        socket.setKeepAlive(true);
+        socket.setTcpNoDelay(true);
+        socket.setReceiveBufferSize(1024);
+        socket.setSendBufferSize(2048);
+        socket.setTrafficClass(4);
+        socket.setSoLinger(true, 5);
+
+        assertTrue(socket.getKeepAlive());
+        assertTrue(socket.getTcpNoDelay());
+        assertEquals(1024, socket.getReceiveBufferSize());
+        assertEquals(2048, socket.getSendBufferSize());
+        assertEquals(4, socket.getTrafficClass());
+        assertEquals(5, socket.getSoLinger());
+        socket.close();
+    }
+
+    @Test
+    public void closeClosesTheChannel() throws Exception {
+        PipeEndpoint endpoint = new PipeEndpoint();
+        SshChannelSocket socket = new SshChannelSocket(endpoint, "host", 1);
+        socket.setSoTimeout(1000);
+        assertFalse(socket.isClosed());
+
+        socket.close();
+        socket.close();
+        assertTrue(socket.isClosed());
+        assertEquals(1, endpoint.closed);
+        try {
+            socket.getInputStream();
+            fail("the socket is closed");
+        } catch (SocketException e) {
+            // expected
+        }
+    }
+
+    /**
+     * An in memory channel, remote is written by the test and read through the socket
+     */
+    static private class PipeEndpoint extends SshChannelSocket.Endpoint {
+        final PipedOutputStream remote;
+        final PipedInputStream in;
+        final PipedOutputStream out;
+        int closed;
+
+        PipeEndpoint() throws IOException {
+            this.remote = new PipedOutputStream();
+            this.in = new PipedInputStream(this.remote);
+            this.out = new PipedOutputStream(new PipedInputStream());
+        }
+
+        @Override
+        InputStream getInputStream() {
+            return this.in;
+        }
+
+        @Override
+        OutputStream getOutputStream() {
+            return this.out;
+        }
+
+        @Override
+        void close() throws IOException {
+            this.closed++;
+            this.in.close();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.ssh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class SshTunnelPoolTest {
+    private ServerSocket echoServer;
+    private SshTunnelPool pool;
+
+    @Before
+    public void before() throws IOException {
+        this.echoServer = new ServerSocket(0, 50, InetAddress.getByName(null));
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                while (true) {
+                    try {
+                        final Socket s = echoServer.accept();
+                        new Thread() {
+                            @Override
+                            public void run() {
+                                try {
+                                    InputStream in = s.getInputStream();
+                                    OutputStream out = s.getOutputStream();
+                                    int b;
+                                    while ((b = in.read()) != -1) {
+                                        out.write(b);
+                                    }
+                                    s.close();
+                                } catch (IOException e) {
+                                    // closed
+                                }
+                            }
+                        }.start();
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            }
+        };
+        t.setDaemon(true);
+        t.start();
+
+        SshConfig config = new SshConfig();
+        config.setTryPlainSocket(true);
+        this.pool = new SshTunnelPool(config);
+    }
+
+    @After
+    public void after() throws IOException {
+        this.echoServer.close();
+    }
+
+    @Test
+    public void plainSocket() throws Exception {
+        Socket socket = this.pool.getSocket("127.0.0.1", this.echoServer.getLocalPort());
+        assertTrue(socket.isConnected());
+        assertEquals(7, echo(socket.getInputStream(), socket.getOutputStream(), 7));
+        socket.close();
+    }
+
+    @Test
+    public void forwarder() throws Exception {
+        SshSocketForwarder forwarder = new SshSocketForwarder(this.pool, "127.0.0.1", this.echoServer
+                .getLocalPort(), 0);
+        for (int i = 0; i < 3; i++) {
+            Socket socket = new Socket(forwarder.getHost(), forwarder.getPort());
+            assertEquals(i, echo(socket.getInputStream(), socket.getOutputStream(), i));
+            socket.close();
+        }
+        forwarder.close();
+        assertTrue(forwarder.isClosed());
+    }
+
+    @Test
+    public void idleForwarderIsClosed() throws Exception {
+        SshSocketForwarder forwarder = new SshSocketForwarder(this.pool, "127.0.0.1", this.echoServer
+                .getLocalPort(), 100);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!forwarder.isClosed() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(forwarder.isClosed());
+    }
+
+    static private int echo(InputStream in, OutputStream out, int b) throws IOException {
+        out.write(b);
+        out.flush();
+        return in.read();
+    }
+}
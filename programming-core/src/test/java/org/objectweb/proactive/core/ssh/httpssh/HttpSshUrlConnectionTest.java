@@ -0,0 +1,98 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.ssh.httpssh;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.proactive.core.ssh.SshConfig;
+import org.objectweb.proactive.core.ssh.SshTunnelPool;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+
+public class HttpSshUrlConnectionTest {
+    private HttpServer server;
+
+    @Before
+    public void before() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getByName(null), 0), 0);
+        this.server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = (exchange.getRequestURI().toString()).getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        this.server.start();
+    }
+
+    @After
+    public void after() {
+        this.server.stop(0);
+    }
+
+    @Test
+    public void connectionThroughThePool() throws Exception {
+        SshConfig config = new SshConfig();
+        config.setTryPlainSocket(true);
+        SshTunnelPool pool = new SshTunnelPool(config);
+
+        URL url = new URL(null, "httpssh://127.0.0.1:" + this.server.getAddress().getPort() + "/path?q=1",
+            new Handler());
+        HttpSshUrlConnection connection = new HttpSshUrlConnection(url, pool);
+        assertEquals(200, connection.getResponseCode());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), "UTF-8"));
+        assertEquals("/path?q=1", reader.readLine());
+        reader.close();
+        connection.disconnect();
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.dgc.VMID;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.objectweb.proactive.core.UniqueID;
+import org.objectweb.proactive.core.body.UniversalBody;
+import org.objectweb.proactive.core.body.proxy.UniversalBodyProxy;
+import org.objectweb.proactive.core.mop.StubObject;
+import org.objectweb.proactive.core.node.Node;
+import org.objectweb.proactive.core.node.NodeInformation;
+import org.objectweb.proactive.core.runtime.ProActiveRuntime;
+import org.objectweb.proactive.core.runtime.VMInformation;
+
+
+public class BulkAoCreationTest {
+
+    @Test
+    public void oneRequestPerRuntimeAndStubsInParameterOrder() {
+        List<List<String>> calls = Collections.synchronizedList(new ArrayList<List<String>>());
+        ProActiveRuntime r1 = runtime(calls, false);
+        ProActiveRuntime r2 = runtime(calls, false);
+        VMID vm1 = new VMID();
+        VMID vm2 = new VMID();
+        Node[] nodes = { node("a", vm1, r1), node("b", vm2, r2), node("c", vm1, r1) };
+        Object[][] params = new Object[7][];
+        for (int i = 0; i < params.length; i++) {
+            params[i] = new Object[] { "p" + i };
+        }
+
+        Object[] stubs = BulkAoCreation.newActives(Member.class.getName(), null, params, nodes);
+
+        // one call per runtime, with the node and the parameters of each of its members
+        assertEquals(2, calls.size());
+        assertEquals(Arrays.asList(new List[] { Arrays.asList("a:p0", "c:p2", "a:p3", "c:p5", "a:p6"),
+                Arrays.asList("b:p1", "b:p4") }), sorted(calls));
+        assertEquals(params.length, stubs.length);
+        for (int i = 0; i < stubs.length; i++) {
+            UniversalBody body = ((UniversalBodyProxy) ((StubObject) stubs[i]).getProxy()).getBody();
+            assertEquals("p" + i, body.getNodeURL());
+        }
+    }
+
+    @Test
+    public void failedRuntimeLeavesNullEntries() {
+        List<List<String>> calls = Collections.synchronizedList(new ArrayList<List<String>>());
+        Node ok = node("ok", new VMID(), runtime(calls, false));
+        Node ko = node("ko", new VMID(), runtime(calls, true));
+
+        Object[] stubs = BulkAoCreation.newActives(Member.class.getName(), null, new Object[][] {
+                { "p0" }, { "p1" }, { "p2" } }, new Node[] { ok, ko });
+
+        assertEquals(3, stubs.length);
+        assertNull(stubs[1]);
+        assertSame(Member.class, stubs[0].getClass().getSuperclass());
+        assertSame(Member.class, stubs[2].getClass().getSuperclass());
+    }
+
+    public static class Member {
+        public Member() {
+        }
+    }
+
+    private static List<List<String>> sorted(List<List<String>> calls) {
+        List<List<String>> result = new ArrayList<List<String>>(calls);
+        if (result.get(0).get(0).startsWith("b")) {
+            Collections.reverse(result);
+        }
+        return result;
+    }
+
+    /**
+     * A runtime recording the createBodies calls, each created body has its first constructor
+     * parameter as node URL
+     */
+    private static ProActiveRuntime runtime(final List<List<String>> calls, final boolean fail) {
+        return (ProActiveRuntime) Proxy.newProxyInstance(ProActiveRuntime.class.getClassLoader(),
+                new Class<?>[] { ProActiveRuntime.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (!method.getName().equals("createBodies")) {
+                            return null;
+                        }
+                        if (fail) {
+                            throw new IllegalStateException("unreachable runtime");
+                        }
+                        String[] nodeNames = (String[]) args[0];
+                        Object[][] params = (Object[][]) args[3];
+                        List<String> call = new ArrayList<String>();
+                        UniversalBody[] bodies = new UniversalBody[nodeNames.length];
+                        for (int i = 0; i < nodeNames.length; i++) {
+                            call.add(nodeNames[i] + ":" + params[i][0]);
+                            bodies[i] = body((String) params[i][0]);
+                        }
+                        calls.add(call);
+                        return bodies;
+                    }
+                });
+    }
+
+    private static UniversalBody body(final String nodeURL) {
+        final UniqueID id = new UniqueID();
+        return (UniversalBody) proxy(UniversalBody.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("getID")) {
+                    return id;
+                } else if (name.equals("getNodeURL")) {
+                    return nodeURL;
+                }
+                return null;
+            }
+        });
+    }
+
+    private static Node node(final String name, final VMID vmid, final ProActiveRuntime runtime) {
+        final VMInformation vm = (VMInformation) proxy(VMInformation.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return method.getName().equals("getVMID") ? vmid : null;
+            }
+        });
+        final NodeInformation info = (NodeInformation) proxy(NodeInformation.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String m = method.getName();
+                if (m.equals("getName")) {
+                    return name;
+                } else if (m.equals("getURL")) {
+                    return "pa://" + name;
+                } else if (m.equals("getVMInformation")) {
+                    return vm;
+                }
+                return null;
+            }
+        });
+        return (Node) proxy(Node.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String m = method.getName();
+                if (m.equals("getNodeInformation")) {
+                    return info;
+                } else if (m.equals("getProActiveRuntime")) {
+                    return runtime;
+                }
+                return null;
+            }
+        });
+    }
+
+    private static Object proxy(Class<?> type, InvocationHandler handler) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+}
@@ -34,52 +34,51 @@
  * ################################################################
  * $$PROACTIVE_INITIAL_DEV$$
  */
-package org.objectweb.proactive.core.group;
+package org.objectweb.proactive.core.util;
 
-import java.util.concurrent.CountDownLatch;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
-import org.objectweb.proactive.api.PAActiveObject;
-import org.objectweb.proactive.core.node.Node;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
 
+import org.junit.Test;
 
-/**
- * This class provides multithreading for the creation of active objects.
- *
- * @author The ProActive Team
- */
-public class ProcessForGroupCreation extends AbstractProcessForGroup implements Runnable {
-    private ProxyForGroup proxyGroup;
-    private String className;
-    private Class<?>[] genericParameters;
-    private Object[] param;
-    private Node node;
-    private CountDownLatch doneSignal;
 
-    public ProcessForGroupCreation(ProxyForGroup proxyGroup, String className, Class<?>[] genericParameters,
-            Object[] param, Node node, int groupIndex, CountDownLatch doneSignal) {
-        this.proxyGroup = proxyGroup;
-        this.className = className;
-        this.genericParameters = genericParameters;
-        this.param = param;
-        this.node = node;
-        this.groupIndex = groupIndex;
-        this.doneSignal = doneSignal;
+public class CacheUtilsTest {
+
+    @Test
+    public void sha1IsHexEncoded() throws IOException {
+        assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", CacheUtils.sha1Hex("abc".getBytes("UTF-8")));
+        assertEquals("00ff10", CacheUtils.toHex(new byte[] { 0, (byte) 0xff, 0x10 }));
     }
 
-    @SuppressWarnings("unchecked")
-    public void run() {
+    @Test
+    public void writtenFileReplacesTheTarget() throws IOException {
+        File target = File.createTempFile("cacheutils", ".target");
+        File written = File.createTempFile("cacheutils", ".tmp", target.getParentFile());
         try {
-            this.proxyGroup.set(this.groupIndex, PAActiveObject.newActive(className, genericParameters,
-                    param, node));
-        } catch (Exception e) {
-            e.printStackTrace();
-            // FIXME throw exception (using Callable task)
+            write(target, "old");
+            write(written, "new");
+
+            CacheUtils.moveInPlace(written, target);
+
+            assertFalse(written.exists());
+            assertEquals("new", new String(Files.readAllBytes(target.toPath()), "UTF-8"));
+        } finally {
+            target.delete();
+            written.delete();
         }
-        doneSignal.countDown();
     }
 
-    @Override
-    public int getMemberListSize() {
-        return 1;
+    private static void write(File f, String content) throws IOException {
+        FileOutputStream out = new FileOutputStream(f);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
     }
 }
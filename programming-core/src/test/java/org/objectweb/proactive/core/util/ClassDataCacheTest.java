@@ -0,0 +1,92 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+
+public class ClassDataCacheTest {
+    private static final long TTL = TimeUnit.MILLISECONDS.toNanos(ClassDataCache.MISSING_CLASS_TTL);
+
+    @Test
+    public void missingClassExpires() {
+        ClassDataCache cache = ClassDataCache.instance();
+        long now = System.nanoTime();
+        cache.addMissingClass("missing.A", now);
+
+        assertTrue(cache.isMissing("missing.A", now + TTL - 1));
+        assertFalse(cache.isMissing("missing.A", now + TTL));
+        assertFalse(cache.isMissing("missing.A", now));
+    }
+
+    @Test
+    public void addedClassIsNotMissing() {
+        ClassDataCache cache = ClassDataCache.instance();
+        cache.addMissingClass("missing.B");
+        assertTrue(cache.isMissing("missing.B"));
+
+        cache.addClassData("missing.B", new byte[] { 1 });
+        assertFalse(cache.isMissing("missing.B"));
+        cache.addMissingClass("missing.B");
+        assertFalse(cache.isMissing("missing.B"));
+    }
+
+    @Test
+    public void missingClassesAreBounded() {
+        ClassDataCache cache = ClassDataCache.instance();
+        long now = System.nanoTime();
+        cache.addMissingClass("missing.old", now - TTL);
+        for (int i = 0; i < ClassDataCache.MAX_MISSING_CLASSES; i++) {
+            cache.addMissingClass("missing.C" + i, now);
+        }
+
+        // The expired class made room for the last one
+        assertFalse(cache.isMissing("missing.old", now));
+        assertTrue(cache.isMissing("missing.C0", now));
+        assertTrue(cache.isMissing("missing.C" + (ClassDataCache.MAX_MISSING_CLASSES - 1), now));
+
+        // Nothing expired, the full table is cleared
+        cache.addMissingClass("missing.D", now);
+        assertFalse(cache.isMissing("missing.C0", now));
+        assertTrue(cache.isMissing("missing.D", now));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+
+public class OrderedLaneExecutorTest {
+
+    @Test
+    public void tasksOfAKeyRunInOrder() {
+        OrderedLaneExecutor<String> executor = new OrderedLaneExecutor<String>("test", 4, 8);
+        final List<Integer> a = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<Integer> b = Collections.synchronizedList(new ArrayList<Integer>());
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int i = 0; i < 200; i++) {
+            executor.execute("a", add(a, i));
+            executor.execute("b", add(b, i));
+            expected.add(i);
+        }
+        executor.flushAll();
+        assertEquals(expected, a);
+        assertEquals(expected, b);
+    }
+
+    @Test
+    public void aSlowLaneDoesNotDelayTheOthers() throws Exception {
+        OrderedLaneExecutor<String> executor = new OrderedLaneExecutor<String>("test", 2, 8);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.execute("slow", new Runnable() {
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        final CountDownLatch fast = new CountDownLatch(1);
+        executor.execute("fast", new Runnable() {
+            public void run() {
+                fast.countDown();
+            }
+        });
+        assertTrue(fast.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        executor.flush("slow");
+    }
+
+    @Test
+    public void submitterWaitsWhenTheLaneIsFull() throws Exception {
+        final OrderedLaneExecutor<String> executor = new OrderedLaneExecutor<String>("test", 1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Runnable blocked = new Runnable() {
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        executor.execute("k", blocked);
+
+        Thread submitter = new Thread() {
+            @Override
+            public void run() {
+                executor.execute("k", blocked);
+            }
+        };
+        submitter.start();
+        submitter.join(200);
+        assertTrue("the lane is full", submitter.isAlive());
+
+        release.countDown();
+        submitter.join(5000);
+        assertFalse(submitter.isAlive());
+        executor.flush("k");
+    }
+
+    private static Runnable add(final List<Integer> list, final int i) {
+        return new Runnable() {
+            public void run() {
+                list.add(i);
+            }
+        };
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.core.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+
+public class DescriptorCacheTest {
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        DescriptorCache<String> cache = new DescriptorCache<String>(2);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.get("a");
+        cache.put("c", "C");
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    public void disabled() {
+        DescriptorCache<String> cache = new DescriptorCache<String>(0);
+        cache.put("a", "A");
+
+        assertFalse(cache.isEnabled());
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void keyDependsOnContentAndParameters() throws IOException {
+        File f = File.createTempFile("descriptor", ".xml");
+        f.deleteOnExit();
+        URL url = f.toURI().toURL();
+
+        write(f, "<a/>");
+        String k1 = DescriptorCache.computeKey(url, "x");
+        assertEquals(k1, DescriptorCache.computeKey(url, "x"));
+        assertFalse(k1.equals(DescriptorCache.computeKey(url, "y")));
+
+        write(f, "<b/>");
+        assertFalse(k1.equals(DescriptorCache.computeKey(url, "x")));
+    }
+
+    @Test
+    public void keyDoesNotDependOnMapOrder() throws IOException {
+        File f = File.createTempFile("descriptor", ".xml");
+        f.deleteOnExit();
+        URL url = f.toURI().toURL();
+        write(f, "<a/>");
+
+        Map<String, String> ab = new LinkedHashMap<String, String>();
+        ab.put("a", "1");
+        ab.put("b", "2");
+        Map<String, String> ba = new LinkedHashMap<String, String>();
+        ba.put("b", "2");
+        ba.put("a", "1");
+        assertEquals(DescriptorCache.computeKey(url, ab), DescriptorCache.computeKey(url, ba));
+        assertFalse(DescriptorCache.computeKey(url, ab).equals(
+                DescriptorCache.computeKey(url, new HashMap<String, String>())));
+    }
+
+    @Test
+    public void schemaCacheIsBounded() throws Exception {
+        for (int i = 0; i <= DescriptorCache.MAX_SCHEMAS; i++) {
+            File f = File.createTempFile("schema", ".xsd");
+            f.deleteOnExit();
+            write(f, "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\"/>");
+            assertNotNull(DescriptorCache.getSchema(Collections.singletonList(f.toURI().toString())));
+        }
+        assertEquals(DescriptorCache.MAX_SCHEMAS, DescriptorCache.getSchemaCount());
+    }
+
+    private void write(File f, String content) throws IOException {
+        FileWriter fw = new FileWriter(f);
+        try {
+            fw.write(content);
+        } finally {
+            fw.close();
+        }
+    }
+}
@@ -49,7 +49,6 @@ import org.objectweb.proactive.core.util.log.ProActiveLogger;
 import org.objectweb.proactive.extensions.dataspaces.Utils;
 import org.objectweb.proactive.extensions.dataspaces.core.naming.CachingSpacesDirectory;
 import org.objectweb.proactive.extensions.dataspaces.core.naming.NamingService;
-import org.objectweb.proactive.extensions.dataspaces.core.naming.SpacesDirectory;
 import org.objectweb.proactive.extensions.dataspaces.exceptions.ConfigurationException;
 import org.objectweb.proactive.extensions.dataspaces.exceptions.FileSystemException;
 import org.objectweb.proactive.extensions.dataspaces.exceptions.SpaceAlreadyRegisteredException;
@@ -360,14 +359,14 @@ public class NodeConfigurator {
 
         private ApplicationScratchSpace applicationScratchSpace;
 
-        private SpacesDirectory cachingDirectory;
+        private CachingSpacesDirectory cachingDirectory;
 
         private DataSpacesImpl impl;
 
         private void configure(final long appId, final NamingService namingService)
                 throws FileSystemException, URISyntaxException, ProActiveException, ConfigurationException {
 
-            final CachingSpacesDirectory cachingDir = new CachingSpacesDirectory(namingService);
+            final CachingSpacesDirectory cachingDir = new CachingSpacesDirectory(namingService, appId);
 
             // create scratch data space for this application and register it
             if (nodeScratchSpace != null) {
@@ -387,6 +386,7 @@ public class NodeConfigurator {
                     throw e;
                 } finally {
                     if (!registered) {
+                        cachingDir.close();
                         nodeScratchSpace.close();
                     }
                 }
@@ -418,6 +418,7 @@ public class NodeConfigurator {
                 }
                 applicationScratchSpace = null;
             }
+            cachingDirectory.close();
         }
     }
 }
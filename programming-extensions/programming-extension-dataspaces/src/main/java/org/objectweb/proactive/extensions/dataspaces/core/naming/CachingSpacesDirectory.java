@@ -36,15 +36,26 @@
  */
 package org.objectweb.proactive.extensions.dataspaces.core.naming;
 
+import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
+import org.objectweb.proactive.api.PARemoteObject;
+import org.objectweb.proactive.core.ProActiveException;
+import org.objectweb.proactive.core.UniqueID;
+import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
+import org.objectweb.proactive.core.remoteobject.RemoteObjectExposer;
+import org.objectweb.proactive.core.remoteobject.RemoteObjectHelper;
 import org.objectweb.proactive.core.util.log.Loggers;
 import org.objectweb.proactive.core.util.log.ProActiveLogger;
 import org.objectweb.proactive.extensions.dataspaces.core.DataSpacesURI;
 import org.objectweb.proactive.extensions.dataspaces.core.SpaceInstanceInfo;
 import org.objectweb.proactive.extensions.dataspaces.exceptions.SpaceAlreadyRegisteredException;
 import org.objectweb.proactive.extensions.dataspaces.exceptions.WrongApplicationIdException;
+import org.objectweb.proactive.utils.NamedThreadFactory;
 
 
 /**
@@ -59,33 +70,126 @@ import org.objectweb.proactive.extensions.dataspaces.exceptions.WrongApplication
  * Only {@link #lookupOne(DataSpacesURI)} queries are cached, while
  * {@link #lookupMany(DataSpacesURI)} queries are never cached.
  * <p>
- * Instances of this class are thread-safe.
+ * When created for an application with a {@link NamingService} as source directory, this directory
+ * rather replicates the spaces of that application: it subscribes to the naming service, which
+ * pushes every registration and unregistration, and renews its lease in background. As long as the
+ * lease is valid, {@link #lookupMany(DataSpacesURI)} queries concerning that application are also
+ * answered locally when they find any space. Spaces missing locally are always looked up remotely, as
+ * a registration may not have been pushed yet. Replication stops on any lost change or lease renewal
+ * failure, queries are then delegated remotely again until the next successful subscription.
+ * {@link #close()} cancels the subscription.
+ * <p>
+ * Instances of this class are thread-safe. Lookups are never serialized.
  */
 public class CachingSpacesDirectory implements SpacesDirectory {
+    private static final Logger logger = ProActiveLogger.getLogger(Loggers.DATASPACES);
+
+    private static final ScheduledExecutorService leaseRenewer = Executors
+            .newSingleThreadScheduledExecutor(new NamedThreadFactory("Data Spaces lease renewer", true));
+
     private final SpacesDirectoryImpl localDirectory;
 
     private final SpacesDirectory remoteDirectory;
 
+    private final NamingService namingService;
+
+    private final long appId;
+
+    private final Object leaseLock = new Object();
+
+    private RemoteObjectExposer<SpacesDirectoryListener> listenerExposer;
+
+    private SpacesDirectoryListener listener;
+
+    // lease state, guarded by leaseLock
+
+    private long leaseId = -1;
+
+    private long version;
+
+    private long leasePeriod = CentralPAPropertyRepository.PA_DATASPACES_NAMING_SERVICE_LEASE_PERIOD
+            .getValue();
+
+    private boolean closed;
+
+    /** Local time after which the replica cannot be trusted, 0 when not replicating */
+    private volatile long leaseExpiration;
+
     public CachingSpacesDirectory(SpacesDirectory directoryToCache) {
         localDirectory = new SpacesDirectoryImpl();
         remoteDirectory = directoryToCache;
+        namingService = null;
+        appId = -1;
+    }
+
+    /**
+     * Creates a directory replicating the spaces of an application registered in a naming service.
+     * If the replication cannot be set up, it behaves like a regular caching directory.
+     *
+     * @param namingService
+     *            naming service to replicate, cannot be <code>null</code>
+     * @param appId
+     *            identifier of the application whose spaces are replicated
+     */
+    public CachingSpacesDirectory(NamingService namingService, long appId) {
+        this(namingService, appId, true);
+    }
+
+    /**
+     * @param exportListener
+     *            whether the listener is exported as a remote object, or subscribed as a local
+     *            object to a naming service of the same runtime
+     */
+    CachingSpacesDirectory(NamingService namingService, long appId, boolean exportListener) {
+        localDirectory = new SpacesDirectoryImpl();
+        remoteDirectory = namingService;
+        this.namingService = namingService;
+        this.appId = appId;
+
+        if (exportListener) {
+            try {
+                listenerExposer = PARemoteObject.newRemoteObject(SpacesDirectoryListener.class.getName(),
+                        new SpacesDirectoryListener(this));
+                listenerExposer.createRemoteObject("dataSpacesDirectoryListener/" + appId + '/' +
+                    new UniqueID().getCanonString(), false);
+                listener = (SpacesDirectoryListener) RemoteObjectHelper.generatedObjectStub(listenerExposer
+                        .getRemoteObject());
+            } catch (ProActiveException e) {
+                logger.warn("Could not export Data Spaces directory listener, spaces will not be replicated",
+                        e);
+                listenerExposer = null;
+                return;
+            }
+        } else {
+            listener = new SpacesDirectoryListener(this);
+        }
+
+        synchronized (leaseLock) {
+            subscribe();
+            scheduleRenewal();
+        }
     }
 
     /**
-     * This method call is always delegated remotely.
+     * Answered locally when spaces of the replicated application are found, otherwise delegated
+     * remotely.
      *
      * @see SpacesDirectory#lookupMany(DataSpacesURI)
      */
     public Set<SpaceInstanceInfo> lookupMany(DataSpacesURI uri) {
         SpacesDirectoryImpl.checkAbstractURI(uri);
 
-        synchronized (this) {
-            final Set<SpaceInstanceInfo> ret = remoteDirectory.lookupMany(uri);
+        Set<SpaceInstanceInfo> ret;
+        if (isReplicated(uri)) {
+            ret = localDirectory.lookupMany(uri);
             if (ret != null)
-                localDirectory.register(ret);
-
-            return ret;
+                return ret;
         }
+
+        ret = remoteDirectory.lookupMany(uri);
+        if (ret != null)
+            localDirectory.register(ret);
+        return ret;
     }
 
     /**
@@ -96,43 +200,145 @@ public class CachingSpacesDirectory implements SpacesDirectory {
     public SpaceInstanceInfo lookupOne(DataSpacesURI uri) {
         SpacesDirectoryImpl.checkMountingPointURI(uri);
 
-        // double-checked locking, as it would be a pity if we have to wait for
-        // remote lookups when we can answer some lookups using local directory
         SpaceInstanceInfo sii = localDirectory.lookupOne(uri);
         if (sii != null)
             return sii;
 
-        synchronized (this) {
-            sii = localDirectory.lookupOne(uri);
-            if (sii != null)
-                return sii;
+        // concurrent lookups of the same space may both be delegated, but they get the same answer
+        sii = remoteDirectory.lookupOne(uri);
+        if (sii != null)
+            localDirectory.register(Collections.singleton(sii));
+        return sii;
+    }
+
+    public void register(SpaceInstanceInfo spaceInstanceInfo) throws SpaceAlreadyRegisteredException,
+            WrongApplicationIdException {
 
-            sii = remoteDirectory.lookupOne(uri);
+        remoteDirectory.register(spaceInstanceInfo);
+        // the change may have already been pushed
+        localDirectory.register(Collections.singleton(spaceInstanceInfo));
+    }
 
-            if (sii != null) {
+    public boolean unregister(DataSpacesURI uri) {
+        SpacesDirectoryImpl.checkMountingPointURI(uri);
+
+        localDirectory.unregister(uri);
+        return remoteDirectory.unregister(uri);
+    }
+
+    /**
+     * Cancels the subscription to the naming service, if any. The directory keeps working afterwards,
+     * delegating the queries remotely.
+     */
+    public void close() {
+        synchronized (leaseLock) {
+            if (closed)
+                return;
+            closed = true;
+            if (leaseId >= 0) {
                 try {
-                    localDirectory.register(sii);
-                } catch (SpaceAlreadyRegisteredException e) {
-                    final Logger logger = ProActiveLogger.getLogger(Loggers.DATASPACES);
-                    ProActiveLogger.logImpossibleException(logger, e);
-                    throw new RuntimeException(e);
+                    namingService.unsubscribe(leaseId);
+                } catch (RuntimeException e) {
+                    ProActiveLogger.logEatedException(logger, "Could not cancel Data Spaces directory lease",
+                            e);
                 }
             }
-            return sii;
+            stopReplication();
+        }
+        if (listenerExposer != null) {
+            try {
+                listenerExposer.unexportAll();
+                listenerExposer.unregisterAll();
+            } catch (ProActiveException e) {
+                ProActiveLogger.logEatedException(logger, "Could not unexport Data Spaces directory listener",
+                        e);
+            }
+            listenerExposer = null;
         }
     }
 
-    public synchronized void register(SpaceInstanceInfo spaceInstanceInfo)
-            throws SpaceAlreadyRegisteredException, WrongApplicationIdException {
+    /**
+     * Applies a change pushed by the naming service.
+     */
+    void applyChanges(long leaseId, long version, Set<SpaceInstanceInfo> registered,
+            Set<DataSpacesURI> unregistered) {
+        synchronized (leaseLock) {
+            if (leaseId != this.leaseId)
+                return;
+            if (version != this.version + 1) {
+                logger.debug("Missed a change of Data Spaces directory, replication stopped until next renewal");
+                stopReplication();
+                return;
+            }
+            this.version = version;
+            localDirectory.unregister(unregistered);
+            localDirectory.register(registered);
+        }
+    }
 
-        remoteDirectory.register(spaceInstanceInfo);
-        localDirectory.register(spaceInstanceInfo);
+    private boolean isReplicated(DataSpacesURI uri) {
+        return uri.getAppId() == appId && System.currentTimeMillis() < leaseExpiration;
     }
 
-    public synchronized boolean unregister(DataSpacesURI uri) {
-        SpacesDirectoryImpl.checkMountingPointURI(uri);
+    // always called within synchronized (leaseLock)
+    private void subscribe() {
+        final long start = System.currentTimeMillis();
+        final SubscriptionLease lease;
+        try {
+            lease = namingService.subscribe(appId, listener);
+        } catch (RuntimeException e) {
+            logger.debug("Could not subscribe to Data Spaces naming service", e);
+            return;
+        }
 
-        localDirectory.unregister(uri);
-        return remoteDirectory.unregister(uri);
+        // the snapshot replaces whatever has been cached for this application
+        localDirectory.unregisterMany(DataSpacesURI.createURI(appId));
+        localDirectory.register(lease.getSpaces());
+        leaseId = lease.getId();
+        version = lease.getVersion();
+        leasePeriod = lease.getPeriodMillis();
+        leaseExpiration = start + leasePeriod;
+        logger.debug("Replicating Data Spaces of application " + appId + " with lease " + leaseId);
+    }
+
+    // always called within synchronized (leaseLock)
+    private void stopReplication() {
+        leaseId = -1;
+        leaseExpiration = 0;
+    }
+
+    // always called within synchronized (leaseLock)
+    private void scheduleRenewal() {
+        leaseRenewer.schedule(new Runnable() {
+            public void run() {
+                renewLease();
+            }
+        }, leasePeriod / 3, TimeUnit.MILLISECONDS);
+    }
+
+    private void renewLease() {
+        synchronized (leaseLock) {
+            if (closed)
+                return;
+
+            if (leaseId >= 0) {
+                final long start = System.currentTimeMillis();
+                boolean renewed = false;
+                try {
+                    renewed = namingService.renewLease(leaseId);
+                } catch (RuntimeException e) {
+                    logger.debug("Could not renew Data Spaces directory lease", e);
+                }
+                if (renewed) {
+                    leaseExpiration = start + leasePeriod;
+                } else {
+                    stopReplication();
+                }
+            }
+            if (leaseId < 0) {
+                subscribe();
+            }
+            scheduleRenewal();
+        }
     }
 }
@@ -40,12 +40,19 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
 import org.objectweb.proactive.api.PARemoteObject;
 import org.objectweb.proactive.core.ProActiveException;
+import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
 import org.objectweb.proactive.core.util.log.Loggers;
 import org.objectweb.proactive.core.util.log.ProActiveLogger;
 import org.objectweb.proactive.extensions.annotation.RemoteObject;
@@ -54,6 +61,7 @@ import org.objectweb.proactive.extensions.dataspaces.core.SpaceInstanceInfo;
 import org.objectweb.proactive.extensions.dataspaces.exceptions.ApplicationAlreadyRegisteredException;
 import org.objectweb.proactive.extensions.dataspaces.exceptions.SpaceAlreadyRegisteredException;
 import org.objectweb.proactive.extensions.dataspaces.exceptions.WrongApplicationIdException;
+import org.objectweb.proactive.utils.NamedThreadFactory;
 
 
 /**
@@ -65,6 +73,13 @@ import org.objectweb.proactive.extensions.dataspaces.exceptions.WrongApplication
  * unregistered, and spaces of given application are registered only for period when that
  * application is being registered.
  * <p>
+ * Nodes may replicate the spaces of an application by subscribing a {@link SpacesDirectoryListener}
+ * ({@link #subscribe(long, SpacesDirectoryListener)}). Every later registration or unregistration
+ * of spaces of that application is pushed to the listener, in order, by a notifier thread, as long
+ * as its lease is renewed within
+ * {@link CentralPAPropertyRepository#PA_DATASPACES_NAMING_SERVICE_LEASE_PERIOD}. Listeners that
+ * cannot be notified lose their subscription, expired subscriptions are pruned once per lease period.
+ * <p>
  * Instances of this class are intended to work as remote objects and they are thread-safe.
  *
  * @see SpacesDirectory
@@ -131,6 +146,12 @@ public class NamingService implements SpacesDirectory {
 
     private final SpacesDirectoryImpl directory = new SpacesDirectoryImpl();
 
+    private final Map<Long, Subscription> subscriptions = new HashMap<Long, Subscription>();
+
+    private long leaseIdGenerator;
+
+    private ScheduledExecutorService notifier;
+
     /**
      * Registers application along with its spaces definition.
      *
@@ -165,6 +186,7 @@ public class NamingService implements SpacesDirectory {
                 for (final SpaceInstanceInfo info : spaces)
                     logger.debug("Registered space: " + info);
             }
+            publish(appId, spaces, Collections.<DataSpacesURI> emptySet());
         }
     }
 
@@ -195,6 +217,7 @@ public class NamingService implements SpacesDirectory {
             uris.add(sii.getMountingPoint());
 
         directory.unregister(uris);
+        publish(appId, Collections.<SpaceInstanceInfo> emptySet(), uris);
         if (logger.isDebugEnabled()) {
             for (final DataSpacesURI uri : uris)
                 logger.debug("Unregistered space: " + uri);
@@ -232,6 +255,7 @@ public class NamingService implements SpacesDirectory {
 
         directory.register(spaceInstanceInfo);
         logger.debug("Registered space: " + spaceInstanceInfo);
+        publish(appid, Collections.singleton(spaceInstanceInfo), Collections.<DataSpacesURI> emptySet());
     }
 
     public Set<SpaceInstanceInfo> lookupMany(DataSpacesURI uri) throws IllegalArgumentException {
@@ -246,12 +270,169 @@ public class NamingService implements SpacesDirectory {
         return directory.lookupOne(uri);
     }
 
-    public boolean unregister(DataSpacesURI uri) {
+    synchronized public boolean unregister(DataSpacesURI uri) {
         final boolean result = directory.unregister(uri);
         logger.debug("Unregistered space: " + uri);
+        if (result)
+            publish(uri.getAppId(), Collections.<SpaceInstanceInfo> emptySet(), Collections.singleton(uri));
         return result;
     }
 
+    /**
+     * Subscribes a listener to the changes of the spaces of an application. The returned lease
+     * contains the spaces of the application at subscription time; every later change is pushed to
+     * the listener with the following version numbers, until the lease expires or is cancelled.
+     *
+     * @param appId
+     *            application identifier
+     * @param listener
+     *            remote listener to notify, cannot be <code>null</code>
+     * @return lease of the subscription, to be renewed within its period
+     */
+    synchronized public SubscriptionLease subscribe(long appId, SpacesDirectoryListener listener) {
+        final long period = CentralPAPropertyRepository.PA_DATASPACES_NAMING_SERVICE_LEASE_PERIOD.getValue();
+        final long leaseId = leaseIdGenerator++;
+        final Subscription subscription = new Subscription(appId, listener, period);
+        subscriptions.put(leaseId, subscription);
+        // starts pruning expired subscriptions
+        getNotifier();
+
+        Set<SpaceInstanceInfo> spaces = directory.lookupMany(DataSpacesURI.createURI(appId));
+        if (spaces == null)
+            spaces = new HashSet<SpaceInstanceInfo>();
+        logger.debug("Subscribed listener for application with id " + appId + " with lease " + leaseId);
+        return new SubscriptionLease(leaseId, subscription.version, period, spaces);
+    }
+
+    /**
+     * Renews a lease for another lease period.
+     *
+     * @param leaseId
+     *            identifier of the lease to renew
+     * @return <code>true</code> if the lease has been renewed, <code>false</code> if it has
+     *         expired or been cancelled, in which case the listener has to subscribe again
+     */
+    synchronized public boolean renewLease(long leaseId) {
+        final Subscription subscription = subscriptions.get(leaseId);
+        if (subscription == null)
+            return false;
+        if (subscription.isExpired(System.currentTimeMillis())) {
+            subscriptions.remove(leaseId);
+            logger.debug("Lease " + leaseId + " has expired");
+            return false;
+        }
+        subscription.renew();
+        return true;
+    }
+
+    /**
+     * Cancels a subscription. Does nothing if the lease has already expired.
+     *
+     * @param leaseId
+     *            identifier of the lease to cancel
+     */
+    synchronized public void unsubscribe(long leaseId) {
+        if (subscriptions.remove(leaseId) != null)
+            logger.debug("Cancelled lease " + leaseId);
+    }
+
+    // always called within synchronized (this), so that changes are numbered in the order
+    // they are applied to the directory
+    private void publish(long appId, final Set<SpaceInstanceInfo> registered,
+            final Set<DataSpacesURI> unregistered) {
+        final long now = System.currentTimeMillis();
+        final Iterator<Map.Entry<Long, Subscription>> it = subscriptions.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<Long, Subscription> entry = it.next();
+            final long leaseId = entry.getKey();
+            final Subscription subscription = entry.getValue();
+            if (subscription.appId != appId)
+                continue;
+            if (subscription.isExpired(now)) {
+                it.remove();
+                logger.debug("Lease " + leaseId + " has expired");
+                continue;
+            }
+
+            final long version = ++subscription.version;
+            getNotifier().execute(new Runnable() {
+                public void run() {
+                    try {
+                        subscription.listener.spacesChanged(leaseId, version, registered, unregistered);
+                    } catch (Exception e) {
+                        logger.debug("Could not notify listener of lease " + leaseId + ", cancelling it", e);
+                        unsubscribe(leaseId);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Removes the expired subscriptions. Subscriptions of applications whose spaces do not change
+     * would otherwise never be removed once their listener stops renewing them.
+     *
+     * @param now
+     *            current time
+     * @return number of removed subscriptions
+     */
+    synchronized int pruneSubscriptions(long now) {
+        int pruned = 0;
+        final Iterator<Map.Entry<Long, Subscription>> it = subscriptions.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<Long, Subscription> entry = it.next();
+            if (entry.getValue().isExpired(now)) {
+                it.remove();
+                logger.debug("Lease " + entry.getKey() + " has expired");
+                pruned++;
+            }
+        }
+        return pruned;
+    }
+
+    // always called within synchronized (this)
+    private ScheduledExecutorService getNotifier() {
+        if (notifier == null) {
+            notifier = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory(
+                "Data Spaces naming service notifier", true));
+            final long period = CentralPAPropertyRepository.PA_DATASPACES_NAMING_SERVICE_LEASE_PERIOD
+                    .getValue();
+            notifier.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    pruneSubscriptions(System.currentTimeMillis());
+                }
+            }, period, period, TimeUnit.MILLISECONDS);
+        }
+        return notifier;
+    }
+
+    private static class Subscription {
+        private final long appId;
+
+        private final SpacesDirectoryListener listener;
+
+        private final long period;
+
+        private long expiration;
+
+        private long version;
+
+        private Subscription(long appId, SpacesDirectoryListener listener, long period) {
+            this.appId = appId;
+            this.listener = listener;
+            this.period = period;
+            renew();
+        }
+
+        private void renew() {
+            expiration = System.currentTimeMillis() + period;
+        }
+
+        private boolean isExpired(long now) {
+            return now > expiration;
+        }
+    }
+
     synchronized public Set<Long> getRegisteredApplications() {
         return Collections.unmodifiableSet(registeredApplications);
     }
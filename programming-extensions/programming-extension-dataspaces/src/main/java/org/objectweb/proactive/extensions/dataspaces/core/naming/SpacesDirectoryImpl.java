@@ -38,8 +38,8 @@ package org.objectweb.proactive.extensions.dataspaces.core.naming;
 
 import java.util.HashSet;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.objectweb.proactive.extensions.dataspaces.core.DataSpacesURI;
 import org.objectweb.proactive.extensions.dataspaces.core.SpaceInstanceInfo;
@@ -49,12 +49,14 @@ import org.objectweb.proactive.extensions.dataspaces.exceptions.SpaceAlreadyRegi
 /**
  * In-memory implementation of {@link SpacesDirectory}.
  * <p>
- * Instances of this class are thread-safe.
+ * Instances of this class are thread-safe. Lookups do not lock; bulked registrations and
+ * unregistrations are not atomic as a whole, so concurrent lookups may see them partially
+ * applied.
  *
  * @see SpacesDirectory
  */
 public class SpacesDirectoryImpl implements SpacesDirectory {
-    private final SortedMap<DataSpacesURI, SpaceInstanceInfo> data = new TreeMap<DataSpacesURI, SpaceInstanceInfo>();
+    private final ConcurrentNavigableMap<DataSpacesURI, SpaceInstanceInfo> data = new ConcurrentSkipListMap<DataSpacesURI, SpaceInstanceInfo>();
 
     protected static void checkAbstractURI(DataSpacesURI uri) {
         if (uri.isSpacePartFullyDefined())
@@ -74,73 +76,60 @@ public class SpacesDirectoryImpl implements SpacesDirectory {
         checkAbstractURI(uri);
 
         final DataSpacesURI nextKey = uri.nextURI();
-        final Set<SpaceInstanceInfo> ret = new HashSet<SpaceInstanceInfo>();
+        final Set<SpaceInstanceInfo> ret = new HashSet<SpaceInstanceInfo>(data.subMap(uri, nextKey).values());
 
-        synchronized (data) {
-            final SortedMap<DataSpacesURI, SpaceInstanceInfo> sub = data.subMap(uri, nextKey);
-
-            if (sub.size() == 0)
-                return null;
-            ret.addAll(sub.values());
-        }
+        if (ret.isEmpty())
+            return null;
         return ret;
     }
 
     public SpaceInstanceInfo lookupOne(DataSpacesURI uri) {
         checkMountingPointURI(uri);
 
-        synchronized (data) {
-            return data.get(uri);
-        }
+        return data.get(uri);
     }
 
     public void register(SpaceInstanceInfo spaceInstanceInfo) throws SpaceAlreadyRegisteredException {
-        final DataSpacesURI mpoint;
-
         // get mounting point URI that cannot be null
-        synchronized (data) {
-            mpoint = spaceInstanceInfo.getMountingPoint();
-
-            if (data.containsKey(mpoint))
-                throw new SpaceAlreadyRegisteredException(
-                    "Mapping for a given space URI is already registered");
-            data.put(mpoint, spaceInstanceInfo);
-        }
+        final DataSpacesURI mpoint = spaceInstanceInfo.getMountingPoint();
+
+        if (data.putIfAbsent(mpoint, spaceInstanceInfo) != null)
+            throw new SpaceAlreadyRegisteredException("Mapping for a given space URI is already registered");
     }
 
     public boolean unregister(DataSpacesURI uri) {
         checkMountingPointURI(uri);
 
-        synchronized (data) {
-            if (!data.containsKey(uri))
-                return false;
-
-            data.remove(uri);
-        }
-        return true;
+        return data.remove(uri) != null;
     }
 
     /**
-     * Helper method for bulked registration as obtaining lock is done only once.
+     * Helper method for bulked registration, overriding already registered spaces.
      *
      * @param ssis
      */
     protected void register(Set<SpaceInstanceInfo> ssis) {
-        synchronized (data) {
-            for (SpaceInstanceInfo ssi : ssis)
-                data.put(ssi.getMountingPoint(), ssi);
-        }
+        for (SpaceInstanceInfo ssi : ssis)
+            data.put(ssi.getMountingPoint(), ssi);
     }
 
     /**
-     * Helper method for bulked unregistration as obtaining lock is done only once.
+     * Helper method for bulked unregistration.
      *
      * @param uris
      */
     protected void unregister(Set<DataSpacesURI> uris) {
-        synchronized (data) {
-            for (DataSpacesURI key : uris)
-                data.remove(key);
-        }
+        for (DataSpacesURI key : uris)
+            data.remove(key);
+    }
+
+    /**
+     * Helper method removing every space matching specified abstract URI.
+     *
+     * @param uri
+     *            root URI of spaces to remove
+     */
+    protected void unregisterMany(DataSpacesURI uri) {
+        data.subMap(uri, uri.nextURI()).clear();
     }
 }
@@ -0,0 +1,85 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.extensions.dataspaces.core.naming;
+
+import java.util.Set;
+
+import org.objectweb.proactive.extensions.annotation.RemoteObject;
+import org.objectweb.proactive.extensions.dataspaces.core.DataSpacesURI;
+import org.objectweb.proactive.extensions.dataspaces.core.SpaceInstanceInfo;
+
+
+/**
+ * Receives the changes of the spaces of an application pushed by {@link NamingService} to a
+ * {@link CachingSpacesDirectory} replicating them.
+ * <p>
+ * Instances of this class are intended to work as remote objects and they are thread-safe.
+ *
+ * @see NamingService#subscribe(long, SpacesDirectoryListener)
+ */
+@RemoteObject
+public class SpacesDirectoryListener {
+
+    private CachingSpacesDirectory directory;
+
+    /**
+     * ProActive empty non-arg constructor. <strong>Internal use only.</strong>
+     */
+    public SpacesDirectoryListener() {
+    }
+
+    SpacesDirectoryListener(CachingSpacesDirectory directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Notifies a change of the directory.
+     *
+     * @param leaseId
+     *            identifier of the lease of the subscription
+     * @param version
+     *            version of the directory after this change
+     * @param registered
+     *            registered spaces; may be empty
+     * @param unregistered
+     *            mounting points of unregistered spaces; may be empty
+     */
+    public void spacesChanged(long leaseId, long version, Set<SpaceInstanceInfo> registered,
+            Set<DataSpacesURI> unregistered) {
+        directory.applyChanges(leaseId, version, registered, unregistered);
+    }
+}
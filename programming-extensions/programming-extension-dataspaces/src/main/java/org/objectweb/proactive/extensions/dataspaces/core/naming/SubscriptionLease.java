@@ -0,0 +1,99 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.extensions.dataspaces.core.naming;
+
+import java.io.Serializable;
+import java.util.Set;
+
+import org.objectweb.proactive.extensions.dataspaces.core.SpaceInstanceInfo;
+
+
+/**
+ * Lease granted by {@link NamingService} to a {@link SpacesDirectoryListener} subscribed to the
+ * spaces of an application. It carries the spaces of the application at subscription time and the
+ * version of the directory they correspond to; every later change is pushed to the listener with
+ * the next version numbers, as long as the lease is renewed within its period.
+ * <p>
+ * Instances of this class are immutable, therefore thread-safe.
+ *
+ * @see NamingService#subscribe(long, SpacesDirectoryListener)
+ */
+public final class SubscriptionLease implements Serializable {
+
+    private final long id;
+
+    private final long version;
+
+    private final long periodMillis;
+
+    private final Set<SpaceInstanceInfo> spaces;
+
+    public SubscriptionLease(long id, long version, long periodMillis, Set<SpaceInstanceInfo> spaces) {
+        this.id = id;
+        this.version = version;
+        this.periodMillis = periodMillis;
+        this.spaces = spaces;
+    }
+
+    /**
+     * @return identifier of the lease, used to renew it
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return version of the directory at subscription time
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return period in milliseconds within which the lease has to be renewed
+     */
+    public long getPeriodMillis() {
+        return periodMillis;
+    }
+
+    /**
+     * @return spaces of the application at subscription time; never <code>null</code>
+     */
+    public Set<SpaceInstanceInfo> getSpaces() {
+        return spaces;
+    }
+}
@@ -117,6 +117,20 @@ public abstract class AbstractLimitingFileObject<T extends FileObject> extends D
      */
     protected abstract boolean canReturnAncestor(T decoratedAncestor);
 
+    /**
+     * Opens the input stream of the decorated file content. Implementors may override it to read
+     * the content from elsewhere, e.g. from a local copy.
+     *
+     * @param content
+     *            content of the decorated file; never <code>null</code>
+     * @return input stream on the content
+     * @throws FileSystemException
+     *             if the stream cannot be opened
+     */
+    protected InputStream openInputStream(FileContent content) throws FileSystemException {
+        return content.getInputStream();
+    }
+
     @Override
     public boolean canRenameTo(FileObject newfile) {
         return !isReadOnly();
@@ -300,7 +314,7 @@ public abstract class AbstractLimitingFileObject<T extends FileObject> extends D
         }
 
         public InputStream getInputStream() throws FileSystemException {
-            return content.getInputStream();
+            return openInputStream(content);
         }
 
         public long getLastModifiedTime() throws FileSystemException {
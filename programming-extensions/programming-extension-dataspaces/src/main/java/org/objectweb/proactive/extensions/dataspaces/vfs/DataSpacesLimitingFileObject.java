@@ -36,14 +36,19 @@
  */
 package org.objectweb.proactive.extensions.dataspaces.vfs;
 
+import java.io.InputStream;
+
+import org.apache.commons.vfs2.FileContent;
 import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.NameScope;
 import org.apache.log4j.Logger;
 import org.objectweb.proactive.core.ProActiveRuntimeException;
 import org.objectweb.proactive.core.util.log.Loggers;
 import org.objectweb.proactive.core.util.log.ProActiveLogger;
 import org.objectweb.proactive.extensions.dataspaces.core.DataSpacesURI;
+import org.objectweb.proactive.extensions.dataspaces.core.SpaceType;
 import org.objectweb.proactive.extensions.dataspaces.exceptions.MalformedURIException;
 
 
@@ -158,6 +163,25 @@ public class DataSpacesLimitingFileObject extends AbstractLimitingFileObject<Dat
         return new DataSpacesLimitingFileObject(file, spaceRootUri, spaceRootFileName, ownerActiveObjectId);
     }
 
+    /**
+     * Files of remote input spaces are read through the node's {@link InputFileCache}, when it is
+     * enabled.
+     */
+    @Override
+    protected InputStream openInputStream(FileContent content) throws FileSystemException {
+        if (spaceRootUri.getSpaceType() == SpaceType.INPUT) {
+            final FileObject file = content.getFile();
+            final InputFileCache cache = InputFileCache.getInstance();
+            if (cache != null && !"file".equals(file.getName().getScheme())) {
+                final InputStream is = cache.getInputStream(file);
+                if (is != null) {
+                    return is;
+                }
+            }
+        }
+        return super.openInputStream(content);
+    }
+
     private boolean computeIsReadOnly() {
         final DataSpacesURI uri;
         try {
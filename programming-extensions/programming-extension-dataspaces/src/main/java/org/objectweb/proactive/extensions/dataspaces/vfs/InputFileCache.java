@@ -0,0 +1,341 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.extensions.dataspaces.vfs;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.log4j.Logger;
+import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
+import org.objectweb.proactive.core.util.CacheUtils;
+import org.objectweb.proactive.core.util.log.Loggers;
+import org.objectweb.proactive.core.util.log.ProActiveLogger;
+
+
+/**
+ * Local copies of the files read from input spaces, shared by all the active objects of the JVM
+ * and by the JVMs using the same cache directory.
+ * <p>
+ * A copy is addressed by a hash of the real URI, the size and the modification time of the file,
+ * so a modified input file is fetched again. Copies are kept in the directory given by
+ * {@link CentralPAPropertyRepository#PA_DATASPACES_INPUT_CACHE_PATH}, up to
+ * {@link CentralPAPropertyRepository#PA_DATASPACES_INPUT_CACHE_SIZE} bytes, and the least recently
+ * used ones are evicted first. Concurrent reads of the same missing file share a single fetch.
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+public class InputFileCache {
+    private static final Logger logger = ProActiveLogger.getLogger(Loggers.DATASPACES_VFS);
+
+    private static final String SUFFIX = ".cached";
+
+    private static InputFileCache instance;
+
+    private static boolean initialized;
+
+    private final File dir;
+
+    private final long maxSize;
+
+    /** The cached files by key, in access order, guarded by this */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+    /**
+     * The total size of the cached files when they were added, guarded by this. The size of a
+     * file deleted by another JVM cannot be read any more.
+     */
+    private long size;
+
+    /** The fetches in progress, by key */
+    private final ConcurrentHashMap<String, FutureTask<File>> fetches = new ConcurrentHashMap<String, FutureTask<File>>();
+
+    /**
+     * @return the cache of this JVM, or <code>null</code> if it is disabled
+     */
+    public static synchronized InputFileCache getInstance() {
+        if (!initialized) {
+            initialized = true;
+            if (CentralPAPropertyRepository.PA_DATASPACES_INPUT_CACHE_PATH.isSet()) {
+                final File dir = new File(CentralPAPropertyRepository.PA_DATASPACES_INPUT_CACHE_PATH
+                        .getValue());
+                try {
+                    instance = new InputFileCache(dir, CentralPAPropertyRepository.PA_DATASPACES_INPUT_CACHE_SIZE
+                            .getValue());
+                } catch (IOException e) {
+                    logger.warn("Input files will not be cached", e);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Creates a cache, reusing the files already in its directory
+     *
+     * @param dir
+     *            directory of the cached files, created if needed
+     * @param maxSize
+     *            maximum size of the cached files in bytes
+     * @throws IOException
+     *             if the directory cannot be created
+     */
+    public InputFileCache(File dir, long maxSize) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create input cache directory " + dir);
+        }
+        this.dir = dir;
+        this.maxSize = maxSize;
+
+        // oldest first, so that they are evicted first
+        final File[] files = dir.listFiles();
+        Arrays.sort(files, new Comparator<File>() {
+            public int compare(File f1, File f2) {
+                return Long.valueOf(f1.lastModified()).compareTo(f2.lastModified());
+            }
+        });
+        for (File f : files) {
+            final String name = f.getName();
+            if (name.endsWith(SUFFIX)) {
+                add(name.substring(0, name.length() - SUFFIX.length()), f);
+            } else {
+                // partial file left by a crash
+                f.delete();
+            }
+        }
+    }
+
+    /**
+     * Opens a file through its local copy, fetching the file if it is not cached
+     *
+     * @param file
+     *            the file to read
+     * @return a stream on the local copy, or <code>null</code> if the file cannot be cached
+     * @throws FileSystemException
+     *             if the file cannot be fetched
+     */
+    public InputStream getInputStream(final FileObject file) throws FileSystemException {
+        final File copy = getLocalCopy(file);
+        if (copy == null) {
+            return null;
+        }
+        try {
+            return new FileInputStream(copy);
+        } catch (FileNotFoundException e) {
+            // evicted meanwhile
+            return null;
+        }
+    }
+
+    /**
+     * @param file
+     *            the file to read
+     * @return the local copy of the file, or <code>null</code> if the file cannot be cached
+     * @throws FileSystemException
+     *             if the file cannot be fetched
+     */
+    public File getLocalCopy(final FileObject file) throws FileSystemException {
+        final FileContent content = file.getContent();
+        final long fileSize = content.getSize();
+        if (fileSize > this.maxSize) {
+            return null;
+        }
+        final String key;
+        try {
+            key = key(file.getName().getURI(), fileSize, content.getLastModifiedTime());
+        } catch (FileSystemException e) {
+            // no modification time, we cannot tell whether a copy is stale
+            return null;
+        }
+
+        final File cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        FutureTask<File> fetch = new FutureTask<File>(new Callable<File>() {
+            public File call() throws IOException {
+                return fetch(file, key, fileSize);
+            }
+        });
+        final FutureTask<File> previous = this.fetches.putIfAbsent(key, fetch);
+        if (previous == null) {
+            try {
+                fetch.run();
+            } finally {
+                this.fetches.remove(key, fetch);
+            }
+        } else {
+            fetch = previous;
+        }
+
+        try {
+            return fetch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileSystemException(e);
+        } catch (ExecutionException e) {
+            throw new FileSystemException(e.getCause());
+        }
+    }
+
+    /**
+     * @return the number of cached files
+     */
+    public synchronized int getCount() {
+        return this.entries.size();
+    }
+
+    /**
+     * @return the total size of the cached files in bytes
+     */
+    public synchronized long getSize() {
+        return this.size;
+    }
+
+    private synchronized File lookup(String key) {
+        final Entry entry = this.entries.get(key);
+        if (entry == null) {
+            // maybe fetched by another JVM
+            final File f = new File(this.dir, key + SUFFIX);
+            if (!f.isFile()) {
+                return null;
+            }
+            add(key, f);
+            return f;
+        } else if (!entry.file.isFile()) {
+            // evicted by another JVM
+            this.entries.remove(key);
+            this.size -= entry.length;
+            return null;
+        }
+        return entry.file;
+    }
+
+    private File fetch(FileObject file, String key, long expectedSize) throws IOException {
+        final File tmp = File.createTempFile(key, ".part", this.dir);
+        try {
+            final InputStream in = file.getContent().getInputStream();
+            try {
+                final OutputStream out = new FileOutputStream(tmp);
+                try {
+                    final byte[] buf = new byte[64 * 1024];
+                    int n;
+                    while ((n = in.read(buf)) != -1) {
+                        out.write(buf, 0, n);
+                    }
+                } finally {
+                    out.close();
+                }
+            } finally {
+                in.close();
+            }
+
+            if (tmp.length() != expectedSize) {
+                throw new IOException("File " + file.getName() + " changed while being cached");
+            }
+
+            final File f = new File(this.dir, key + SUFFIX);
+            CacheUtils.moveInPlace(tmp, f);
+            synchronized (this) {
+                add(key, f);
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("Cached input file " + file.getName() + " (" + expectedSize + " bytes)");
+            }
+            return f;
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    /** Must be called while holding the lock of this cache */
+    private void add(String key, File f) {
+        final Entry entry = new Entry(f, f.length());
+        final Entry previous = this.entries.put(key, entry);
+        if (previous != null) {
+            this.size -= previous.length;
+        }
+        this.size += entry.length;
+
+        final Iterator<Map.Entry<String, Entry>> it = this.entries.entrySet().iterator();
+        while ((this.size > this.maxSize) && it.hasNext()) {
+            final Entry eldest = it.next().getValue();
+            if (eldest == entry) {
+                continue;
+            }
+            it.remove();
+            this.size -= eldest.length;
+            eldest.file.delete();
+        }
+    }
+
+    /** A cached file and its size when it was added */
+    private static final class Entry {
+        final File file;
+        final long length;
+
+        Entry(File file, long length) {
+            this.file = file;
+            this.length = length;
+        }
+    }
+
+    private static String key(String uri, long size, long lastModified) {
+        try {
+            return CacheUtils.sha1Hex((uri + '\n' + size + '\n' + lastModified).getBytes("UTF-8"));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package dataspaces;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.impl.DefaultFileSystemManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.proactive.extensions.dataspaces.vfs.InputFileCache;
+import org.objectweb.proactive.extensions.dataspaces.vfs.VFSFactory;
+
+
+public class InputFileCacheTest {
+    private DefaultFileSystemManager manager;
+    private File testDir;
+    private File cacheDir;
+
+    @Before
+    public void setUp() throws Exception {
+        manager = VFSFactory.createDefaultFileSystemManager();
+        testDir = new File(System.getProperty("java.io.tmpdir"), "ProActive InputFileCacheTest");
+        assertTrue(testDir.mkdir());
+        cacheDir = new File(testDir, "cache");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        manager.close();
+        FileUtils.deleteDirectory(testDir);
+    }
+
+    @Test
+    public void testCachedOnce() throws Exception {
+        final InputFileCache cache = new InputFileCache(cacheDir, 1024);
+        final FileObject file = createFile("a", "hello");
+
+        final File copy = cache.getLocalCopy(file);
+        assertNotNull(copy);
+        assertEquals(copy, cache.getLocalCopy(file));
+        assertEquals("hello", read(cache.getInputStream(file)));
+        assertEquals(1, cache.getCount());
+        assertEquals(5, cache.getSize());
+
+        // another cache on the same directory reuses the copy
+        assertEquals(copy, new InputFileCache(cacheDir, 1024).getLocalCopy(file));
+    }
+
+    @Test
+    public void testModifiedFileFetchedAgain() throws Exception {
+        final InputFileCache cache = new InputFileCache(cacheDir, 1024);
+        final FileObject file = createFile("a", "hello");
+        final File copy = cache.getLocalCopy(file);
+
+        write(file, "hello world");
+        file.getContent().setLastModifiedTime(file.getContent().getLastModifiedTime() + 2000);
+        assertFalse(copy.equals(cache.getLocalCopy(file)));
+        assertEquals("hello world", read(cache.getInputStream(file)));
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        final InputFileCache cache = new InputFileCache(cacheDir, 10);
+        final File copyA = cache.getLocalCopy(createFile("a", "12345"));
+        final File copyB = cache.getLocalCopy(createFile("b", "12345"));
+        assertEquals(2, cache.getCount());
+
+        final File copyC = cache.getLocalCopy(createFile("c", "123"));
+        assertEquals(2, cache.getCount());
+        assertFalse(copyA.exists());
+        assertTrue(copyB.exists());
+        assertTrue(copyC.exists());
+        assertEquals(8, cache.getSize());
+
+        // larger than the quota
+        assertNull(cache.getLocalCopy(createFile("d", "12345678901")));
+    }
+
+    @Test
+    public void testCopyDeletedByAnotherJVM() throws Exception {
+        final InputFileCache cache = new InputFileCache(cacheDir, 10);
+        final FileObject file = createFile("a", "12345");
+        final File copy = cache.getLocalCopy(file);
+
+        // evicted by another cache sharing the directory
+        assertTrue(copy.delete());
+        assertEquals(copy, cache.getLocalCopy(file));
+        assertEquals(1, cache.getCount());
+        assertEquals(5, cache.getSize());
+
+        // the quota is still enforced
+        cache.getLocalCopy(createFile("b", "12345"));
+        cache.getLocalCopy(createFile("c", "1"));
+        assertEquals(6, cache.getSize());
+        assertFalse(copy.exists());
+    }
+
+    private FileObject createFile(String name, String content) throws Exception {
+        final FileObject file = manager.resolveFile(new File(testDir, name).toURI().toString());
+        write(file, content);
+        return file;
+    }
+
+    private static void write(FileObject file, String content) throws IOException {
+        final OutputStream os = file.getContent().getOutputStream();
+        try {
+            os.write(content.getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+    }
+
+    private static String read(InputStream is) throws IOException {
+        try {
+            return IOUtils.toString(is, "UTF-8");
+        } finally {
+            is.close();
+        }
+    }
+}
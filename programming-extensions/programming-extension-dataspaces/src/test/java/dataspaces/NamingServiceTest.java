@@ -38,18 +38,26 @@ package dataspaces;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.objectweb.proactive.extensions.dataspaces.core.DataSpacesURI;
 import org.objectweb.proactive.extensions.dataspaces.core.SpaceInstanceInfo;
 import org.objectweb.proactive.extensions.dataspaces.core.naming.NamingService;
 import org.objectweb.proactive.extensions.dataspaces.core.naming.SpacesDirectory;
+import org.objectweb.proactive.extensions.dataspaces.core.naming.SpacesDirectoryListener;
+import org.objectweb.proactive.extensions.dataspaces.core.naming.SubscriptionLease;
 import org.objectweb.proactive.extensions.dataspaces.exceptions.ApplicationAlreadyRegisteredException;
 import org.objectweb.proactive.extensions.dataspaces.exceptions.SpaceAlreadyRegisteredException;
 import org.objectweb.proactive.extensions.dataspaces.exceptions.WrongApplicationIdException;
@@ -302,6 +310,55 @@ public class NamingServiceTest extends SpacesDirectoryAbstractBase {
         assertFalse(ns.unregister(spaceInstanceInput1b.getMountingPoint()));
     }
 
+    @Test
+    public void testSubscribe() throws Exception {
+        Set<SpaceInstanceInfo> spaces = new HashSet<SpaceInstanceInfo>();
+        spaces.add(spaceInstanceInput1);
+        ns.registerApplication(MAIN_APPID, spaces);
+        ns.registerApplication(ANOTHER_APPID1, null);
+
+        final RecordingListener listener = new RecordingListener();
+        final SubscriptionLease lease = ns.subscribe(MAIN_APPID, listener);
+        assertEquals(spaces, lease.getSpaces());
+
+        ns.register(spaceInstanceOutput1);
+        ns.register(spaceInstanceInput1b);
+        ns.unregister(spaceInstanceInput1.getMountingPoint());
+
+        Object[] change = listener.next();
+        assertEquals(lease.getId(), change[0]);
+        assertEquals(lease.getVersion() + 1, change[1]);
+        assertEquals(Collections.singleton(spaceInstanceOutput1), change[2]);
+
+        // changes of other applications are not pushed
+        change = listener.next();
+        assertEquals(lease.getVersion() + 2, change[1]);
+        assertEquals(Collections.singleton(spaceInstanceInput1.getMountingPoint()), change[3]);
+
+        assertTrue(ns.renewLease(lease.getId()));
+        ns.unsubscribe(lease.getId());
+        assertFalse(ns.renewLease(lease.getId()));
+
+        ns.register(spaceInstanceOutput2);
+        assertNull(listener.changes.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    private static class RecordingListener extends SpacesDirectoryListener {
+        private final BlockingQueue<Object[]> changes = new LinkedBlockingQueue<Object[]>();
+
+        @Override
+        public void spacesChanged(long leaseId, long version, Set<SpaceInstanceInfo> registered,
+                Set<DataSpacesURI> unregistered) {
+            changes.add(new Object[] { leaseId, version, registered, unregistered });
+        }
+
+        private Object[] next() throws InterruptedException {
+            final Object[] change = changes.poll(10, TimeUnit.SECONDS);
+            assertNotNull(change);
+            return change;
+        }
+    }
+
     private void assertIsSpaceRegistered(SpaceInstanceInfo expected) {
         SpaceInstanceInfo actual = ns.lookupOne(expected.getMountingPoint());
         assertEquals(actual.getMountingPoint(), expected.getMountingPoint());
@@ -40,9 +40,11 @@ import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.rmi.AlreadyBoundException;
 import java.util.List;
+import java.util.Map;
 
 import org.objectweb.proactive.Body;
 import org.objectweb.proactive.core.ProActiveException;
+import org.objectweb.proactive.core.UniqueID;
 import org.objectweb.proactive.core.body.UniversalBody;
 import org.objectweb.proactive.core.descriptor.data.ProActiveDescriptorInternal;
 import org.objectweb.proactive.core.descriptor.data.VirtualNodeInternal;
@@ -77,6 +79,14 @@ public class MOCKProActiveRuntime implements ProActiveRuntime {
         return null;
     }
 
+    public UniversalBody[] createBodies(String[] nodeNames, String className, Class<?>[] genericParameters,
+            Object[][] constructorParameters, boolean isNodeLocal) throws ProActiveException {
+        return null;
+    }
+
+    public void invalidateCachedResults(UniqueID bodyID, String[] methodNames) throws ProActiveException {
+    }
+
     public Node createGCMNode(String vnName, List<TechnicalService> tsList) throws NodeException,
             AlreadyBoundException {
         return null;
@@ -257,4 +267,8 @@ public class MOCKProActiveRuntime implements ProActiveRuntime {
         return null;
     }
 
+    public Map<String, byte[]> getClassDataBundle(String className) {
+        return null;
+    }
+
 }
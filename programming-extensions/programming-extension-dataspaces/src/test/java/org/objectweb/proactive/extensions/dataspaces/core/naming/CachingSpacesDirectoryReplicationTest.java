@@ -0,0 +1,309 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.extensions.dataspaces.core.naming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
+import org.objectweb.proactive.extensions.dataspaces.core.DataSpacesURI;
+import org.objectweb.proactive.extensions.dataspaces.core.InputOutputSpaceConfiguration;
+import org.objectweb.proactive.extensions.dataspaces.core.SpaceInstanceInfo;
+
+
+/**
+ * Replication of the spaces of an application by {@link CachingSpacesDirectory}, with a naming
+ * service of the same runtime.
+ */
+public class CachingSpacesDirectoryReplicationTest {
+
+    private static final long APPID = 1;
+
+    private static final int SHORT_LEASE_PERIOD = 300;
+
+    private int leasePeriod;
+
+    private TestNamingService ns;
+
+    private CachingSpacesDirectory dir;
+
+    private SpaceInstanceInfo input;
+
+    private SpaceInstanceInfo output1;
+
+    private SpaceInstanceInfo output2;
+
+    @Before
+    public void setUp() throws Exception {
+        leasePeriod = CentralPAPropertyRepository.PA_DATASPACES_NAMING_SERVICE_LEASE_PERIOD.getValue();
+
+        input = new SpaceInstanceInfo(APPID, InputOutputSpaceConfiguration.createInputSpaceConfiguration(
+                "http://hostA", "/tmp", "h1", "input"));
+        output1 = new SpaceInstanceInfo(APPID, InputOutputSpaceConfiguration
+                .createOutputSpaceConfiguration("http://hostB", "/tmp", "h1", "output1"));
+        output2 = new SpaceInstanceInfo(APPID, InputOutputSpaceConfiguration
+                .createOutputSpaceConfiguration("http://hostC", "/tmp", "h1", "output2"));
+
+        ns = new TestNamingService();
+        ns.registerApplication(APPID, Collections.singleton(input));
+    }
+
+    @After
+    public void tearDown() {
+        if (dir != null)
+            dir.close();
+        CentralPAPropertyRepository.PA_DATASPACES_NAMING_SERVICE_LEASE_PERIOD.setValue(leasePeriod);
+    }
+
+    @Test
+    public void testFoundSpacesAreAnsweredLocally() throws Exception {
+        dir = new CachingSpacesDirectory(ns, APPID, false);
+
+        assertEquals(input, dir.lookupOne(input.getMountingPoint()));
+        assertEquals(Collections.singleton(input), dir.lookupMany(DataSpacesURI.createURI(APPID)));
+        assertEquals(0, ns.lookups.get());
+    }
+
+    @Test
+    public void testMissingSpaceIsLookedUpRemotely() throws Exception {
+        dir = new CachingSpacesDirectory(ns, APPID, false);
+
+        // the registration is not pushed yet
+        ns.holding = true;
+        ns.register(output1);
+
+        assertEquals(output1, dir.lookupOne(output1.getMountingPoint()));
+        assertEquals(1, ns.lookups.get());
+        assertNull(dir.lookupOne(output2.getMountingPoint()));
+        assertEquals(2, ns.lookups.get());
+        assertEquals(output1, dir.lookupOne(output1.getMountingPoint()));
+        assertEquals(2, ns.lookups.get());
+    }
+
+    @Test
+    public void testVersionGapStopsReplication() throws Exception {
+        dir = new CachingSpacesDirectory(ns, APPID, false);
+
+        ns.holding = true;
+        ns.register(output1);
+        ns.register(output2);
+        ns.awaitHeld(2);
+        // the first change is lost
+        ns.held.remove(0);
+        ns.release();
+
+        final Set<SpaceInstanceInfo> expected = new HashSet<SpaceInstanceInfo>();
+        expected.add(input);
+        expected.add(output1);
+        expected.add(output2);
+        assertEquals(expected, dir.lookupMany(DataSpacesURI.createURI(APPID)));
+        assertEquals(1, ns.lookups.get());
+    }
+
+    @Test
+    public void testChangesArePushed() throws Exception {
+        dir = new CachingSpacesDirectory(ns, APPID, false);
+
+        ns.holding = true;
+        ns.register(output1);
+        ns.unregister(input.getMountingPoint());
+        ns.awaitHeld(2);
+        ns.release();
+
+        assertEquals(Collections.singleton(output1), dir.lookupMany(DataSpacesURI.createURI(APPID)));
+        assertEquals(0, ns.lookups.get());
+    }
+
+    @Test
+    public void testRenewalFailureStopsReplication() throws Exception {
+        CentralPAPropertyRepository.PA_DATASPACES_NAMING_SERVICE_LEASE_PERIOD.setValue(SHORT_LEASE_PERIOD);
+        dir = new CachingSpacesDirectory(ns, APPID, false);
+        final DataSpacesURI appURI = DataSpacesURI.createURI(APPID);
+
+        ns.failing = true;
+        assertTrue(waitForRemoteLookup(appURI));
+
+        // replication is restored by the next successful subscription
+        ns.failing = false;
+        final int subscriptions = ns.subscriptions.get();
+        final long deadline = System.currentTimeMillis() + 10 * SHORT_LEASE_PERIOD;
+        while (ns.subscriptions.get() == subscriptions && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertTrue(ns.subscriptions.get() > subscriptions);
+        assertFalse(waitForRemoteLookup(appURI));
+    }
+
+    @Test
+    public void testCloseCancelsSubscription() throws Exception {
+        dir = new CachingSpacesDirectory(ns, APPID, false);
+        final long leaseId = ns.leaseId;
+
+        dir.close();
+        assertEquals(leaseId, ns.unsubscribed);
+        assertFalse(ns.renewLease(leaseId));
+
+        assertEquals(Collections.singleton(input), dir.lookupMany(DataSpacesURI.createURI(APPID)));
+        assertEquals(1, ns.lookups.get());
+    }
+
+    @Test
+    public void testExpiredSubscriptionsArePruned() throws Exception {
+        final long start = System.currentTimeMillis();
+        final SubscriptionLease lease = ns.subscribe(APPID, new SpacesDirectoryListener());
+
+        assertEquals(0, ns.pruneSubscriptions(start));
+        assertEquals(1, ns.pruneSubscriptions(System.currentTimeMillis() + lease.getPeriodMillis() + 1));
+        assertFalse(ns.renewLease(lease.getId()));
+    }
+
+    /**
+     * Looks spaces up during a few lease periods.
+     *
+     * @return whether the lookups have been delegated to the naming service
+     */
+    private boolean waitForRemoteLookup(DataSpacesURI uri) throws InterruptedException {
+        final int lookups = ns.lookups.get();
+        final long deadline = System.currentTimeMillis() + 3 * SHORT_LEASE_PERIOD;
+        while (System.currentTimeMillis() < deadline) {
+            dir.lookupMany(uri);
+            if (ns.lookups.get() > lookups)
+                return true;
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    /**
+     * Counts lookups, may fail lease renewals and hold pushed changes.
+     */
+    private static class TestNamingService extends NamingService {
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        private final AtomicInteger subscriptions = new AtomicInteger();
+
+        private final List<Object[]> held = new ArrayList<Object[]>();
+
+        private volatile boolean failing;
+
+        private volatile boolean holding;
+
+        private volatile long leaseId = -1;
+
+        private volatile long unsubscribed = -1;
+
+        private SpacesDirectoryListener listener;
+
+        @Override
+        public Set<SpaceInstanceInfo> lookupMany(DataSpacesURI uri) {
+            lookups.incrementAndGet();
+            return super.lookupMany(uri);
+        }
+
+        @Override
+        public SpaceInstanceInfo lookupOne(DataSpacesURI uri) {
+            lookups.incrementAndGet();
+            return super.lookupOne(uri);
+        }
+
+        @Override
+        public SubscriptionLease subscribe(long appId, final SpacesDirectoryListener listener) {
+            if (failing)
+                throw new IllegalStateException("naming service unreachable");
+            this.listener = listener;
+            final SubscriptionLease lease = super.subscribe(appId, new SpacesDirectoryListener() {
+                @Override
+                public void spacesChanged(long leaseId, long version, Set<SpaceInstanceInfo> registered,
+                        Set<DataSpacesURI> unregistered) {
+                    hold(new Object[] { leaseId, version, registered, unregistered });
+                }
+            });
+            leaseId = lease.getId();
+            subscriptions.incrementAndGet();
+            return lease;
+        }
+
+        @Override
+        public boolean renewLease(long leaseId) {
+            if (failing)
+                throw new IllegalStateException("naming service unreachable");
+            return super.renewLease(leaseId);
+        }
+
+        @Override
+        public void unsubscribe(long leaseId) {
+            unsubscribed = leaseId;
+            super.unsubscribe(leaseId);
+        }
+
+        private synchronized void hold(Object[] change) {
+            held.add(change);
+            if (!holding)
+                release();
+            notifyAll();
+        }
+
+        // changes are pushed by the notifier thread
+        private synchronized void awaitHeld(int count) throws InterruptedException {
+            final long deadline = System.currentTimeMillis() + 10000;
+            while (held.size() < count && System.currentTimeMillis() < deadline)
+                wait(100);
+            assertEquals(count, held.size());
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized void release() {
+            holding = false;
+            for (Object[] change : held) {
+                listener.spacesChanged((Long) change[0], (Long) change[1],
+                        (Set<SpaceInstanceInfo>) change[2], (Set<DataSpacesURI>) change[3]);
+            }
+            held.clear();
+        }
+    }
+}
@@ -47,20 +47,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.Source;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
+import org.objectweb.proactive.core.xml.CachingXPath;
+import org.objectweb.proactive.core.xml.DescriptorCache;
 import org.objectweb.proactive.core.xml.VariableContractImpl;
 import org.objectweb.proactive.extensions.dataspaces.core.InputOutputSpaceConfiguration;
 import org.objectweb.proactive.extensions.gcmdeployment.GCMDeploymentLoggers;
@@ -81,7 +78,6 @@ import org.objectweb.proactive.gcmdeployment.GCMVirtualNode;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 
@@ -142,10 +138,8 @@ public class GCMApplicationParserImpl implements GCMApplicationParser {
         setupJAXP();
 
         try {
-            InputSource processedInputSource = Environment.replaceVariables(descriptor, vContract, xpath,
-                    GCM_APPLICATION_NAMESPACE_PREFIX);
-            DocumentBuilder documentBuilder = GCMParserHelper.getNewDocumentBuilder(domFactory);
-            document = documentBuilder.parse(processedInputSource);
+            document = Environment.compile(descriptor, vContract, xpath, GCM_APPLICATION_NAMESPACE_PREFIX,
+                    domFactory, schemas);
 
             // sanity check : make sure there isn't a ref to an old schema in the document
             //
@@ -187,24 +181,16 @@ public class GCMApplicationParserImpl implements GCMApplicationParser {
         domFactory.setNamespaceAware(true);
         domFactory.setIgnoringComments(true);
 
-        SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-
         URL applicationSchema = getClass().getResource(APPLICATION_DESC_LOCATION);
 
         schemas.add(0, applicationSchema.toString());
-        Source[] schemaSources = new Source[schemas.size()];
-
-        int idx = 0;
-        for (String s : schemas) {
-            schemaSources[idx++] = new StreamSource(s);
-        }
 
-        Schema extensionSchema = schemaFactory.newSchema(schemaSources);
+        Schema extensionSchema = DescriptorCache.getSchema(schemas);
 
         domFactory.setSchema(extensionSchema);
 
         XPathFactory factory = XPathFactory.newInstance();
-        xpath = factory.newXPath();
+        xpath = new CachingXPath(factory.newXPath());
         xpath.setNamespaceContext(new GCMParserHelper.ProActiveNamespaceContext());
     }
 
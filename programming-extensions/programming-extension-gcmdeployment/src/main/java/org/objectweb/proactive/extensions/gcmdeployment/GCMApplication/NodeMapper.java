@@ -38,17 +38,21 @@ package org.objectweb.proactive.extensions.gcmdeployment.GCMApplication;
 
 import static org.objectweb.proactive.extensions.gcmdeployment.GCMDeploymentLoggers.GCM_NODEMAPPER_LOGGER;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import javax.management.Notification;
 import javax.management.NotificationListener;
 
+import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
 import org.objectweb.proactive.core.jmx.notification.GCMRuntimeRegistrationNotificationData;
 import org.objectweb.proactive.core.jmx.notification.NotificationType;
 import org.objectweb.proactive.core.jmx.util.JMXNotificationManager;
@@ -72,15 +76,19 @@ public class NodeMapper implements NotificationListener {
     /** Nodes waiting in Stage 3 */
     final private Map<FakeNode, NodeProvider> stage3Pool;
 
-    /** A Semaphore to activate stage 2/3 node dispatching on node arrival */
-    final private Semaphore semaphore;
+    /**
+     * Runtime registrations waiting to be dispatched. JMX notifications only enqueue, the dispatcher
+     * thread collects the registrations received during the coalescing window
+     * (proactive.gcmd.registration.batch_window) and dispatches them as a single batch
+     */
+    final private BlockingQueue<Registration> registrations;
 
     /*
      * Node allocation backend (inside GCMVirtualNode) is not thread safe. This mutex must be take
      * each time a dispatchSx function is called
      * 
-     * Anyway, notifications are currently synchronized by JMX. No concurrency should be encountered
-     * :-/
+     * Only the dispatcher thread dispatches nodes, the mutex protects stage pools against
+     * getUnusedNode()
      */
     final private Object dispatchMutex;
 
@@ -90,7 +98,7 @@ public class NodeMapper implements NotificationListener {
         this.virtualNodes = new LinkedList<GCMVirtualNodeInternal>();
         this.virtualNodes.addAll(virtualNodes);
 
-        this.semaphore = new Semaphore(0);
+        this.registrations = new LinkedBlockingQueue<Registration>();
         this.dispatchMutex = new Object();
 
         /*
@@ -100,7 +108,7 @@ public class NodeMapper implements NotificationListener {
         this.stage2Pool = new ConcurrentHashMap<FakeNode, NodeProvider>();
         this.stage3Pool = new ConcurrentHashMap<FakeNode, NodeProvider>();
         subscribeJMXRuntimeEvent();
-        startStage23Thread();
+        startDispatcherThread();
     }
 
     private void subscribeJMXRuntimeEvent() {
@@ -122,21 +130,10 @@ public class NodeMapper implements NotificationListener {
 
                 gcma.addDeployedRuntime(data.getChildRuntime());
 
-                ProActiveRuntime nodePart = data.getChildRuntime();
                 NodeProvider nodeProvider = gcma.getNodeProviderFromTopologyId(data.getTopologyId());
 
-                for (int i = 0; i < nodePart.getVMInformation().getCapacity(); i++) {
-                    FakeNode fakeNode = new FakeNode(gcma, nodePart);
-
-                    synchronized (dispatchMutex) {
-                        if (!dispatchS1(fakeNode, nodeProvider)) {
-                            stage2Pool.put(fakeNode, nodeProvider);
-                        }
-                    }
-                }
-
-                // Wake up the Stage2 / Stage3 dispatcher
-                semaphore.release();
+                // Wake up the dispatcher
+                registrations.offer(new Registration(data.getChildRuntime(), nodeProvider));
             }
         } catch (Exception e) {
             // If not handled by us, JMX eats the Exception !
@@ -221,34 +218,121 @@ public class NodeMapper implements NotificationListener {
         return false;
     }
 
-    private void startStage23Thread() {
-        Thread t = new Stage23Dispatcher();
+    /**
+     * Dispatches a batch of runtime registrations
+     * 
+     * Stage 1 is performed for each node of the batch then stage 2 and 3 pools are processed once
+     * for the whole batch. Node attachment notifications of the virtual nodes are delayed until the
+     * end of the batch and delivered outside of the dispatch mutex.
+     * 
+     * @param batch
+     *            the registrations received since the previous batch
+     */
+    private void dispatch(List<Registration> batch) {
+        for (GCMVirtualNodeInternal virtualNode : virtualNodes) {
+            virtualNode.beginNodeAttachmentBatch();
+        }
+
+        try {
+            // Remote call, don't hold the mutex while fetching capacities
+            List<FakeNode> fakeNodes = new ArrayList<FakeNode>();
+            List<NodeProvider> nodeProviders = new ArrayList<NodeProvider>();
+            for (Registration registration : batch) {
+                try {
+                    long capacity = registration.runtime.getVMInformation().getCapacity();
+                    for (int i = 0; i < capacity; i++) {
+                        fakeNodes.add(new FakeNode(gcma, registration.runtime));
+                        nodeProviders.add(registration.nodeProvider);
+                    }
+                } catch (Exception e) {
+                    GCM_NODEMAPPER_LOGGER.warn(e.getMessage(), e);
+                }
+            }
+
+            synchronized (dispatchMutex) {
+                for (int i = 0; i < fakeNodes.size(); i++) {
+                    if (!dispatchS1(fakeNodes.get(i), nodeProviders.get(i))) {
+                        stage2Pool.put(fakeNodes.get(i), nodeProviders.get(i));
+                    }
+                }
+
+                for (FakeNode fakeNode : stage2Pool.keySet())
+                    dispatchS2(fakeNode, stage2Pool.get(fakeNode));
+
+                for (FakeNode fakeNode : stage3Pool.keySet())
+                    dispatchS3(fakeNode, stage3Pool.get(fakeNode));
+            }
+        } finally {
+            for (GCMVirtualNodeInternal virtualNode : virtualNodes) {
+                virtualNode.endNodeAttachmentBatch();
+            }
+        }
+    }
+
+    private void startDispatcherThread() {
+        Thread t = new Dispatcher();
         t.setDaemon(true);
-        t.setName("GCM Deployment Stage 2 and 3 dispatcher");
+        t.setName("GCM Deployment node dispatcher");
         t.start();
     }
 
-    private class Stage23Dispatcher extends Thread {
+    private class Dispatcher extends Thread {
         @Override
         public void run() {
             while (true) {
                 // Wait for next handleNotification invocation
                 try {
-                    semaphore.acquire();
-                    synchronized (dispatchMutex) {
-                        for (FakeNode fakeNode : stage2Pool.keySet())
-                            dispatchS2(fakeNode, stage2Pool.get(fakeNode));
+                    List<Registration> batch = nextBatch(registrations,
+                            CentralPAPropertyRepository.PA_GCMD_REGISTRATION_BATCH_WINDOW.getValue());
 
-                        for (FakeNode fakeNode : stage3Pool.keySet())
-                            dispatchS3(fakeNode, stage3Pool.get(fakeNode));
-                    }
+                    GCM_NODEMAPPER_LOGGER.trace("Dispatching " + batch.size() + " runtime registration(s)");
+                    dispatch(batch);
                 } catch (InterruptedException e) {
-                    GCM_NODEMAPPER_LOGGER.error("Semaphore", e);
+                    GCM_NODEMAPPER_LOGGER.error("Dispatcher interrupted", e);
+                } catch (Exception e) {
+                    GCM_NODEMAPPER_LOGGER.warn(e.getMessage(), e);
                 }
             }
         }
     }
 
+    /**
+     * Waits for an element then collects the elements received during the coalescing window
+     *
+     * @param queue
+     *            the queue to drain
+     * @param window
+     *            time in milliseconds to wait for other elements after the first one
+     * @return the batch, never empty
+     */
+    static <T> List<T> nextBatch(BlockingQueue<T> queue, long window) throws InterruptedException {
+        List<T> batch = new ArrayList<T>();
+        batch.add(queue.take());
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(window);
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+            queue.drainTo(batch);
+        }
+        queue.drainTo(batch);
+        return batch;
+    }
+
+    static private class Registration {
+        final ProActiveRuntime runtime;
+        final NodeProvider nodeProvider;
+
+        Registration(ProActiveRuntime runtime, NodeProvider nodeProvider) {
+            this.runtime = runtime;
+            this.nodeProvider = nodeProvider;
+        }
+    }
+
     public Set<FakeNode> getUnusedNode(boolean flush) {
         synchronized (dispatchMutex) {
             // dispatchMutex is a bit coarse grained but getUnusedNode should not be
@@ -45,19 +45,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.Source;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
+import org.objectweb.proactive.core.xml.CachingXPath;
+import org.objectweb.proactive.core.xml.DescriptorCache;
 import org.objectweb.proactive.core.xml.VariableContractImpl;
 import org.objectweb.proactive.extensions.gcmdeployment.GCMDeploymentLoggers;
 import org.objectweb.proactive.extensions.gcmdeployment.GCMParserHelper;
@@ -95,7 +92,6 @@ import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 
@@ -184,17 +180,13 @@ public class GCMDeploymentParserImpl implements GCMDeploymentParser {
         registerDefaultBridgeParsers();
         registerUserBridgeParsers();
         try {
-            InputSource processedInputSource = Environment.replaceVariables(descriptor, vContract, xpath,
-                    GCM_DEPLOYMENT_NAMESPACE_PREFIX);
-
-            // we need to create a new DocumentBuilder before each parsing,
+            // a new DocumentBuilder is created before each parsing,
             // otherwise the schemas set in setupJAXP() through
             // JAXP_SCHEMA_SOURCE
             // are ignored, and validation fails
             //
-            DocumentBuilder documentBuilder = GCMParserHelper.getNewDocumentBuilder(domFactory);
-
-            document = documentBuilder.parse(processedInputSource);
+            document = Environment.compile(descriptor, vContract, xpath, GCM_DEPLOYMENT_NAMESPACE_PREFIX,
+                    domFactory, schemas);
 
         } catch (SAXException e) {
             String msg = "parsing problem with document " + descriptor.toExternalForm();
@@ -267,26 +259,17 @@ public class GCMDeploymentParserImpl implements GCMDeploymentParser {
         domFactory.setNamespaceAware(true);
         domFactory.setIgnoringComments(true);
 
-        SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-
         // Must use URLs here so schemas can be fetched from jars
         URL extensionSchemaURL = GCMDeploymentParserImpl.class.getResource(EXTENSION_SCHEMAS_LOCATION);
 
         schemas.add(0, extensionSchemaURL.toString());
 
-        Source[] schemaSources = new Source[schemas.size()];
-
-        int idx = 0;
-        for (String s : schemas) {
-            schemaSources[idx++] = new StreamSource(s);
-        }
-
-        Schema extensionSchema = schemaFactory.newSchema(schemaSources);
+        Schema extensionSchema = DescriptorCache.getSchema(schemas);
 
         domFactory.setSchema(extensionSchema);
 
         XPathFactory factory = XPathFactory.newInstance();
-        xpath = factory.newXPath();
+        xpath = new CachingXPath(factory.newXPath());
         xpath.setNamespaceContext(new GCMParserHelper.ProActiveNamespaceContext());
     }
 
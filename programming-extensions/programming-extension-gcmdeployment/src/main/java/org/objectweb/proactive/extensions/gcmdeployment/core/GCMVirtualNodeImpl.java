@@ -39,6 +39,9 @@ package org.objectweb.proactive.extensions.gcmdeployment.core;
 import static org.objectweb.proactive.extensions.gcmdeployment.GCMDeploymentLoggers.GCMA_LOGGER;
 import static org.objectweb.proactive.extensions.gcmdeployment.GCMDeploymentLoggers.GCM_NODEMAPPER_LOGGER;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -108,6 +111,20 @@ public class GCMVirtualNodeImpl implements GCMVirtualNodeInternal {
 
     private boolean readyNotifSent = false;
 
+    /**
+     * Nodes attached but not yet notified to nodeAttachmentSubscribers, guarded by nodes
+     */
+    private List<Node> undeliveredAttachments;
+
+    /** Whether the notifications are delayed until the end of a batch, guarded by nodes */
+    private boolean attachmentBatch;
+
+    /**
+     * Taken to deliver node attachment notifications, and to subscribe with history, so that a
+     * subscriber receives each node exactly once
+     */
+    final private Object attachmentDeliveryLock = new Object();
+
     static public GCMVirtualNodeInternal getLocal(UniqueID uniqueID) {
         return localVirtualNodes.get(uniqueID);
     }
@@ -123,6 +140,7 @@ public class GCMVirtualNodeImpl implements GCMVirtualNodeInternal {
         this.applicationTechnicalServicesProperties = applicationTechnicalServicesProperties;
         nodeProvidersContracts = new HashSet<NodeProviderContract>();
         nodes = new LinkedList<Node>();
+        undeliveredAttachments = new ArrayList<Node>();
 
         nodeAttachmentSubscribers = new HashSet<Subscriber>();
         isReadySubscribers = new HashSet<Subscriber>();
@@ -266,27 +284,27 @@ public class GCMVirtualNodeImpl implements GCMVirtualNodeInternal {
 
         Class<?> cl = client.getClass();
         try {
-            Method m = cl.getMethod(methodeName, Node.class, String.class);
+            Subscriber subscriber = new Subscriber(client, methodeName, lookup(cl, methodeName, Node.class,
+                    String.class));
 
             if (withHistory) {
-                List<Node> copyOfNodes;
-                synchronized (this.nodes) {
-                    copyOfNodes = new ArrayList<Node>(nodes);
+                // The nodes not yet delivered will be by the next delivery, which will see this
+                // subscriber
+                synchronized (attachmentDeliveryLock) {
+                    List<Node> copyOfNodes;
+                    synchronized (this.nodes) {
+                        copyOfNodes = new ArrayList<Node>(nodes);
+                        copyOfNodes.removeAll(undeliveredAttachments);
+                    }
                     synchronized (nodeAttachmentSubscribers) {
-                        nodeAttachmentSubscribers.add(new Subscriber(client, methodeName));
+                        nodeAttachmentSubscribers.add(subscriber);
                     }
-                }
 
-                for (Node node : copyOfNodes) {
-                    try {
-                        m.invoke(client, node, this.getName());
-                    } catch (Throwable e) {
-                        GCM_NODEMAPPER_LOGGER.warn("Notification on node attachement failed", e);
-                    }
+                    notifyNodeAttachment(subscriber, copyOfNodes);
                 }
             } else {
                 synchronized (nodeAttachmentSubscribers) {
-                    nodeAttachmentSubscribers.add(new Subscriber(client, methodeName));
+                    nodeAttachmentSubscribers.add(subscriber);
                 }
             }
         } catch (NoSuchMethodException e) {
@@ -320,9 +338,10 @@ public class GCMVirtualNodeImpl implements GCMVirtualNodeInternal {
 
         Class<?> cl = client.getClass();
         try {
-            cl.getMethod(methodeName, String.class);
+            Subscriber subscriber = new Subscriber(client, methodeName, lookup(cl, methodeName,
+                    String.class));
             synchronized (isReadySubscribers) {
-                isReadySubscribers.add(new Subscriber(client, methodeName));
+                isReadySubscribers.add(subscriber);
             }
         } catch (NoSuchMethodException e) {
             throw new ProActiveException("Method " + methodeName + "(GCMVirtualNode) cannot be found on " +
@@ -452,7 +471,6 @@ public class GCMVirtualNodeImpl implements GCMVirtualNodeInternal {
 
     public void addNode(FakeNode fakeNode, NodeProviderContract contract) {
         GCM_NODEMAPPER_LOGGER.debug("One Node " + fakeNode.getRuntimeURL() + " attached to " + getName());
-        Node node;
         synchronized (nodes) {
             TechnicalServicesProperties tsProperties = applicationTechnicalServicesProperties
                     .getCombinationWith(nodeTechnicalServicesProperties);
@@ -472,7 +490,7 @@ public class GCMVirtualNodeImpl implements GCMVirtualNodeInternal {
             }
 
             try {
-                node = fakeNode.create(this, tsList);
+                Node node = fakeNode.create(this, tsList);
 
                 // If node creation failed, then following code blocks are NOT reached
                 // and the node is not added to this virtual node.
@@ -481,50 +499,133 @@ public class GCMVirtualNodeImpl implements GCMVirtualNodeInternal {
                     contract.addNode(node);
                 }
 
-                nodes.add(node);
-                nodes.notifyAll();
-
-                synchronized (nodeAttachmentSubscribers) {
-                    for (Subscriber subscriber : nodeAttachmentSubscribers) {
-                        Class<?> cl = subscriber.getClient().getClass();
-                        try {
-                            Method m = cl.getMethod(subscriber.getMethod(), Node.class, String.class);
-                            m.invoke(subscriber.getClient(), node, this.getName());
-                        } catch (Exception e) {
-                            GCM_NODEMAPPER_LOGGER.warn("Notification on node attachement failed", e);
-                        }
-                    }
-                }
+                attachNode(node);
             } catch (NodeException e) {
                 GCMA_LOGGER.warn("GCM Deployment failed to create a node on " + fakeNode.getRuntimeURL() +
                     ". Please check your network configuration", e);
+                return;
+            }
+        }
+
+        // Subscribers are notified outside of the nodes lock
+        deliverNodeAttachments();
+    }
+
+    /**
+     * Adds a created node to this virtual node, its subscribers are notified by
+     * {@link #deliverNodeAttachments()}
+     */
+    void attachNode(Node node) {
+        synchronized (nodes) {
+            nodes.add(node);
+            nodes.notifyAll();
+            undeliveredAttachments.add(node);
+        }
+    }
+
+    public void beginNodeAttachmentBatch() {
+        synchronized (nodes) {
+            attachmentBatch = true;
+        }
+    }
+
+    public void endNodeAttachmentBatch() {
+        synchronized (nodes) {
+            attachmentBatch = false;
+        }
+        deliverNodeAttachments();
+    }
+
+    /**
+     * Notifies the subscribers of the nodes attached since the previous delivery, unless a batch is
+     * in progress
+     */
+    void deliverNodeAttachments() {
+        synchronized (attachmentDeliveryLock) {
+            List<Node> attached;
+            synchronized (nodes) {
+                if (attachmentBatch || undeliveredAttachments.isEmpty()) {
+                    return;
+                }
+                attached = undeliveredAttachments;
+                undeliveredAttachments = new ArrayList<Node>();
             }
+
+            notifyNodeAttachment(attached);
+        }
+        notifyIsReady();
+    }
+
+    /*
+     * ------------------- Private Helpers
+     */
+
+    private void notifyNodeAttachment(List<Node> attached) {
+        List<Subscriber> subscribers;
+        synchronized (nodeAttachmentSubscribers) {
+            subscribers = new ArrayList<Subscriber>(nodeAttachmentSubscribers);
         }
 
+        for (Subscriber subscriber : subscribers) {
+            notifyNodeAttachment(subscriber, attached);
+        }
+    }
+
+    private void notifyNodeAttachment(Subscriber subscriber, List<Node> attached) {
+        for (Node node : attached) {
+            try {
+                subscriber.getHandle().invokeExact(subscriber.getClient(), node, this.getName());
+            } catch (Throwable e) {
+                GCM_NODEMAPPER_LOGGER.warn("Notification on node attachement failed", e);
+            }
+        }
+    }
+
+    private void notifyIsReady() {
         if (isReady() && !readyNotifSent) {
             synchronized (isReadyMonitor) {
                 isReadyMonitor.notifyAll();
             }
 
+            List<Subscriber> subscribers;
             synchronized (isReadySubscribers) {
-                for (Subscriber subscriber : isReadySubscribers) {
-                    Class<?> cl = subscriber.getClient().getClass();
-                    try {
-                        Method m = cl.getMethod(subscriber.getMethod(), String.class);
-                        m.invoke(subscriber.getClient(), this.getName());
-                        isReadySubscribers.remove(subscriber);
-                    } catch (Exception e) {
-                        GCM_NODEMAPPER_LOGGER.warn(e);
-                    }
+                subscribers = new ArrayList<Subscriber>(isReadySubscribers);
+                isReadySubscribers.clear();
+            }
+
+            for (Subscriber subscriber : subscribers) {
+                try {
+                    subscriber.getHandle().invokeExact(subscriber.getClient(), this.getName());
+                } catch (Throwable e) {
+                    GCM_NODEMAPPER_LOGGER.warn(e);
                 }
             }
             readyNotifSent = true;
         }
     }
 
-    /*
-     * ------------------- Private Helpers
+    /**
+     * Resolves a callback once, at subscription time
+     *
+     * The returned handle takes the client as first parameter and discards the return value.
      */
+    static private MethodHandle lookup(Class<?> cl, String methodName, Class<?>... parameterTypes)
+            throws NoSuchMethodException {
+        Method m = cl.getMethod(methodName, parameterTypes);
+        try {
+            MethodHandle handle = MethodHandles.publicLookup().unreflect(m);
+            return handle.asType(MethodType.methodType(void.class, Object.class, parameterTypes));
+        } catch (IllegalAccessException e) {
+            // Reflective access is still possible, the handle is then bound to the Method
+            m.setAccessible(true);
+            try {
+                return MethodHandles.lookup().unreflect(m).asType(
+                        MethodType.methodType(void.class, Object.class, parameterTypes));
+            } catch (IllegalAccessException e1) {
+                throw (NoSuchMethodException) new NoSuchMethodException(methodName).initCause(e1);
+            }
+        }
+    }
 
     private NodeProviderContract findNodeProviderContract(NodeProvider nodeProvider) {
         for (NodeProviderContract nodeProviderContract : nodeProvidersContracts) {
@@ -602,10 +703,20 @@ public class GCMVirtualNodeImpl implements GCMVirtualNodeInternal {
     static private class Subscriber {
         private Object client;
         private String method;
+        private MethodHandle handle;
 
         public Subscriber(Object client, String method) {
+            this(client, method, null);
+        }
+
+        public Subscriber(Object client, String method, MethodHandle handle) {
             this.client = client;
             this.method = method;
+            this.handle = handle;
+        }
+
+        public MethodHandle getHandle() {
+            return handle;
         }
 
         public Object getClient() {
@@ -134,6 +134,18 @@ public interface GCMVirtualNodeInternal extends GCMVirtualNode {
 
     public void addNode(FakeNode fakeNode, NodeProviderContract contract);
 
+    /**
+     * Delays node attachment notifications until {@link #endNodeAttachmentBatch()} is called
+     *
+     * Nodes are still attached immediately, only the subscribers are notified later.
+     */
+    public void beginNodeAttachmentBatch();
+
+    /**
+     * Notifies the subscribers of all the nodes attached since {@link #beginNodeAttachmentBatch()}
+     */
+    public void endNodeAttachmentBatch();
+
     /**
      * Adds technical services properties to set of node technical service properties.
      * 
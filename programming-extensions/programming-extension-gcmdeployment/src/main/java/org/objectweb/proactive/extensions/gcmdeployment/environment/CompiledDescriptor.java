@@ -0,0 +1,129 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.extensions.gcmdeployment.environment;
+
+import java.util.List;
+import java.util.Map;
+
+import org.objectweb.proactive.core.xml.VariableContractImpl;
+import org.objectweb.proactive.core.xml.VariableContractType;
+import org.objectweb.proactive.extensions.gcmdeployment.GCMDeploymentLoggers;
+import org.w3c.dom.Document;
+
+
+/**
+ * A parsed, validated and variable resolved GCM descriptor
+ *
+ * The compiled form of a descriptor depends on the variable contract used to compile it. The
+ * variables declared by the descriptor environment are recorded, they are replayed on the variable
+ * contract of each deployment reusing this compiled descriptor.
+ *
+ * @see Environment#compile
+ */
+public class CompiledDescriptor {
+    final private Document document;
+
+    final private List<DescriptorVariable> descriptorVariables;
+
+    final private Map<String, String> resolvedVariables;
+
+    CompiledDescriptor(Document document, List<DescriptorVariable> descriptorVariables,
+            Map<String, String> resolvedVariables) {
+        this.document = document;
+        this.descriptorVariables = descriptorVariables;
+        this.resolvedVariables = resolvedVariables;
+    }
+
+    /**
+     * @return a private copy of the compiled document, the caller can freely modify it
+     */
+    public Document newDocument() {
+        // DOM implementations are not thread safe, even for read operations
+        synchronized (document) {
+            return (Document) document.cloneNode(true);
+        }
+    }
+
+    /**
+     * Sets the descriptor variables into a variable contract
+     *
+     * Nothing is done if the resulting variables would differ from the ones used to compile the
+     * descriptor (a java property changed for example).
+     *
+     * @param vContract
+     *            the variable contract of the deployment
+     * @return true if the variables have been set and this compiled descriptor can be used, false
+     *         otherwise
+     */
+    boolean applyTo(VariableContractImpl vContract) {
+        if (vContract == null) {
+            return true;
+        }
+
+        try {
+            VariableContractImpl copy = (VariableContractImpl) vContract.clone();
+            replay(copy);
+            if (!copy.toMap().equals(resolvedVariables)) {
+                return false;
+            }
+        } catch (Exception e) {
+            GCMDeploymentLoggers.GCMD_LOGGER.debug("Compiled descriptor cannot be reused", e);
+            return false;
+        }
+
+        replay(vContract);
+        return true;
+    }
+
+    private void replay(VariableContractImpl vContract) {
+        for (DescriptorVariable variable : descriptorVariables) {
+            vContract.setDescriptorVariable(variable.name, variable.value, variable.type);
+        }
+    }
+
+    static class DescriptorVariable {
+        final String name;
+        final String value;
+        final VariableContractType type;
+
+        DescriptorVariable(String name, String value, VariableContractType type) {
+            this.name = name;
+            this.value = value;
+            this.type = type;
+        }
+    }
+}
@@ -36,13 +36,15 @@
  */
 package org.objectweb.proactive.extensions.gcmdeployment.environment;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -50,7 +52,9 @@ import javax.xml.transform.TransformerException;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathExpressionException;
 
+import org.objectweb.proactive.core.xml.DescriptorCache;
 import org.objectweb.proactive.core.xml.VariableContractImpl;
+import org.objectweb.proactive.extensions.gcmdeployment.GCMDeploymentLoggers;
 import org.objectweb.proactive.extensions.gcmdeployment.GCMParserConstants;
 import org.objectweb.proactive.extensions.gcmdeployment.GCMParserHelper;
 import org.w3c.dom.Document;
@@ -62,12 +66,79 @@ import org.xml.sax.SAXException;
 
 public class Environment {
 
-    /* Since XSLT 1.0 & Java static methods are used to perform the variable replacement, it is not thread safe
+    /** Compiled descriptors, shared by the application and deployment parsers */
+    static final private DescriptorCache<CompiledDescriptor> compiledDescriptors = new DescriptorCache<CompiledDescriptor>();
+
+    /**
+     * Replaces the variables of a descriptor then parses it
+     *
+     * The resulting document is cached. Compiling again the same descriptor, with the same schemas
+     * and the same variable contract, returns a copy of the cached document without parsing the
+     * descriptor again. The variables declared by the descriptor are still set into the variable
+     * contract.
+     *
+     * @param descriptor
+     *            the descriptor to compile
+     * @param vContract
+     *            the variable contract, updated with the variables declared by the descriptor
+     * @param xpath
+     *            used to read the environment of the descriptor
+     * @param namespace
+     *            the namespace prefix of the descriptor
+     * @param domFactory
+     *            a factory providing validating document builders
+     * @param schemas
+     *            the schemas set on domFactory
+     * @return the parsed document, owned by the caller
      */
-    synchronized public static InputSource replaceVariables(URL descriptor, VariableContractImpl vContract,
-            XPath xpath, String namespace) throws IOException, SAXException, XPathExpressionException,
-            TransformerException, URISyntaxException {
+    public static Document compile(URL descriptor, VariableContractImpl vContract, XPath xpath,
+            String namespace, DocumentBuilderFactory domFactory, List<String> schemas) throws IOException,
+            SAXException, XPathExpressionException, TransformerException, URISyntaxException {
+        String key = null;
+        if (compiledDescriptors.isEnabled()) {
+            key = DescriptorCache.computeKey(descriptor, namespace, schemas, sortedVariables(vContract));
+            CompiledDescriptor compiled = compiledDescriptors.get(key);
+            if ((compiled != null) && compiled.applyTo(vContract)) {
+                GCMDeploymentLoggers.GCMD_LOGGER.debug("Reusing compiled descriptor " + descriptor);
+                return compiled.newDocument();
+            }
+        }
+
+        EnvironmentParser environmentParser;
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        // Since XSLT 1.0 & Java static methods are used to perform the variable replacement, it is not thread safe
+        synchronized (Environment.class) {
+            environmentParser = parseEnvironment(descriptor, vContract, xpath, namespace);
+
+            EnvironmentTransformer environmentTransformer;
+            environmentTransformer = new EnvironmentTransformer(environmentParser.getVariableContract(),
+                descriptor);
+            environmentTransformer.transform(outputStream);
+        }
+
+        DocumentBuilder documentBuilder = GCMParserHelper.getNewDocumentBuilder(domFactory);
+        Document document = documentBuilder.parse(new InputSource(new ByteArrayInputStream(outputStream
+                .toByteArray())));
+
+        if ((key != null) && environmentParser.isCacheable()) {
+            compiledDescriptors.put(key, new CompiledDescriptor((Document) document.cloneNode(true),
+                environmentParser.getDescriptorVariables(), environmentParser.getVariableContract().toMap()));
+        }
 
+        return document;
+    }
+
+    /**
+     * @return the variables of a contract, with their type and origin, in a stable order
+     */
+    private static List<String> sortedVariables(VariableContractImpl vContract) {
+        List<String> variables = new ArrayList<String>(Arrays.asList(vContract.toString().split("\n")));
+        Collections.sort(variables);
+        return variables;
+    }
+
+    private static EnvironmentParser parseEnvironment(URL descriptor, VariableContractImpl vContract,
+            XPath xpath, String namespace) throws IOException, SAXException, XPathExpressionException {
         DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
         domFactory.setNamespaceAware(true);
         domFactory.setIgnoringComments(true);
@@ -101,22 +172,10 @@ public class Environment {
             throw new SAXException("couldn't check document's namespace");
         }
 
-        EnvironmentTransformer environmentTransformer;
-        environmentTransformer = new EnvironmentTransformer(environmentParser.getVariableContract(),
-            descriptor);
-
-        // We get the file name from the url
-        // TODO test it on linux / windows
-        File abstractFile = new File(descriptor.getFile());
-        File tempFile = File.createTempFile(abstractFile.getName(), null);
-        tempFile.deleteOnExit();
-
-        OutputStream outputStream = new FileOutputStream(tempFile);
-        environmentTransformer.transform(outputStream);
-        outputStream.close();
+        // Parse the environment now, it must be done before the transformation
+        environmentParser.getVariableContract();
 
-        InputSource inputSource = new InputSource(new FileInputStream(tempFile));
-        return inputSource;
+        return environmentParser;
     }
 
 }
@@ -40,6 +40,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
@@ -75,6 +76,12 @@ class EnvironmentParser {
     protected String namespace;
     protected boolean alreadyParsed;
 
+    /** Variables set by the descriptor, in declaration order */
+    protected List<CompiledDescriptor.DescriptorVariable> descriptorVariables = new ArrayList<CompiledDescriptor.DescriptorVariable>();
+
+    /** False if variables are read from an external file, then the result cannot be cached */
+    protected boolean cacheable = true;
+
     protected EnvironmentParser(URL descriptor, VariableContractImpl vContract,
             DocumentBuilderFactory domFactory, XPath xpath, String namespace) throws IOException,
             SAXException {
@@ -136,6 +143,7 @@ class EnvironmentParser {
                 String varContractTypeName = varDeclNode.getNodeName();
 
                 if (varContractTypeName.equals(INCLUDE_PROPERTY_FILE)) {
+                    cacheable = false;
                     String fileLocation = varDeclNode.getAttributes().getNamedItem("location").getNodeValue();
                     fileLocation = variableContract.transform(fileLocation);
                     InputStream is = new FileInputStream(fileLocation);
@@ -153,8 +161,7 @@ class EnvironmentParser {
                         if (propertyValue == null) {
                             propertyValue = "";
                         }
-                        variableContract.setDescriptorVariable(propertyName.toString(), propertyValue,
-                                varContractType);
+                        setDescriptorVariable(propertyName.toString(), propertyValue, varContractType);
                     }
 
                 } else { // normal variable declaration
@@ -185,10 +192,23 @@ class EnvironmentParser {
 
                     }
 
-                    variableContract.setDescriptorVariable(varName, varValue, varContractType);
+                    setDescriptorVariable(varName, varValue, varContractType);
                 }
 
             }
         }
     }
+
+    private void setDescriptorVariable(String name, String value, VariableContractType type) {
+        variableContract.setDescriptorVariable(name, value, type);
+        descriptorVariables.add(new CompiledDescriptor.DescriptorVariable(name, value, type));
+    }
+
+    protected List<CompiledDescriptor.DescriptorVariable> getDescriptorVariables() {
+        return descriptorVariables;
+    }
+
+    protected boolean isCacheable() {
+        return cacheable;
+    }
 }
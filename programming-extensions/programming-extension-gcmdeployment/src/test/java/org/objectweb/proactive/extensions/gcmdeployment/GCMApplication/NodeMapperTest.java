@@ -0,0 +1,86 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.extensions.gcmdeployment.GCMApplication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.junit.Test;
+
+
+public class NodeMapperTest {
+
+    @Test
+    public void registrationsReceivedDuringTheWindowAreBatched() throws Exception {
+        final BlockingQueue<Integer> queue = new LinkedBlockingQueue<Integer>();
+        queue.add(1);
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                    queue.add(2);
+                    queue.add(3);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        producer.start();
+
+        List<Integer> batch = NodeMapper.nextBatch(queue, 500);
+        producer.join();
+        assertEquals(Arrays.asList(1, 2, 3), batch);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void noWindowDrainsWhatHasBeenReceived() throws Exception {
+        BlockingQueue<Integer> queue = new LinkedBlockingQueue<Integer>();
+        queue.add(1);
+        queue.add(2);
+
+        long start = System.currentTimeMillis();
+        assertEquals(Arrays.asList(1, 2), NodeMapper.nextBatch(queue, 0));
+        assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+}
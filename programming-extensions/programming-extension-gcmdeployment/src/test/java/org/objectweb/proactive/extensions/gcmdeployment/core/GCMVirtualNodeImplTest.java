@@ -0,0 +1,177 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2012 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.objectweb.proactive.extensions.gcmdeployment.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.objectweb.proactive.core.node.Node;
+
+
+public class GCMVirtualNodeImplTest {
+
+    @Test
+    public void attachmentsAreDeliveredAtTheEndOfTheBatch() throws Exception {
+        GCMVirtualNodeImpl vn = new GCMVirtualNodeImpl();
+        Recorder recorder = new Recorder();
+        vn.subscribeNodeAttachment(recorder, "nodeAttached", false);
+
+        Node n1 = node();
+        Node n2 = node();
+        Node n3 = node();
+        vn.beginNodeAttachmentBatch();
+        vn.attachNode(n1);
+        vn.attachNode(n2);
+        vn.deliverNodeAttachments();
+        vn.attachNode(n3);
+        assertTrue(recorder.nodes.isEmpty());
+
+        vn.endNodeAttachmentBatch();
+        assertEquals(Arrays.asList(n1, n2, n3), recorder.nodes);
+    }
+
+    @Test
+    public void attachmentsAreDeliveredImmediatelyOutsideOfABatch() throws Exception {
+        GCMVirtualNodeImpl vn = new GCMVirtualNodeImpl();
+        Recorder recorder = new Recorder();
+        vn.subscribeNodeAttachment(recorder, "nodeAttached", false);
+
+        Node n1 = node();
+        vn.attachNode(n1);
+        vn.deliverNodeAttachments();
+        assertEquals(Arrays.asList(n1), recorder.nodes);
+    }
+
+    @Test
+    public void subscriptionWithHistoryDuringABatch() throws Exception {
+        GCMVirtualNodeImpl vn = new GCMVirtualNodeImpl();
+        Node n1 = node();
+        vn.attachNode(n1);
+        vn.deliverNodeAttachments();
+
+        Node n2 = node();
+        vn.beginNodeAttachmentBatch();
+        vn.attachNode(n2);
+
+        Recorder recorder = new Recorder();
+        vn.subscribeNodeAttachment(recorder, "nodeAttached", true);
+        assertEquals(Arrays.asList(n1), recorder.nodes);
+
+        vn.endNodeAttachmentBatch();
+        assertEquals(Arrays.asList(n1, n2), recorder.nodes);
+    }
+
+    @Test
+    public void subscriptionWithHistoryDuringADelivery() throws Exception {
+        final GCMVirtualNodeImpl vn = new GCMVirtualNodeImpl();
+        final Recorder late = new Recorder();
+
+        // Subscribes from another thread while the first subscriber is being notified
+        Recorder early = new Recorder() {
+            @Override
+            public void nodeAttached(Node node, String vnName) {
+                super.nodeAttached(node, vnName);
+                if (nodes.size() > 1) {
+                    return;
+                }
+                Thread t = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            vn.subscribeNodeAttachment(late, "nodeAttached", true);
+                        } catch (Exception e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                };
+                t.start();
+                try {
+                    t.join(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        vn.subscribeNodeAttachment(early, "nodeAttached", false);
+
+        Node n1 = node();
+        Node n2 = node();
+        vn.beginNodeAttachmentBatch();
+        vn.attachNode(n1);
+        vn.attachNode(n2);
+        vn.endNodeAttachmentBatch();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (late.nodes.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+        assertEquals(Arrays.asList(n1, n2), early.nodes);
+        assertEquals(Arrays.asList(n1, n2), late.nodes);
+    }
+
+    static public class Recorder {
+        final List<Node> nodes = Collections.synchronizedList(new ArrayList<Node>());
+
+        public void nodeAttached(Node node, String vnName) {
+            nodes.add(node);
+        }
+    }
+
+    static private Node node() {
+        return (Node) Proxy.newProxyInstance(Node.class.getClassLoader(), new Class<?>[] { Node.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("equals")) {
+                            return proxy == args[0];
+                        } else if (method.getName().equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        }
+                        return null;
+                    }
+                });
+    }
+}
@@ -42,6 +42,12 @@ import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.objectweb.proactive.extensions.vfsprovider.exceptions.StreamNotFoundException;
@@ -51,9 +57,15 @@ import org.objectweb.proactive.extensions.vfsprovider.protocol.FileSystemServer;
 import org.objectweb.proactive.extensions.vfsprovider.protocol.StreamMode;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSelector;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileType;
+import org.apache.commons.vfs2.FileUtil;
+import org.apache.commons.vfs2.NameScope;
 import org.apache.commons.vfs2.RandomAccessContent;
+import org.apache.commons.vfs2.Selectors;
+import org.apache.commons.vfs2.impl.DecoratedFileObject;
 import org.apache.commons.vfs2.provider.AbstractFileName;
 import org.apache.commons.vfs2.provider.AbstractFileObject;
 import org.apache.commons.vfs2.provider.AbstractRandomAccessStreamContent;
@@ -72,6 +84,9 @@ public class ProActiveFileObject extends AbstractFileObject {
     // logging in VFS (not ProActive) way
     private static Log log = LogFactory.getLog(ProActiveFileObject.class);
 
+    /** The number of files requested at once from a server by a server to server copy */
+    static final int SERVER_COPY_BATCH_SIZE = 16;
+
     private static final FileInfo IMAGINARY_FILE_INFO = new FileInfo() {
 
         public long getLastModifiedTime() {
@@ -117,6 +132,129 @@ public class ProActiveFileObject extends AbstractFileObject {
         return ((ProActiveFileName) getName()).getPathDecoded();
     }
 
+    /**
+     * Copies the selected files the same way as {@link AbstractFileObject} does, except that the
+     * content of files located on a ProActive file system server is pulled directly by the
+     * server of this file, in parallel and without passing through this client.
+     * <p>
+     * The files are grouped by source server and requested by batches of
+     * {@link #SERVER_COPY_BATCH_SIZE}, so that the progress of the copy is tracked by this client.
+     */
+    @Override
+    public void copyFrom(FileObject file, FileSelector selector) throws FileSystemException {
+        if (!(undecorate(file) instanceof ProActiveFileObject)) {
+            super.copyFrom(file, selector);
+            return;
+        }
+        if (!file.exists()) {
+            throw new FileSystemException("vfs.provider/copy-missing-file.error", file);
+        }
+
+        final List<FileObject> files = new ArrayList<FileObject>();
+        file.findFiles(selector, false, files);
+
+        // destination paths to source paths, by source server URL
+        final Map<String, Map<String, String>> serverCopies;
+        serverCopies = new LinkedHashMap<String, Map<String, String>>();
+        final List<FileObject> copiedFiles = new ArrayList<FileObject>();
+        final ServerCopyProgress progress = new ServerCopyProgress();
+        for (final FileObject srcFile : files) {
+            final String relPath = file.getName().getRelativeName(srcFile.getName());
+            final FileObject destFile = resolveFile(relPath, NameScope.DESCENDENT_OR_SELF);
+
+            if (destFile.exists() && destFile.getType() != srcFile.getType()) {
+                destFile.delete(Selectors.SELECT_ALL);
+            }
+
+            if (srcFile.getType().hasContent()) {
+                final FileObject src = undecorate(srcFile);
+                final FileObject dest = undecorate(destFile);
+                if (src instanceof ProActiveFileObject && dest instanceof ProActiveFileObject) {
+                    final String serverURL = ((ProActiveFileName) src.getName()).getServerURL();
+                    Map<String, String> copies = serverCopies.get(serverURL);
+                    if (copies == null) {
+                        copies = new LinkedHashMap<String, String>();
+                        serverCopies.put(serverURL, copies);
+                    }
+                    copies.put(((ProActiveFileObject) dest).getPath(), ((ProActiveFileObject) src).getPath());
+                    copiedFiles.add(destFile);
+                    progress.totalFiles++;
+                    progress.totalBytes += srcFile.getContent().getSize();
+                } else {
+                    try {
+                        FileUtil.copyContent(srcFile, destFile);
+                    } catch (IOException e) {
+                        throw new FileSystemException("vfs.provider/copy-file.error", new Object[] { srcFile,
+                                destFile }, e);
+                    }
+                }
+            } else if (srcFile.getType().hasChildren()) {
+                destFile.createFolder();
+            }
+        }
+
+        if (!serverCopies.isEmpty()) {
+            try {
+                for (final Map.Entry<String, Map<String, String>> copies : serverCopies.entrySet()) {
+                    copyOnServer(copies.getKey(), copies.getValue(), progress);
+                }
+            } catch (IOException e) {
+                throw new FileSystemException("vfs.provider/copy-file.error", new Object[] { file, this },
+                    new IOException("Server copy failed after " + progress, e));
+            } finally {
+                for (final FileObject copied : copiedFiles) {
+                    copied.refresh();
+                }
+            }
+            if (progress.copiedBytes != progress.totalBytes) {
+                log.warn("Server copy to " + getName() + " copied " + progress +
+                    ", some source files changed during the copy");
+            }
+        }
+    }
+
+    private void copyOnServer(String sourceServerURL, Map<String, String> copies, ServerCopyProgress progress)
+            throws IOException {
+        final Map<String, String> batch = new HashMap<String, String>();
+        final Iterator<Map.Entry<String, String>> it = copies.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<String, String> copy = it.next();
+            batch.put(copy.getKey(), copy.getValue());
+            if (batch.size() == SERVER_COPY_BATCH_SIZE || !it.hasNext()) {
+                progress.copiedBytes += getServer().fileCopyFrom(sourceServerURL, batch);
+                progress.copiedFiles += batch.size();
+                batch.clear();
+                if (log.isDebugEnabled()) {
+                    log.debug("Server copy from " + sourceServerURL + " to " + getName() + ": " + progress);
+                }
+            }
+        }
+    }
+
+    /**
+     * The files and bytes copied by the servers for a {@link #copyFrom(FileObject, FileSelector)}
+     */
+    private static class ServerCopyProgress {
+        private final long start = System.currentTimeMillis();
+        int totalFiles;
+        int copiedFiles;
+        long totalBytes;
+        long copiedBytes;
+
+        @Override
+        public String toString() {
+            return copiedFiles + "/" + totalFiles + " file(s), " + copiedBytes + "/" + totalBytes +
+                " bytes in " + (System.currentTimeMillis() - start) + " ms";
+        }
+    }
+
+    private static FileObject undecorate(FileObject file) {
+        while (file instanceof DecoratedFileObject) {
+            file = ((DecoratedFileObject) file).getDecoratedFileObject();
+        }
+        return file;
+    }
+
     @Override
     protected void doAttach() throws Exception {
         synchronized (proactiveFS) {
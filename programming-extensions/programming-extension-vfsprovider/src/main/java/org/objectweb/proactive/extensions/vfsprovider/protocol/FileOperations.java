@@ -162,4 +162,22 @@ public interface FileOperations {
      *             when file does not exist or security exception occurred
      */
     public abstract boolean fileSetLastModifiedTime(String path, long time) throws IOException;
+
+    /**
+     * Copy ordinary files from another file system server directly to this one, without passing
+     * their content through the caller. Files are pulled from the source server in parallel.
+     * Missing ancestor directories of the destination files are created and existing destination
+     * files are overwritten.
+     *
+     * @param sourceServerURL
+     *            URL of the source file system server, cannot be <code>null</code>
+     * @param files
+     *            map of destination paths (on this server) to source paths (on the source server)
+     *            of the files to copy, cannot be <code>null</code>
+     * @return the number of copied bytes
+     * @throws IOException
+     *             when the source server cannot be reached, a source file cannot be read or a
+     *             security or I/O error occurred; some of the files may have been copied then
+     */
+    public abstract long fileCopyFrom(String sourceServerURL, Map<String, String> files) throws IOException;
 }
@@ -40,18 +40,30 @@ import static java.util.Collections.sort;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
+import org.objectweb.proactive.api.PARemoteObject;
+import org.objectweb.proactive.core.ProActiveException;
 import org.objectweb.proactive.core.config.CentralPAPropertyRepository;
 import org.objectweb.proactive.core.config.PAProperties;
 import org.objectweb.proactive.core.exceptions.IOException6;
@@ -64,6 +76,7 @@ import org.objectweb.proactive.extensions.vfsprovider.protocol.FileInfo;
 import org.objectweb.proactive.extensions.vfsprovider.protocol.FileSystemServer;
 import org.objectweb.proactive.extensions.vfsprovider.protocol.FileType;
 import org.objectweb.proactive.extensions.vfsprovider.protocol.StreamMode;
+import org.objectweb.proactive.utils.NamedThreadFactory;
 
 
 // TODO idea: now we export existing directory, shall we allow to export a file?
@@ -91,6 +104,11 @@ import org.objectweb.proactive.extensions.vfsprovider.protocol.StreamMode;
  * return.
  * <p>
  * File managing related operations implementation base on {@link File} class.
+ * <p>
+ * Server to server copies ({@link #fileCopyFrom(String, Map)}) pull files from the source server
+ * through its stream operations, on a pool of
+ * {@link CentralPAPropertyRepository#PA_VFSPROVIDER_SERVER_COPY_THREADS} threads shared by all the
+ * copy requests and stopped with the server.
  *
  * @see FileSystemServer
  * @see Stream
@@ -106,6 +124,8 @@ public class FileSystemServerImpl implements FileSystemServer {
 
     public static final long DEFAULT_STREAM_OPEN_MAXIMUM_PERIOD_MILLIS = 1000 * 60;
 
+    private static final int COPY_CHUNK_SIZE = 1024 * 1024;
+
     private long streamOpenMaximumPeriodMillis = DEFAULT_STREAM_OPEN_MAXIMUM_PERIOD_MILLIS;
 
     private long streamAutocloseCheckingIntervalMillis = DEFAULT_STREAM_AUTOCLOSE_CHECKING_INTERVAL_MILLIS;
@@ -130,6 +150,8 @@ public class FileSystemServerImpl implements FileSystemServer {
 
     private StreamAutocloseThread streamAutocloseThread;
 
+    private ExecutorService copyExecutor;
+
     /**
      * ProActive empty non-arg constructor. <strong>Internal use only.</strong>
      */
@@ -208,6 +230,9 @@ public class FileSystemServerImpl implements FileSystemServer {
         if (streamAutocloseThread != null)
             streamAutocloseThread.setToStop();
 
+        if (copyExecutor != null)
+            copyExecutor.shutdownNow();
+
         final HashSet<Long> snapshot;
         synchronized (streams) {
             snapshot = new HashSet<Long>(streams.keySet());
@@ -455,6 +480,136 @@ public class FileSystemServerImpl implements FileSystemServer {
         }
     }
 
+    public long fileCopyFrom(String sourceServerURL, Map<String, String> files) throws IOException {
+        // resolve every destination first, so that an invalid request does not copy anything
+        final Map<File, String> resolved = resolveCopies(files);
+        return copyFrom(lookupServer(sourceServerURL), sourceServerURL, resolved);
+    }
+
+    /**
+     * Same as {@link #fileCopyFrom(String, Map)}, from a source server already looked up.
+     *
+     * @param source
+     *            the source file system server, cannot be <code>null</code>
+     * @param files
+     *            map of destination paths (on this server) to source paths (on the source server)
+     *            of the files to copy, cannot be <code>null</code>
+     * @return the number of copied bytes
+     * @throws IOException
+     *             when a source file cannot be read or a security or I/O error occurred
+     */
+    public long fileCopyFrom(FileSystemServer source, Map<String, String> files) throws IOException {
+        return copyFrom(source, "the source server", resolveCopies(files));
+    }
+
+    private Map<File, String> resolveCopies(Map<String, String> files) throws IOException {
+        final Map<File, String> resolved = new HashMap<File, String>(files.size());
+        for (Entry<String, String> entry : files.entrySet()) {
+            resolved.put(resolvePath(entry.getKey()), entry.getValue());
+        }
+        return resolved;
+    }
+
+    private long copyFrom(final FileSystemServer source, String sourceServerURL, Map<File, String> resolved)
+            throws IOException {
+        final ExecutorService executor = getCopyExecutor();
+
+        final List<Future<Long>> copies = new ArrayList<Future<Long>>(resolved.size());
+        for (final Entry<File, String> entry : resolved.entrySet()) {
+            copies.add(executor.submit(new Callable<Long>() {
+                public Long call() throws IOException {
+                    return copyFile(source, entry.getValue(), entry.getKey());
+                }
+            }));
+        }
+
+        long bytes = 0;
+        try {
+            for (Future<Long> copy : copies) {
+                bytes += copy.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException6("Interrupted while copying files from " + sourceServerURL, e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            throw new IOException6("Failed to copy files from " + sourceServerURL, cause);
+        } finally {
+            for (Future<Long> copy : copies) {
+                copy.cancel(true);
+            }
+        }
+        if (logger.isDebugEnabled())
+            logger.debug("Copied " + resolved.size() + " file(s), " + bytes + " bytes, from " +
+                sourceServerURL);
+        return bytes;
+    }
+
+    private synchronized ExecutorService getCopyExecutor() {
+        synchronized (serverStopLock) {
+            if (serverStopped)
+                throw new IllegalStateException("File server has been stopped");
+        }
+        if (copyExecutor == null) {
+            copyExecutor = Executors.newFixedThreadPool(
+                    CentralPAPropertyRepository.PA_VFSPROVIDER_SERVER_COPY_THREADS.getValue(),
+                    new NamedThreadFactory("FileSystemServer copy", true));
+        }
+        return copyExecutor;
+    }
+
+    private static FileSystemServer lookupServer(String serverURL) throws IOException {
+        final Object stub;
+        try {
+            stub = PARemoteObject.lookup(new URI(serverURL));
+        } catch (URISyntaxException e) {
+            throw new IOException6("Unexpected URL of file system server: " + serverURL, e);
+        } catch (ProActiveException e) {
+            throw new IOException6("Could not connect to file system server under specified URL: " +
+                serverURL, e);
+        }
+        if (!(stub instanceof FileSystemServer))
+            throw new IOException("No valid FileSystemServer instance can be found under specified URL: " +
+                serverURL);
+        return (FileSystemServer) stub;
+    }
+
+    private static long copyFile(FileSystemServer source, String sourcePath, File file) throws IOException {
+        final File parent = file.getParentFile();
+        if (parent != null)
+            parent.mkdirs();
+
+        final long stream = source.streamOpen(sourcePath, StreamMode.SEQUENTIAL_READ);
+        long bytes = 0;
+        try {
+            final OutputStream os = new FileOutputStream(file);
+            try {
+                byte[] data;
+                while ((data = source.streamRead(stream, COPY_CHUNK_SIZE)) != null) {
+                    os.write(data);
+                    bytes += data.length;
+                }
+            } finally {
+                os.close();
+            }
+        } catch (StreamNotFoundException e) {
+            throw new IOException6("Source stream of " + sourcePath + " has been closed during the copy", e);
+        } catch (WrongStreamTypeException e) {
+            throw new IOException6(e);
+        } catch (SecurityException sec) {
+            throw new IOException6(sec);
+        } finally {
+            try {
+                source.streamClose(stream);
+            } catch (StreamNotFoundException e) {
+                // auto closed meanwhile
+            }
+        }
+        return bytes;
+    }
+
     private void waitUntilStreamIsClosed(long stream) {
         // be sure that a stream instance is closed successfully
         final Stream instance = streamsToClose.get(stream);
@@ -38,9 +38,13 @@ package vfsprovider;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 import org.objectweb.proactive.extensions.vfsprovider.protocol.FileInfo;
@@ -51,6 +55,7 @@ import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -354,6 +359,52 @@ public class FileOperationsTest extends AbstractIOOperationsBase {
         assertEquals(time / 1000, timeRead / 1000);
     }
 
+    @Test
+    public void copyFromAnotherServer() throws IOException {
+        final File sourceDir = new File(testDir.getParentFile(), getTestDirFilename() + "-source");
+        assertTrue(new File(sourceDir, "sub").mkdirs());
+        final FileSystemServerImpl source = new FileSystemServerImpl(sourceDir.getAbsolutePath());
+        try {
+            // larger than a chunk pulled from the source server
+            final byte[] big = new byte[3 * 1024 * 1024 / 2];
+            new Random(42).nextBytes(big);
+            final byte[] small = TEST_FILE_CONTENT.getBytes("UTF-8");
+            Files.write(new File(sourceDir, "big.bin").toPath(), big);
+            Files.write(new File(sourceDir, "sub" + File.separator + "small.txt").toPath(), small);
+
+            final Map<String, String> files = new HashMap<String, String>();
+            files.put(TEST_SEPARATOR + "copy" + TEST_SEPARATOR + "big.bin", TEST_SEPARATOR + "big.bin");
+            files.put(TEST_SEPARATOR + "copy" + TEST_SEPARATOR + "deep" + TEST_SEPARATOR + TEST_FILENAME,
+                    TEST_SEPARATOR + "sub" + TEST_SEPARATOR + "small.txt");
+            // overwritten
+            files.put(TEST_SEPARATOR + TEST_FILENAME, TEST_SEPARATOR + "big.bin");
+
+            final long bytes = ((FileSystemServerImpl) server).fileCopyFrom(source, files);
+
+            assertEquals(2 * big.length + small.length, bytes);
+            final File copyDir = new File(testDir, "copy");
+            assertArrayEquals(big, Files.readAllBytes(new File(copyDir, "big.bin").toPath()));
+            assertArrayEquals(small, Files.readAllBytes(new File(copyDir, "deep" + File.separator +
+                TEST_FILENAME).toPath()));
+            assertArrayEquals(big, Files.readAllBytes(testFile.toPath()));
+        } finally {
+            source.stopServer();
+            deleteRecursively(sourceDir);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void copyFromOutOfScope() throws IOException {
+        server.fileCopyFrom("rmi://localhost/fs", Collections.singletonMap(TEST_SEPARATOR + ".." +
+            TEST_SEPARATOR + TEST_FILENAME, TEST_SEPARATOR + TEST_FILENAME));
+    }
+
+    @Test(expected = IOException.class)
+    public void copyFromInvalidServerURL() throws IOException {
+        server.fileCopyFrom("not a server url", Collections.singletonMap(TEST_SEPARATOR + "copy.txt",
+                TEST_SEPARATOR + TEST_FILENAME));
+    }
+
     private void testCreateFile(final String path, final FileType fileType) throws IOException {
         final FileInfo fi;
         server.fileCreate(path, fileType);
@@ -36,6 +36,23 @@
  */
 package org.objectweb.proactive.core;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.lang.ref.WeakReference;
+import java.rmi.dgc.VMID;
+import java.rmi.server.UID;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.objectweb.proactive.annotation.PublicAPI;
 
 
@@ -45,6 +62,18 @@ import org.objectweb.proactive.annotation.PublicAPI;
  * with a unique UID on that VM.
  * </p><p>
  * The UniqueID is used to identify object globally, even in case of migration.
+ * </p><p>
+ * Internally an UniqueID is the VMID, shared by all the UniqueIDs of a VM, plus the host, time and
+ * count parts of the UID. equals compares the VMID instances and these parts, so it is exactly the
+ * UID/VMID equality. A VMID is forgotten once no UniqueID uses it. The UID is only built when
+ * asked for.
+ * </p><p>
+ * UniqueIDs are ordered by their canonical strings.
+ * </p><p>
+ * An UniqueID is serialized as an UID and a VMID, unless the compact wire format has been enabled
+ * (see {@link #setCompactWireFormat(boolean)}). The compact format only writes the two longs and
+ * the host part; the VMID object is shared by all the UniqueIDs of a VM, so it is written once per
+ * stream and then referenced. Both formats are always understood when reading.
  * </p>
  * @author The ProActive Team
  * @version 1.0,  2001/10/23
@@ -54,13 +83,34 @@ import org.objectweb.proactive.annotation.PublicAPI;
 
 @PublicAPI
 public class UniqueID implements java.io.Serializable, Comparable<UniqueID> {
-    private java.rmi.server.UID id;
-    private java.rmi.dgc.VMID vmID;
+    // Serialized form of the UID/VMID based implementation
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("id", UID.class), new ObjectStreamField("vmID", VMID.class),
+            new ObjectStreamField("identifier", String.class) };
+
+    private transient UID id;
+    /** The VMID, shared by all the UniqueIDs of a VM */
+    private transient VMIDEntry vm;
     private String identifier;
 
+    /** Time and count parts of the UID */
+    private transient long localID;
+    /** Host part of the UID */
+    private transient int host;
+
     //the Unique ID of the JVM
     private static java.rmi.dgc.VMID uniqueVMID = new java.rmi.dgc.VMID();
 
+    /** Known VMIDs, all the UniqueIDs of a VM share the same entry while one of them is used */
+    private static final Map<VMID, WeakReference<VMIDEntry>> vmIDs = new WeakHashMap<VMID, WeakReference<VMIDEntry>>();
+    private static final VMIDEntry localVM = new VMIDEntry(uniqueVMID);
+    /** Host part of the UIDs of this VM */
+    private static final int localHost = decodeHost(new UID());
+    /** Last time and count parts generated, the count is in the 16 lower bits */
+    private static final AtomicLong lastLocalID = new AtomicLong();
+
+    private static volatile boolean compactWireFormat = false;
+
     // Optim
     private transient String cachedShortString;
     private transient String cachedCanonString;
@@ -78,8 +128,9 @@ public class UniqueID implements java.io.Serializable, Comparable<UniqueID> {
      * Creates a new UniqueID
      */
     public UniqueID() {
-        this.id = new java.rmi.server.UID();
-        this.vmID = uniqueVMID;
+        this.vm = localVM;
+        this.host = localHost;
+        this.localID = nextLocalID();
     }
 
     //
@@ -94,6 +145,22 @@ public class UniqueID implements java.io.Serializable, Comparable<UniqueID> {
         return uniqueVMID;
     }
 
+    /**
+     * Enable or disable the compact wire format
+     *
+     * The compact format can only be read by runtimes knowing it, so it must only be enabled
+     * when all the runtimes exchanging UniqueIDs agreed on it.
+     *
+     * @param compact true to write the compact format, false to write the UID/VMID format
+     */
+    public static void setCompactWireFormat(boolean compact) {
+        compactWireFormat = compact;
+    }
+
+    public static boolean isCompactWireFormat() {
+        return compactWireFormat;
+    }
+
     //
     // -- PUBLIC METHODS -----------------------------------------------
     //
@@ -105,7 +172,7 @@ public class UniqueID implements java.io.Serializable, Comparable<UniqueID> {
      * @return the VMID part of this UniqueID
      */
     public java.rmi.dgc.VMID getVMID() {
-        return this.vmID;
+        return this.vm.vmID;
     }
 
     /**
@@ -113,7 +180,13 @@ public class UniqueID implements java.io.Serializable, Comparable<UniqueID> {
      * @return the UID part of this UniqueID
      */
     public java.rmi.server.UID getUID() {
-        return this.id;
+        // Date-race initialization. Equal UIDs are built
+        UID u = this.id;
+        if (u == null) {
+            u = encodeUID(this.host, this.localID);
+            this.id = u;
+        }
+        return u;
     }
 
     /**
@@ -140,7 +213,7 @@ public class UniqueID implements java.io.Serializable, Comparable<UniqueID> {
         // Date-race initialization. Initialization in the ctor is to heavy
         String s = this.cachedCanonString;
         if (s == null) {
-            s = ((identifier != null ? identifier : "") + this.id + "--" + this.vmID).replace(':', '-');
+            s = ((identifier != null ? identifier : "") + this.getUID() + "--" + this.vm.vmID).replace(':', '-');
             this.cachedCanonString = s;
         }
 
@@ -157,7 +230,8 @@ public class UniqueID implements java.io.Serializable, Comparable<UniqueID> {
      */
     @Override
     public int hashCode() {
-        return this.id.hashCode() + this.vmID.hashCode();
+        long h = this.vm.key ^ (this.localID * 0x9E3779B97F4A7C15L) ^ this.host;
+        return (int) (h ^ (h >>> 32));
     }
 
     /**
@@ -166,9 +240,10 @@ public class UniqueID implements java.io.Serializable, Comparable<UniqueID> {
      */
     @Override
     public boolean equals(Object o) {
-        //System.out.println("Now checking for equality");
         if (o instanceof UniqueID) {
-            return ((this.id.equals(((UniqueID) o).getUID())) && (this.vmID.equals(((UniqueID) o).getVMID())));
+            UniqueID u = (UniqueID) o;
+            // VMIDs are interned, see intern(VMID)
+            return this.localID == u.localID && this.host == u.host && this.vm == u.vm;
         } else {
             return false;
         }
@@ -178,6 +253,128 @@ public class UniqueID implements java.io.Serializable, Comparable<UniqueID> {
      * for debug purpose
      */
     public void echo() {
-        System.out.println("UniqueID The Id is " + this.id + " and the address is " + this.vmID);
+        System.out.println("UniqueID The Id is " + this.getUID() + " and the address is " + this.vm.vmID);
+    }
+
+    //
+    // -- PRIVATE METHODS -----------------------------------------------
+    //
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        boolean compact = compactWireFormat;
+        ObjectOutputStream.PutField fields = out.putFields();
+        // A null UID tells the reader that the compact form follows
+        fields.put("id", compact ? null : this.getUID());
+        fields.put("vmID", this.vm.vmID);
+        fields.put("identifier", this.identifier);
+        out.writeFields();
+        if (compact) {
+            out.writeInt(this.host);
+            out.writeLong(this.localID);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        UID u = (UID) fields.get("id", null);
+        this.vm = intern((VMID) fields.get("vmID", null));
+        this.identifier = (String) fields.get("identifier", null);
+        if (u == null) {
+            this.host = in.readInt();
+            this.localID = in.readLong();
+        } else {
+            this.id = u;
+            byte[] b = toBytes(u);
+            DataInputStream dis = new DataInputStream(new ByteArrayInputStream(b));
+            this.host = dis.readInt();
+            this.localID = (dis.readLong() << 16) | (dis.readShort() & 0xFFFFL);
+        }
+    }
+
+    /**
+     * @return a new time and count pair, greater than all the previous ones
+     */
+    private static long nextLocalID() {
+        long now = System.currentTimeMillis() << 16;
+        while (true) {
+            long last = lastLocalID.get();
+            long next = Math.max(last + 1, now);
+            if (lastLocalID.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    private static UID encodeUID(int host, long localID) {
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(14);
+            DataOutputStream dos = new DataOutputStream(baos);
+            dos.writeInt(host);
+            dos.writeLong(localID >>> 16);
+            dos.writeShort((short) localID);
+            dos.flush();
+            return UID.read(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+        } catch (IOException e) {
+            // Cannot happen with byte arrays
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int decodeHost(UID u) {
+        try {
+            return new DataInputStream(new ByteArrayInputStream(toBytes(u))).readInt();
+        } catch (IOException e) {
+            // Cannot happen with byte arrays
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] toBytes(UID u) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(14);
+        DataOutputStream dos = new DataOutputStream(baos);
+        u.write(dos);
+        dos.flush();
+        return baos.toByteArray();
+    }
+
+    private static VMIDEntry intern(VMID vmID) {
+        if (localVM.vmID.equals(vmID)) {
+            return localVM;
+        }
+        synchronized (vmIDs) {
+            WeakReference<VMIDEntry> ref = vmIDs.get(vmID);
+            VMIDEntry entry = (ref == null) ? null : ref.get();
+            if (entry == null) {
+                // The stale key must not outlive the new entry
+                vmIDs.remove(vmID);
+                entry = new VMIDEntry(vmID);
+                vmIDs.put(entry.vmID, new WeakReference<VMIDEntry>(entry));
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * A VMID and its 64 bits digest
+     */
+    private static final class VMIDEntry {
+        final VMID vmID;
+        final long key;
+
+        VMIDEntry(VMID vmID) {
+            this.vmID = vmID;
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-1").digest(vmID.toString().getBytes("UTF-8"));
+                long k = 0;
+                for (int i = 0; i < 8; i++) {
+                    k = (k << 8) | (digest[i] & 0xFF);
+                }
+                this.key = k;
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
     }
 }